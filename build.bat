@@ -6,7 +6,20 @@ if not exist "target\classes" mkdir "target\classes"
 
 REM Compile all Java files
 echo Compiling Java files...
-javac -d target\classes -cp "src\main\java" src\main\java\systems\mythical\myjavaproject\*.java
+javac -d target\classes -cp "src\main\java;lib\*" src\main\java\systems\mythical\myjavaproject\*.java
+
+REM Copy resources (static CSS/JS for the web pages)
+echo Copying resources...
+xcopy /E /I /Y /Q src\main\resources target\classes >nul
+
+REM Third-party files (static\vendor) must be bundled, offline pages are unstyled without them
+echo Checking vendored files...
+java -cp "target\classes;lib\*" systems.mythical.myjavaproject.StaticAssets check src\main\resources\static
+if %errorlevel% neq 0 (
+    echo Build failed: third-party files missing, see above
+    pause
+    exit /b 1
+)
 
 REM Create manifest file
 echo Creating manifest...
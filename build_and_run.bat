@@ -15,6 +15,8 @@ if %errorlevel% neq 0 (
 
 echo ✅ Compilation successful!
 
+xcopy /E /I /Y /Q src\main\resources target\classes >nul
+
 echo.
 echo 🎮 Creating JAR file...
 jar cfm target/TicTacToe.jar manifest.txt -C target/classes .
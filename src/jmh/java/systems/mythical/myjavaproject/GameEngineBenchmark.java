@@ -0,0 +1,134 @@
+package systems.mythical.myjavaproject;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks für die Spiellogik: Arena-Züge, Gewinnprüfung, lokales Spiel, KI und Query-Parsing
+ *
+ * Aufruf: mvn -Pjmh verify -Djmh.include=GameEngine  (Ergebnis: target/jmh-result.json)
+ * Ohne -Djmh.include laufen alle Benchmarks, auch JsonCodecBenchmark für die JSON-Helfer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameEngineBenchmark {
+    // X wins in the top row after five moves (board index 0-8)
+    private static final int[] ARENA_WIN_MOVES = {0, 3, 1, 4, 2};
+    // Local game positions 1-9; X wins on the left column after five moves
+    private static final int[] LOCAL_WIN_MOVES = {1, 2, 4, 5, 7};
+
+    /**
+     * Eine Arena mit zwei Spielern und ihren Sitzungen; wird vor jedem Aufruf zurückgesetzt
+     */
+    @State(Scope.Thread)
+    public static class ArenaGame {
+        SimpleMultiplayerServer.GameArena arena;
+        PlayerSessions.Session playerX;
+        PlayerSessions.Session playerO;
+
+        @Setup(Level.Trial)
+        public void create() {
+            arena = new SimpleMultiplayerServer.GameArena("Arena-Bench", "Benchmark");
+        }
+
+        @Setup(Level.Invocation)
+        public void seat() {
+            arena.reset();
+            playerX = reissue(playerX, arena.join("Spieler Eins"), 0);
+            playerO = reissue(playerO, arena.join("Spieler Zwei"), 1);
+        }
+
+        // issue() returns null while the old token still holds the seat (same interned name after the reset)
+        private PlayerSessions.Session reissue(PlayerSessions.Session previous, SimpleMultiplayerServer.ArenaState seated, int seat) {
+            PlayerSessions.Session session = PlayerSessions.issue(arena, seated, seat);
+            return session != null ? session : previous;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Boards {
+        final char[] xWinsDiagonal = "XO OXO  X".toCharArray();
+        final char[] openMidgame = "XO  X  O ".toCharArray();
+        final char[] fullDraw = "XOXXOOOXX".toCharArray();
+    }
+
+    /**
+     * KI-Zug je Schwierigkeit, einmal auf leerem Feld und einmal mitten im Spiel
+     */
+    @State(Scope.Benchmark)
+    public static class AiPosition {
+        @Param({"EASY", "MEDIUM", "HARD"})
+        TicTacToeAI.Difficulty difficulty;
+
+        @Param({"empty", "midgame"})
+        String position;
+
+        TicTacToeAI ai;
+        char[][] board;
+
+        @Setup(Level.Trial)
+        public void create() {
+            ai = new TicTacToeAI(difficulty);
+            board = "empty".equals(position)
+                    ? new char[][]{{' ', ' ', ' '}, {' ', ' ', ' '}, {' ', ' ', ' '}}
+                    : new char[][]{{'X', ' ', ' '}, {' ', 'O', ' '}, {' ', ' ', 'X'}};
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Queries {
+        final String statusQuery = "arena=Arena-1&player=Spieler%20Eins&since=42&timeout=25000";
+    }
+
+    @Benchmark
+    public boolean arenaFullGame(ArenaGame game) {
+        boolean accepted = true;
+        for (int i = 0; i < ARENA_WIN_MOVES.length; i++) {
+            accepted &= game.arena.makeMove(ARENA_WIN_MOVES[i], i % 2 == 0 ? game.playerX : game.playerO);
+        }
+        return accepted;
+    }
+
+    @Benchmark
+    public void checkWin(Boards boards, Blackhole blackhole) {
+        blackhole.consume(SimpleMultiplayerServer.ArenaState.checkWin(boards.xWinsDiagonal, 'X'));
+        blackhole.consume(SimpleMultiplayerServer.ArenaState.checkWin(boards.openMidgame, 'X'));
+        blackhole.consume(SimpleMultiplayerServer.ArenaState.checkWin(boards.fullDraw, 'O'));
+    }
+
+    @Benchmark
+    public TicTacToe localFullGame() {
+        TicTacToe game = new TicTacToe();
+        for (int position : LOCAL_WIN_MOVES) {
+            game.makeMove(position);
+        }
+        return game;
+    }
+
+    @Benchmark
+    public int aiChooseMove(AiPosition setup) {
+        return setup.ai.chooseMove(setup.board);
+    }
+
+    @Benchmark
+    public Map<String, String> parseStatusQuery(Queries queries) {
+        return SimpleMultiplayerServer.parseQuery(queries.statusQuery);
+    }
+}
@@ -0,0 +1,115 @@
+package systems.mythical.myjavaproject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Vergleicht den alten Regex/HashMap-Ansatz (extractJson/mapToJson) mit JsonReader/JsonWriter
+ *
+ * Aufruf: mvn -Pjmh verify -Djmh.include=JsonCodec  (Ergebnis: target/jmh-result.json)
+ * Für Allokationen zusätzlich "-prof gc" an JMH übergeben.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonCodecBenchmark {
+    private final String moveBody = "{\"arena\":\"Arena-1\",\"player\":\"Spieler Eins\",\"position\":4}";
+    private final byte[] moveBodyBytes = moveBody.getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public void readMoveLegacy(Blackhole blackhole) {
+        blackhole.consume(LegacyJson.extractJson(moveBody, "arena"));
+        blackhole.consume(LegacyJson.extractJson(moveBody, "player"));
+        blackhole.consume(LegacyJson.extractJson(moveBody, "position"));
+    }
+
+    @Benchmark
+    public String[] readMoveCodec() {
+        return JsonReader.readFields(moveBodyBytes, "arena", "player", "position");
+    }
+
+    @Benchmark
+    public byte[] writeJoinLegacy() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("symbol", "X");
+        response.put("gameStarted", false);
+        return LegacyJson.mapToJson(response).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int writeJoinCodec(Blackhole blackhole) {
+        JsonWriter response = JsonWriter.acquire();
+        try {
+            response.beginObject();
+            response.name("success").value(true);
+            response.name("symbol").value("X");
+            response.name("gameStarted").value(false);
+            response.endObject();
+            // the handlers copy straight from the buffer into the response stream
+            blackhole.consume(response);
+            return response.size();
+        } finally {
+            response.release();
+        }
+    }
+
+    /**
+     * Unveränderte Kopie der früheren Helfer aus SimpleMultiplayerServer als Vergleichsbasis
+     */
+    static final class LegacyJson {
+        static String extractJson(String json, String key) {
+            String stringPattern = "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"";
+            Pattern p = Pattern.compile(stringPattern);
+            Matcher m = p.matcher(json);
+            if (m.find()) {
+                return m.group(1);
+            }
+
+            String numberPattern = "\"" + key + "\"\\s*:\\s*(\\d+)";
+            p = Pattern.compile(numberPattern);
+            m = p.matcher(json);
+            return m.find() ? m.group(1) : "";
+        }
+
+        static String mapToJson(Map<String, Object> map) {
+            StringBuilder sb = new StringBuilder("{");
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                if (!first) sb.append(",");
+                sb.append("\"").append(entry.getKey()).append("\":");
+                Object value = entry.getValue();
+                if (value instanceof String) {
+                    sb.append("\"").append(value).append("\"");
+                } else if (value instanceof Boolean) {
+                    sb.append(value.toString());
+                } else if (value == null) {
+                    sb.append("null");
+                } else {
+                    sb.append("\"").append(value).append("\"");
+                }
+                first = false;
+            }
+            sb.append("}");
+            return sb.toString();
+        }
+    }
+}
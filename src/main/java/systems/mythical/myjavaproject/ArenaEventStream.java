@@ -0,0 +1,298 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Server-Sent Events (text/event-stream) für Arena- und Lobby-Updates
+ * Alternative zum WebSocket-Kanal für Clients hinter Proxies, die WebSockets blockieren.
+ *
+ * Offene Streams belegen keinen Thread: der HTTP-Handler registriert die Verbindung und kehrt
+ * sofort zurück. Events und Heartbeats landen in einer begrenzten Mailbox je Stream, die ein
+ * Writer-Thread abarbeitet, solange etwas darin liegt (wie bei SpectatorHub). Ein langsamer Client
+ * hält damit weder die anderen Streams noch den Spielzug auf; läuft seine Mailbox über, wird sein
+ * Stream geschlossen und der Browser verbindet sich neu (retry) und bekommt einen frischen Snapshot.
+ *
+ * Die Writer sind Plattform-Threads: der Response-Stream der JDK-Engine schreibt in synchronized-
+ * Methoden, ein virtueller Thread vor einem vollen Socket würde seinen Carrier blockieren.
+ * Die JDK-Engine kennt auch kein Schreib-Timeout; ein Writer, der an einem Client hängt, der nichts
+ * mehr liest, wird deshalb beim Schließen unterbrochen (der SocketChannel schließt sich dabei).
+ */
+public class ArenaEventStream {
+    private static final long HEARTBEAT_SECONDS = 15;
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+    // Events a stream may have waiting; a healthy client drains a burst (e.g. /api/batch) well before that
+    private static final int MAILBOX_FRAMES = 1024;
+    // Marks the end of a stream in its mailbox (compared by identity)
+    private static final byte[] END = new byte[0];
+
+    private static final Map<String, Set<Subscriber>> arenaSubscribers = new ConcurrentHashMap<>();
+    private static final Set<Subscriber> lobbySubscribers = ConcurrentHashMap.newKeySet();
+    // Threads only exist while a stream has something to write, idle streams hold none
+    private static final ExecutorService writers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "sse-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sse-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final LongAdder droppedStreams = new LongAdder();
+
+    /**
+     * Ein offener Event-Stream; es schreibt immer höchstens ein Thread gleichzeitig auf ihn
+     */
+    private static final class Subscriber {
+        final HttpExchange exchange;
+        final OutputStream out;
+        final String arenaId;
+        final Queue<byte[]> mailbox = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean(false);
+        final AtomicBoolean closed = new AtomicBoolean(false);
+        // set by close(): the exchange is torn down instead of finishing the response
+        volatile boolean aborted;
+        // the thread currently draining this stream, so close() can interrupt a write that never returns
+        private final ReentrantLock writerLock = new ReentrantLock();
+        private Thread writer;
+
+        Subscriber(HttpExchange exchange, String arenaId) {
+            this.exchange = exchange;
+            this.out = exchange.getResponseBody();
+            this.arenaId = arenaId;
+        }
+
+        /**
+         * Legt ein Event in die Mailbox; blockiert nie
+         */
+        void send(byte[] payload) {
+            if (closed.get()) {
+                return;
+            }
+            if (queued.incrementAndGet() > MAILBOX_FRAMES) {
+                if (close()) {
+                    droppedStreams.increment();
+                    AsyncLog.warn("⚠️ SSE-Client " + exchange.getRemoteAddress() + " zu langsam, Stream wird geschlossen");
+                }
+                return;
+            }
+            mailbox.add(payload);
+            if (scheduled.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        /**
+         * Schließt den Stream, nachdem alles davor Eingereihte geschrieben ist
+         */
+        void finish() {
+            send(END);
+        }
+
+        private void drain() {
+            setWriter(Thread.currentThread());
+            try {
+                do {
+                    byte[] payload;
+                    while (!closed.get() && (payload = mailbox.poll()) != null) {
+                        queued.decrementAndGet();
+                        if (payload == END) {
+                            unregister();
+                            break;
+                        }
+                        out.write(payload);
+                    }
+                    if (closed.get()) {
+                        // stays scheduled, so nothing is ever written to this stream again
+                        closeExchange();
+                        return;
+                    }
+                    out.flush();
+                    scheduled.set(false);
+                    // an event queued while we were flushing must not be lost
+                } while (!mailbox.isEmpty() && scheduled.compareAndSet(false, true));
+            } catch (IOException e) {
+                close();
+                closeExchange();
+            } finally {
+                setWriter(null);
+            }
+        }
+
+        /**
+         * Meldet den Stream ab und bricht ihn ab; ein Writer, der gerade an ihm schreibt, wird unterbrochen
+         * @return false, wenn er schon geschlossen war
+         */
+        boolean close() {
+            aborted = true;
+            if (!unregister()) {
+                return false;
+            }
+            mailbox.clear();
+            writerLock.lock();
+            try {
+                if (writer != null) {
+                    // a blocked channel write fails with ClosedByInterruptException and closes the socket
+                    writer.interrupt();
+                }
+            } finally {
+                writerLock.unlock();
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+            return true;
+        }
+
+        private boolean unregister() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            if (arenaId == null) {
+                lobbySubscribers.remove(this);
+            } else {
+                Set<Subscriber> subscribers = arenaSubscribers.get(arenaId);
+                if (subscribers != null) {
+                    subscribers.remove(this);
+                }
+            }
+            return true;
+        }
+
+        private void closeExchange() {
+            if (aborted) {
+                // the final chunk would block on a client that stopped reading; interrupted, the write closes the channel instead
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        }
+
+        private void setWriter(Thread thread) {
+            writerLock.lock();
+            try {
+                writer = thread;
+                if (thread == null) {
+                    // an interrupt from close() must not hit the next stream this pool thread writes to
+                    Thread.interrupted();
+                }
+            } finally {
+                writerLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Registriert den Stream als Listener für Arena-Änderungen und startet den Heartbeat
+     */
+    static void install() {
+        SimpleMultiplayerServer.addArenaListener(ArenaEventStream::publish);
+        heartbeat.scheduleAtFixedRate(ArenaEventStream::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Öffnet einen Stream für eine Arena (arenaId != null) oder die ganze Lobby (arenaId == null)
+     * Die Methode blockiert nicht, der Exchange bleibt bis zum Verbindungsabbruch offen.
+     */
+    static void subscribe(HttpExchange exchange, String arenaId) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream; charset=UTF-8");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().add("X-Accel-Buffering", "no");
+        exchange.sendResponseHeaders(200, 0);
+
+        Subscriber subscriber = new Subscriber(exchange, arenaId);
+        subscriber.send("retry: 3000\n\n".getBytes(StandardCharsets.UTF_8));
+        if (arenaId == null) {
+            lobbySubscribers.add(subscriber);
+            return;
+        }
+        // registered before the snapshot is taken, so no change in between gets lost
+        arenaSubscribers.computeIfAbsent(arenaId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        SimpleMultiplayerServer.GameArena arena = SimpleMultiplayerServer.getArena(arenaId);
+        if (arena == null) {
+            // deleted already, drop the set the registration may have created again
+            arenaSubscribers.computeIfPresent(arenaId, (id, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+            subscriber.send(event("deleted", "{\"arena\":\"\"}"));
+            subscriber.finish();
+            return;
+        }
+        subscriber.send(event("state", SimpleMultiplayerServer.arenaStateJson(arena, "snapshot")));
+    }
+
+    public static long getDroppedStreams() {
+        return droppedStreams.sum();
+    }
+
+    public static int getOpenStreams() {
+        int count = lobbySubscribers.size();
+        for (Set<Subscriber> subscribers : arenaSubscribers.values()) {
+            count += subscribers.size();
+        }
+        return count;
+    }
+
+    private static void publish(SimpleMultiplayerServer.GameArena arena, String event) {
+        boolean deleted = "deleted".equals(event);
+        Set<Subscriber> subscribers = deleted ? arenaSubscribers.remove(arena.id) : arenaSubscribers.get(arena.id);
+        if (subscribers != null && !subscribers.isEmpty()) {
+            byte[] payload = event("state", SimpleMultiplayerServer.arenaStateJson(arena, event));
+            for (Subscriber subscriber : subscribers) {
+                subscriber.send(payload);
+                if (deleted) {
+                    subscriber.finish();
+                }
+            }
+        }
+
+        // Plain moves do not change anything the lobby shows, only game end does
+        boolean lobbyRelevant = !"move".equals(event) || arena.getState().isFinished();
+        if (lobbyRelevant && !lobbySubscribers.isEmpty()) {
+            byte[] payload = event("lobby", "{\"event\":\"" + event + "\",\"arena\":\"" + arena.id + "\",\"players\":" + arena.getPlayerCount() + "}");
+            for (Subscriber subscriber : lobbySubscribers) {
+                subscriber.send(payload);
+            }
+        }
+    }
+
+    private static void heartbeat() {
+        for (Subscriber subscriber : lobbySubscribers) {
+            ping(subscriber);
+        }
+        for (Set<Subscriber> subscribers : arenaSubscribers.values()) {
+            for (Subscriber subscriber : subscribers) {
+                ping(subscriber);
+            }
+        }
+    }
+
+    private static void ping(Subscriber subscriber) {
+        // a stream with events still waiting gets data soon anyway
+        if (subscriber.queued.get() == 0) {
+            subscriber.send(HEARTBEAT);
+        }
+    }
+
+    private static byte[] event(String name, String json) {
+        return ("event: " + name + "\ndata: " + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,621 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-Ahead-Log für die Arenen von SimpleMultiplayerServer
+ *
+ * Jede Arena-Änderung (created, join, move, reset, deleted) wird als Datensatz mit dem neuen
+ * Arena-Zustand an ein memory-mapped Segment angehängt, jedes ausgestellte Sitzungs-Token als Hash
+ * (siehe PlayerSessions). Ein Hintergrund-Thread schreibt die Segmente
+ * gesammelt auf die Platte (Group Commit) und legt regelmäßig einen kompakten Snapshot aller Arenen an;
+ * ältere Segmente werden danach gelöscht. Beim Start wird der Snapshot geladen und nur der Rest des
+ * Journals nachgespielt.
+ *
+ * Datensatz: [int Länge][int CRC32C][Payload]; Länge 0 markiert das Ende der geschriebenen Daten.
+ * Da jeder Datensatz den ganzen Arena-Zustand mit Version enthält, gewinnt beim Nachspielen immer
+ * die höchste Version, auch wenn zwei Threads ihre Datensätze in anderer Reihenfolge anhängen.
+ *
+ * Konfiguration (System Properties):
+ *   -Djournal.dir=data/journal-8080     (Standard: data/journal-<server.port>, leer = kein Journal)
+ *   -Djournal.syncMs=50                 (Durability-Fenster: so oft wird auf die Platte geschrieben, 0 = bei jedem Datensatz)
+ *   -Djournal.ack=async|sync            (sync: Request wartet, bis sein Datensatz auf der Platte ist)
+ *   -Djournal.segmentBytes=16777216     (Größe eines Segments)
+ *   -Djournal.snapshotSeconds=30        (Abstand der Snapshots)
+ */
+public class ArenaJournal {
+    public static final String DIR_PROPERTY = "journal.dir";
+    public static final String SYNC_PROPERTY = "journal.syncMs";
+    public static final String ACK_PROPERTY = "journal.ack";
+    public static final String SEGMENT_PROPERTY = "journal.segmentBytes";
+    public static final String SNAPSHOT_PROPERTY = "journal.snapshotSeconds";
+
+    private static final int HEADER_BYTES = 8;
+    // Larger records (absurdly long names) are not journaled; also the tail that gets zeroed after a torn write
+    private static final int MAX_PAYLOAD = 64 * 1024;
+    private static final byte TYPE_STATE = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final byte TYPE_SESSION = 3;
+    private static final int SNAPSHOT_MAGIC = 0x41524E53;
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    private final Path dir;
+    private final long syncMs;
+    private final boolean syncAck;
+    private final int segmentBytes;
+    private final long snapshotSeconds;
+
+    // ReentrantLock instead of synchronized: handlers run on virtual threads and must not pin their carrier
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Serializes force() calls, so a flush only reports bytes as synced after every earlier flush finished
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncedCondition = syncLock.newCondition();
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private int offset;
+    private int flushedOffset;
+    private long appendedBytes;
+    private volatile long syncedBytes;
+    private long lastSnapshotPosition = -1;
+    private final LongAdder records = new LongAdder();
+    private ScheduledExecutorService scheduler;
+    // Latest session per seat found by recover(), by arena id
+    private final Map<String, RecoveredSession[]> recoveredSessions = new HashMap<>();
+
+    /**
+     * Ein beim Start wiederhergestellter Arena-Zustand
+     */
+    record RecoveredArena(String id, String name, SimpleMultiplayerServer.ArenaState state) {
+    }
+
+    /**
+     * Eine beim Start wiederhergestellte Sitzung; version ist die Arena-Version beim Ausstellen
+     */
+    record RecoveredSession(int seat, String occupant, long version, byte[] digest) {
+    }
+
+    public ArenaJournal(Path dir, long syncMs, boolean syncAck, int segmentBytes, long snapshotSeconds) {
+        this.dir = dir;
+        this.syncMs = syncMs;
+        this.syncAck = syncAck;
+        this.segmentBytes = Math.max(MAX_PAYLOAD * 4, segmentBytes);
+        this.snapshotSeconds = snapshotSeconds;
+    }
+
+    /**
+     * Liest die Konfiguration; null, wenn das Journal mit -Djournal.dir= abgeschaltet ist
+     */
+    public static ArenaJournal fromSystemProperties(int port) {
+        String dir = System.getProperty(DIR_PROPERTY, "data/journal-" + port);
+        if (dir.isBlank()) {
+            return null;
+        }
+        return new ArenaJournal(Path.of(dir),
+                Long.getLong(SYNC_PROPERTY, 50),
+                "sync".equalsIgnoreCase(System.getProperty(ACK_PROPERTY, "async")),
+                Integer.getInteger(SEGMENT_PROPERTY, 16 * 1024 * 1024),
+                Long.getLong(SNAPSHOT_PROPERTY, 30));
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    public long getRecords() {
+        return records.sum();
+    }
+
+    /**
+     * Lädt Snapshot und Journal und öffnet das letzte Segment zum Weiterschreiben
+     * @return die Arenen in Erstellungsreihenfolge
+     */
+    public Map<String, RecoveredArena> recover() throws IOException {
+        Files.createDirectories(dir);
+        Map<String, RecoveredArena> arenas = new LinkedHashMap<>();
+        Set<String> deleted = new HashSet<>();
+
+        long start = readSnapshot(arenas);
+        lastSnapshotPosition = start;
+        int startSegment = Math.max(1, (int) (start >>> 32));
+        int startOffset = (int) start;
+
+        List<Integer> segments = listSegments();
+        int lastSegment = startSegment;
+        int lastEnd = startOffset;
+        for (int index : segments) {
+            if (index < startSegment) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+                ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                lastEnd = replay(data, index == startSegment ? startOffset : 0, arenas, deleted, recoveredSessions);
+                lastSegment = index;
+            }
+        }
+
+        openSegment(lastSegment, lastEnd);
+        return arenas;
+    }
+
+    /**
+     * Die von recover() gefundenen Sitzungen einer Arena (höchstens eine je Sitz)
+     */
+    public List<RecoveredSession> getRecoveredSessions(String arenaId) {
+        List<RecoveredSession> sessions = new ArrayList<>(2);
+        RecoveredSession[] seats = recoveredSessions.get(arenaId);
+        if (seats != null) {
+            for (RecoveredSession session : seats) {
+                if (session != null) {
+                    sessions.add(session);
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Hängt das Journal als ArenaListener ein und startet Group Commit und Snapshots
+     */
+    public void install() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "arena-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (syncMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::flush, syncMs, syncMs, TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::snapshot, snapshotSeconds, snapshotSeconds, TimeUnit.SECONDS);
+        SimpleMultiplayerServer.addArenaListener((arena, event) -> {
+            if ("deleted".equals(event)) {
+                append(encodeDelete(arena.id));
+            } else {
+                append(encodeState(arena.id, arena.name, arena.getState()));
+            }
+        });
+        PlayerSessions.addIssueListener((session, seated) ->
+                append(encodeSession(session.arena().id, session.seat(), session.occupant(), seated.version(), session.digest())));
+        recoveredSessions.clear();
+    }
+
+    /**
+     * Schreibt alles Ausstehende und einen letzten Snapshot (beim Beenden)
+     */
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        snapshot();
+    }
+
+    private void append(byte[] payload) {
+        if (payload == null) {
+            return;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        long end;
+        appendLock.lock();
+        try {
+            // keep at least 4 zero bytes behind the last record as end marker
+            if (offset + HEADER_BYTES + payload.length + 4 > segmentBytes) {
+                roll();
+            }
+            segment.putInt(offset + 4, (int) crc.getValue());
+            segment.put(offset + HEADER_BYTES, payload);
+            segment.putInt(offset, payload.length);
+            offset += HEADER_BYTES + payload.length;
+            appendedBytes += HEADER_BYTES + payload.length;
+            end = appendedBytes;
+        } catch (IOException e) {
+            AsyncLog.error("❌ Journal-Segment konnte nicht angelegt werden: " + e.getMessage());
+            return;
+        } finally {
+            appendLock.unlock();
+        }
+        records.increment();
+
+        if (syncMs <= 0) {
+            flush();
+        } else if (syncAck) {
+            awaitSynced(end);
+        }
+    }
+
+    /**
+     * Group Commit: ein force() für alle seit dem letzten Lauf angehängten Datensätze
+     */
+    private void flush() {
+        flushLock.lock();
+        try {
+            MappedByteBuffer buffer;
+            int from;
+            int to;
+            long target;
+            appendLock.lock();
+            try {
+                buffer = segment;
+                from = flushedOffset;
+                to = offset;
+                target = appendedBytes;
+                flushedOffset = offset;
+            } finally {
+                appendLock.unlock();
+            }
+            if (target == syncedBytes) {
+                return;
+            }
+            if (to > from) {
+                buffer.force(from, to - from);
+            }
+            syncLock.lock();
+            try {
+                syncedBytes = target;
+                syncedCondition.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+        } catch (RuntimeException e) {
+            // force() reports I/O errors unchecked; keep the scheduled flush alive
+            AsyncLog.error("❌ Journal konnte nicht geschrieben werden: " + e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void awaitSynced(long end) {
+        syncLock.lock();
+        try {
+            while (syncedBytes < end) {
+                // bounded wait, so a stuck disk does not hang the request forever
+                if (syncedCondition.awaitNanos(TimeUnit.MILLISECONDS.toNanos(syncMs * 10)) <= 0) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Schreibt den Zustand aller Arenen und löscht danach die Segmente, die er ersetzt
+     */
+    private void snapshot() {
+        long position;
+        appendLock.lock();
+        try {
+            position = ((long) segmentIndex << 32) | offset;
+        } finally {
+            appendLock.unlock();
+        }
+        if (position == lastSnapshotPosition) {
+            // nothing new to write, but a segment left over from a failed delete may be deletable now
+            deleteSegmentsBefore((int) (position >>> 32));
+            return;
+        }
+        // Position first, states second: the snapshot is at least as new as the position, replay skips older versions
+        List<byte[]> states = new ArrayList<>();
+        int size = 16;
+        for (SimpleMultiplayerServer.GameArena arena : SimpleMultiplayerServer.getArenasInOrder()) {
+            SimpleMultiplayerServer.ArenaState current = arena.getState();
+            byte[] state = encodeState(arena.id, arena.name, current);
+            if (state == null) {
+                continue;
+            }
+            states.add(state);
+            size += 4 + state.length;
+            for (PlayerSessions.Session session : PlayerSessions.getSessions(arena)) {
+                // only tokens for the seat entries of the state written above
+                if (session.seat() < current.players().size() && current.players().get(session.seat()) == session.occupant()) {
+                    byte[] record = encodeSession(arena.id, session.seat(), session.occupant(), current.version(), session.digest());
+                    states.add(record);
+                    size += 4 + record.length;
+                }
+            }
+        }
+        ByteBuffer data = ByteBuffer.allocate(size + 4);
+        data.putInt(SNAPSHOT_MAGIC).putLong(position).putInt(states.size());
+        for (byte[] state : states) {
+            data.putInt(state.length).put(state);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(data.array(), 0, size);
+        data.putInt((int) crc.getValue());
+
+        try {
+            Path temp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(data.flip());
+                channel.force(true);
+            }
+            Files.move(temp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastSnapshotPosition = position;
+            AsyncLog.debug("💾 Journal-Snapshot: " + states.size() + " Arenen");
+        } catch (IOException e) {
+            AsyncLog.error("❌ Journal-Snapshot fehlgeschlagen: " + e.getMessage());
+            return;
+        }
+        deleteSegmentsBefore((int) (position >>> 32));
+    }
+
+    /**
+     * Löscht die Segmente, die ein Snapshot ersetzt hat; was nicht gelöscht werden kann, versucht
+     * der nächste Snapshot erneut
+     */
+    private void deleteSegmentsBefore(int segment) {
+        List<Integer> indexes;
+        try {
+            indexes = listSegments();
+        } catch (IOException e) {
+            AsyncLog.warn("⚠️ Journal-Segmente nicht lesbar: " + e.getMessage());
+            return;
+        }
+        for (int index : indexes) {
+            if (index >= segment) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segmentPath(index));
+            } catch (IOException e) {
+                // Windows refuses while the old mapping is not collected yet, even though nothing references it
+                AsyncLog.warn("⚠️ Journal-Segment " + segmentPath(index).getFileName() + " noch nicht löschbar ("
+                        + e.getMessage() + "), nächster Versuch beim nächsten Snapshot");
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        segment.force();
+        // replaces the only reference to the old mapping (flush() holds it just for one force()), so it can be collected
+        // and its file deleted by the next snapshot
+        openSegment(segmentIndex + 1, 0);
+        // the new segment makes the old ones obsolete as soon as a snapshot exists
+        if (scheduler != null && !scheduler.isShutdown()) {
+            scheduler.execute(this::snapshot);
+        }
+    }
+
+    private void openSegment(int index, int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segmentIndex = index;
+        offset = position;
+        flushedOffset = position;
+        // A torn record at the end would otherwise look like data behind the next append
+        for (int i = position; i < Math.min(segmentBytes, position + HEADER_BYTES + MAX_PAYLOAD); i++) {
+            segment.put(i, (byte) 0);
+        }
+    }
+
+    private long readSnapshot(Map<String, RecoveredArena> arenas) throws IOException {
+        Path file = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (data.remaining() < 20 || data.getInt(0) != SNAPSHOT_MAGIC) {
+            AsyncLog.warn("⚠️ Journal-Snapshot unlesbar, spiele das ganze Journal nach");
+            return 0;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(data.array(), 0, data.limit() - 4);
+        if ((int) crc.getValue() != data.getInt(data.limit() - 4)) {
+            AsyncLog.warn("⚠️ Journal-Snapshot beschädigt (CRC), spiele das ganze Journal nach");
+            return 0;
+        }
+        data.getInt();
+        long position = data.getLong();
+        int count = data.getInt();
+        for (int i = 0; i < count; i++) {
+            int length = data.getInt();
+            apply(data.slice(data.position(), length), arenas, null, recoveredSessions);
+            data.position(data.position() + length);
+        }
+        return position;
+    }
+
+    /**
+     * Spielt ein Segment ab start nach; liefert das Ende der gültigen Daten
+     */
+    private int replay(ByteBuffer data, int start, Map<String, RecoveredArena> arenas, Set<String> deleted,
+                       Map<String, RecoveredSession[]> sessions) {
+        int position = start;
+        CRC32C crc = new CRC32C();
+        while (position + HEADER_BYTES <= data.limit()) {
+            int length = data.getInt(position);
+            if (length <= 0 || length > MAX_PAYLOAD || position + HEADER_BYTES + length > data.limit()) {
+                break;
+            }
+            ByteBuffer payload = data.slice(position + HEADER_BYTES, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != data.getInt(position + 4)) {
+                AsyncLog.warn("⚠️ Unvollständiger Journal-Datensatz bei Offset " + position + " verworfen");
+                break;
+            }
+            apply(payload, arenas, deleted, sessions);
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static void apply(ByteBuffer payload, Map<String, RecoveredArena> arenas, Set<String> deleted,
+                              Map<String, RecoveredSession[]> sessions) {
+        byte type = payload.get();
+        String id = readString(payload);
+        if (type == TYPE_DELETE) {
+            arenas.remove(id);
+            sessions.remove(id);
+            if (deleted != null) {
+                deleted.add(id);
+            }
+            return;
+        }
+        if (type == TYPE_SESSION) {
+            if (deleted != null && deleted.contains(id)) {
+                return;
+            }
+            int seat = payload.get();
+            String occupant = readString(payload);
+            long version = payload.getLong();
+            byte[] digest = new byte[payload.remaining()];
+            payload.get(digest);
+            RecoveredSession[] seats = sessions.computeIfAbsent(id, key -> new RecoveredSession[2]);
+            if (seat >= 0 && seat < seats.length && (seats[seat] == null || seats[seat].version() <= version)) {
+                seats[seat] = new RecoveredSession(seat, occupant, version, digest);
+            }
+            return;
+        }
+        if (type != TYPE_STATE || (deleted != null && deleted.contains(id))) {
+            return;
+        }
+        String name = readString(payload);
+        long version = payload.getLong();
+        int playerCount = payload.get();
+        List<String> players = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            players.add(readString(payload));
+        }
+        byte[] board = new byte[9];
+        payload.get(board);
+        char currentPlayer = (char) payload.get();
+        boolean gameActive = payload.get() != 0;
+        char winner = (char) payload.get();
+        // records written before the move sequence was part of the state end here
+        long moves = payload.remaining() >= 8 ? payload.getLong() : 0L;
+
+        RecoveredArena existing = arenas.get(id);
+        if (existing == null || existing.state().version() <= version) {
+            arenas.put(id, new RecoveredArena(id, name, new SimpleMultiplayerServer.ArenaState(version, List.copyOf(players),
+                    new String(board, StandardCharsets.US_ASCII), currentPlayer, gameActive, winner, moves)));
+        }
+    }
+
+    private static byte[] encodeState(String id, String name, SimpleMultiplayerServer.ArenaState state) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> players = new ArrayList<>(state.players().size());
+        int size = 1 + 2 + idBytes.length + 2 + nameBytes.length + 8 + 1 + 9 + 3 + 8;
+        for (String player : state.players()) {
+            byte[] playerBytes = player.getBytes(StandardCharsets.UTF_8);
+            players.add(playerBytes);
+            size += 2 + playerBytes.length;
+        }
+        if (size > MAX_PAYLOAD) {
+            AsyncLog.warn("⚠️ Arena " + id + " zu groß für das Journal, wird nicht gesichert");
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(TYPE_STATE);
+        writeString(buffer, idBytes);
+        writeString(buffer, nameBytes);
+        buffer.putLong(state.version());
+        buffer.put((byte) players.size());
+        for (byte[] player : players) {
+            writeString(buffer, player);
+        }
+        buffer.put(state.board().getBytes(StandardCharsets.US_ASCII));
+        buffer.put((byte) state.currentPlayer());
+        buffer.put((byte) (state.gameActive() ? 1 : 0));
+        buffer.put((byte) state.winner());
+        buffer.putLong(state.moves());
+        return buffer.array();
+    }
+
+    private static byte[] encodeSession(String id, int seat, String occupant, long version, byte[] digest) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] occupantBytes = occupant.getBytes(StandardCharsets.UTF_8);
+        int size = 1 + 2 + idBytes.length + 1 + 2 + occupantBytes.length + 8 + digest.length;
+        if (size > MAX_PAYLOAD) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(TYPE_SESSION);
+        writeString(buffer, idBytes);
+        buffer.put((byte) seat);
+        writeString(buffer, occupantBytes);
+        buffer.putLong(version);
+        buffer.put(digest);
+        return buffer.array();
+    }
+
+    private static byte[] encodeDelete(String id) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > MAX_PAYLOAD - 3) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 + idBytes.length);
+        buffer.put(TYPE_DELETE);
+        writeString(buffer, idBytes);
+        return buffer.array();
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith("journal-") && name.endsWith(".log")) {
+                    try {
+                        segments.add(Integer.parseInt(name.substring(8, name.length() - 4)));
+                    } catch (NumberFormatException e) {
+                        // not one of ours
+                    }
+                }
+            });
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private Path segmentPath(int index) {
+        return dir.resolve(String.format("journal-%08d.log", index));
+    }
+}
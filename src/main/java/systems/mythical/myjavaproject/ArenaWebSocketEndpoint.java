@@ -0,0 +1,82 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+
+/**
+ * WebSocket Push-Kanal pro Arena (ws://host:8081/ws/arena/{arenaId})
+ * Sendet bei jedem Join, Zug und Reset sofort den neuen Arena-Zustand an alle
+ * verbundenen Spieler, damit der Browser nicht mehr jede Sekunde pollen muss.
+ */
+@ServerEndpoint("/arena/{arenaId}")
+public class ArenaWebSocketEndpoint {
+    private static final Map<String, Set<Session>> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Registriert den Endpoint als Listener für Arena-Änderungen
+     */
+    static void install() {
+        SimpleMultiplayerServer.addArenaListener(ArenaWebSocketEndpoint::broadcast);
+    }
+
+    @OnOpen
+    public void onOpen(Session session, @PathParam("arenaId") String arenaId) throws IOException {
+        SimpleMultiplayerServer.GameArena arena = SimpleMultiplayerServer.getArena(arenaId);
+        if (arena == null) {
+            session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "Arena nicht gefunden"));
+            return;
+        }
+        sessions.computeIfAbsent(arenaId, id -> ConcurrentHashMap.newKeySet()).add(session);
+        // Initial snapshot so the client does not have to wait for the first change
+        session.getAsyncRemote().sendText(SimpleMultiplayerServer.arenaStateJson(arena, "snapshot"));
+    }
+
+    @OnClose
+    public void onClose(Session session, @PathParam("arenaId") String arenaId) {
+        Set<Session> arenaSessions = sessions.get(arenaId);
+        if (arenaSessions != null) {
+            arenaSessions.remove(session);
+        }
+    }
+
+    @OnError
+    public void onError(Session session, Throwable error) {
+        AsyncLog.error("❌ WebSocket Fehler: " + error.getMessage());
+    }
+
+    /**
+     * Sendet den Zustand einer Arena an alle verbundenen Spieler
+     */
+    static void broadcast(SimpleMultiplayerServer.GameArena arena, String event) {
+        Set<Session> arenaSessions = "deleted".equals(event) ? sessions.remove(arena.id) : sessions.get(arena.id);
+        if (arenaSessions == null || arenaSessions.isEmpty()) {
+            return;
+        }
+
+        String json = SimpleMultiplayerServer.arenaStateJson(arena, event);
+        for (Session session : arenaSessions) {
+            if (!session.isOpen()) {
+                arenaSessions.remove(session);
+                continue;
+            }
+            session.getAsyncRemote().sendText(json);
+            if ("deleted".equals(event)) {
+                try {
+                    session.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Arena gelöscht"));
+                } catch (IOException e) {
+                    AsyncLog.error("❌ WebSocket konnte nicht geschlossen werden: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
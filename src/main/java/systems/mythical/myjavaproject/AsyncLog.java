@@ -0,0 +1,288 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchrones Logging für Server und Clients
+ *
+ * Aufrufer legen nur einen Eintrag in einen lock-freien Ringpuffer; ein Hintergrund-Thread
+ * formatiert die Zeilen und schreibt sie gesammelt (Batch) auf die Konsole oder in eine rotierende Datei.
+ * Ist der Puffer voll, wird die Zeile verworfen und gezählt, statt den Request-Thread zu blockieren.
+ *
+ * Konfiguration (System Properties):
+ *   -Dlog.level=DEBUG|INFO|WARN|ERROR   (Standard INFO)
+ *   -Dlog.file=logs/server.log          (Standard: Konsole, WARN/ERROR auf stderr)
+ *   -Dlog.maxBytes=10485760 -Dlog.maxFiles=5   (Rotation: server.log.1 ... server.log.5)
+ *   -Dlog.buffer=8192                   (Einträge im Ringpuffer, wird auf 2er-Potenz gerundet)
+ */
+public class AsyncLog {
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final int BATCH_SIZE = 256;
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final Level threshold = parseLevel(System.getProperty("log.level", "INFO"));
+    private static final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(ringCapacity());
+    private static final int mask = ring.length() - 1;
+    private static final AtomicLong tail = new AtomicLong();
+    // Only the writer thread advances head
+    private static volatile long head = 0;
+    private static final LongAdder dropped = new LongAdder();
+    private static volatile boolean writerParked = false;
+    private static final Thread writer = startWriter();
+
+    private record Entry(long timeMillis, Level level, String message, Throwable error) {
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold.ordinal();
+    }
+
+    public static boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message, null);
+    }
+
+    public static void error(String message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+
+    /**
+     * Anzahl der Zeilen, die wegen vollem Puffer verworfen wurden
+     */
+    public static long getDropped() {
+        return dropped.sum();
+    }
+
+    public static void log(Level level, String message, Throwable error) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        Entry entry = new Entry(System.currentTimeMillis(), level, message, error);
+        long slot;
+        do {
+            slot = tail.get();
+            if (slot - head >= ring.length()) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(slot, slot + 1));
+        // A null slot means "claimed but not yet published"; the writer waits for it
+        ring.set((int) slot & mask, entry);
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Wartet (kurz), bis alle bisher geloggten Zeilen geschrieben sind
+     */
+    public static void flush() {
+        long target = tail.get();
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (head < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Thread startWriter() {
+        Sink sink = createSink();
+        Thread thread = new Thread(() -> writeLoop(sink), "async-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncLog::flush, "async-log-flush"));
+        return thread;
+    }
+
+    private static void writeLoop(Sink sink) {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        StringBuilder err = new StringBuilder(1024);
+        while (true) {
+            int drained = 0;
+            long position = head;
+            while (drained < BATCH_SIZE) {
+                int index = (int) position & mask;
+                Entry entry = ring.get(index);
+                if (entry == null) {
+                    break;
+                }
+                ring.set(index, null);
+                position++;
+                head = position;
+                format(entry, sink.separateErrors() && entry.level().ordinal() >= Level.WARN.ordinal() ? err : out);
+                drained++;
+            }
+            if (drained > 0) {
+                sink.write(out, err);
+                out.setLength(0);
+                err.setLength(0);
+                continue;
+            }
+            writerParked = true;
+            if (ring.get((int) head & mask) == null) {
+                LockSupport.parkNanos(100_000_000L);
+            }
+            writerParked = false;
+        }
+    }
+
+    private static void format(Entry entry, StringBuilder sb) {
+        sb.append('[');
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(entry.timeMillis()), sb);
+        sb.append("] ").append(entry.level());
+        if (entry.level().name().length() == 4) {
+            sb.append(' ');
+        }
+        sb.append(' ').append(entry.message()).append(System.lineSeparator());
+        if (entry.error() != null) {
+            StringWriter trace = new StringWriter();
+            entry.error().printStackTrace(new PrintWriter(trace));
+            sb.append(trace);
+        }
+    }
+
+    /**
+     * Ziel der Log-Zeilen: Konsole oder rotierende Datei
+     */
+    private interface Sink {
+        void write(StringBuilder out, StringBuilder err);
+
+        boolean separateErrors();
+    }
+
+    private static Sink createSink() {
+        String file = System.getProperty("log.file");
+        if (file == null || file.isBlank()) {
+            return new Sink() {
+                @Override
+                public void write(StringBuilder out, StringBuilder err) {
+                    if (!out.isEmpty()) {
+                        System.out.print(out);
+                        System.out.flush();
+                    }
+                    if (!err.isEmpty()) {
+                        System.err.print(err);
+                        System.err.flush();
+                    }
+                }
+
+                @Override
+                public boolean separateErrors() {
+                    return true;
+                }
+            };
+        }
+        return new RollingFileSink(Path.of(file), Long.getLong("log.maxBytes", 10L * 1024 * 1024),
+                Integer.getInteger("log.maxFiles", 5));
+    }
+
+    private static final class RollingFileSink implements Sink {
+        private final Path path;
+        private final long maxBytes;
+        private final int maxFiles;
+        private OutputStream stream;
+        private long size;
+
+        RollingFileSink(Path path, long maxBytes, int maxFiles) {
+            this.path = path.toAbsolutePath();
+            this.maxBytes = maxBytes;
+            this.maxFiles = Math.max(1, maxFiles);
+        }
+
+        @Override
+        public void write(StringBuilder out, StringBuilder err) {
+            byte[] bytes = out.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                if (stream == null) {
+                    open();
+                }
+                if (size > 0 && size + bytes.length > maxBytes) {
+                    rotate();
+                }
+                stream.write(bytes);
+                stream.flush();
+                size += bytes.length;
+            } catch (IOException e) {
+                // the log itself is broken; fall back to stderr rather than losing the lines
+                System.err.print(out);
+                System.err.println("❌ Log-Datei nicht schreibbar: " + e.getMessage());
+                stream = null;
+            }
+        }
+
+        @Override
+        public boolean separateErrors() {
+            return false;
+        }
+
+        private void open() throws IOException {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            stream = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            size = Files.size(path);
+        }
+
+        private void rotate() throws IOException {
+            stream.close();
+            Files.deleteIfExists(rolled(maxFiles));
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                if (Files.exists(rolled(i))) {
+                    Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(path, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+            open();
+        }
+
+        private Path rolled(int index) {
+            return path.resolveSibling(path.getFileName() + "." + index);
+        }
+    }
+
+    private static int ringCapacity() {
+        int requested = Math.max(16, Integer.getInteger("log.buffer", 8192));
+        return Integer.highestOneBit(requested - 1) << 1;
+    }
+
+    private static Level parseLevel(String value) {
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package systems.mythical.myjavaproject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Konsistenter Hash-Ring für den Cluster-Modus von SimpleMultiplayerServer
+ *
+ * Jeder Knoten ("host:port") bekommt viele virtuelle Punkte auf dem Ring; eine Arena gehört dem
+ * ersten Knoten im Uhrzeigersinn nach dem Hash ihrer ID. Kommt ein Knoten hinzu oder fällt weg,
+ * wandern dadurch nur die Arenen dieses Knotens und nicht alle.
+ *
+ * Konfiguration (System Properties):
+ *   -Dcluster.nodes=localhost:8080,localhost:8090,localhost:8100   (leer: kein Cluster)
+ *   -Dcluster.self=localhost:8090   (Standard: localhost:<server.port>)
+ */
+public class ClusterRing {
+    public static final String NODES_PROPERTY = "cluster.nodes";
+    public static final String SELF_PROPERTY = "cluster.self";
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private final String self;
+    private final List<String> nodes;
+    // Only written in the constructor, afterwards read-only
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    public ClusterRing(String self, List<String> nodes) {
+        if (!nodes.contains(self)) {
+            throw new IllegalArgumentException("Eigener Knoten " + self + " fehlt in " + NODES_PROPERTY + "=" + nodes);
+        }
+        this.self = self;
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        for (String node : nodes) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * Liest den Ring aus den System Properties; ohne cluster.nodes ist der Server ein Einzelknoten
+     */
+    public static ClusterRing fromSystemProperties(int port) {
+        String self = System.getProperty(SELF_PROPERTY, "localhost:" + port).trim();
+        List<String> nodes = new ArrayList<>();
+        for (String node : System.getProperty(NODES_PROPERTY, "").split(",")) {
+            if (!node.isBlank() && !nodes.contains(node.trim())) {
+                nodes.add(node.trim());
+            }
+        }
+        if (nodes.isEmpty()) {
+            nodes.add(self);
+        }
+        return new ClusterRing(self, nodes);
+    }
+
+    public boolean isEnabled() {
+        return nodes.size() > 1;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * Alle Knoten in der konfigurierten Reihenfolge (auch für die zusammengesetzte Lobby-Version)
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public String ownerOf(String arenaId) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(arenaId));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public boolean isLocal(String arenaId) {
+        return !isEnabled() || self.equals(ownerOf(arenaId));
+    }
+
+    /**
+     * 64-Bit FNV-1a mit Murmur3-Finalizer, damit ähnliche IDs (Arena-1, Arena-2) gut streuen
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,190 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Leitet Requests für Arenen, die laut ClusterRing einem anderen Knoten gehören, an diesen weiter
+ *
+ * Der Browser bleibt auf seinem Knoten (gleicher Origin, gleicher localStorage); die Antwort des
+ * Besitzers wird asynchron durchgestreamt, damit auch Long-Polls und SSE-Streams keinen Thread belegen.
+ */
+public class ClusterRouter {
+    // Marks forwarded requests; the receiving node always answers them itself, even if its ring disagrees
+    static final String FORWARDED_HEADER = "X-Cluster-Forwarded";
+    static final String OWNER_HEADER = "X-Cluster-Owner";
+
+    private static final List<String> REQUEST_HEADERS = List.of(
+            "Content-Type", "Accept", "Accept-Encoding", "If-None-Match", "Last-Event-ID");
+    private static final List<String> RESPONSE_HEADERS = List.of(
+            "Content-Type", "Content-Encoding", "Cache-Control", "ETag", "Vary", "Location", "X-Accel-Buffering");
+
+    private static final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    /**
+     * Leitet den Request weiter, falls die Arena einem anderen Knoten gehört
+     * @param body bereits gelesener Request-Body oder null
+     * @return true wenn weitergeleitet wurde; der Aufrufer darf den Exchange dann nicht mehr anfassen
+     */
+    static boolean forwardIfRemote(HttpExchange exchange, ClusterRing ring, String arenaId, byte[] body) {
+        if (!ring.isEnabled() || arenaId == null || arenaId.isEmpty()
+                || exchange.getRequestHeaders().getFirst(FORWARDED_HEADER) != null) {
+            return false;
+        }
+        String owner = ring.ownerOf(arenaId);
+        if (owner.equals(ring.getSelf())) {
+            return false;
+        }
+        forward(exchange, ring.getSelf(), owner, body);
+        return true;
+    }
+
+    /**
+     * Holt eine Antwort eines anderen Knotens synchron (für die Lobby-Zusammenfassung)
+     */
+    static byte[] fetch(String node, String pathAndQuery, Duration timeout) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://" + node + pathAndQuery))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, "lobby")
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + " von " + node);
+        }
+        return response.body();
+    }
+
+    private static void forward(HttpExchange exchange, String self, String owner, byte[] body) {
+        HttpRequest.BodyPublisher publisher = body == null || body.length == 0
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(body);
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://" + owner + exchange.getRequestURI()))
+                .method(exchange.getRequestMethod(), publisher)
+                .header(FORWARDED_HEADER, self);
+        for (String name : REQUEST_HEADERS) {
+            String value = exchange.getRequestHeaders().getFirst(name);
+            if (value != null) {
+                request.header(name, value);
+            }
+        }
+
+        AsyncLog.debug("🔀 " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + " -> " + owner);
+        client.sendAsync(request.build(), info -> respond(exchange, owner, info))
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        fail(exchange, owner, error);
+                    }
+                });
+    }
+
+    private static HttpResponse.BodySubscriber<Void> respond(HttpExchange exchange, String owner, HttpResponse.ResponseInfo info) {
+        Headers headers = exchange.getResponseHeaders();
+        for (String name : RESPONSE_HEADERS) {
+            info.headers().firstValue(name).ifPresent(value -> headers.add(name, value));
+        }
+        headers.add(OWNER_HEADER, owner);
+
+        int status = info.statusCode();
+        OptionalLong contentLength = info.headers().firstValueAsLong("Content-Length");
+        ExchangeWriter writer = new ExchangeWriter(exchange);
+        try {
+            // HttpServer: 0 means chunked (SSE, unknown length), -1 means no body at all
+            long length = contentLength.orElse(0);
+            boolean noBody = status == 204 || status == 304 || (contentLength.isPresent() && length == 0);
+            exchange.sendResponseHeaders(status, noBody ? -1 : length);
+        } catch (IOException e) {
+            writer.failed = true;
+        }
+        return HttpResponse.BodySubscribers.fromSubscriber(writer);
+    }
+
+    private static void fail(HttpExchange exchange, String owner, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        AsyncLog.warn("⚠️ Knoten " + owner + " nicht erreichbar: " + cause);
+        try {
+            if (exchange.getResponseCode() == -1) {
+                byte[] response = ("{\"success\":false,\"message\":\"Knoten " + owner + " nicht erreichbar\"}")
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                exchange.sendResponseHeaders(502, response.length);
+                exchange.getResponseBody().write(response);
+            }
+        } catch (IOException e) {
+            // client is gone as well
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Schreibt den Body des Besitzers Stück für Stück in die Antwort; bricht ab, wenn der Client weg ist
+     */
+    private static final class ExchangeWriter implements Flow.Subscriber<List<ByteBuffer>> {
+        private final HttpExchange exchange;
+        private Flow.Subscription subscription;
+        volatile boolean failed;
+
+        ExchangeWriter(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (failed) {
+                subscription.cancel();
+                exchange.close();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                OutputStream os = exchange.getResponseBody();
+                for (ByteBuffer buffer : buffers) {
+                    byte[] chunk = new byte[buffer.remaining()];
+                    buffer.get(chunk);
+                    os.write(chunk);
+                }
+                // SSE and long-poll answers must reach the browser right away
+                os.flush();
+                subscription.request(1);
+            } catch (IOException e) {
+                subscription.cancel();
+                exchange.close();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            exchange.close();
+        }
+
+        @Override
+        public void onComplete() {
+            exchange.close();
+        }
+    }
+}
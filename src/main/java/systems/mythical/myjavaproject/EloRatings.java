@@ -0,0 +1,370 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Elo-Wertungen aller Spieler und die Rangliste für /api/leaderboard
+ *
+ * Jedes beendete Spiel (Arenen von SimpleMultiplayerServer und Spiele von TicTacToeServer) ändert
+ * die Wertung beider Spieler um K * (Ergebnis - Erwartung); Sieg 1, Remis ½, Niederlage 0.
+ *
+ * Die Rangliste ist eine ConcurrentSkipListMap, sortiert nach gerundeter Wertung (absteigend) und
+ * Name: die ersten N Plätze und jede Folgeseite ab einem Cursor kosten O(log n + N), Leser brauchen
+ * kein Lock. Den Rang eines einzelnen Spielers kann die Skip-List nicht in O(log n) zählen, dafür gibt
+ * es daneben einen Fenwick-Baum über die gerundeten Wertungen (ein Zähler je Punkt): Rang = 1 + Anzahl
+ * der Spieler mit höherer Wertung, gleiche Wertung heißt gleicher Rang.
+ *
+ * Updates laufen nacheinander unter einem Lock (beide Spieler einer Partie ändern sich gemeinsam);
+ * ein Leser kann einen Spieler während eines Updates kurz an der alten oder neuen Stelle sehen.
+ *
+ * Die Wertungen liegen nur im Speicher und werden beim Start aus dem Replay-Archiv neu berechnet.
+ * Weitere Archive (z.B. data/replays-<port> eines TicTacToeServer) liest der Server mit
+ * -Dratings.sources nur mit: beim Start nach Endzeit gemischt, danach holt ein Hintergrund-Thread
+ * alle paar Sekunden die neu angehängten Spiele.
+ *
+ * Konfiguration (System Properties):
+ *   -Dratings.k=32                           (K-Faktor)
+ *   -Dratings.initial=1500                   (Wertung eines neuen Spielers)
+ *   -Dratings.sources=data/replays-9090,...  (fremde Replay-Archive, Standard: keine)
+ *   -Dratings.pollSeconds=2                  (wie oft die fremden Archive nachgeladen werden)
+ */
+public class EloRatings {
+    public static final String K_PROPERTY = "ratings.k";
+    public static final String INITIAL_PROPERTY = "ratings.initial";
+    public static final String SOURCES_PROPERTY = "ratings.sources";
+    public static final String POLL_PROPERTY = "ratings.pollSeconds";
+    // Rounded ratings are clamped to [0, MAX_POINTS) for the rank index
+    private static final int MAX_POINTS = 4096;
+
+    private static final Comparator<Key> ORDER = Comparator.comparingInt(Key::points).reversed().thenComparing(Key::name);
+
+    private final double k;
+    private final double initial;
+    private final Map<String, Rating> ratings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Key, Rating> ranking = new ConcurrentSkipListMap<>(ORDER);
+    private final RankIndex rankIndex = new RankIndex(MAX_POINTS);
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile long version;
+
+    // Last finished arena version that was rated, a late listener of the previous move may see the same final state
+    private final Map<String, Long> arenaRated = new ConcurrentHashMap<>();
+
+    // Read-only archives of other processes and how many of their replays are rated; touched by the poller only after rebuild
+    private final Map<ReplayStore, Integer> sources = new LinkedHashMap<>();
+    private ScheduledExecutorService poller;
+
+    /**
+     * Wertung eines Spielers; jedes Spiel erzeugt einen neuen Snapshot
+     */
+    record Rating(String name, double rating, int games, int wins, int draws, int losses) {
+        int points() {
+            return Math.max(0, Math.min(MAX_POINTS - 1, (int) Math.round(rating)));
+        }
+
+        Rating after(double delta, double score) {
+            return new Rating(name, rating + delta, games + 1,
+                    wins + (score == 1 ? 1 : 0), draws + (score == 0.5 ? 1 : 0), losses + (score == 0 ? 1 : 0));
+        }
+    }
+
+    /**
+     * Platz in der Rangliste
+     */
+    record Standing(int rank, Rating rating) {
+    }
+
+    private record Key(int points, String name) {
+    }
+
+    /**
+     * Fenwick-Baum: Anzahl Spieler je gerundeter Wertung, Präfixsummen in O(log MAX_POINTS)
+     */
+    private static final class RankIndex {
+        private final AtomicIntegerArray tree;
+
+        RankIndex(int size) {
+            tree = new AtomicIntegerArray(size + 1);
+        }
+
+        void add(int points, int delta) {
+            for (int i = points + 1; i < tree.length(); i += i & -i) {
+                tree.addAndGet(i, delta);
+            }
+        }
+
+        /**
+         * Anzahl Spieler mit höchstens points Punkten
+         */
+        int countAtMost(int points) {
+            int sum = 0;
+            for (int i = points + 1; i > 0; i -= i & -i) {
+                sum += tree.get(i);
+            }
+            return sum;
+        }
+    }
+
+    public EloRatings(double k, double initial) {
+        this.k = k;
+        this.initial = initial;
+    }
+
+    public static EloRatings fromSystemProperties() {
+        double k = Double.parseDouble(System.getProperty(K_PROPERTY, "32"));
+        double initial = Double.parseDouble(System.getProperty(INITIAL_PROPERTY, "1500"));
+        return new EloRatings(k, initial);
+    }
+
+    /**
+     * Wertet jedes beendete Arena-Spiel genau einmal
+     */
+    public void install() {
+        SimpleMultiplayerServer.addArenaListener((arena, event) -> {
+            if ("move".equals(event)) {
+                SimpleMultiplayerServer.ArenaState state = arena.getState();
+                if (state.isFinished() && state.players().size() == 2) {
+                    Long previous = arenaRated.put(arena.id, state.version());
+                    if (previous == null || previous != state.version()) {
+                        record(state.players().get(0), state.players().get(1), state.winner());
+                    }
+                }
+            } else if ("deleted".equals(event)) {
+                arenaRated.remove(arena.id);
+            }
+        });
+    }
+
+    /**
+     * Öffnet die Archive aus -Dratings.sources nur zum Lesen; ein fehlendes Archiv wird übersprungen
+     * @param own eigenes Replay-Verzeichnis (wird nicht doppelt gelesen) oder null
+     */
+    public void openSources(Path own) {
+        Path ownDir = own == null ? null : own.toAbsolutePath().normalize();
+        for (String dir : System.getProperty(SOURCES_PROPERTY, "").split(",")) {
+            if (dir.isBlank()) {
+                continue;
+            }
+            Path path = Path.of(dir.trim());
+            if (path.toAbsolutePath().normalize().equals(ownDir)) {
+                continue;
+            }
+            ReplayStore store = new ReplayStore(path, 0);
+            try {
+                store.openReadOnly();
+                sources.put(store, 0);
+                AsyncLog.info("📈 " + store.size() + " Replays aus " + path + " fließen in die Wertung ein");
+            } catch (IOException e) {
+                AsyncLog.warn("⚠️ Replay-Archiv " + path + " nicht lesbar: " + e.getMessage());
+                store.close();
+            }
+        }
+    }
+
+    /**
+     * Berechnet alle Wertungen aus den gespeicherten Spielen neu; das eigene Archiv und die mit
+     * openSources() geöffneten werden nach Endzeit gemischt
+     * @param replays eigenes Archiv oder null
+     * @return Anzahl der gewerteten Spiele
+     */
+    public int rebuild(ReplayStore replays) throws IOException {
+        List<ReplayStore> stores = new ArrayList<>(sources.keySet());
+        if (replays != null) {
+            stores.add(0, replays);
+        }
+        int[] sizes = new int[stores.size()];
+        ReplayStore.Replay[] heads = new ReplayStore.Replay[stores.size()];
+        for (int i = 0; i < heads.length; i++) {
+            sizes[i] = stores.get(i).size();
+            heads[i] = stores.get(i).get(0);
+        }
+        int count = 0;
+        while (true) {
+            // the ids of one archive are in end time order already, so the oldest head is the next game
+            int next = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && (next < 0 || heads[i].endedAt() < heads[next].endedAt())) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            ReplayStore.Replay replay = heads[next];
+            record(replay.playerX(), replay.playerO(), replay.winner());
+            count++;
+            heads[next] = replay.id() + 1 < sizes[next] ? stores.get(next).get(replay.id() + 1) : null;
+        }
+        for (int i = replays != null ? 1 : 0; i < stores.size(); i++) {
+            sources.put(stores.get(i), sizes[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Startet das Nachladen der fremden Archive; ohne -Dratings.sources passiert nichts
+     */
+    public void follow() {
+        if (sources.isEmpty()) {
+            return;
+        }
+        long seconds = Math.max(1, Long.getLong(POLL_PROPERTY, 2));
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratings-follower");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stoppt das Nachladen und schließt die fremden Archive
+     */
+    public void close() {
+        if (poller != null) {
+            poller.shutdown();
+            try {
+                poller.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (ReplayStore store : sources.keySet()) {
+            store.close();
+        }
+    }
+
+    private void poll() {
+        for (Map.Entry<ReplayStore, Integer> source : sources.entrySet()) {
+            ReplayStore store = source.getKey();
+            try {
+                int size = store.refresh();
+                for (long id = source.getValue(); id < size; id++) {
+                    ReplayStore.Replay replay = store.get(id);
+                    if (replay != null) {
+                        record(replay.playerX(), replay.playerO(), replay.winner());
+                    }
+                }
+                source.setValue(size);
+            } catch (IOException e) {
+                AsyncLog.warn("⚠️ Replays aus " + store.getDirectory() + " nicht nachgeladen: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Wertet ein beendetes Spiel
+     * @param winner 'X', 'O' oder ' ' für Unentschieden
+     */
+    public void record(String playerX, String playerO, char winner) {
+        if (playerX.equals(playerO)) {
+            return;
+        }
+        double scoreX = winner == 'X' ? 1 : winner == 'O' ? 0 : 0.5;
+        updateLock.lock();
+        try {
+            Rating x = ratings.get(playerX);
+            Rating o = ratings.get(playerO);
+            double ratingX = x != null ? x.rating() : initial;
+            double ratingO = o != null ? o.rating() : initial;
+            double expectedX = 1 / (1 + Math.pow(10, (ratingO - ratingX) / 400));
+            double delta = k * (scoreX - expectedX);
+            replace(x, (x != null ? x : newRating(playerX)).after(delta, scoreX));
+            replace(o, (o != null ? o : newRating(playerO)).after(-delta, 1 - scoreX));
+            version++;
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Wertung und Rang eines Spielers; null, wenn er noch kein Spiel beendet hat
+     */
+    public Standing get(String name) {
+        Rating rating = name == null ? null : ratings.get(name);
+        return rating == null ? null : new Standing(rank(rating.points()), rating);
+    }
+
+    /**
+     * Bis zu limit Plätze ab dem Anfang oder hinter dem Cursor einer vorigen Seite
+     * @param after Cursor aus cursor() oder null für die erste Seite
+     */
+    public List<Standing> page(String after, int limit) {
+        ConcurrentNavigableMap<Key, Rating> view = ranking;
+        if (after != null) {
+            view = ranking.tailMap(parseCursor(after), false);
+        }
+        List<Standing> page = new ArrayList<>(Math.min(limit, 64));
+        int lastPoints = -1;
+        int lastRank = 0;
+        for (Rating rating : view.values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            int points = rating.points();
+            if (points != lastPoints) {
+                lastRank = rank(points);
+                lastPoints = points;
+            }
+            page.add(new Standing(lastRank, rating));
+        }
+        return page;
+    }
+
+    /**
+     * Cursor für die Seite hinter diesem Platz
+     */
+    public static String cursor(Standing standing) {
+        return standing.rating().points() + ":" + standing.rating().name();
+    }
+
+    /**
+     * Zählt jedes Rating-Update; taugt als ETag der Rangliste
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return ratings.size();
+    }
+
+    private Rating newRating(String name) {
+        return new Rating(name, initial, 0, 0, 0, 0);
+    }
+
+    private void replace(Rating previous, Rating next) {
+        if (previous != null) {
+            ranking.remove(new Key(previous.points(), previous.name()));
+            rankIndex.add(previous.points(), -1);
+        }
+        ratings.put(next.name(), next);
+        ranking.put(new Key(next.points(), next.name()), next);
+        rankIndex.add(next.points(), 1);
+    }
+
+    private int rank(int points) {
+        return 1 + rankIndex.countAtMost(MAX_POINTS - 1) - rankIndex.countAtMost(points);
+    }
+
+    private static Key parseCursor(String cursor) {
+        int colon = cursor.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Ungültiger Cursor: " + cursor);
+        }
+        return new Key(Integer.parseInt(cursor.substring(0, colon)), cursor.substring(colon + 1));
+    }
+}
@@ -0,0 +1,219 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Vergleicht die Executor-Modi (virtual, bounded, cached) der HTTP-Server
+ *
+ * Für jeden Modus wird ein eigener Server-Prozess gestartet, damit RSS und Thread-Anzahl
+ * nicht von vorherigen Läufen beeinflusst werden. Der Handler simuliert blockierende
+ * Arbeit (Standard 20 ms), damit sich die Modi unter Burst-Last unterscheiden.
+ *
+ * Peak Threads = Plattform-Threads laut ThreadMXBean, Peak aktiv = gleichzeitig laufende Handler.
+ *
+ * Aufruf:
+ *   java -cp target/classes systems.mythical.myjavaproject.ExecutorBenchmark [clients...]
+ *   (Standard: 1000 5000 10000 gleichzeitige Clients, je 5 Requests)
+ *
+ * Optionen: -Dbench.modes=virtual,bounded,cached -Dbench.requests=5 -Dbench.workMs=20 -Dbench.port=9090
+ * Hinweis: 10k gleichzeitige Verbindungen brauchen ein ausreichendes Dateilimit (ulimit -n).
+ */
+public class ExecutorBenchmark {
+    private static final int DEFAULT_PORT = 9090;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("serve")) {
+            serve(Integer.parseInt(args[1]), Long.getLong("bench.workMs", 20));
+            return;
+        }
+
+        List<Integer> clientCounts = new ArrayList<>();
+        for (String arg : args) {
+            clientCounts.add(Integer.parseInt(arg));
+        }
+        if (clientCounts.isEmpty()) {
+            clientCounts = List.of(1000, 5000, 10000);
+        }
+        String[] modes = System.getProperty("bench.modes", "virtual,bounded,cached").split(",");
+        int requestsPerClient = Integer.getInteger("bench.requests", 5);
+        int port = Integer.getInteger("bench.port", DEFAULT_PORT);
+
+        System.out.println("=== Executor Benchmark ===");
+        System.out.printf("%-8s %8s %12s %8s %10s %10s %12s %12s%n",
+                "Modus", "Clients", "Req/s", "Fehler", "RSS MB", "Peak MB", "Peak Threads", "Peak aktiv");
+
+        for (String mode : modes) {
+            Process server = startServer(mode.trim(), port);
+            try {
+                waitForServer(port);
+                runLoad(port, 100, requestsPerClient); // warm-up
+                for (int clients : clientCounts) {
+                    Result result = runLoad(port, clients, requestsPerClient);
+                    String stats = fetch(port, "/stats");
+                    System.out.printf(Locale.ROOT, "%-8s %8d %12.0f %8d %10s %10s %12s %12s%n",
+                            mode.trim(), clients, result.throughput(), result.errors(),
+                            rssMegabytes(server.pid(), "VmRSS"), rssMegabytes(server.pid(), "VmHWM"),
+                            jsonNumber(stats, "peakThreads"), jsonNumber(stats, "peakActive"));
+                }
+            } finally {
+                server.destroy();
+                server.waitFor();
+            }
+        }
+    }
+
+    private record Result(double throughput, long errors) {
+    }
+
+    /**
+     * Startet einen Kind-Prozess mit dem gewünschten Executor-Modus
+     */
+    private static Process startServer(String mode, int port) throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        return new ProcessBuilder(java,
+                "-D" + ServerExecutors.MODE_PROPERTY + "=" + mode,
+                "-Dbench.workMs=" + Long.getLong("bench.workMs", 20),
+                "-cp", System.getProperty("java.class.path"),
+                ExecutorBenchmark.class.getName(), "serve", String.valueOf(port))
+                .inheritIO()
+                .start();
+    }
+
+    private static void serve(int port, long workMs) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 16384);
+        ServerExecutors.InstrumentedExecutor executor = ServerExecutors.fromSystemProperties();
+
+        server.createContext("/work", exchange -> {
+            try {
+                Thread.sleep(workMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/stats", exchange -> {
+            String stats = executor.statsJson();
+            int peakThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+            byte[] body = (stats.substring(0, stats.length() - 1) + ",\"peakThreads\":" + peakThreads + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Feuert clients gleichzeitige virtuelle Clients mit je requestsPerClient Requests ab
+     */
+    private static Result runLoad(int port, int clients, int requestsPerClient) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/work"))
+                .timeout(Duration.ofSeconds(60))
+                .build();
+        LongAdder ok = new LongAdder();
+        LongAdder errors = new LongAdder();
+
+        long start = System.nanoTime();
+        try (ExecutorService loadThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                loadThreads.execute(() -> {
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                ok.increment();
+                            } else {
+                                errors.increment();
+                            }
+                        } catch (IOException e) {
+                            errors.increment();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return new Result(ok.sum() / seconds, errors.sum());
+    }
+
+    private static void waitForServer(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                fetch(port, "/stats");
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Benchmark-Server startet nicht auf Port " + port);
+    }
+
+    private static String fetch(int port, String path) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        return client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path)).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    /**
+     * Liest VmRSS/VmHWM aus /proc (nur Linux), sonst "n/a"
+     */
+    private static String rssMegabytes(long pid, String field) {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith(field + ":")) {
+                    long kb = Long.parseLong(line.replaceAll("\\D", ""));
+                    return String.valueOf(kb / 1024);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not available on this platform
+        }
+        return "n/a";
+    }
+
+    private static String jsonNumber(String json, String key) {
+        int index = json.indexOf("\"" + key + "\":");
+        if (index < 0) {
+            return "n/a";
+        }
+        int start = index + key.length() + 3;
+        int end = start;
+        while (end < json.length() && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '-')) {
+            end++;
+        }
+        return json.substring(start, end);
+    }
+}
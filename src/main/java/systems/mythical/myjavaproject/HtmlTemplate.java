@@ -0,0 +1,282 @@
+package systems.mythical.myjavaproject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+/**
+ * Minimale Template-Engine für die HTML-Seiten der Server
+ *
+ * Das Template wird einmal beim Start in statische Byte-Segmente und Slots zerlegt.
+ * Die statischen Segmente liegen zusätzlich vorkomprimiert (raw deflate, sync-flushed) vor,
+ * sodass beim Rendern mit gzip/deflate nur die Slot-Werte komprimiert werden müssen.
+ *
+ * Slot-Syntax:
+ *   {{name}}      HTML-escaped
+ *   {{js:name}}   für JavaScript-Strings ('...') in Skripten und onclick-Attributen
+ *   {{raw:name}}  unverändert (bereits gerendertes HTML)
+ *   {{asset:pfad}} URL einer statischen Datei mit Fingerprint, wird schon beim Kompilieren eingesetzt (siehe StaticAssets)
+ */
+public class HtmlTemplate {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9c};
+    private static final byte[] FINAL_EMPTY_BLOCK = {0x03, 0x00};
+
+    private final byte[][] segments;
+    private final byte[][] compressedSegments;
+    private final String[] slotNames;
+    private final char[] slotEscapes;
+    private final String hash;
+
+    public enum Encoding {
+        IDENTITY(null), GZIP("gzip"), DEFLATE("deflate");
+
+        private final String headerValue;
+
+        Encoding(String headerValue) {
+            this.headerValue = headerValue;
+        }
+
+        /** Wert für den Content-Encoding Header, null bei identity */
+        public String headerValue() {
+            return headerValue;
+        }
+
+        /**
+         * Wählt die beste vom Client akzeptierte Kodierung (gzip vor deflate)
+         */
+        public static Encoding negotiate(String acceptEncoding) {
+            if (acceptEncoding == null) {
+                return IDENTITY;
+            }
+            String accepted = acceptEncoding.toLowerCase(Locale.ROOT);
+            if (accepts(accepted, "gzip")) {
+                return GZIP;
+            }
+            if (accepts(accepted, "deflate")) {
+                return DEFLATE;
+            }
+            return IDENTITY;
+        }
+
+        private static boolean accepts(String acceptEncoding, String coding) {
+            for (String part : acceptEncoding.split(",")) {
+                String[] tokens = part.trim().split(";");
+                if (tokens[0].trim().equals(coding)) {
+                    return tokens.length < 2 || !tokens[1].trim().matches("q=0(\\.0*)?");
+                }
+            }
+            return false;
+        }
+    }
+
+    private HtmlTemplate(List<String> staticParts, List<String> names, List<Character> escapes) {
+        int count = staticParts.size();
+        this.segments = new byte[count][];
+        this.compressedSegments = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            segments[i] = staticParts.get(i).getBytes(StandardCharsets.UTF_8);
+            compressedSegments[i] = deflateSegment(segments[i], Deflater.BEST_COMPRESSION);
+        }
+        this.slotNames = names.toArray(new String[0]);
+        this.slotEscapes = new char[escapes.size()];
+        for (int i = 0; i < slotEscapes.length; i++) {
+            slotEscapes[i] = escapes.get(i);
+        }
+        this.hash = Integer.toHexString(String.join("\u0000", staticParts).hashCode());
+    }
+
+    /**
+     * Zerlegt den Template-Text in statische Segmente und Slots
+     */
+    public static HtmlTemplate compile(String source) {
+        List<String> staticParts = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Character> escapes = new ArrayList<>();
+
+        StringBuilder text = new StringBuilder();
+        int position = 0;
+        while (true) {
+            int start = source.indexOf("{{", position);
+            if (start < 0) {
+                break;
+            }
+            int end = source.indexOf("}}", start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Nicht geschlossener Slot ab Position " + start);
+            }
+            text.append(source, position, start);
+            String slot = source.substring(start + 2, end).trim();
+            position = end + 2;
+            if (slot.startsWith("asset:")) {
+                // part of the static text, so a changed asset also changes the template hash (ETags)
+                text.append(StaticAssets.url(slot.substring(6)));
+                continue;
+            }
+            staticParts.add(text.toString());
+            text.setLength(0);
+            if (slot.startsWith("raw:")) {
+                escapes.add('r');
+                names.add(slot.substring(4));
+            } else if (slot.startsWith("js:")) {
+                escapes.add('j');
+                names.add(slot.substring(3));
+            } else {
+                escapes.add('h');
+                names.add(slot);
+            }
+        }
+        staticParts.add(text.append(source, position, source.length()).toString());
+        return new HtmlTemplate(staticParts, names, escapes);
+    }
+
+    /**
+     * Hash über die statischen Teile, ändert sich nur mit dem Template (für ETags)
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    public String renderString(Map<String, String> values) {
+        return new String(render(values, Encoding.IDENTITY), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rendert das Template mit der gewünschten Kodierung
+     */
+    public byte[] render(Map<String, String> values, Encoding encoding) {
+        byte[][] slotValues = new byte[slotNames.length][];
+        int total = 0;
+        for (int i = 0; i < slotNames.length; i++) {
+            String value = values.get(slotNames[i]);
+            slotValues[i] = escape(value == null ? "" : value, slotEscapes[i]).getBytes(StandardCharsets.UTF_8);
+            total += slotValues[i].length;
+        }
+
+        if (encoding == Encoding.IDENTITY) {
+            for (byte[] segment : segments) {
+                total += segment.length;
+            }
+            byte[] out = new byte[total];
+            int offset = 0;
+            for (int i = 0; i < segments.length; i++) {
+                System.arraycopy(segments[i], 0, out, offset, segments[i].length);
+                offset += segments[i].length;
+                if (i < slotValues.length) {
+                    System.arraycopy(slotValues[i], 0, out, offset, slotValues[i].length);
+                    offset += slotValues[i].length;
+                }
+            }
+            return out;
+        }
+
+        // Static segments are already deflated; only slot values get compressed here.
+        // The checksum still has to cover every uncompressed byte.
+        ByteArrayOutputStream out = new ByteArrayOutputStream(total / 2 + 1024);
+        Checksum checksum = encoding == Encoding.GZIP ? new CRC32() : new Adler32();
+        long length = 0;
+        out.writeBytes(encoding == Encoding.GZIP ? GZIP_HEADER : ZLIB_HEADER);
+        for (int i = 0; i < segments.length; i++) {
+            out.writeBytes(compressedSegments[i]);
+            checksum.update(segments[i], 0, segments[i].length);
+            length += segments[i].length;
+            if (i < slotValues.length && slotValues[i].length > 0) {
+                out.writeBytes(deflateSegment(slotValues[i], Deflater.BEST_SPEED));
+                checksum.update(slotValues[i], 0, slotValues[i].length);
+                length += slotValues[i].length;
+            }
+        }
+        out.writeBytes(FINAL_EMPTY_BLOCK);
+
+        long value = checksum.getValue();
+        if (encoding == Encoding.GZIP) {
+            writeIntLittleEndian(out, value);
+            writeIntLittleEndian(out, length);
+        } else {
+            out.write((int) (value >>> 24));
+            out.write((int) (value >>> 16));
+            out.write((int) (value >>> 8));
+            out.write((int) value);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Komprimiert ein Segment als eigenständige, byte-aligned Folge nicht-finaler Deflate-Blöcke,
+     * die sich beliebig hintereinanderhängen lassen
+     */
+    private static byte[] deflateSegment(byte[] data, int level) {
+        if (data.length == 0) {
+            return new byte[0];
+        }
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 3 + 64);
+            byte[] buffer = new byte[8192];
+            int written;
+            do {
+                written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, written);
+            } while (written == buffer.length || !deflater.needsInput());
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeIntLittleEndian(ByteArrayOutputStream out, long value) {
+        out.write((int) value);
+        out.write((int) (value >>> 8));
+        out.write((int) (value >>> 16));
+        out.write((int) (value >>> 24));
+    }
+
+    private static String escape(String value, char mode) {
+        if (mode == 'r') {
+            return value;
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = mode == 'h' ? htmlReplacement(c) : jsReplacement(c);
+            if (replacement != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(value.length() + 16).append(value, 0, i);
+                }
+                sb.append(replacement);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? value : sb.toString();
+    }
+
+    private static String htmlReplacement(char c) {
+        return switch (c) {
+            case '&' -> "&amp;";
+            case '<' -> "&lt;";
+            case '>' -> "&gt;";
+            case '"' -> "&quot;";
+            case '\'' -> "&#39;";
+            default -> null;
+        };
+    }
+
+    private static String jsReplacement(char c) {
+        return switch (c) {
+            case '\\' -> "\\\\";
+            case '\'', '"', '<', '>', '&' -> String.format("\\u%04x", (int) c);
+            case '\n' -> "\\n";
+            case '\r' -> "\\r";
+            default -> c < 0x20 ? String.format("\\u%04x", (int) c) : null;
+        };
+    }
+}
@@ -0,0 +1,289 @@
+package systems.mythical.myjavaproject;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Vergleicht die HTTP-Engines (jdk, nio) mit demselben Handler nebeneinander
+ *
+ * Wie beim ExecutorBenchmark läuft jede Engine in einem eigenen Server-Prozess. Die Clients sind
+ * rohe Sockets auf virtuellen Threads mit Keep-Alive; mit bench.pipeline > 1 schickt jeder Client
+ * mehrere Requests hintereinander, bevor er die Antworten liest (HTTP-Pipelining).
+ * Der Handler antwortet wie /api/status mit einem kleinen JSON fester Länge (bench.bodyBytes).
+ *
+ * Aufruf:
+ *   java -cp target/classes systems.mythical.myjavaproject.HttpEngineBenchmark [verbindungen...]
+ *   (Standard: 10 100 1000 gleichzeitige Verbindungen, je 10 Sekunden)
+ *
+ * Optionen: -Dbench.engines=jdk,nio -Dbench.seconds=10 -Dbench.pipeline=1 -Dbench.bodyBytes=200
+ *           -Dbench.keepAlive=true -Dbench.port=9091 -Dserver.executor=virtual
+ */
+public class HttpEngineBenchmark {
+    private static final int DEFAULT_PORT = 9091;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("serve")) {
+            serve(Integer.parseInt(args[1]), Integer.getInteger("bench.bodyBytes", 200));
+            return;
+        }
+
+        List<Integer> connectionCounts = new ArrayList<>();
+        for (String arg : args) {
+            connectionCounts.add(Integer.parseInt(arg));
+        }
+        if (connectionCounts.isEmpty()) {
+            connectionCounts = List.of(10, 100, 1000);
+        }
+        String[] engines = System.getProperty("bench.engines", "jdk,nio").split(",");
+        int seconds = Integer.getInteger("bench.seconds", 10);
+        int pipeline = Math.max(1, Integer.getInteger("bench.pipeline", 1));
+        boolean keepAlive = Boolean.parseBoolean(System.getProperty("bench.keepAlive", "true"));
+        int port = Integer.getInteger("bench.port", DEFAULT_PORT);
+
+        System.out.println("=== HTTP Engine Benchmark ===");
+        System.out.printf("Dauer: %d s | Pipelining: %d | Keep-Alive: %s%n", seconds, pipeline, keepAlive);
+        System.out.printf("%-6s %10s %12s %10s %10s %8s %10s %12s%n",
+                "Engine", "Verbind.", "Req/s", "p50 ms", "p99 ms", "Fehler", "RSS MB", "Peak Threads");
+
+        for (String engine : engines) {
+            Process server = startServer(engine.trim(), port);
+            try {
+                waitForServer(port);
+                runLoad(port, 10, 2, pipeline, keepAlive); // warm-up
+                for (int connections : connectionCounts) {
+                    Result result = runLoad(port, connections, seconds, pipeline, keepAlive);
+                    String stats = fetch(port, "/stats");
+                    System.out.printf(Locale.ROOT, "%-6s %10d %12.0f %10.2f %10.2f %8d %10s %12s%n",
+                            engine.trim(), connections, result.throughput(), result.p50Millis(), result.p99Millis(),
+                            result.errors(), rssMegabytes(server.pid()), jsonNumber(stats, "peakThreads"));
+                }
+            } finally {
+                server.destroy();
+                server.waitFor();
+            }
+        }
+    }
+
+    private record Result(double throughput, double p50Millis, double p99Millis, long errors) {
+    }
+
+    private static Process startServer(String engine, int port) throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        return new ProcessBuilder(java,
+                "-D" + HttpEngines.ENGINE_PROPERTY + "=" + engine,
+                "-D" + ServerExecutors.MODE_PROPERTY + "=" + System.getProperty(ServerExecutors.MODE_PROPERTY, "virtual"),
+                "-Dbench.bodyBytes=" + Integer.getInteger("bench.bodyBytes", 200),
+                "-cp", System.getProperty("java.class.path"),
+                HttpEngineBenchmark.class.getName(), "serve", String.valueOf(port))
+                .inheritIO()
+                .start();
+    }
+
+    private static void serve(int port, int bodyBytes) throws IOException {
+        HttpServer server = HttpEngines.create(HttpEngines.fromSystemProperties(), new InetSocketAddress(port), 16384);
+        ServerExecutors.InstrumentedExecutor executor = ServerExecutors.fromSystemProperties();
+        byte[] status = new byte[bodyBytes];
+        Arrays.fill(status, (byte) ' ');
+        byte[] prefix = "{\"event\":\"status\",\"board\":\"".getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(prefix, 0, status, 0, Math.min(prefix.length, status.length));
+        status[status.length - 1] = '}';
+
+        server.createContext("/status", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, status.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(status);
+            }
+        });
+        server.createContext("/stats", exchange -> {
+            String stats = executor.statsJson();
+            int peakThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+            byte[] body = (stats.substring(0, stats.length() - 1) + ",\"peakThreads\":" + peakThreads + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Hält connections Verbindungen für seconds Sekunden unter Last und misst jede Antwort
+     */
+    private static Result runLoad(int port, int connections, int seconds, int pipeline, boolean keepAlive)
+            throws InterruptedException {
+        byte[] request = ("GET /status HTTP/1.1\r\nHost: 127.0.0.1:" + port + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n") + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] batch = new byte[request.length * pipeline];
+        for (int i = 0; i < pipeline; i++) {
+            System.arraycopy(request, 0, batch, i * request.length, request.length);
+        }
+        LongAdder ok = new LongAdder();
+        LongAdder errors = new LongAdder();
+        // per client and batch: time until the last response of the batch arrived, in microseconds (ring, newest 4096)
+        long[][] latencies = new long[connections][1 << 12];
+        int[] counts = new int[connections];
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                int client = c;
+                long[] samples = latencies[c];
+                clients.execute(() -> {
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        try (Socket socket = new Socket("127.0.0.1", port)) {
+                            socket.setTcpNoDelay(true);
+                            socket.setSoTimeout(30000);
+                            OutputStream out = socket.getOutputStream();
+                            InputStream in = new BufferedInputStream(socket.getInputStream());
+                            do {
+                                long sent = System.nanoTime();
+                                out.write(keepAlive ? batch : request);
+                                int expected = keepAlive ? pipeline : 1;
+                                for (int r = 0; r < expected; r++) {
+                                    if (readResponse(in) == 200) {
+                                        ok.increment();
+                                    } else {
+                                        errors.increment();
+                                    }
+                                }
+                                samples[count++ & (samples.length - 1)] = (System.nanoTime() - sent) / 1000;
+                            } while (keepAlive && System.nanoTime() < deadline);
+                        } catch (IOException e) {
+                            errors.increment();
+                        }
+                    }
+                    counts[client] = Math.min(count, samples.length);
+                });
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        // the executor's close() waited for all clients, so counts are visible here
+        long[] all = new long[Arrays.stream(counts).sum()];
+        int offset = 0;
+        for (int c = 0; c < connections; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(all);
+        return new Result(ok.sum() / elapsed, percentile(all, 0.50), percentile(all, 0.99), errors.sum());
+    }
+
+    /**
+     * Liest eine Antwort mit Content-Length und liefert den Statuscode
+     */
+    private static int readResponse(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int status = -1;
+        long contentLength = 0;
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Verbindung vorzeitig geschlossen");
+            }
+            if (b != '\n') {
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+                continue;
+            }
+            if (line.isEmpty()) {
+                break;
+            }
+            String header = line.toString();
+            if (status < 0) {
+                status = Integer.parseInt(header.substring(9, 12));
+            } else if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Long.parseLong(header.substring(15).trim());
+            }
+            line.setLength(0);
+        }
+        in.skipNBytes(contentLength);
+        return status;
+    }
+
+    private static double percentile(long[] sortedMicros, double quantile) {
+        if (sortedMicros.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedMicros.length - 1, Math.ceil(quantile * sortedMicros.length) - 1);
+        return sortedMicros[Math.max(0, index)] / 1000.0;
+    }
+
+    private static void waitForServer(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                fetch(port, "/stats");
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Benchmark-Server startet nicht auf Port " + port);
+    }
+
+    private static String fetch(int port, String path) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        return client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path)).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    /**
+     * Liest VmRSS aus /proc (nur Linux), sonst "n/a"
+     */
+    private static String rssMegabytes(long pid) {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    long kb = Long.parseLong(line.replaceAll("\\D", ""));
+                    return String.valueOf(kb / 1024);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not available on this platform
+        }
+        return "n/a";
+    }
+
+    private static String jsonNumber(String json, String key) {
+        int index = json.indexOf("\"" + key + "\":");
+        if (index < 0) {
+            return "n/a";
+        }
+        int start = index + key.length() + 3;
+        int end = start;
+        while (end < json.length() && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '-')) {
+            end++;
+        }
+        return json.substring(start, end);
+    }
+}
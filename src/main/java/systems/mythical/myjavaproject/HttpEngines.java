@@ -0,0 +1,44 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Auswahl der HTTP-Engine für die HTTP-Server (SimpleMultiplayerServer, SimpleWebServer)
+ *
+ * Beide Engines liefern ein com.sun.net.httpserver.HttpServer, die Handler bleiben dieselben.
+ *   -Dserver.engine=jdk|nio   (Standard: jdk)
+ */
+public class HttpEngines {
+    public static final String ENGINE_PROPERTY = "server.engine";
+
+    public enum Engine {
+        /** com.sun.net.httpserver aus dem JDK */
+        JDK,
+        /** Eigene Selector-Event-Loops, siehe NioHttpServer */
+        NIO
+    }
+
+    private HttpEngines() {
+    }
+
+    public static Engine fromSystemProperties() {
+        String value = System.getProperty(ENGINE_PROPERTY, "jdk");
+        try {
+            return Engine.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            AsyncLog.warn("⚠️ Unbekannte HTTP-Engine '" + value + "', verwende JDK");
+            return Engine.JDK;
+        }
+    }
+
+    public static HttpServer create(Engine engine, InetSocketAddress address, int backlog) throws IOException {
+        return switch (engine) {
+            case JDK -> HttpServer.create(address, backlog);
+            case NIO -> NioHttpServer.create(address, backlog);
+        };
+    }
+}
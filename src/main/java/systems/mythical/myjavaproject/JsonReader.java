@@ -0,0 +1,337 @@
+package systems.mythical.myjavaproject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kleiner Streaming-JSON-Leser für die Request-Bodies der API-Handler
+ * Liest direkt aus dem UTF-8 Byte-Array, ohne Regex und ohne Zwischen-Maps.
+ *
+ * Beispiel:
+ *   String[] fields = JsonReader.readFields(body, "arena", "player", "position");
+ */
+public class JsonReader {
+    private final byte[] data;
+    private final int limit;
+    private int pos;
+    private boolean expectComma;
+
+    public JsonReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public JsonReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Liest die angegebenen Felder eines flachen JSON-Objekts in einem Durchlauf
+     * Strings, Zahlen und Booleans werden als Text geliefert, fehlende Felder als "".
+     */
+    public static String[] readFields(byte[] body, String... keys) {
+        String[] values = new String[keys.length];
+        JsonReader reader = new JsonReader(body);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            int index = indexOf(keys, name);
+            if (index >= 0) {
+                values[index] = reader.nextScalar();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                values[i] = "";
+            }
+        }
+        return values;
+    }
+
+    public void beginObject() {
+        consumeSeparator();
+        expect('{');
+        expectComma = false;
+    }
+
+    public void endObject() {
+        skipWhitespace();
+        expect('}');
+        expectComma = true;
+    }
+
+    public void beginArray() {
+        consumeSeparator();
+        expect('[');
+        expectComma = false;
+    }
+
+    public void endArray() {
+        skipWhitespace();
+        expect(']');
+        expectComma = true;
+    }
+
+    /**
+     * true, solange im aktuellen Objekt/Array noch ein Element folgt
+     */
+    public boolean hasNext() {
+        skipWhitespace();
+        if (pos >= limit) {
+            throw error("Unerwartetes Ende");
+        }
+        byte c = data[pos];
+        return c != '}' && c != ']';
+    }
+
+    public String nextName() {
+        consumeSeparator();
+        String name = readString();
+        skipWhitespace();
+        expect(':');
+        expectComma = false;
+        return name;
+    }
+
+    public String nextString() {
+        consumeSeparator();
+        String value = readString();
+        expectComma = true;
+        return value;
+    }
+
+    public long nextLong() {
+        consumeSeparator();
+        int start = pos;
+        long value = 0;
+        boolean negative = pos < limit && data[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        while (pos < limit && data[pos] >= '0' && data[pos] <= '9') {
+            value = value * 10 + (data[pos++] - '0');
+        }
+        if (pos == start || (negative && pos == start + 1)) {
+            throw error("Zahl erwartet");
+        }
+        expectComma = true;
+        return negative ? -value : value;
+    }
+
+    public int nextInt() {
+        return Math.toIntExact(nextLong());
+    }
+
+    public boolean nextBoolean() {
+        consumeSeparator();
+        if (matches("true")) {
+            pos += 4;
+            expectComma = true;
+            return true;
+        }
+        if (matches("false")) {
+            pos += 5;
+            expectComma = true;
+            return false;
+        }
+        throw error("Boolean erwartet");
+    }
+
+    /**
+     * Liest einen String, eine Zahl, einen Boolean oder null als Text (null -> "")
+     */
+    public String nextScalar() {
+        consumeSeparator();
+        if (pos >= limit) {
+            throw error("Wert erwartet");
+        }
+        byte c = data[pos];
+        if (c == '"') {
+            String value = readString();
+            expectComma = true;
+            return value;
+        }
+        if (c == '{' || c == '[') {
+            skipValue();
+            return "";
+        }
+        int start = pos;
+        while (pos < limit && data[pos] != ',' && data[pos] != '}' && data[pos] != ']' && data[pos] > ' ') {
+            pos++;
+        }
+        expectComma = true;
+        String literal = new String(data, start, pos - start, StandardCharsets.US_ASCII);
+        return literal.equals("null") ? "" : literal;
+    }
+
+    /**
+     * Überspringt den nächsten Wert inklusive verschachtelter Objekte und Arrays
+     */
+    public void skipValue() {
+        consumeSeparator();
+        if (pos >= limit) {
+            throw error("Wert erwartet");
+        }
+        byte c = data[pos];
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                byte b = data[pos];
+                if (b == '"') {
+                    skipString();
+                    continue;
+                }
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                }
+                pos++;
+            } while (depth > 0 && pos < limit);
+            if (depth > 0) {
+                throw error("Unerwartetes Ende");
+            }
+        } else {
+            while (pos < limit && data[pos] != ',' && data[pos] != '}' && data[pos] != ']' && data[pos] > ' ') {
+                pos++;
+            }
+        }
+        expectComma = true;
+    }
+
+    private void consumeSeparator() {
+        skipWhitespace();
+        if (expectComma) {
+            expect(',');
+            skipWhitespace();
+            expectComma = false;
+        }
+    }
+
+    private String readString() {
+        expect('"');
+        int start = pos;
+        // Fast path: no escapes, decode the raw UTF-8 slice
+        while (pos < limit) {
+            byte c = data[pos];
+            if (c == '"') {
+                String value = new String(data, start, pos - start, StandardCharsets.UTF_8);
+                pos++;
+                return value;
+            }
+            if (c == '\\') {
+                break;
+            }
+            pos++;
+        }
+        if (pos >= limit) {
+            throw error("Nicht geschlossener String");
+        }
+        StringBuilder sb = new StringBuilder(new String(data, start, pos - start, StandardCharsets.UTF_8));
+        int chunkStart = pos;
+        while (pos < limit) {
+            byte c = data[pos];
+            if (c == '"') {
+                flushChunk(sb, chunkStart);
+                pos++;
+                return sb.toString();
+            }
+            if (c != '\\') {
+                pos++;
+                continue;
+            }
+            flushChunk(sb, chunkStart);
+            if (pos + 1 >= limit) {
+                break;
+            }
+            byte escaped = data[pos + 1];
+            pos += 2;
+            switch (escaped) {
+                case '"' -> sb.append('"');
+                case '\\' -> sb.append('\\');
+                case '/' -> sb.append('/');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > limit) {
+                        throw error("Ungültige Unicode-Escape");
+                    }
+                    sb.append((char) Integer.parseInt(new String(data, pos, 4, StandardCharsets.US_ASCII), 16));
+                    pos += 4;
+                }
+                default -> throw error("Ungültige Escape-Sequenz");
+            }
+            chunkStart = pos;
+        }
+        throw error("Nicht geschlossener String");
+    }
+
+    private void flushChunk(StringBuilder sb, int chunkStart) {
+        if (pos > chunkStart) {
+            sb.append(new String(data, chunkStart, pos - chunkStart, StandardCharsets.UTF_8));
+        }
+    }
+
+    private void skipString() {
+        expect('"');
+        while (pos < limit) {
+            byte c = data[pos++];
+            if (c == '\\') {
+                pos++;
+            } else if (c == '"') {
+                return;
+            }
+        }
+        throw error("Nicht geschlossener String");
+    }
+
+    private boolean matches(String literal) {
+        if (pos + literal.length() > limit) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (data[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (pos < limit) {
+            byte c = data[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void expect(char c) {
+        if (pos >= limit || data[pos] != c) {
+            throw error("'" + c + "' erwartet");
+        }
+        pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Ungültiges JSON an Position " + pos + ": " + message);
+    }
+
+    private static int indexOf(String[] keys, String name) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
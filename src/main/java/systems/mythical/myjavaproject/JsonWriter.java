@@ -0,0 +1,268 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Streaming-JSON-Schreiber, der direkt in einen wiederverwendbaren Byte-Puffer schreibt
+ * Kommas werden automatisch gesetzt, Strings korrekt escaped und als UTF-8 kodiert.
+ *
+ * Instanzen kommen aus einem kleinen Pool:
+ *   JsonWriter json = JsonWriter.acquire();
+ *   try { json.beginObject().name("success").value(true).endObject(); json.writeTo(os); }
+ *   finally { json.release(); }
+ */
+public class JsonWriter {
+    private static final int POOL_SIZE = 64;
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+    private static final int MAX_DEPTH = 32;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final ArrayBlockingQueue<JsonWriter> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private byte[] buffer;
+    private int size;
+    private int depth;
+    // Per nesting level: does the next value need a leading comma?
+    private final boolean[] needsComma = new boolean[MAX_DEPTH];
+    private boolean afterName;
+
+    public JsonWriter() {
+        this(256);
+    }
+
+    public JsonWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Holt einen leeren Writer aus dem Pool (oder erstellt einen neuen)
+     */
+    public static JsonWriter acquire() {
+        JsonWriter writer = pool.poll();
+        return writer != null ? writer : new JsonWriter();
+    }
+
+    /**
+     * Gibt den Writer zurück in den Pool; danach darf er nicht mehr benutzt werden
+     */
+    public void release() {
+        reset();
+        if (buffer.length <= MAX_POOLED_CAPACITY) {
+            pool.offer(this);
+        }
+    }
+
+    public JsonWriter reset() {
+        size = 0;
+        depth = 0;
+        afterName = false;
+        needsComma[0] = false;
+        return this;
+    }
+
+    public JsonWriter beginObject() {
+        beforeValue();
+        writeByte('{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        depth--;
+        writeByte('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        beforeValue();
+        writeByte('[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        depth--;
+        writeByte(']');
+        return this;
+    }
+
+    public JsonWriter name(String name) {
+        beforeValue();
+        writeQuoted(name);
+        writeByte(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeQuoted(value);
+        return this;
+    }
+
+    public JsonWriter value(char value) {
+        return value(String.valueOf(value));
+    }
+
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        beforeValue();
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return this;
+        }
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        ensureCapacity(20);
+        int start = size;
+        do {
+            buffer[size++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        // digits were written backwards
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+        return this;
+    }
+
+    public JsonWriter value(double value) {
+        beforeValue();
+        writeAscii(Double.isFinite(value) ? Double.toString(value) : "null");
+        return this;
+    }
+
+    public JsonWriter nullValue() {
+        beforeValue();
+        writeAscii("null");
+        return this;
+    }
+
+    /**
+     * Hängt bereits fertiges JSON unverändert als Wert an
+     */
+    public JsonWriter rawValue(String json) {
+        beforeValue();
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private void push() {
+        if (++depth >= MAX_DEPTH) {
+            throw new IllegalStateException("JSON zu tief verschachtelt");
+        }
+        needsComma[depth] = false;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (needsComma[depth]) {
+            writeByte(',');
+        }
+        needsComma[depth] = true;
+    }
+
+    private void writeQuoted(String value) {
+        // Worst case: every char becomes \\u00XX (6 bytes)
+        ensureCapacity(value.length() * 6 + 2);
+        byte[] buf = buffer;
+        int p = size;
+        buf[p++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                buf[p++] = (byte) c;
+            } else if (c == '"' || c == '\\') {
+                buf[p++] = '\\';
+                buf[p++] = (byte) c;
+            } else if (c < 0x20) {
+                buf[p++] = '\\';
+                switch (c) {
+                    case '\n' -> buf[p++] = 'n';
+                    case '\r' -> buf[p++] = 'r';
+                    case '\t' -> buf[p++] = 't';
+                    default -> {
+                        buf[p++] = 'u';
+                        buf[p++] = '0';
+                        buf[p++] = '0';
+                        buf[p++] = HEX[c >> 4];
+                        buf[p++] = HEX[c & 0xf];
+                    }
+                }
+            } else if (c < 0x800) {
+                buf[p++] = (byte) (0xc0 | (c >> 6));
+                buf[p++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[p++] = (byte) (0xf0 | (codePoint >> 18));
+                buf[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buf[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buf[p++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                buf[p++] = '?';
+            } else {
+                buf[p++] = (byte) (0xe0 | (c >> 12));
+                buf[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[p++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        buf[p++] = '"';
+        size = p;
+    }
+
+    private void writeAscii(String text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[size++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
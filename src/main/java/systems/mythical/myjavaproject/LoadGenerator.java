@@ -0,0 +1,345 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lastgenerator für die Browser-API von SimpleMultiplayerServer
+ *
+ * Simuliert N virtuelle Spieler in Paaren: Spieler A erstellt eine Arena, beide treten per /api/join bei
+ * und spielen mit dem Token aus /api/join zufällige gültige Züge über /api/move. Den Spielstand holen sie wie der Browser über
+ * /api/status – entweder als Long-Poll (?since=, wie der aktuelle Fallback) oder jede Sekunde (Intervall).
+ * Nach Spielende erstellt das Paar die nächste Arena, bis die Laufzeit abgelaufen ist.
+ *
+ * Aufruf (Server muss laufen):
+ *   java -cp target/classes systems.mythical.myjavaproject.LoadGenerator [spieler] [sekunden]
+ *   (Standard: 100 Spieler, 60 Sekunden)
+ *   Alle virtuellen Spieler kommen von einer Adresse, der Server sollte daher mit
+ *   -Dratelimit.enabled=false laufen, sonst misst man das Rate Limiting statt des Servers.
+ *
+ * Optionen: -Dload.url=http://localhost:8080 -Dload.poll=longpoll|interval -Dload.thinkMs=500
+ *
+ * Ausgabe je Endpunkt: Requests, Req/s, Fehler, Fehlerquote und p50/p95/p99/max Latenz.
+ * Im Long-Poll-Modus enthält die Status-Latenz die Wartezeit auf den Gegner.
+ */
+public class LoadGenerator {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(40);
+
+    private final String baseUrl;
+    private final boolean longPoll;
+    private final long thinkMs;
+    private final long deadline;
+    private final HttpClient client;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final LongAdder gamesFinished = new LongAdder();
+
+    LoadGenerator(String baseUrl, boolean longPoll, long thinkMs, long durationMs) {
+        this.baseUrl = baseUrl;
+        this.longPoll = longPoll;
+        this.thinkMs = thinkMs;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMs);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (String endpoint : List.of("create", "join", "move", "status")) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        String url = System.getProperty("load.url", "http://localhost:8080");
+        boolean longPoll = !"interval".equalsIgnoreCase(System.getProperty("load.poll", "longpoll"));
+        long thinkMs = Long.getLong("load.thinkMs", 500);
+        if (players < 2) {
+            players = 2;
+        }
+
+        System.out.println("=== Lastgenerator ===");
+        System.out.printf("Ziel: %s | Spieler: %d | Dauer: %d s | Status: %s | Bedenkzeit: %d ms%n",
+                url, players - players % 2, seconds, longPoll ? "Long-Poll" : "Intervall 1 s", thinkMs);
+
+        LoadGenerator generator = new LoadGenerator(url, longPoll, thinkMs, seconds * 1000L);
+        long start = System.nanoTime();
+        generator.run(players / 2);
+        double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+        generator.report(elapsed);
+    }
+
+    void run(int pairs) throws InterruptedException {
+        try (ExecutorService playerThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int pair = 0; pair < pairs; pair++) {
+                int pairId = pair;
+                playerThreads.execute(() -> playPair(pairId));
+            }
+        }
+    }
+
+    /**
+     * Ein Spielerpaar: A erstellt die Arena, dann laufen beide Spieler parallel bis Spielende
+     */
+    private void playPair(int pairId) {
+        String nameA = "load-" + pairId + "-a";
+        String nameB = "load-" + pairId + "-b";
+        int round = 0;
+        while (!expired()) {
+            String arenaId = createArena("Last " + pairId + "/" + round++);
+            if (arenaId == null) {
+                pause(1000);
+                continue;
+            }
+            Thread second = Thread.startVirtualThread(() -> playGame(arenaId, nameB, 100));
+            playGame(arenaId, nameA, 0);
+            try {
+                second.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void playGame(String arenaId, String playerName, long joinDelayMs) {
+        // B joins shortly after A, like a second browser tab
+        pause(joinDelayMs);
+        Map<String, String> join = post("join", "/api/join",
+                "{\"arena\":\"" + arenaId + "\",\"player\":\"" + playerName + "\"}", "success", "symbol", "token");
+        if (join == null || !"true".equals(join.get("success"))) {
+            return;
+        }
+        char symbol = join.get("symbol").charAt(0);
+        String token = join.get("token");
+
+        long version = -1;
+        while (!expired()) {
+            Map<String, String> status = pollStatus(arenaId, version);
+            if (status == null) {
+                pause(2000); // same back-off as the browser
+                continue;
+            }
+            if (status.isEmpty()) {
+                continue; // long-poll timeout (304)
+            }
+            if (status.get("arena").isEmpty()) {
+                return; // arena is gone
+            }
+            version = Long.parseLong(status.get("version"));
+            String board = status.get("board");
+            if (!status.get("winner").isEmpty() || board.indexOf(' ') < 0) {
+                if (symbol == 'X') {
+                    gamesFinished.increment();
+                }
+                return;
+            }
+            if ("true".equals(status.get("gameStarted")) && status.get("currentPlayer").charAt(0) == symbol) {
+                pause(thinkMs);
+                post("move", "/api/move", "{\"arena\":\"" + arenaId + "\",\"token\":\"" + token
+                        + "\",\"position\":" + randomFreeCell(board) + "}", "success");
+            } else if (!longPoll) {
+                pause(1000);
+            }
+        }
+    }
+
+    private String createArena(String name) {
+        Map<String, String> created = post("create", "/api/create-arena",
+                "{\"name\":\"" + name + "\",\"description\":\"Lasttest\"}", "success", "arenaId");
+        return created != null && "true".equals(created.get("success")) ? created.get("arenaId") : null;
+    }
+
+    /**
+     * Liefert den Status, eine leere Map bei 304 (Long-Poll-Timeout) oder null bei Fehlern
+     */
+    private Map<String, String> pollStatus(String arenaId, long version) {
+        String path = "/api/status?arena=" + arenaId;
+        if (longPoll && version >= 0) {
+            // never park longer than the remaining test time
+            long remainingMs = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            path += "&since=" + version + "&timeout=" + Math.min(25000, remainingMs);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT).GET().build();
+        EndpointStats endpoint = stats.get("status");
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            endpoint.record(System.nanoTime() - start, response.statusCode() != 200 && response.statusCode() != 304);
+            if (response.statusCode() == 304) {
+                return Map.of();
+            }
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            return toMap(JsonReader.readFields(response.body(), "arena", "version", "board", "gameStarted",
+                    "currentPlayer", "winner"), "arena", "version", "board", "gameStarted", "currentPlayer", "winner");
+        } catch (IOException | RuntimeException e) {
+            endpoint.record(System.nanoTime() - start, true);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private Map<String, String> post(String endpointName, String path, String body, String... fields) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        EndpointStats endpoint = stats.get(endpointName);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                endpoint.record(System.nanoTime() - start, true);
+                return null;
+            }
+            Map<String, String> values = toMap(JsonReader.readFields(response.body(), fields), fields);
+            // A rejected move or join is an application level error
+            endpoint.record(System.nanoTime() - start, !"true".equals(values.get("success")));
+            return values;
+        } catch (IOException | RuntimeException e) {
+            endpoint.record(System.nanoTime() - start, true);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    void report(double elapsedSeconds) {
+        System.out.println();
+        System.out.printf("%-8s %10s %10s %8s %8s %10s %10s %10s %10s%n",
+                "Endpunkt", "Requests", "Req/s", "Fehler", "Fehler%", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        long total = 0;
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpoint = entry.getValue();
+            long count = endpoint.count.sum();
+            long errors = endpoint.errors.sum();
+            total += count;
+            System.out.printf(Locale.ROOT, "%-8s %10d %10.1f %8d %7.2f%% %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey(), count, count / elapsedSeconds, errors, count == 0 ? 0.0 : 100.0 * errors / count,
+                    endpoint.percentile(0.50), endpoint.percentile(0.95), endpoint.percentile(0.99), endpoint.max());
+        }
+        System.out.printf(Locale.ROOT, "%nGesamt: %d Requests in %.1f s (%.1f req/s), %d Spiele beendet%n",
+                total, elapsedSeconds, total / elapsedSeconds, gamesFinished.sum());
+    }
+
+    private boolean expired() {
+        return System.nanoTime() >= deadline;
+    }
+
+    private static int randomFreeCell(String board) {
+        List<Integer> free = new ArrayList<>(9);
+        for (int i = 0; i < board.length(); i++) {
+            if (board.charAt(i) == ' ') {
+                free.add(i);
+            }
+        }
+        return free.get(ThreadLocalRandom.current().nextInt(free.size()));
+    }
+
+    private static Map<String, String> toMap(String[] values, String... keys) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return map;
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Latenz-Histogramm mit logarithmisch gestuften Buckets (ca. 1,5 % Auflösung, 1 µs bis ~1 h)
+     */
+    static final class EndpointStats {
+        private static final int SUB_BUCKETS = 128;
+        private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private volatile long maxMicros;
+
+        void record(long nanos, boolean error) {
+            long micros = Math.max(1, nanos / 1000);
+            buckets.incrementAndGet(bucketIndex(micros));
+            count.increment();
+            if (error) {
+                errors.increment();
+            }
+            if (micros > maxMicros) {
+                maxMicros = micros; // racy, good enough for a report
+            }
+        }
+
+        double percentile(double quantile) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(bucketUpperMicros(i), maxMicros) / 1000.0;
+                }
+            }
+            return max();
+        }
+
+        double max() {
+            return maxMicros / 1000.0;
+        }
+
+        // Values below SUB_BUCKETS are exact, above that each power of two is split into SUB_BUCKETS / 2 steps
+        private static int bucketIndex(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros) - 6;
+            int index = exponent * (SUB_BUCKETS / 2) + (int) (micros >>> exponent);
+            return Math.min(index, BUCKETS - 1);
+        }
+
+        private static long bucketUpperMicros(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / (SUB_BUCKETS / 2) - 1;
+            long mantissa = index - exponent * (SUB_BUCKETS / 2);
+            return ((mantissa + 1) << exponent) - 1;
+        }
+    }
+}
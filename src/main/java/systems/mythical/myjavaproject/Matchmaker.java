@@ -0,0 +1,268 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Matchmaking für /api/matchmake: bringt wartende Spieler paarweise zusammen und setzt beide
+ * in einem Schritt in eine freie (oder neue) Arena, statt sie in der Lobby um Arenen rangeln zu lassen.
+ *
+ * Jeder Skill-Bucket ist ein einzelner Slot (AtomicReference) statt einer Queue mit Lock: ein Spieler
+ * wartet nur, solange niemand sonst im Bucket wartet; der nächste nimmt ihn per CAS heraus und ist
+ * damit sein Partner. Wer den Wartenden aus dem Slot nimmt, besitzt ihn, so kann kein Spieler doppelt
+ * vergeben werden. Geparkte Requests belegen wie beim Long-Poll keinen Thread.
+ *
+ * Mit skill wartet ein Spieler zuerst nur auf Gegner im eigenen Bucket und nach matchmaking.widenMs
+ * im offenen Bucket (dort warten auch alle ohne skill); nach der Wartezeit kommt matched: false.
+ *
+ * Konfiguration (System Properties):
+ *   -Dmatchmaking.waitMs=20000      (maximale Wartezeit, der Client kann mit timeout kürzer warten)
+ *   -Dmatchmaking.widenMs=5000      (ab dann auch Gegner außerhalb des eigenen Skill-Buckets)
+ *   -Dmatchmaking.bucketWidth=200   (Breite eines Skill-Buckets)
+ */
+public class Matchmaker {
+    private static final long MAX_WAIT_MS = Long.getLong("matchmaking.waitMs", 20000);
+    private static final long WIDEN_MS = Long.getLong("matchmaking.widenMs", 5000);
+    private static final int BUCKET_WIDTH = Math.max(1, Integer.getInteger("matchmaking.bucketWidth", 200));
+    private static final int OPEN_BUCKET = Integer.MIN_VALUE;
+
+    private static final Map<Integer, AtomicReference<Ticket>> buckets = new ConcurrentHashMap<>();
+    private static final Map<String, Ticket> waitingByPlayer = new ConcurrentHashMap<>();
+    // Arenas that were empty when last seen; entries may be stale, seat() decides
+    private static final Queue<SimpleMultiplayerServer.GameArena> idleArenas = new ConcurrentLinkedQueue<>();
+    private static final Set<String> idleListed = ConcurrentHashMap.newKeySet();
+    private static final LongAdder matches = new LongAdder();
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "matchmaking-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Ein wartender Spieler; der geparkte Exchange wird genau einmal beantwortet
+     */
+    private static final class Ticket {
+        final HttpExchange exchange;
+        final String player;
+        final AtomicBoolean done = new AtomicBoolean(false);
+        // Slot the ticket currently waits in; only changed on the timer thread or before it is visible
+        volatile AtomicReference<Ticket> slot;
+        volatile ScheduledFuture<?> widen;
+        volatile ScheduledFuture<?> timeout;
+
+        Ticket(HttpExchange exchange, String player) {
+            this.exchange = exchange;
+            this.player = player;
+        }
+
+        void matched(PlayerSessions.Session session, String opponent) {
+            if (session == null) {
+                // the seat already had a valid token; a freshly seated arena never has one, the check keeps it that way
+                failed("taken", "Platz wurde bereits übernommen");
+                return;
+            }
+            finish(json -> {
+                json.name("success").value(true);
+                json.name("matched").value(true);
+                json.name("arena").value(session.arena().id);
+                json.name("symbol").value(session.symbol());
+                json.name("token").value(session.token());
+                json.name("opponent").value(opponent);
+                json.name("gameStarted").value(true);
+            });
+        }
+
+        void failed(String reason, String message) {
+            finish(json -> {
+                json.name("success").value(false);
+                json.name("matched").value(false);
+                json.name("reason").value(reason);
+                json.name("message").value(message);
+            });
+        }
+
+        private void finish(Consumer<JsonWriter> fields) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            waitingByPlayer.remove(player, this);
+            cancel(widen);
+            cancel(timeout);
+            JsonWriter json = JsonWriter.acquire();
+            try {
+                json.beginObject();
+                fields.accept(json);
+                json.endObject();
+                exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+                SimpleMultiplayerServer.sendJson(exchange, json);
+            } catch (IOException e) {
+                exchange.close();
+            } finally {
+                json.release();
+            }
+        }
+
+        private static void cancel(ScheduledFuture<?> future) {
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Merkt sich leere Arenen, damit Matches sie wiederverwenden statt neue anzulegen
+     */
+    static void install() {
+        SimpleMultiplayerServer.addArenaListener((arena, event) -> {
+            if ("deleted".equals(event)) {
+                idleListed.remove(arena.id);
+            } else if (("created".equals(event) || "reset".equals(event)) && idleListed.add(arena.id)) {
+                idleArenas.offer(arena);
+            }
+        });
+    }
+
+    /**
+     * Stellt einen Spieler in die Warteschlange; antwortet sofort, wenn schon ein Gegner wartet
+     * @param skill Spielstärke für den Skill-Bucket oder null für den offenen Bucket
+     */
+    static void enqueue(HttpExchange exchange, String player, Integer skill, String timeoutParam) {
+        long waitMs = MAX_WAIT_MS;
+        if (timeoutParam != null) {
+            try {
+                waitMs = Math.max(0, Math.min(MAX_WAIT_MS, Long.parseLong(timeoutParam)));
+            } catch (NumberFormatException e) {
+                // keep default wait
+            }
+        }
+        int bucket = skill == null ? OPEN_BUCKET : Math.floorDiv(skill, BUCKET_WIDTH);
+        Ticket ticket = new Ticket(exchange, player);
+
+        // a second tab or a retry replaces the older request of the same player
+        Ticket previous = waitingByPlayer.put(player, ticket);
+        if (previous != null && withdraw(previous)) {
+            previous.failed("replaced", "Neuere Matchmaking-Anfrage desselben Spielers");
+        }
+
+        if (!place(ticket, bucket)) {
+            return;
+        }
+        if (bucket != OPEN_BUCKET && WIDEN_MS < waitMs) {
+            ticket.widen = timer.schedule(() -> {
+                if (withdraw(ticket)) {
+                    place(ticket, OPEN_BUCKET);
+                }
+            }, WIDEN_MS, TimeUnit.MILLISECONDS);
+        }
+        ticket.timeout = timer.schedule(() -> {
+            if (withdraw(ticket)) {
+                ticket.failed("timeout", "Kein Gegner gefunden");
+            }
+        }, waitMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Bricht das Warten eines Spielers ab
+     * @return false, wenn er nicht (mehr) wartet, z.B. weil er gerade gepaart wurde
+     */
+    static boolean cancel(String player) {
+        Ticket ticket = waitingByPlayer.get(player);
+        if (ticket == null || !withdraw(ticket)) {
+            return false;
+        }
+        ticket.failed("cancelled", "Matchmaking abgebrochen");
+        return true;
+    }
+
+    public static int getWaitingPlayers() {
+        return waitingByPlayer.size();
+    }
+
+    public static long getMatches() {
+        return matches.sum();
+    }
+
+    /**
+     * Paart das Ticket mit dem Wartenden im Bucket oder legt es selbst dort ab
+     * @return true, wenn das Ticket jetzt wartet
+     */
+    private static boolean place(Ticket ticket, int bucket) {
+        AtomicReference<Ticket> slot = buckets.computeIfAbsent(bucket, b -> new AtomicReference<>());
+        while (true) {
+            Ticket waiting = slot.get();
+            if (waiting == null) {
+                ticket.slot = slot;
+                if (slot.compareAndSet(null, ticket)) {
+                    return true;
+                }
+            } else if (slot.compareAndSet(waiting, null)) {
+                // whoever takes the waiting ticket out of the slot owns it
+                if (waiting.player.equals(ticket.player)) {
+                    waiting.failed("replaced", "Neuere Matchmaking-Anfrage desselben Spielers");
+                    continue;
+                }
+                pair(waiting, ticket);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Nimmt ein wartendes Ticket aus seinem Slot; false, wenn es schon jemand anderes genommen hat
+     */
+    private static boolean withdraw(Ticket ticket) {
+        AtomicReference<Ticket> slot = ticket.slot;
+        return slot != null && slot.compareAndSet(ticket, null);
+    }
+
+    private static void pair(Ticket first, Ticket second) {
+        // The player who waited longer gets X and the first move
+        Seating seating = seat(first.player, second.player);
+        matches.increment();
+        AsyncLog.info("🤝 Match: " + first.player + " vs " + second.player + " in " + seating.arena().id);
+        first.matched(seating.playerX(), second.player);
+        second.matched(seating.playerO(), first.player);
+    }
+
+    /**
+     * Arena eines Matches mit den Sitzungen beider Spieler
+     */
+    private record Seating(SimpleMultiplayerServer.GameArena arena, PlayerSessions.Session playerX, PlayerSessions.Session playerO) {
+        Seating(SimpleMultiplayerServer.GameArena arena, SimpleMultiplayerServer.ArenaState seated) {
+            this(arena, PlayerSessions.issue(arena, seated, 0), PlayerSessions.issue(arena, seated, 1));
+        }
+    }
+
+    /**
+     * Setzt beide Spieler in eine leere Arena; nur wenn keine frei ist, wird eine neue angelegt
+     */
+    private static Seating seat(String playerX, String playerO) {
+        SimpleMultiplayerServer.GameArena arena;
+        SimpleMultiplayerServer.ArenaState seated;
+        while ((arena = idleArenas.poll()) != null) {
+            idleListed.remove(arena.id);
+            if (SimpleMultiplayerServer.getArena(arena.id) == arena && (seated = arena.seat(playerX, playerO)) != null) {
+                return new Seating(arena, seated);
+            }
+        }
+        do {
+            // the new arena is briefly listed as idle, so a concurrent match may grab it first
+            arena = SimpleMultiplayerServer.createArena(SimpleMultiplayerServer.newArenaId(), "Match: " + playerX + " vs " + playerO);
+        } while ((seated = arena.seat(playerX, playerO)) == null);
+        return new Seating(arena, seated);
+    }
+}
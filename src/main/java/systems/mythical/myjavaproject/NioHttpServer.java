@@ -0,0 +1,1330 @@
+package systems.mythical.myjavaproject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP/1.1-Server auf Basis von java.nio.channels.Selector, als Alternative zu com.sun.net.httpserver
+ *
+ * Die Klasse erweitert HttpServer und liefert eigene HttpExchange-Objekte, dadurch laufen alle
+ * bestehenden Handler unverändert auf beiden Engines (Auswahl über HttpEngines, -Dserver.engine=nio).
+ *
+ * Aufbau:
+ *   - wenige Event-Loop-Threads (-Dnio.loops, Standard: min(4, CPU-Kerne)) lesen und parsen Requests;
+ *     Loop 0 nimmt zusätzlich neue Verbindungen an und verteilt sie reihum
+ *   - die Handler laufen auf dem Executor des Servers (wie beim JDK-Server) und dürfen blockieren;
+ *     geparkte Exchanges (Long-Poll, SSE) belegen keinen Loop-Thread
+ *   - Antworten werden in gepoolte Direct Buffer geschrieben; Status-Zeile, Header und ein kleiner
+ *     Body gehen so in einem einzigen write() raus. Kann der Socket nicht alles annehmen, übernimmt
+ *     die Loop den Rest per OP_WRITE; über nio.maxPendingWrite Bytes blockiert der schreibende Handler
+ *   - Keep-Alive (HTTP/1.1 Standard, HTTP/1.0 mit Connection: keep-alive) und Pipelining: weitere
+ *     Requests einer Verbindung werden gepuffert und der Reihe nach beantwortet
+ *   - Leerlauf-Verbindungen werden nach nio.idleTimeoutMs geschlossen, ebenso Verbindungen, deren
+ *     Client so lange nichts mehr von den ausstehenden Bytes abnimmt (ein wartender Handler bekommt IOException)
+ *
+ * Nicht unterstützt: Request-Bodies mit Transfer-Encoding: chunked (501), Authenticator.
+ */
+public class NioHttpServer extends HttpServer {
+    public static final String LOOPS_PROPERTY = "nio.loops";
+    public static final String IDLE_TIMEOUT_PROPERTY = "nio.idleTimeoutMs";
+    public static final String MAX_PENDING_WRITE_PROPERTY = "nio.maxPendingWrite";
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+    // "%04x\r\n" in front of every chunk, 0xffff is more than a buffer holds
+    private static final int CHUNK_HEADER_BYTES = 6;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    private final int loopCount = Math.max(1, Integer.getInteger(LOOPS_PROPERTY,
+            Math.min(4, Runtime.getRuntime().availableProcessors())));
+    private final long idleTimeoutMs = Long.getLong(IDLE_TIMEOUT_PROPERTY, 30000);
+    private final int maxPendingWrite = Integer.getInteger(MAX_PENDING_WRITE_PROPERTY, 256 * 1024);
+    private final List<Context> contexts = new CopyOnWriteArrayList<>();
+    private final BufferPool pool = new BufferPool();
+    private ServerSocketChannel serverChannel;
+    private InetSocketAddress address;
+    private Executor executor;
+    private EventLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private volatile boolean running;
+    // Date header, formatted at most once per second
+    private volatile long dateSecond;
+    private volatile String dateValue;
+
+    public static NioHttpServer create(InetSocketAddress address, int backlog) throws IOException {
+        NioHttpServer server = new NioHttpServer();
+        if (address != null) {
+            server.bind(address, backlog);
+        }
+        return server;
+    }
+
+    /**
+     * Schreibt den Body einer Antwort fester Länge per sendfile, wenn der Exchange von dieser Engine stammt
+     * @return false, wenn der Aufrufer den Body selbst in getResponseBody() schreiben muss
+     */
+    static boolean transferFile(HttpExchange exchange, FileChannel file, long position, long count) throws IOException {
+        if (!(exchange instanceof Exchange nio) || nio.responseBody != nio.responseStream) {
+            return false;
+        }
+        return nio.responseStream.transferFrom(file, position, count);
+    }
+
+    @Override
+    public void bind(InetSocketAddress address, int backlog) throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Server ist bereits gebunden");
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, backlog);
+        serverChannel.configureBlocking(false);
+        this.address = (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    @Override
+    public void start() {
+        if (serverChannel == null || running) {
+            throw new IllegalStateException("Server ist nicht gebunden oder läuft bereits");
+        }
+        if (executor == null) {
+            // the JDK server runs handlers on its dispatcher thread; ours must never block a loop
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+        }
+        running = true;
+        loops = new EventLoop[loopCount];
+        try {
+            for (int i = 0; i < loopCount; i++) {
+                loops[i] = new EventLoop(i);
+            }
+            loops[0].execute(() -> {
+                try {
+                    serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+                } catch (ClosedChannelException e) {
+                    // stopped before the loop came up
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Selector konnte nicht geöffnet werden", e);
+        }
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        if (running) {
+            throw new IllegalStateException("Executor muss vor start() gesetzt werden");
+        }
+        this.executor = executor;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void stop(int delaySeconds) {
+        running = false;
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            // closing anyway
+        }
+        if (loops != null) {
+            for (EventLoop loop : loops) {
+                loop.selector.wakeup();
+                try {
+                    loop.thread.join(TimeUnit.SECONDS.toMillis(Math.max(1, delaySeconds)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        Context context = createContext(path);
+        context.setHandler(handler);
+        return context;
+    }
+
+    @Override
+    public Context createContext(String path) {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("Ungültiger Kontextpfad: " + path);
+        }
+        for (Context existing : contexts) {
+            if (existing.path.equals(path)) {
+                throw new IllegalArgumentException("Kontext existiert bereits: " + path);
+            }
+        }
+        Context context = new Context(path);
+        contexts.add(context);
+        return context;
+    }
+
+    @Override
+    public void removeContext(String path) {
+        if (!contexts.removeIf(context -> context.path.equals(path))) {
+            throw new IllegalArgumentException("Kein Kontext für " + path);
+        }
+    }
+
+    @Override
+    public void removeContext(HttpContext context) {
+        contexts.remove(context);
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Längster passender Präfix, wie beim JDK-Server
+     */
+    private Context findContext(String path) {
+        Context best = null;
+        for (Context context : contexts) {
+            if (path.startsWith(context.path) && (best == null || context.path.length() > best.path.length())) {
+                best = context;
+            }
+        }
+        return best;
+    }
+
+    private static String reasonPhrase(int code) {
+        return switch (code) {
+            case 100 -> "Continue";
+            case 200 -> "OK";
+            case 204 -> "No Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 413 -> "Payload Too Large";
+            case 429 -> "Too Many Requests";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
+            default -> "";
+        };
+    }
+
+    private String date() {
+        long second = System.currentTimeMillis() / 1000;
+        String value = dateValue;
+        if (value == null || second != dateSecond) {
+            value = DATE_FORMAT.format(ZonedDateTime.now(ZoneOffset.UTC));
+            dateValue = value;
+            dateSecond = second;
+        }
+        return value;
+    }
+
+    private final class Context extends HttpContext {
+        final String path;
+        private volatile HttpHandler handler;
+        private final Map<String, Object> attributes = new HashMap<>();
+        private final List<Filter> filters = new CopyOnWriteArrayList<>();
+
+        Context(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            if (this.handler != null) {
+                throw new IllegalArgumentException("Handler ist bereits gesetzt");
+            }
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public HttpServer getServer() {
+            return NioHttpServer.this;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        @Override
+        public Authenticator setAuthenticator(Authenticator auth) {
+            throw new UnsupportedOperationException("Authenticator wird vom NIO-Server nicht unterstützt");
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return null;
+        }
+    }
+
+    /**
+     * Direct Buffer fester Größe; der Pool ist begrenzt, überzählige Buffer räumt der GC ab
+     */
+    private static final class BufferPool {
+        private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        ByteBuffer acquire() {
+            ByteBuffer buffer = free.poll();
+            if (buffer == null) {
+                return ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+            size.decrementAndGet();
+            return buffer;
+        }
+
+        void release(ByteBuffer buffer) {
+            // heap buffers are wrapped arrays, they are never pooled
+            if (buffer.isDirect() && buffer.capacity() == BUFFER_SIZE && size.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+                free.offer(buffer.clear());
+            } else if (buffer.isDirect() && buffer.capacity() == BUFFER_SIZE) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Ein Selector-Thread; Aufgaben anderer Threads laufen über execute() auf der Loop
+     */
+    private final class EventLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        // shared by all connections of this loop, the bytes are copied out right away
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long lastIdleCheck = System.currentTimeMillis();
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-http-" + index);
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    // tasks queued by the loop itself (no wakeup) must not wait for the next event
+                    if (tasks.isEmpty()) {
+                        selector.select(1000);
+                    } else {
+                        selector.selectNow();
+                    }
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        handleKey(key);
+                    }
+                    selector.selectedKeys().clear();
+                    closeIdleConnections();
+                } catch (IOException | RuntimeException e) {
+                    AsyncLog.error("❌ Fehler in der NIO-Event-Loop: " + e.getMessage(), e);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // shutting down
+            }
+        }
+
+        private void handleKey(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            if (key.isWritable()) {
+                connection.onWritable();
+            }
+            if (key.isValid() && key.isReadable()) {
+                connection.onReadable(readBuffer);
+            }
+        }
+
+        private void accept() {
+            SocketChannel channel;
+            try {
+                while ((channel = serverChannel.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    SocketChannel accepted = channel;
+                    EventLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                    loop.execute(() -> loop.register(accepted));
+                }
+            } catch (IOException e) {
+                if (running) {
+                    AsyncLog.warn("⚠️ Verbindung konnte nicht angenommen werden: " + e.getMessage());
+                }
+            }
+        }
+
+        private void register(SocketChannel channel) {
+            try {
+                Connection connection = new Connection(this, channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // already gone
+                }
+            }
+        }
+
+        private void closeIdleConnections() {
+            long now = System.currentTimeMillis();
+            if (now - lastIdleCheck < 1000) {
+                return;
+            }
+            lastIdleCheck = now;
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection && connection.isIdleSince(now - idleTimeoutMs)) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Eine TCP-Verbindung; höchstens ein Exchange ist gleichzeitig aktiv, weitere (Pipelining) warten im Puffer
+     */
+    private final class Connection {
+        final EventLoop loop;
+        final SocketChannel channel;
+        final InetSocketAddress remote;
+        final InetSocketAddress local;
+        SelectionKey key;
+        // loop thread only
+        private byte[] in = new byte[1024];
+        private int inLength;
+        private Exchange current;
+        private boolean continueSent;
+        private long lastActive = System.currentTimeMillis();
+
+        // output side, shared between the handler thread and the loop
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private final Condition drained = writeLock.newCondition();
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        private int pendingBytes;
+        // when the socket last took some of the pending bytes (or they started piling up)
+        private volatile long lastDrained;
+        private boolean closeWhenFlushed;
+        // a file transfer waits for the socket to become writable, see transferFile
+        private volatile boolean awaitingWritable;
+        private volatile boolean closed;
+
+        Connection(EventLoop loop, SocketChannel channel) throws IOException {
+            this.loop = loop;
+            this.channel = channel;
+            this.remote = (InetSocketAddress) channel.getRemoteAddress();
+            this.local = (InetSocketAddress) channel.getLocalAddress();
+        }
+
+        boolean isIdleSince(long threshold) {
+            if (pendingBytes > 0 || awaitingWritable) {
+                // a client that stopped reading, whether or not a handler still writes to it
+                return lastDrained < threshold;
+            }
+            return current == null && lastActive < threshold;
+        }
+
+        void onReadable(ByteBuffer readBuffer) {
+            int read;
+            try {
+                readBuffer.clear();
+                read = channel.read(readBuffer);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (read < 0) {
+                close();
+                return;
+            }
+            if (read == 0) {
+                return;
+            }
+            readBuffer.flip();
+            if (in.length - inLength < read) {
+                in = Arrays.copyOf(in, Math.max(in.length * 2, inLength + read));
+            }
+            readBuffer.get(in, inLength, read);
+            inLength += read;
+            lastActive = System.currentTimeMillis();
+            processInput();
+        }
+
+        /**
+         * Parst den nächsten vollständigen Request aus dem Puffer und gibt ihn an den Executor
+         */
+        private void processInput() {
+            if (current != null || closed) {
+                return;
+            }
+            int headerEnd = indexOfHeaderEnd();
+            if (headerEnd < 0) {
+                if (inLength > MAX_HEADER_BYTES) {
+                    fail(431, "Request Header Fields Too Large");
+                }
+                return;
+            }
+            Request request;
+            try {
+                request = Request.parse(in, headerEnd);
+            } catch (IllegalArgumentException e) {
+                fail(400, "Bad Request");
+                return;
+            }
+            if (request.chunked) {
+                fail(501, "Not Implemented");
+                return;
+            }
+            if (request.contentLength > MAX_BODY_BYTES) {
+                fail(413, "Payload Too Large");
+                return;
+            }
+            int total = headerEnd + 4 + (int) request.contentLength;
+            if (inLength < total) {
+                if (request.expectContinue && !continueSent) {
+                    continueSent = true;
+                    write(ByteBuffer.wrap("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII)), false);
+                }
+                return;
+            }
+            byte[] body = Arrays.copyOfRange(in, headerEnd + 4, total);
+            System.arraycopy(in, total, in, 0, inLength - total);
+            inLength -= total;
+            continueSent = false;
+
+            Context context = findContext(request.uri.getRawPath() == null ? "/" : request.uri.getRawPath());
+            if (context == null || context.getHandler() == null) {
+                current = new Exchange(this, request, body, null);
+                current.respondEmpty(404);
+                return;
+            }
+            Exchange exchange = new Exchange(this, request, body, context);
+            current = exchange;
+            // pipelined requests stay in the socket until this exchange is done
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            try {
+                executor.execute(exchange::run);
+            } catch (RejectedExecutionException e) {
+                exchange.respondEmpty(503);
+            }
+        }
+
+        private int indexOfHeaderEnd() {
+            for (int i = 0; i + 3 < inLength; i++) {
+                if (in[i] == '\r' && in[i + 1] == '\n' && in[i + 2] == '\r' && in[i + 3] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void fail(int status, String reason) {
+            String response = "HTTP/1.1 " + status + " " + reason + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n";
+            inLength = 0;
+            write(ByteBuffer.wrap(response.getBytes(StandardCharsets.US_ASCII)), false);
+            closeWhenFlushed();
+        }
+
+        /**
+         * Auf der Loop: der aktive Exchange ist fertig, weiter mit dem nächsten Request
+         */
+        void exchangeFinished(boolean keepAlive) {
+            current = null;
+            lastActive = System.currentTimeMillis();
+            if (!keepAlive) {
+                closeWhenFlushed();
+                return;
+            }
+            if (!closed && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                processInput();
+            }
+        }
+
+        /**
+         * Schreibt einen Buffer (gehört danach der Verbindung); blockiert den Aufrufer nur, wenn
+         * mayBlock gesetzt ist und schon zu viel auf den Socket wartet
+         */
+        void write(ByteBuffer buffer, boolean mayBlock) {
+            boolean needWriteInterest = false;
+            writeLock.lock();
+            try {
+                if (closed) {
+                    pool.release(buffer);
+                    throw new UncheckedClosed();
+                }
+                if (pending.isEmpty()) {
+                    try {
+                        channel.write(buffer);
+                    } catch (IOException e) {
+                        pool.release(buffer);
+                        closeLocked();
+                        throw new UncheckedClosed();
+                    }
+                }
+                if (buffer.hasRemaining()) {
+                    needWriteInterest = pending.isEmpty();
+                    pending.add(buffer);
+                    pendingBytes += buffer.remaining();
+                } else {
+                    pool.release(buffer);
+                }
+                if (needWriteInterest) {
+                    lastDrained = System.currentTimeMillis();
+                    loop.execute(this::enableWriteInterest);
+                }
+                while (mayBlock && pendingBytes > maxPendingWrite && !closed) {
+                    awaitDrained();
+                }
+                if (closed && mayBlock) {
+                    throw new UncheckedClosed();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        /**
+         * Schreibt einen Dateiausschnitt mit FileChannel.transferTo direkt in den Socket;
+         * blockiert den Handler-Thread, bis alles raus ist
+         */
+        void transferFile(FileChannel file, long position, long count) throws IOException {
+            long end = position + count;
+            writeLock.lock();
+            try {
+                while (position < end) {
+                    if (closed) {
+                        throw new UncheckedClosed();
+                    }
+                    if (!pending.isEmpty()) {
+                        // the head (or earlier bytes) must reach the socket first
+                        awaitDrained();
+                        continue;
+                    }
+                    long written;
+                    try {
+                        written = file.transferTo(position, end - position, channel);
+                    } catch (IOException e) {
+                        closeLocked();
+                        throw new UncheckedClosed();
+                    }
+                    if (written > 0) {
+                        position += written;
+                        continue;
+                    }
+                    if (position >= file.size()) {
+                        closeLocked();
+                        throw new IOException("Datei ist kürzer als angekündigt");
+                    }
+                    // socket buffer is full, onWritable signals once the client has read some of it
+                    lastDrained = System.currentTimeMillis();
+                    awaitingWritable = true;
+                    loop.execute(this::enableWriteInterest);
+                    awaitDrained();
+                    awaitingWritable = false;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        /**
+         * Wartet mit gehaltenem writeLock auf onWritable; nimmt der Client nio.idleTimeoutMs lang
+         * nichts ab oder wird der Handler-Thread unterbrochen, wird die Verbindung geschlossen
+         */
+        private void awaitDrained() {
+            try {
+                if (drained.awaitNanos(TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs)) <= 0 && !closed) {
+                    closeLocked();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closeLocked();
+            }
+        }
+
+        private void enableWriteInterest() {
+            if (key.isValid() && (pendingBytes > 0 || awaitingWritable)) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void onWritable() {
+            writeLock.lock();
+            try {
+                ByteBuffer head;
+                while ((head = pending.peek()) != null) {
+                    int before = head.remaining();
+                    channel.write(head);
+                    if (head.remaining() < before) {
+                        pendingBytes -= before - head.remaining();
+                        lastDrained = System.currentTimeMillis();
+                    }
+                    if (head.hasRemaining()) {
+                        break;
+                    }
+                    pool.release(pending.poll());
+                }
+                if (pending.isEmpty()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    if (closeWhenFlushed) {
+                        closeLocked();
+                    }
+                }
+                drained.signalAll();
+            } catch (IOException e) {
+                closeLocked();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void closeWhenFlushed() {
+            writeLock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    closeLocked();
+                } else {
+                    closeWhenFlushed = true;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        void close() {
+            writeLock.lock();
+            try {
+                closeLocked();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void closeLocked() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            ByteBuffer buffer;
+            while ((buffer = pending.poll()) != null) {
+                pool.release(buffer);
+            }
+            pendingBytes = 0;
+            drained.signalAll();
+            try {
+                // also cancels the key, from any thread
+                channel.close();
+            } catch (IOException e) {
+                // nothing left to do
+            }
+        }
+    }
+
+    /**
+     * Signalisiert einem Handler-Thread, dass die Verbindung zu ist; wird in IOException übersetzt
+     */
+    private static final class UncheckedClosed extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UncheckedClosed() {
+            super("Verbindung geschlossen", null, false, false);
+        }
+    }
+
+    /**
+     * Geparste Request-Zeile und Header
+     */
+    private static final class Request {
+        String method;
+        URI uri;
+        String protocol;
+        final Headers headers = new Headers();
+        long contentLength;
+        boolean chunked;
+        boolean expectContinue;
+        boolean keepAlive;
+
+        static Request parse(byte[] data, int headerEnd) {
+            String head = new String(data, 0, headerEnd, StandardCharsets.ISO_8859_1);
+            int lineEnd = head.indexOf("\r\n");
+            String requestLine = lineEnd < 0 ? head : head.substring(0, lineEnd);
+            int firstSpace = requestLine.indexOf(' ');
+            int lastSpace = requestLine.lastIndexOf(' ');
+            if (firstSpace <= 0 || lastSpace <= firstSpace) {
+                throw new IllegalArgumentException("Ungültige Request-Zeile");
+            }
+            Request request = new Request();
+            request.method = requestLine.substring(0, firstSpace);
+            request.protocol = requestLine.substring(lastSpace + 1);
+            if (!request.protocol.startsWith("HTTP/1.")) {
+                throw new IllegalArgumentException("Nicht unterstütztes Protokoll");
+            }
+            try {
+                request.uri = new URI(requestLine.substring(firstSpace + 1, lastSpace));
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException(e);
+            }
+
+            int position = lineEnd < 0 ? head.length() : lineEnd + 2;
+            while (position < head.length()) {
+                int end = head.indexOf("\r\n", position);
+                if (end < 0) {
+                    end = head.length();
+                }
+                int colon = head.indexOf(':', position);
+                if (colon <= position || colon > end) {
+                    throw new IllegalArgumentException("Ungültige Header-Zeile");
+                }
+                request.headers.add(head.substring(position, colon), head.substring(colon + 1, end).trim());
+                position = end + 2;
+            }
+
+            List<String> lengths = request.headers.get("Content-Length");
+            String transferEncoding = request.headers.getFirst("Transfer-Encoding");
+            request.chunked = transferEncoding != null && !"identity".equalsIgnoreCase(transferEncoding);
+            if (lengths != null) {
+                // conflicting framing is how requests get smuggled, so refuse it outright
+                if (request.chunked || lengths.stream().distinct().count() > 1) {
+                    throw new IllegalArgumentException("Widersprüchliche Länge");
+                }
+                try {
+                    request.contentLength = Long.parseLong(lengths.get(0).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                if (request.contentLength < 0) {
+                    throw new IllegalArgumentException("Negative Länge");
+                }
+            }
+            request.expectContinue = "100-continue".equalsIgnoreCase(request.headers.getFirst("Expect"));
+            String connection = request.headers.getFirst("Connection");
+            request.keepAlive = request.protocol.equals("HTTP/1.0")
+                    ? "keep-alive".equalsIgnoreCase(connection)
+                    : !"close".equalsIgnoreCase(connection);
+            return request;
+        }
+    }
+
+    /**
+     * HttpExchange des NIO-Servers; gleiche Semantik wie beim JDK-Server (Länge 0 = chunked,
+     * -1 = kein Body, fertig ist der Exchange mit close() auf Exchange oder Response-Stream)
+     */
+    private final class Exchange extends HttpExchange {
+        private final Connection connection;
+        private final Request request;
+        private final Context context;
+        private final Headers responseHeaders = new Headers();
+        private final Map<String, Object> attributes = new HashMap<>();
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private final ResponseStream responseStream = new ResponseStream();
+        private InputStream requestBody;
+        private OutputStream responseBody = responseStream;
+        private volatile int responseCode = -1;
+        private boolean keepAlive;
+
+        Exchange(Connection connection, Request request, byte[] body, Context context) {
+            this.connection = connection;
+            this.request = request;
+            this.context = context;
+            this.requestBody = new ByteArrayInputStream(body);
+            this.keepAlive = request.keepAlive;
+        }
+
+        void run() {
+            try {
+                new Filter.Chain(context.getFilters(), context.getHandler()).doFilter(this);
+            } catch (IOException | RuntimeException e) {
+                if (!(e instanceof UncheckedClosed)) {
+                    AsyncLog.warn("⚠️ Handler für " + request.uri.getPath() + " fehlgeschlagen: " + e);
+                }
+                // like the JDK server: a failed exchange takes its connection down
+                if (finished.compareAndSet(false, true)) {
+                    connection.close();
+                }
+            }
+        }
+
+        /**
+         * Antwort ohne Handler (404, 503); läuft auf der Loop
+         */
+        void respondEmpty(int status) {
+            try {
+                sendResponseHeaders(status, -1);
+            } catch (IOException | UncheckedClosed e) {
+                connection.close();
+            }
+        }
+
+        @Override
+        public Headers getRequestHeaders() {
+            return request.headers;
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return request.uri;
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return request.method;
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            return context;
+        }
+
+        @Override
+        public void close() {
+            if (responseCode == -1) {
+                // no response at all, the JDK server drops the connection as well
+                if (finished.compareAndSet(false, true)) {
+                    connection.close();
+                }
+                return;
+            }
+            try {
+                responseBody.close();
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return requestBody;
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return responseBody;
+        }
+
+        @Override
+        public void sendResponseHeaders(int code, long length) throws IOException {
+            if (responseCode != -1) {
+                throw new IOException("Header wurden bereits gesendet");
+            }
+            responseCode = code;
+            try {
+                writeHead(code, length);
+            } catch (UncheckedClosed e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+
+        private void writeHead(int code, long length) throws IOException {
+            boolean http10 = request.protocol.equals("HTTP/1.0");
+            boolean noBody = length == -1 || code == 204 || code == 304 || (code >= 100 && code < 200);
+            boolean head = "HEAD".equals(request.method);
+            if ("close".equalsIgnoreCase(responseHeaders.getFirst("Connection"))) {
+                keepAlive = false;
+            }
+
+            ResponseStream out = responseStream;
+            out.putHead("HTTP/1.1 ");
+            out.putHead(Integer.toString(code));
+            out.putHead(" ");
+            out.putHead(reasonPhrase(code));
+            out.putHead("\r\nDate: ");
+            out.putHead(date());
+            out.putHead("\r\n");
+            for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+                for (String value : header.getValue()) {
+                    out.putHead(header.getKey());
+                    out.putHead(": ");
+                    out.putHead(value);
+                    out.putHead("\r\n");
+                }
+            }
+            if (noBody) {
+                // like the JDK server: a HEAD answer keeps the Content-Length the handler set itself
+                if (!head && code != 204 && code != 304 && !(code >= 100 && code < 200)) {
+                    out.putHead("Content-Length: 0\r\n");
+                }
+                out.mode = ResponseStream.NO_BODY;
+            } else if (head) {
+                // same headers as GET, the body the handler writes is dropped
+                if (length > 0) {
+                    out.putHead("Content-Length: " + length + "\r\n");
+                }
+                out.mode = ResponseStream.DISCARD;
+            } else if (length > 0) {
+                out.putHead("Content-Length: ");
+                out.putHead(Long.toString(length));
+                out.putHead("\r\n");
+                out.mode = ResponseStream.FIXED;
+                out.remaining = length;
+            } else if (!http10) {
+                out.putHead("Transfer-Encoding: chunked\r\n");
+                out.mode = ResponseStream.CHUNKED;
+            } else {
+                // HTTP/1.0 has no chunked encoding, the end of the body is the end of the connection
+                keepAlive = false;
+                out.mode = ResponseStream.UNTIL_CLOSE;
+            }
+            if (!keepAlive) {
+                out.putHead("Connection: close\r\n");
+            } else if (http10) {
+                out.putHead("Connection: keep-alive\r\n");
+            }
+            out.putHead("\r\n");
+
+            if (out.mode == ResponseStream.NO_BODY) {
+                out.close();
+            } else if (out.mode == ResponseStream.DISCARD) {
+                out.flush();
+            } else if (out.mode == ResponseStream.CHUNKED || out.mode == ResponseStream.UNTIL_CLOSE) {
+                // streams (SSE) must see their headers before the first event
+                out.flush();
+            }
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return connection.remote;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return responseCode;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return connection.local;
+        }
+
+        @Override
+        public String getProtocol() {
+            return request.protocol;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            attributes.put(name, value);
+        }
+
+        @Override
+        public void setStreams(InputStream input, OutputStream output) {
+            if (input != null) {
+                requestBody = input;
+            }
+            if (output != null) {
+                responseBody = output;
+            }
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            return null;
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                boolean reuse = keepAlive;
+                connection.loop.execute(() -> connection.exchangeFinished(reuse));
+            }
+        }
+
+        /**
+         * Response-Body in gepoolten Direct Buffern; ein Buffer geht raus, wenn er voll ist,
+         * bei flush() und bei close()
+         */
+        private final class ResponseStream extends OutputStream {
+            static final int NO_BODY = 0;
+            static final int FIXED = 1;
+            static final int CHUNKED = 2;
+            static final int UNTIL_CLOSE = 3;
+            static final int DISCARD = 4;
+
+            int mode = -1;
+            long remaining;
+            private ByteBuffer buffer;
+            // position of the reserved chunk header in buffer, -1 if no chunk is open
+            private int chunkStart = -1;
+            private boolean closed;
+
+            void putHead(String text) {
+                for (int i = 0; i < text.length(); i++) {
+                    if (buffer == null) {
+                        buffer = pool.acquire();
+                    } else if (!buffer.hasRemaining()) {
+                        send();
+                        buffer = pool.acquire();
+                    }
+                    char c = text.charAt(i);
+                    // header values are ISO-8859-1 on the wire, anything else becomes '?'
+                    buffer.put(c < 256 ? (byte) c : (byte) '?');
+                }
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                if (mode == -1) {
+                    throw new IOException("sendResponseHeaders() wurde noch nicht aufgerufen");
+                }
+                if (closed) {
+                    throw new IOException("Response-Stream ist geschlossen");
+                }
+                if (length == 0) {
+                    return;
+                }
+                if (mode == NO_BODY) {
+                    throw new IOException("Diese Antwort hat keinen Body");
+                }
+                if (mode == DISCARD) {
+                    return;
+                }
+                if (mode == FIXED) {
+                    if (length > remaining) {
+                        throw new IOException("Mehr Bytes als Content-Length angekündigt");
+                    }
+                    remaining -= length;
+                }
+                try {
+                    while (length > 0) {
+                        if (buffer == null) {
+                            buffer = pool.acquire();
+                        }
+                        if (mode == CHUNKED && chunkStart < 0) {
+                            if (buffer.remaining() < CHUNK_HEADER_BYTES + 1 + CRLF.length) {
+                                send();
+                                continue;
+                            }
+                            chunkStart = buffer.position();
+                            buffer.position(chunkStart + CHUNK_HEADER_BYTES);
+                        }
+                        int room = buffer.remaining() - (mode == CHUNKED ? CRLF.length : 0);
+                        if (room <= 0) {
+                            send();
+                            continue;
+                        }
+                        int n = Math.min(room, length);
+                        buffer.put(bytes, offset, n);
+                        offset += n;
+                        length -= n;
+                    }
+                } catch (UncheckedClosed e) {
+                    throw new IOException(e.getMessage());
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (buffer != null && !closed) {
+                    try {
+                        send();
+                    } catch (UncheckedClosed e) {
+                        throw new IOException(e.getMessage());
+                    }
+                }
+            }
+
+            /**
+             * Überträgt count Bytes aus der Datei ohne Umweg über den Java-Heap (sendfile)
+             * @return false, wenn der Aufrufer die Bytes selbst in den Stream schreiben muss
+             */
+            boolean transferFrom(FileChannel file, long position, long count) throws IOException {
+                if (mode != FIXED || closed || count > remaining || Thread.currentThread() == connection.loop.thread) {
+                    return false;
+                }
+                remaining -= count;
+                try {
+                    send();
+                    connection.transferFile(file, position, count);
+                } catch (UncheckedClosed e) {
+                    throw new IOException(e.getMessage());
+                }
+                return true;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    if (mode == FIXED && remaining > 0) {
+                        // the client would wait for the missing bytes forever
+                        finished.set(true);
+                        connection.close();
+                        throw new IOException("Weniger Bytes als Content-Length angekündigt");
+                    }
+                    if (mode == CHUNKED) {
+                        closeChunk();
+                        if (buffer == null || buffer.remaining() < LAST_CHUNK.length) {
+                            send();
+                            buffer = pool.acquire();
+                        }
+                        buffer.put(LAST_CHUNK);
+                    }
+                    send();
+                } catch (UncheckedClosed e) {
+                    throw new IOException(e.getMessage());
+                } finally {
+                    if (mode == UNTIL_CLOSE) {
+                        finished.set(true);
+                        connection.closeWhenFlushed();
+                    } else {
+                        finish();
+                    }
+                }
+            }
+
+            /**
+             * Übergibt den aktuellen Buffer an die Verbindung
+             */
+            private void send() {
+                if (buffer == null) {
+                    return;
+                }
+                closeChunk();
+                ByteBuffer out = buffer;
+                buffer = null;
+                out.flip();
+                if (out.hasRemaining()) {
+                    // handlers block here if the client reads too slowly, never the loop
+                    connection.write(out, Thread.currentThread() != connection.loop.thread);
+                } else {
+                    pool.release(out);
+                }
+            }
+
+            private void closeChunk() {
+                if (chunkStart < 0) {
+                    return;
+                }
+                int size = buffer.position() - chunkStart - CHUNK_HEADER_BYTES;
+                if (size == 0) {
+                    buffer.position(chunkStart);
+                } else {
+                    buffer.put(chunkStart, HEX[(size >> 12) & 0xf]);
+                    buffer.put(chunkStart + 1, HEX[(size >> 8) & 0xf]);
+                    buffer.put(chunkStart + 2, HEX[(size >> 4) & 0xf]);
+                    buffer.put(chunkStart + 3, HEX[size & 0xf]);
+                    buffer.put(chunkStart + 4, CRLF[0]);
+                    buffer.put(chunkStart + 5, CRLF[1]);
+                    buffer.put(CRLF);
+                }
+                chunkStart = -1;
+            }
+        }
+    }
+}
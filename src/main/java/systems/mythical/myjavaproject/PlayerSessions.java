@@ -0,0 +1,225 @@
+package systems.mythical.myjavaproject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ * Sitzungs-Tokens für /api/join und /api/move
+ *
+ * Beim Beitritt bekommt ein Spieler ein zufälliges, nicht erratbares Token, das direkt auf seinen
+ * Platz (Arena + Sitz) zeigt. Züge werden nur noch mit diesem Token angenommen; wer nur den Namen
+ * eines Spielers kennt, kann nicht mehr für ihn ziehen.
+ *
+ * Ein Token gilt, solange auf seinem Sitz noch genau der Eintrag sitzt, für den es ausgestellt wurde
+ * (Referenzvergleich, kein String-Vergleich). Nach einem Reset oder einem neuen Beitritt unter
+ * demselben Namen ist das alte Token damit automatisch ungültig. Pro Sitz gibt es höchstens ein
+ * gültiges Token. Ein besetzter Sitz bekommt nie ein Token über den Namen allein.
+ *
+ * Damit ein Neustart die Spieler nicht aussperrt, schreibt das ArenaJournal zu jedem Token dessen
+ * SHA-256-Hash mit (nie das Token selbst). Beim Start werden diese Sitzungen wiederhergestellt; das
+ * erste resolve() mit dem passenden Token macht daraus wieder eine normale Sitzung.
+ */
+public class PlayerSessions {
+    private static final int TOKEN_BYTES = 16;
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // Latest session per seat of an arena, used to hand out at most one valid token per seat
+    private static final Map<String, AtomicReferenceArray<Session>> seats = new ConcurrentHashMap<>();
+    // Sessions restored from the journal, by Base64 digest; they know the token hash only until it is presented
+    private static final Map<String, Session> restored = new ConcurrentHashMap<>();
+    private static final List<BiConsumer<Session, SimpleMultiplayerServer.ArenaState>> issueListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Ein Platz in einer Arena; occupant ist genau der String aus ArenaState.players() beim Beitritt,
+     * digest der SHA-256 des Tokens (token ist null, solange eine wiederhergestellte Sitzung nicht benutzt wurde)
+     */
+    record Session(String token, SimpleMultiplayerServer.GameArena arena, int seat, String occupant, byte[] digest) {
+        char symbol() {
+            return seat == 0 ? 'X' : 'O';
+        }
+
+        boolean isValid() {
+            List<String> players = arena.getState().players();
+            // identity on purpose: a reset followed by a join under the same name is a different seat entry
+            return seat < players.size() && players.get(seat) == occupant;
+        }
+    }
+
+    /**
+     * Räumt die Tokens von Arenen auf, die zurückgesetzt oder gelöscht wurden
+     */
+    static void install() {
+        SimpleMultiplayerServer.addArenaListener((arena, event) -> {
+            if ("deleted".equals(event)) {
+                AtomicReferenceArray<Session> slots = seats.remove(arena.id);
+                if (slots != null) {
+                    for (int seat = 0; seat < slots.length(); seat++) {
+                        Session session = slots.get(seat);
+                        if (session != null) {
+                            discard(session);
+                        }
+                    }
+                }
+            } else if ("reset".equals(event)) {
+                AtomicReferenceArray<Session> slots = seats.get(arena.id);
+                if (slots != null) {
+                    for (int seat = 0; seat < slots.length(); seat++) {
+                        Session session = slots.get(seat);
+                        if (session != null && !session.isValid() && slots.compareAndSet(seat, session, null)) {
+                            discard(session);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Stellt ein Token für einen Sitz aus
+     * @param seated Zustand direkt nach dem Beitritt, aus dem der Sitz-Eintrag stammt
+     * @return die neue Sitzung oder null, wenn für diesen Sitz schon ein gültiges Token existiert
+     */
+    static Session issue(SimpleMultiplayerServer.GameArena arena, SimpleMultiplayerServer.ArenaState seated, int seat) {
+        String token = newToken();
+        Session session = new Session(token, arena, seat, seated.players().get(seat), digest(token));
+        AtomicReferenceArray<Session> slots = seats.computeIfAbsent(arena.id, id -> new AtomicReferenceArray<>(2));
+        while (true) {
+            Session current = slots.get(seat);
+            if (current != null && current.isValid()) {
+                return null;
+            }
+            if (slots.compareAndSet(seat, current, session)) {
+                if (current != null) {
+                    discard(current);
+                }
+                sessions.put(session.token(), session);
+                for (BiConsumer<Session, SimpleMultiplayerServer.ArenaState> listener : issueListeners) {
+                    listener.accept(session, seated);
+                }
+                return session;
+            }
+        }
+    }
+
+    /**
+     * Löst ein Token in O(1) auf
+     * @return die Sitzung oder null, wenn das Token unbekannt oder nicht mehr gültig ist
+     */
+    static Session resolve(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null && !restored.isEmpty()) {
+            session = claimRestored(token);
+        }
+        return session != null && session.isValid() ? session : null;
+    }
+
+    /**
+     * Wird nach jedem ausgestellten Token mit dem Zustand des Beitritts aufgerufen (ArenaJournal schreibt dann den Hash mit)
+     */
+    static void addIssueListener(BiConsumer<Session, SimpleMultiplayerServer.ArenaState> listener) {
+        issueListeners.add(listener);
+    }
+
+    /**
+     * Stellt eine Sitzung aus dem Journal wieder her, wenn auf dem Sitz noch derselbe Spieler sitzt
+     * @param version Arena-Version, bei der das Token ausgestellt wurde
+     */
+    static void restore(SimpleMultiplayerServer.GameArena arena, int seat, String occupant, long version, byte[] digest) {
+        SimpleMultiplayerServer.ArenaState state = arena.getState();
+        if (seat >= state.players().size() || version > state.version() || !state.players().get(seat).equals(occupant)) {
+            return;
+        }
+        // the restored state's own string, so the session ends with the next reset like any other
+        Session session = new Session(null, arena, seat, state.players().get(seat), digest);
+        AtomicReferenceArray<Session> slots = seats.computeIfAbsent(arena.id, id -> new AtomicReferenceArray<>(2));
+        Session previous = slots.getAndSet(seat, session);
+        if (previous != null) {
+            discard(previous);
+        }
+        restored.put(encoder.encodeToString(digest), session);
+    }
+
+    /**
+     * Alle gültigen Sitzungen einer Arena (für den Journal-Snapshot)
+     */
+    static List<Session> getSessions(SimpleMultiplayerServer.GameArena arena) {
+        List<Session> result = new ArrayList<>(2);
+        AtomicReferenceArray<Session> slots = seats.get(arena.id);
+        if (slots != null) {
+            for (int seat = 0; seat < slots.length(); seat++) {
+                Session session = slots.get(seat);
+                if (session != null && session.isValid()) {
+                    result.add(session);
+                }
+            }
+        }
+        return result;
+    }
+
+    public static int getActiveSessions() {
+        return sessions.size() + restored.size();
+    }
+
+    /**
+     * Macht aus einer wiederhergestellten Sitzung wieder eine mit Token
+     */
+    private static Session claimRestored(String token) {
+        byte[] digest = digest(token);
+        Session candidate = restored.get(encoder.encodeToString(digest));
+        if (candidate == null) {
+            return null;
+        }
+        Session session = new Session(token, candidate.arena(), candidate.seat(), candidate.occupant(), digest);
+        Session claimed = sessions.putIfAbsent(token, session);
+        if (claimed != null) {
+            // a concurrent request with the same token was first
+            return claimed;
+        }
+        AtomicReferenceArray<Session> slots = seats.get(candidate.arena().id);
+        if (slots == null || !slots.compareAndSet(candidate.seat(), candidate, session)) {
+            // the seat was reset or taken over meanwhile
+            sessions.remove(token, session);
+            return null;
+        }
+        restored.remove(encoder.encodeToString(digest), candidate);
+        return session;
+    }
+
+    private static void discard(Session session) {
+        if (session.token() != null) {
+            sessions.remove(session.token(), session);
+        } else {
+            restored.remove(encoder.encodeToString(session.digest()), session);
+        }
+    }
+
+    private static byte[] digest(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            // every JDK ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return encoder.encodeToString(bytes);
+    }
+}
@@ -0,0 +1,284 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Rate Limiting pro Client-Adresse und pro Sitzung, plus Admission Control über den HTTP-Executor
+ *
+ * Jedes Limit ist ein Token-Bucket, gespeichert als GCRA: pro Schlüssel nur ein Zeitstempel
+ * (wann der Bucket wieder voll ist), ein Request ist ein einziges CAS. Volle Buckets werden
+ * regelmäßig entfernt, sie verhalten sich genau wie ein neuer Client.
+ *
+ * Abgelehnte Requests bekommen sofort 429 mit Retry-After; das gilt auch, wenn der Executor
+ * gesättigt ist (siehe ServerExecutors.InstrumentedExecutor#tryAdmit). Weitergeleitete
+ * Cluster-Requests zählen nur beim Knoten, der sie angenommen hat; dem Header wird aber nur
+ * geglaubt, wenn der Request von einem Knoten aus cluster.nodes kommt.
+ *
+ * Konfiguration (System Properties):
+ *   -Dratelimit.enabled=true             (false schaltet die Limits pro Client/Sitzung ab, z.B. für LoadGenerator)
+ *   -Dratelimit.clientPerSecond=50       (API-Requests pro Client-Adresse, Burst doppelt so groß)
+ *   -Dratelimit.createPerMinute=20       (neue Arenen pro Client-Adresse, Burst 10)
+ *   -Dratelimit.sessionPerSecond=5       (Züge pro Sitzungs-Token, Burst doppelt so groß)
+ */
+public class RateLimiter {
+    public static final String ENABLED_PROPERTY = "ratelimit.enabled";
+    public static final String CLIENT_RATE_PROPERTY = "ratelimit.clientPerSecond";
+    public static final String CREATE_RATE_PROPERTY = "ratelimit.createPerMinute";
+    public static final String SESSION_RATE_PROPERTY = "ratelimit.sessionPerSecond";
+    private static final long SWEEP_SECONDS = 60;
+
+    private final boolean enabled;
+    private final ServerExecutors.InstrumentedExecutor executor;
+    private final Limit client;
+    private final Limit create;
+    private final Limit session;
+    // addresses of the other ring nodes, the only ones allowed to skip the limits via the forwarded header
+    private final Set<InetAddress> peers;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rate-limit-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Ein Token-Bucket pro Schlüssel mit gleicher Rate und Burst-Größe
+     */
+    static final class Limit {
+        final String name;
+        // time one token needs to refill, and how far a bucket may be "in debt" (burst - 1 tokens)
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        final LongAdder allowed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+
+        Limit(String name, double perSecond, int burst) {
+            this.name = name;
+            this.intervalNanos = (long) (1_000_000_000L / Math.max(perSecond, 0.001));
+            this.toleranceNanos = intervalNanos * (Math.max(burst, 1) - 1);
+        }
+
+        /**
+         * Nimmt ein Token
+         * @return 0 wenn erlaubt, sonst die Nanosekunden bis zum nächsten freien Token
+         */
+        long acquire(String key, long now) {
+            AtomicLong full = buckets.get(key);
+            if (full == null) {
+                full = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            }
+            while (true) {
+                long current = full.get();
+                long start = Math.max(current, now);
+                if (start - now > toleranceNanos) {
+                    rejected.increment();
+                    return start - now - toleranceNanos;
+                }
+                if (full.compareAndSet(current, start + intervalNanos)) {
+                    allowed.increment();
+                    return 0;
+                }
+            }
+        }
+
+        void sweep(long now) {
+            // a racing acquire on a removed bucket at worst grants one extra token
+            buckets.values().removeIf(full -> full.get() <= now);
+        }
+
+        int size() {
+            return buckets.size();
+        }
+    }
+
+    public RateLimiter(boolean enabled, ServerExecutors.InstrumentedExecutor executor,
+                       double clientPerSecond, double createPerMinute, double sessionPerSecond) {
+        this(enabled, executor, clientPerSecond, createPerMinute, sessionPerSecond, Set.of());
+    }
+
+    public RateLimiter(boolean enabled, ServerExecutors.InstrumentedExecutor executor,
+                       double clientPerSecond, double createPerMinute, double sessionPerSecond,
+                       Set<InetAddress> peers) {
+        this.enabled = enabled;
+        this.executor = executor;
+        this.peers = Set.copyOf(peers);
+        this.client = new Limit("client", clientPerSecond, (int) Math.ceil(clientPerSecond * 2));
+        this.create = new Limit("create", createPerMinute / 60.0, 10);
+        this.session = new Limit("session", sessionPerSecond, (int) Math.ceil(sessionPerSecond * 2));
+        sweeper.scheduleAtFixedRate(this::sweep, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static RateLimiter fromSystemProperties(ServerExecutors.InstrumentedExecutor executor) {
+        return fromSystemProperties(executor, null);
+    }
+
+    /**
+     * Wie oben; Requests von den Knoten des Rings dürfen mit FORWARDED_HEADER an den Limits vorbei
+     */
+    public static RateLimiter fromSystemProperties(ServerExecutors.InstrumentedExecutor executor, ClusterRing ring) {
+        boolean enabled = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+        double clientPerSecond = Double.parseDouble(System.getProperty(CLIENT_RATE_PROPERTY, "50"));
+        double createPerMinute = Double.parseDouble(System.getProperty(CREATE_RATE_PROPERTY, "20"));
+        double sessionPerSecond = Double.parseDouble(System.getProperty(SESSION_RATE_PROPERTY, "5"));
+        Set<InetAddress> peers = ring != null && ring.isEnabled() ? resolvePeers(ring) : Set.of();
+        return new RateLimiter(enabled, executor, clientPerSecond, createPerMinute, sessionPerSecond, peers);
+    }
+
+    private static Set<InetAddress> resolvePeers(ClusterRing ring) {
+        Set<InetAddress> peers = new HashSet<>();
+        for (String node : ring.getNodes()) {
+            String host = node.substring(0, Math.max(0, node.lastIndexOf(':')));
+            try {
+                peers.addAll(List.of(InetAddress.getAllByName(host)));
+            } catch (UnknownHostException e) {
+                AsyncLog.warn("⚠️ Cluster-Knoten " + node + " nicht auflösbar, weitergeleitete Requests von dort werden limitiert");
+            }
+        }
+        return peers;
+    }
+
+    /**
+     * Umhüllt einen Handler mit Admission Control und dem Limit pro Client-Adresse
+     */
+    HttpHandler limit(HttpHandler delegate) {
+        return guard(delegate, List.of(client));
+    }
+
+    /**
+     * Wie limit(), zusätzlich mit dem strengeren Limit für neue Arenen
+     */
+    HttpHandler limitCreate(HttpHandler delegate) {
+        return guard(delegate, List.of(client, create));
+    }
+
+    /**
+     * Nur Admission Control, z.B. für Seiten, die ohnehin gecacht werden
+     */
+    HttpHandler admit(HttpHandler delegate) {
+        return guard(delegate, List.of());
+    }
+
+    /**
+     * Limit pro Sitzung; der Handler prüft es selbst, weil das Token erst im Body steht
+     * @return false, wenn bereits mit 429 geantwortet wurde
+     */
+    boolean allowSession(HttpExchange exchange, String token) throws IOException {
+        if (!enabled || token.isEmpty()) {
+            return true;
+        }
+        long waitNanos = session.acquire(token, System.nanoTime());
+        if (waitNanos > 0) {
+            reject(exchange, waitNanos);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Wie allowSession, nur ohne eigene Antwort (für Züge in /api/batch)
+     */
+    boolean tryAcquireSession(String token) {
+        return !enabled || token.isEmpty() || session.acquire(token, System.nanoTime()) == 0;
+    }
+
+    /**
+     * Zähler im Prometheus-Format für /metrics
+     */
+    void writeTo(StringBuilder out) {
+        List<Limit> limits = List.of(client, create, session);
+        out.append("# HELP tictactoe_ratelimit_allowed_total Requests that passed a rate limit.\n");
+        out.append("# TYPE tictactoe_ratelimit_allowed_total counter\n");
+        for (Limit limit : limits) {
+            ServerMetrics.sample(out, "tictactoe_ratelimit_allowed_total", "limit=\"" + limit.name + "\"", limit.allowed.sum());
+        }
+        out.append("# HELP tictactoe_ratelimit_rejected_total Requests rejected with 429 by a rate limit.\n");
+        out.append("# TYPE tictactoe_ratelimit_rejected_total counter\n");
+        for (Limit limit : limits) {
+            ServerMetrics.sample(out, "tictactoe_ratelimit_rejected_total", "limit=\"" + limit.name + "\"", limit.rejected.sum());
+        }
+        out.append("# HELP tictactoe_ratelimit_buckets Clients or sessions with a partly used bucket.\n");
+        out.append("# TYPE tictactoe_ratelimit_buckets gauge\n");
+        for (Limit limit : limits) {
+            ServerMetrics.sample(out, "tictactoe_ratelimit_buckets", "limit=\"" + limit.name + "\"", limit.size());
+        }
+        ServerMetrics.counter(out, "tictactoe_admission_shed_total", "Requests rejected with 429 because the executor was saturated.",
+                executor.getShedCount());
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private HttpHandler guard(HttpHandler delegate, List<Limit> limits) {
+        return exchange -> {
+            if (!executor.tryAdmit()) {
+                reject(exchange, TimeUnit.SECONDS.toNanos(1));
+                return;
+            }
+            if (enabled && !limits.isEmpty() && !isForwardedByPeer(exchange)) {
+                String key = clientKey(exchange);
+                long now = System.nanoTime();
+                for (Limit limit : limits) {
+                    long waitNanos = limit.acquire(key, now);
+                    if (waitNanos > 0) {
+                        reject(exchange, waitNanos);
+                        return;
+                    }
+                }
+            }
+            delegate.handle(exchange);
+        };
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        client.sweep(now);
+        create.sweep(now);
+        session.sweep(now);
+    }
+
+    /**
+     * Der Header allein beweist nichts, jeder Client kann ihn setzen; zählt nur von Knoten des Rings
+     */
+    private boolean isForwardedByPeer(HttpExchange exchange) {
+        if (peers.isEmpty() || exchange.getRequestHeaders().getFirst(ClusterRouter.FORWARDED_HEADER) == null) {
+            return false;
+        }
+        InetAddress remote = exchange.getRemoteAddress().getAddress();
+        return remote != null && peers.contains(remote);
+    }
+
+    private static String clientKey(HttpExchange exchange) {
+        InetSocketAddress remote = exchange.getRemoteAddress();
+        return remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+    }
+
+    private static void reject(HttpExchange exchange, long waitNanos) throws IOException {
+        byte[] response = "{\"success\":false,\"message\":\"Zu viele Anfragen, bitte kurz warten\"}".getBytes(StandardCharsets.UTF_8);
+        long retrySeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().set("Retry-After", Long.toString(retrySeconds));
+        exchange.sendResponseHeaders(429, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+}
@@ -0,0 +1,555 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Replay-Archiv für beendete Spiele (Arenen von SimpleMultiplayerServer und TicTacToeServer)
+ *
+ * Jedes Spiel wird als kompakter Datensatz an eine segmentierte Datei angehängt und nie wieder
+ * verändert; die Zugfolge braucht 4 Bit pro Zug (ein Spiel höchstens 5 Byte). Mit Namen und
+ * Zeitstempeln sind das etwa 50-70 Byte pro Spiel, eine Million Spiele also rund 60 MB.
+ *
+ * Der Index liegt im Speicher und wird beim Start aus den Segmenten aufgebaut: Ort und Endzeit je
+ * Replay-ID in Arrays, dazu pro Spieler die aufsteigenden IDs. Die IDs werden in Endzeit-Reihenfolge
+ * vergeben, daher findet eine Binärsuche den Zeitraum in O(log n), auch innerhalb der Spiele eines Spielers.
+ *
+ * Datensatz: [int Länge][int CRC32C][Payload]
+ * Payload:   [byte Format][long Ende ms][int Dauer ms][byte Gewinner][byte Züge][Züge, 2 pro Byte]
+ *            [short+UTF-8 Quelle][short+UTF-8 Spieler X][short+UTF-8 Spieler O]
+ *
+ * Konfiguration (System Properties):
+ *   -Dreplays.dir=data/replays-8080        (Standard: data/replays-<port>, leer = keine Replays)
+ *   -Dreplays.segmentBytes=67108864        (Größe eines Segments)
+ */
+public class ReplayStore {
+    public static final String DIR_PROPERTY = "replays.dir";
+    public static final String SEGMENT_PROPERTY = "replays.segmentBytes";
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_PAYLOAD = 64 * 1024;
+    private static final byte FORMAT = 1;
+
+    private final Path dir;
+    private final int segmentBytes;
+
+    // Appends happen on the writer thread only; the lock guards the index against concurrent lookups
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    // segment << 32 | offset of every replay, indexed by id
+    private long[] locations = new long[1024];
+    // End time per id, never decreasing so it can be binary searched
+    private long[] endTimes = new long[1024];
+    private int count;
+    private final Map<String, IdList> byPlayer = new HashMap<>();
+    private final Map<Integer, FileChannel> segments = new TreeMap<>();
+    private FileChannel writeChannel;
+    private int writeSegment;
+    private long writeOffset;
+    private ExecutorService writer;
+    // Read-only stores follow the segments another process appends to, see refresh()
+    private boolean readOnly;
+    private int followSegment;
+    private long followOffset;
+
+    // Arena bookkeeping for the listener: when the current game started and which version was recorded last
+    private final Map<String, Long> arenaStarted = new ConcurrentHashMap<>();
+    private final Map<String, Long> arenaRecorded = new ConcurrentHashMap<>();
+
+    /**
+     * Ein gespeichertes Spiel; moves wie ArenaState.moves (Feld + 1 je Nibble, erster Zug unten)
+     */
+    record Replay(long id, String source, String playerX, String playerO, long startedAt, long endedAt,
+                  char winner, long moves, int moveCount) {
+        /**
+         * Feld (0-8) des Zugs mit dem angegebenen Index
+         */
+        int moveAt(int index) {
+            return (int) ((moves >>> (4 * index)) & 0xF) - 1;
+        }
+    }
+
+    public ReplayStore(Path dir, int segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = Math.max(MAX_PAYLOAD * 4, segmentBytes);
+    }
+
+    /**
+     * Liest die Konfiguration; null, wenn Replays mit -Dreplays.dir= abgeschaltet sind
+     */
+    public static ReplayStore fromSystemProperties(int port) {
+        String dir = System.getProperty(DIR_PROPERTY, "data/replays-" + port);
+        if (dir.isBlank()) {
+            return null;
+        }
+        return new ReplayStore(Path.of(dir), Integer.getInteger(SEGMENT_PROPERTY, 64 * 1024 * 1024));
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    public int size() {
+        indexLock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Baut den Index aus allen Segmenten auf und öffnet das letzte zum Weiterschreiben
+     */
+    public void open() throws IOException {
+        Files.createDirectories(dir);
+        List<Integer> indexes = listSegments();
+        if (indexes.isEmpty()) {
+            indexes.add(1);
+        }
+        long end = 0;
+        for (int index : indexes) {
+            FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(index, channel);
+            end = scan(index, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), 0);
+        }
+        writeSegment = indexes.get(indexes.size() - 1);
+        writeChannel = segments.get(writeSegment);
+        writeOffset = end;
+        // drop a torn record from a crash, the next replay goes right behind the last valid one
+        if (writeChannel.size() > end) {
+            writeChannel.truncate(end);
+        }
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replay-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Öffnet das Archiv eines anderen Prozesses nur zum Lesen (z.B. das eines TicTacToeServer);
+     * neue Replays liest erst refresh()
+     */
+    public void openReadOnly() throws IOException {
+        readOnly = true;
+        refresh();
+    }
+
+    /**
+     * Liest Replays, die der schreibende Prozess seit dem letzten Aufruf angehängt hat (nur read-only)
+     * @return Anzahl der Replays danach
+     */
+    public int refresh() throws IOException {
+        if (!readOnly) {
+            throw new IllegalStateException("Nur read-only geöffnete Archive können nachgeladen werden");
+        }
+        if (!Files.isDirectory(dir)) {
+            return size();
+        }
+        for (int index : listSegments()) {
+            if (index < followSegment) {
+                continue;
+            }
+            FileChannel channel = segments.get(index);
+            if (channel == null) {
+                channel = FileChannel.open(segmentPath(index), StandardOpenOption.READ);
+                indexLock.writeLock().lock();
+                try {
+                    segments.put(index, channel);
+                } finally {
+                    indexLock.writeLock().unlock();
+                }
+            }
+            long start = index == followSegment ? followOffset : 0;
+            // read instead of map: a mapping would keep the writer from truncating the segment on Windows
+            ByteBuffer data = ByteBuffer.allocate((int) Math.max(0, channel.size() - start));
+            readFully(channel, data, start);
+            followSegment = index;
+            followOffset = scan(index, data.flip(), start);
+        }
+        return size();
+    }
+
+    /**
+     * Zeichnet jedes beendete Arena-Spiel auf
+     */
+    public void install() {
+        SimpleMultiplayerServer.addArenaListener((arena, event) -> {
+            switch (event) {
+                case "join" -> {
+                    if (arena.getPlayerCount() == 2) {
+                        arenaStarted.put(arena.id, System.currentTimeMillis());
+                    }
+                }
+                case "move" -> {
+                    SimpleMultiplayerServer.ArenaState state = arena.getState();
+                    // after a restart the join is gone; the first move seen is the best guess
+                    arenaStarted.putIfAbsent(arena.id, System.currentTimeMillis());
+                    if (state.isFinished() && state.players().size() == 2) {
+                        // a late listener of the previous move may see the same final state
+                        Long previous = arenaRecorded.put(arena.id, state.version());
+                        if (previous == null || previous != state.version()) {
+                            long now = System.currentTimeMillis();
+                            Long started = arenaStarted.remove(arena.id);
+                            record(arena.id, state.players().get(0), state.players().get(1),
+                                    started != null ? started : now, now, state.winner(), state.moves());
+                        }
+                    }
+                }
+                case "reset" -> arenaStarted.remove(arena.id);
+                case "deleted" -> {
+                    arenaStarted.remove(arena.id);
+                    arenaRecorded.remove(arena.id);
+                }
+                default -> {
+                }
+            }
+        });
+    }
+
+    /**
+     * Übergibt ein beendetes Spiel dem Writer-Thread; blockiert den Aufrufer nicht
+     * @param winner 'X', 'O' oder ' ' für Unentschieden
+     * @param moves Zugfolge mit 4 Bit pro Zug (Feld 0-8 plus 1, erster Zug im untersten Nibble)
+     */
+    public void record(String source, String playerX, String playerO, long startedAt, long endedAt, char winner, long moves) {
+        byte[] payload = encode(source, playerX, playerO, startedAt, endedAt, winner, moves);
+        if (payload == null) {
+            AsyncLog.warn("⚠️ Replay von " + source + " zu groß, wird nicht gespeichert");
+            return;
+        }
+        try {
+            writer.execute(() -> append(payload));
+        } catch (RuntimeException e) {
+            // writer already shut down
+            AsyncLog.warn("⚠️ Replay von " + source + " nach dem Beenden verworfen");
+        }
+    }
+
+    /**
+     * Wartet auf ausstehende Replays und schließt die Segmente
+     */
+    public void close() {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        indexLock.writeLock().lock();
+        try {
+            if (writeChannel != null) {
+                writeChannel.force(false);
+            }
+            for (FileChannel channel : segments.values()) {
+                channel.close();
+            }
+            segments.clear();
+        } catch (IOException e) {
+            AsyncLog.error("❌ Replay-Segmente konnten nicht geschlossen werden: " + e.getMessage());
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ein Replay per ID; null, wenn es die ID nicht gibt
+     */
+    public Replay get(long id) throws IOException {
+        byte[] payload = read(id);
+        return payload == null ? null : decode(id, ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Rohdaten eines Replays (Payload wie oben beschrieben); null, wenn es die ID nicht gibt
+     */
+    public byte[] read(long id) throws IOException {
+        long location;
+        FileChannel channel;
+        indexLock.readLock().lock();
+        try {
+            if (id < 0 || id >= count) {
+                return null;
+            }
+            location = locations[(int) id];
+            channel = segments.get((int) (location >>> 32));
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        long offset = location & 0xFFFFFFFFL;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, offset);
+        ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+        readFully(channel, payload, offset + HEADER_BYTES);
+        return payload.array();
+    }
+
+    /**
+     * Sucht Replays, neueste zuerst
+     * @param player nur Spiele dieses Spielers oder null für alle
+     * @param from früheste Endzeit (ms, inklusive)
+     * @param to späteste Endzeit (ms, inklusive)
+     * @param before nur IDs kleiner als diese (Blättern), Long.MAX_VALUE für die erste Seite
+     * @return höchstens limit IDs
+     */
+    public long[] find(String player, long from, long to, long before, int limit) {
+        indexLock.readLock().lock();
+        try {
+            IdList ids = player == null ? null : byPlayer.get(player);
+            if (player != null && ids == null) {
+                return new long[0];
+            }
+            int size = ids == null ? count : ids.size;
+            // [low, high) are the positions whose end time lies in [from, to]
+            int low = firstAfter(ids, size, Math.max(0, from) - 1);
+            int high = firstAfter(ids, size, to);
+            if (before < Long.MAX_VALUE) {
+                high = Math.min(high, firstId(ids, size, before));
+            }
+            int n = Math.max(0, Math.min(limit, high - low));
+            long[] result = new long[n];
+            for (int i = 0; i < n; i++) {
+                int position = high - 1 - i;
+                result[i] = ids == null ? position : ids.ids[position];
+            }
+            return result;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Erste Position, deren Endzeit größer als time ist (Binärsuche)
+     */
+    private int firstAfter(IdList ids, int size, long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long end = endTimes[ids == null ? mid : ids.ids[mid]];
+            if (end <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Erste Position, deren ID mindestens id ist
+     */
+    private static int firstId(IdList ids, int size, long id) {
+        if (ids == null) {
+            return (int) Math.min(size, Math.max(0, id));
+        }
+        int position = Arrays.binarySearch(ids.ids, 0, size, (int) Math.min(Integer.MAX_VALUE, Math.max(0, id)));
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private void append(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        try {
+            if (writeOffset > 0 && writeOffset + record.remaining() > segmentBytes) {
+                roll();
+            }
+            long offset = writeOffset;
+            while (record.hasRemaining()) {
+                writeOffset += writeChannel.write(record, writeOffset);
+            }
+            index(writeSegment, offset, ByteBuffer.wrap(payload));
+        } catch (IOException e) {
+            AsyncLog.error("❌ Replay konnte nicht geschrieben werden: " + e.getMessage());
+        }
+    }
+
+    private void roll() throws IOException {
+        writeChannel.force(false);
+        int next = writeSegment + 1;
+        FileChannel channel = FileChannel.open(segmentPath(next), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexLock.writeLock().lock();
+        try {
+            segments.put(next, channel);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        writeSegment = next;
+        writeChannel = channel;
+        writeOffset = 0;
+        AsyncLog.debug("📼 Neues Replay-Segment " + segmentPath(next).getFileName());
+    }
+
+    /**
+     * Liest Datensätze eines Segments ab Offset base in den Index; liefert das Ende der gültigen Daten
+     */
+    private long scan(int segment, ByteBuffer data, long base) {
+        CRC32C crc = new CRC32C();
+        int position = 0;
+        while (position + HEADER_BYTES <= data.limit()) {
+            int length = data.getInt(position);
+            if (length <= 0 || length > MAX_PAYLOAD || position + HEADER_BYTES + length > data.limit()) {
+                break;
+            }
+            ByteBuffer payload = data.slice(position + HEADER_BYTES, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != data.getInt(position + 4)) {
+                // a follower may see a record the writer is still appending, it is read again next time
+                if (readOnly) {
+                    break;
+                }
+                AsyncLog.warn("⚠️ Unvollständiges Replay in Segment " + segment + " bei Offset " + (base + position) + " verworfen");
+                break;
+            }
+            index(segment, base + position, payload);
+            position += HEADER_BYTES + length;
+        }
+        return base + position;
+    }
+
+    private void index(int segment, long offset, ByteBuffer payload) {
+        Replay replay = decode(0, payload);
+        indexLock.writeLock().lock();
+        try {
+            if (count == locations.length) {
+                locations = Arrays.copyOf(locations, count * 2);
+                endTimes = Arrays.copyOf(endTimes, count * 2);
+            }
+            int id = count;
+            locations[id] = ((long) segment << 32) | offset;
+            // a clock step backwards must not break the binary search
+            endTimes[id] = id == 0 ? replay.endedAt() : Math.max(endTimes[id - 1], replay.endedAt());
+            byPlayer.computeIfAbsent(replay.playerX(), name -> new IdList()).add(id);
+            if (!replay.playerO().equals(replay.playerX())) {
+                byPlayer.computeIfAbsent(replay.playerO(), name -> new IdList()).add(id);
+            }
+            count++;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private static byte[] encode(String source, String playerX, String playerO, long startedAt, long endedAt, char winner, long moves) {
+        byte[] sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+        byte[] xBytes = playerX.getBytes(StandardCharsets.UTF_8);
+        byte[] oBytes = playerO.getBytes(StandardCharsets.UTF_8);
+        int moveCount = (67 - Long.numberOfLeadingZeros(moves)) / 4;
+        int moveBytes = (moveCount + 1) / 2;
+        int size = 1 + 8 + 4 + 1 + 1 + moveBytes + 6 + sourceBytes.length + xBytes.length + oBytes.length;
+        if (size > MAX_PAYLOAD) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(FORMAT);
+        buffer.putLong(endedAt);
+        buffer.putInt((int) Math.max(0, Math.min(Integer.MAX_VALUE, endedAt - startedAt)));
+        buffer.put((byte) winner);
+        buffer.put((byte) moveCount);
+        // nibbles are already in order, so the low bytes of the long are the packed moves
+        for (int i = 0; i < moveBytes; i++) {
+            buffer.put((byte) (moves >>> (8 * i)));
+        }
+        writeString(buffer, sourceBytes);
+        writeString(buffer, xBytes);
+        writeString(buffer, oBytes);
+        return buffer.array();
+    }
+
+    private static Replay decode(long id, ByteBuffer payload) {
+        payload.get();
+        long endedAt = payload.getLong();
+        int duration = payload.getInt();
+        char winner = (char) payload.get();
+        int moveCount = payload.get();
+        long moves = 0;
+        for (int i = 0; i < (moveCount + 1) / 2; i++) {
+            moves |= (payload.get() & 0xFFL) << (8 * i);
+        }
+        String source = readString(payload);
+        String playerX = readString(payload);
+        String playerO = readString(payload);
+        return new Replay(id, source, playerX, playerO, endedAt - duration, endedAt, winner, moves, moveCount);
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Replay-Segment endet vorzeitig");
+            }
+        }
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith("replays-") && name.endsWith(".dat")) {
+                    try {
+                        indexes.add(Integer.parseInt(name.substring(8, name.length() - 4)));
+                    } catch (NumberFormatException e) {
+                        // not one of ours
+                    }
+                }
+            });
+        }
+        indexes.sort(null);
+        return indexes;
+    }
+
+    private Path segmentPath(int index) {
+        return dir.resolve(String.format("replays-%08d.dat", index));
+    }
+
+    /**
+     * Wachsende int-Liste für die Replay-IDs eines Spielers (ohne Boxing, 4 Byte pro Eintrag)
+     */
+    private static final class IdList {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
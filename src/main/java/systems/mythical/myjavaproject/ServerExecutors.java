@@ -0,0 +1,234 @@
+package systems.mythical.myjavaproject;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Konfigurierbare Executor-Modi für die HTTP-Server (SimpleMultiplayerServer, SimpleWebServer)
+ *
+ * Auswahl über System Properties:
+ *   -Dserver.executor=virtual|bounded|cached  (Standard: bounded mit der JDK-Engine, virtual mit -Dserver.engine=nio)
+ *   -Dserver.threads=N                        (nur bounded, Standard: 8 x CPU-Kerne)
+ *   -Dserver.queue=N                          (nur bounded, Standard: 1000)
+ *   -Dserver.admissionLimit=N                 (laufende + wartende Requests, ab denen mit 429 abgelehnt wird;
+ *                                              Standard: bounded Threads + 3/4 der Queue, sonst 10000; 0 = aus)
+ */
+public class ServerExecutors {
+    public static final String MODE_PROPERTY = "server.executor";
+    public static final String THREADS_PROPERTY = "server.threads";
+    public static final String QUEUE_PROPERTY = "server.queue";
+    public static final String ADMISSION_PROPERTY = "server.admissionLimit";
+    private static final int UNBOUNDED_ADMISSION_LIMIT = 10000;
+
+    public enum Mode {
+        /**
+         * Ein virtueller Thread pro Request. Nur mit NioHttpServer der Standard: der Response-Stream der
+         * JDK-Engine schreibt in synchronized-Methoden, ein Handler vor einem langsamen Client blockiert
+         * dort seinen Carrier-Thread (bei wenigen Kernen steht dann der ganze Server).
+         */
+        VIRTUAL,
+        /** Fester Pool von Plattform-Threads mit begrenzter Warteschlange */
+        BOUNDED,
+        /** Unbegrenzter Cached Thread Pool (bisheriges Verhalten) */
+        CACHED
+    }
+
+    private ServerExecutors() {
+    }
+
+    /**
+     * Erstellt den Executor anhand der System Properties
+     */
+    public static InstrumentedExecutor fromSystemProperties() {
+        return fromSystemProperties(HttpEngines.fromSystemProperties());
+    }
+
+    /**
+     * Wie oben; ohne -Dserver.executor hängt der Modus von der Engine ab, siehe defaultMode
+     */
+    public static InstrumentedExecutor fromSystemProperties(HttpEngines.Engine engine) {
+        String value = System.getProperty(MODE_PROPERTY);
+        Mode mode = value == null ? defaultMode(engine) : parseMode(value, defaultMode(engine));
+        int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors() * 8);
+        int queue = Integer.getInteger(QUEUE_PROPERTY, 1000);
+        int admissionLimit = Integer.getInteger(ADMISSION_PROPERTY, defaultAdmissionLimit(mode, threads, queue));
+        return create(mode, threads, queue, admissionLimit);
+    }
+
+    /**
+     * Bounded: alle Threads plus drei Viertel der Queue, damit abgelehnt wird, bevor CallerRunsPolicy
+     * den Accept-Thread blockiert. Virtual/Cached haben keine Queue, dort begrenzt nur die Gesamtzahl.
+     */
+    public static int defaultAdmissionLimit(Mode mode, int threads, int queueCapacity) {
+        return mode == Mode.BOUNDED ? threads + queueCapacity * 3 / 4 : UNBOUNDED_ADMISSION_LIMIT;
+    }
+
+    /**
+     * Virtuelle Threads nur mit NioHttpServer, dessen Writer mit ReentrantLock warten und den Carrier freigeben
+     */
+    public static Mode defaultMode(HttpEngines.Engine engine) {
+        return engine == HttpEngines.Engine.NIO ? Mode.VIRTUAL : Mode.BOUNDED;
+    }
+
+    public static Mode parseMode(String value, Mode fallback) {
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            AsyncLog.warn("⚠️ Unbekannter Executor-Modus '" + value + "', verwende " + fallback);
+            return fallback;
+        }
+    }
+
+    public static InstrumentedExecutor create(Mode mode, int threads, int queueCapacity) {
+        return create(mode, threads, queueCapacity, defaultAdmissionLimit(mode, threads, queueCapacity));
+    }
+
+    public static InstrumentedExecutor create(Mode mode, int threads, int queueCapacity, int admissionLimit) {
+        return switch (mode) {
+            case VIRTUAL -> new InstrumentedExecutor(mode, Executors.newVirtualThreadPerTaskExecutor(), null, 0, admissionLimit);
+            case CACHED -> {
+                ThreadPoolExecutor pool = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+                yield new InstrumentedExecutor(mode, pool, pool, 0, admissionLimit);
+            }
+            case BOUNDED -> {
+                // Rejected requests run on the accepting thread, which throttles accept() instead of dropping
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+                yield new InstrumentedExecutor(mode, pool, pool, queueCapacity, admissionLimit);
+            }
+        };
+    }
+
+    /**
+     * Executor-Wrapper, der Warteschlange, aktive Tasks und Durchsatz mitzählt
+     */
+    public static class InstrumentedExecutor implements Executor {
+        private final Mode mode;
+        private final ExecutorService delegate;
+        private final ThreadPoolExecutor pool;
+        private final int queueCapacity;
+        private final int admissionLimit;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger peakActive = new AtomicInteger();
+
+        InstrumentedExecutor(Mode mode, ExecutorService delegate, ThreadPoolExecutor pool, int queueCapacity, int admissionLimit) {
+            this.mode = mode;
+            this.delegate = delegate;
+            this.pool = pool;
+            this.queueCapacity = queueCapacity;
+            this.admissionLimit = admissionLimit;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            submitted.increment();
+            queued.incrementAndGet();
+            delegate.execute(() -> {
+                queued.decrementAndGet();
+                int running = active.incrementAndGet();
+                peakActive.accumulateAndGet(running, Math::max);
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.increment();
+                }
+            });
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        /** Anzahl Tasks, die auf einen Thread warten */
+        public int getQueueDepth() {
+            return queued.get();
+        }
+
+        public int getActiveCount() {
+            return active.get();
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        /**
+         * Admission Control: false, wenn schon zu viele Requests laufen oder warten; der Aufrufer
+         * (ein laufender Handler) soll dann sofort mit 429 antworten statt die Arbeit zu machen
+         */
+        public boolean tryAdmit() {
+            // the calling handler is one of the active tasks itself
+            if (admissionLimit > 0 && queued.get() + active.get() > admissionLimit) {
+                shed.increment();
+                return false;
+            }
+            return true;
+        }
+
+        /** Wegen Überlast abgelehnte Requests */
+        public long getShedCount() {
+            return shed.sum();
+        }
+
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        /**
+         * Momentaufnahme der Pool- und Warteschlangen-Statistik
+         */
+        public Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("mode", mode.name().toLowerCase(Locale.ROOT));
+            stats.put("submitted", submitted.sum());
+            stats.put("completed", completed.sum());
+            stats.put("active", active.get());
+            stats.put("peakActive", peakActive.get());
+            stats.put("queueDepth", queued.get());
+            stats.put("admissionLimit", admissionLimit);
+            stats.put("shed", shed.sum());
+            if (pool != null) {
+                stats.put("poolSize", pool.getPoolSize());
+                stats.put("largestPoolSize", pool.getLargestPoolSize());
+                stats.put("maximumPoolSize", pool.getMaximumPoolSize() == Integer.MAX_VALUE ? -1 : pool.getMaximumPoolSize());
+                stats.put("queueCapacity", queueCapacity);
+            }
+            stats.put("jvmThreads", Thread.activeCount());
+            return stats;
+        }
+
+        /**
+         * Statistik als JSON-Objekt (nur Zahlen und der Modus-Name)
+         */
+        public String statsJson() {
+            StringBuilder sb = new StringBuilder("{");
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : stats().entrySet()) {
+                if (!first) sb.append(",");
+                sb.append("\"").append(entry.getKey()).append("\":");
+                Object value = entry.getValue();
+                if (value instanceof String) {
+                    sb.append("\"").append(value).append("\"");
+                } else {
+                    sb.append(value);
+                }
+                first = false;
+            }
+            return sb.append("}").toString();
+        }
+    }
+}
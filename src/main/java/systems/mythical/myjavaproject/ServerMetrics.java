@@ -0,0 +1,172 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Metriken im Prometheus-Textformat für /metrics
+ *
+ * Alle Zähler sind LongAdder: Threads schreiben in eigene Zellen, erst beim Auslesen wird summiert.
+ * Dadurch bleibt das Messen auch bei vielen gleichzeitigen Requests praktisch kostenlos.
+ */
+public class ServerMetrics {
+    // Upper bounds in seconds, like the Prometheus client defaults plus sub-millisecond buckets
+    private static final double[] LATENCY_BUCKETS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private static final Map<String, Histogram> handlerLatencies = new ConcurrentHashMap<>();
+    private static final LongAdder gamesStarted = new LongAdder();
+    private static final LongAdder gamesFinished = new LongAdder();
+    // Last counted game per arena; two listener calls around the same join or final move see the same live state
+    private static final Map<String, Long> arenaStarted = new ConcurrentHashMap<>();
+    private static final Map<String, Long> arenaFinished = new ConcurrentHashMap<>();
+
+    /**
+     * Latenz-Histogramm mit festen Buckets; observe() ist lock-frei
+     */
+    static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS.length];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void observe(long nanos) {
+            double seconds = nanos / 1_000_000_000.0;
+            // Non-cumulative per bucket; summed up when rendering
+            int i = 0;
+            while (i < LATENCY_BUCKETS.length && seconds > LATENCY_BUCKETS[i]) {
+                i++;
+            }
+            if (i < buckets.length) {
+                buckets[i].increment();
+            }
+            count.increment();
+            sumNanos.add(nanos);
+        }
+    }
+
+    /**
+     * Zählt das Spielende/-start anhand der Arena-Ereignisse, jedes Spiel genau einmal
+     */
+    static void install() {
+        SimpleMultiplayerServer.addArenaListener((arena, event) -> {
+            switch (event) {
+                case "join", "move" -> {
+                    SimpleMultiplayerServer.ArenaState state = arena.getState();
+                    if (state.players().size() != 2) {
+                        return;
+                    }
+                    // every move adds one to the version, so this is the version the game started with
+                    long game = state.version() - state.moveCount();
+                    Long started = arenaStarted.put(arena.id, game);
+                    if (started == null || started != game) {
+                        gamesStarted.increment();
+                    }
+                    if (state.isFinished()) {
+                        Long finished = arenaFinished.put(arena.id, state.version());
+                        if (finished == null || finished != state.version()) {
+                            gamesFinished.increment();
+                        }
+                    }
+                }
+                case "deleted" -> {
+                    arenaStarted.remove(arena.id);
+                    arenaFinished.remove(arena.id);
+                }
+                default -> {
+                }
+            }
+        });
+    }
+
+    /**
+     * Umhüllt einen Handler und misst Anzahl, Fehler (5xx) und Dauer der Requests
+     * Bei Long-Poll-Requests zählt nur die Zeit bis zum Parken, nicht die Wartezeit.
+     */
+    static HttpHandler instrument(String handler, HttpHandler delegate) {
+        Histogram histogram = handlerLatencies.computeIfAbsent(handler, h -> new Histogram());
+        return exchange -> {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                delegate.handle(exchange);
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                throw e;
+            } finally {
+                // handlers catch their own exceptions and answer 500, so the status code is what counts
+                if (failed || exchange.getResponseCode() >= 500) {
+                    histogram.errors.increment();
+                }
+                histogram.observe(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Schreibt Handler-Histogramme und Spielzähler; Gauges hängt der Aufrufer selbst an
+     */
+    static void writeTo(StringBuilder out) {
+        out.append("# HELP tictactoe_http_requests_total Handled HTTP requests per handler.\n");
+        out.append("# TYPE tictactoe_http_requests_total counter\n");
+        handlerLatencies.forEach((handler, histogram) ->
+                sample(out, "tictactoe_http_requests_total", "handler=\"" + handler + "\"", histogram.count.sum()));
+
+        out.append("# HELP tictactoe_http_request_errors_total Requests answered with a 5xx status or ended by an exception.\n");
+        out.append("# TYPE tictactoe_http_request_errors_total counter\n");
+        handlerLatencies.forEach((handler, histogram) ->
+                sample(out, "tictactoe_http_request_errors_total", "handler=\"" + handler + "\"", histogram.errors.sum()));
+
+        out.append("# HELP tictactoe_http_request_duration_seconds Handler latency.\n");
+        out.append("# TYPE tictactoe_http_request_duration_seconds histogram\n");
+        handlerLatencies.forEach((handler, histogram) -> {
+            // read count first so the +Inf bucket never ends up below the finite buckets
+            long count = histogram.count.sum();
+            long cumulative = 0;
+            for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+                cumulative += histogram.buckets[i].sum();
+                sample(out, "tictactoe_http_request_duration_seconds_bucket",
+                        "handler=\"" + handler + "\",le=\"" + formatDouble(LATENCY_BUCKETS[i]) + "\"", cumulative);
+            }
+            sample(out, "tictactoe_http_request_duration_seconds_bucket",
+                    "handler=\"" + handler + "\",le=\"+Inf\"", Math.max(count, cumulative));
+            out.append("tictactoe_http_request_duration_seconds_sum{handler=\"").append(handler).append("\"} ")
+                    .append(formatDouble(histogram.sumNanos.sum() / 1_000_000_000.0)).append('\n');
+            sample(out, "tictactoe_http_request_duration_seconds_count", "handler=\"" + handler + "\"", Math.max(count, cumulative));
+        });
+
+        counter(out, "tictactoe_games_started_total", "Games that got their second player.", gamesStarted.sum());
+        counter(out, "tictactoe_games_finished_total", "Games that ended with a win or a draw.", gamesFinished.sum());
+    }
+
+    static void gauge(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String formatDouble(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
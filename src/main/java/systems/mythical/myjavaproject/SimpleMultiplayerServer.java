@@ -5,169 +5,507 @@ import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.URLDecoder;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.glassfish.tyrus.server.Server;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
+import jakarta.websocket.DeploymentException;
+
 public class SimpleMultiplayerServer {
+    public static final String PORT_PROPERTY = "server.port";
+    public static final String WEBSOCKET_PORT_PROPERTY = "server.wsPort";
+    public static final String MAX_ARENAS_PROPERTY = "server.maxArenas";
+    public static final String MAX_BATCH_OPS_PROPERTY = "batch.maxOps";
+    private static final int DEFAULT_PORT = 8080;
+    // Upper bound for /api/create-arena, the rate limit alone still lets many clients fill the heap
+    private static final int MAX_ARENAS = Integer.getInteger(MAX_ARENAS_PROPERTY, 10000);
+    private static final int MAX_BATCH_OPS = Integer.getInteger(MAX_BATCH_OPS_PROPERTY, 1000);
+    private static final long CLEANUP_DELAY_MS = 10000;
+    private static final int MAX_TOMBSTONES = 1024;
     private static final Map<String, GameArena> arenas = new ConcurrentHashMap<>();
-    private static final Map<String, Set<String>> arenaPlayers = new ConcurrentHashMap<>();
+    // Same arenas in creation order, used for the lobby and cursor pagination in /api/arenas
+    private static final ConcurrentSkipListMap<Long, GameArena> arenasInOrder = new ConcurrentSkipListMap<>();
+    private static final AtomicLong arenaSequence = new AtomicLong();
+    // Last timestamp handed out as arena id; two creates in the same millisecond must not collide
+    private static final AtomicLong lastArenaIdStamp = new AtomicLong();
     private static final Set<String> arenasBeingDeleted = ConcurrentHashMap.newKeySet();
+    private static final List<ArenaListener> arenaListeners = new CopyOnWriteArrayList<>();
+    private static final AtomicLong lobbyVersion = new AtomicLong();
+    // Deleted arenas for the delta mode of /api/arenas, oldest first
+    private static final Queue<Tombstone> tombstones = new ConcurrentLinkedQueue<>();
+    private static int tombstoneCount = 0;
+    private static volatile long tombstoneHorizon = 0;
     private static HttpServer server;
+    private static ServerExecutors.InstrumentedExecutor executor;
+    private static RateLimiter rateLimiter;
+    private static Server webSocketServer;
+    private static int webSocketPort = DEFAULT_PORT + 1;
+    // Single node unless cluster.nodes is set, see ClusterRing
+    private static ClusterRing cluster = new ClusterRing("localhost:" + DEFAULT_PORT, List.of("localhost:" + DEFAULT_PORT));
+    private static ArenaJournal journal;
+    private static ReplayStore replays;
+    private static EloRatings ratings;
+    
+    // One timer thread for all finished arenas instead of a sleeping thread per game
+    private static final ScheduledThreadPoolExecutor lifecycleScheduler = createLifecycleScheduler();
+    
+    /**
+     * Wird bei jeder Zustandsänderung einer Arena benachrichtigt
+     * (event: created, join, move, reset, deleted)
+     */
+    interface ArenaListener {
+        void arenaChanged(GameArena arena, String event);
+    }
+    
+    private record Tombstone(String arenaId, long lobbyStamp) {
+    }
     
+    /**
+     * Startet den Server; Port und Cluster kommen aus den System Properties:
+     *   -Dserver.port=8080 -Dserver.wsPort=8081 (Standard: server.port + 1)
+     *   -Dcluster.nodes=... -Dcluster.self=...  (siehe ClusterRing)
+     *   -Dserver.maxArenas=10000, -Dratelimit.*    (siehe RateLimiter)
+     *   -Dbatch.maxOps=1000                     (Operationen pro /api/batch)
+     *   -Dserver.engine=jdk|nio                 (siehe HttpEngines)
+     *   -Dstatic.dir=static                     (siehe StaticAssets)
+     *   -Dtournament.*                          (siehe Tournaments)
+     *   -Dratings.k=32, -Dratings.initial=1500  (siehe EloRatings)
+     *   -Dratings.sources=data/replays-9090     (Replays eines TicTacToeServer in die Rangliste)
+     */
     public static void start() throws Exception {
-        int port = 8080;
-        server = HttpServer.create(new InetSocketAddress(port), 0);
-        
-        server.createContext("/", new LobbyHandler());
-        server.createContext("/game", new GameHandler());
-        server.createContext("/api/join", new JoinHandler());
-        server.createContext("/api/move", new MoveHandler());
-        server.createContext("/api/status", new StatusHandler());
-        server.createContext("/api/create-arena", new CreateArenaHandler());
-        server.createContext("/api/delete-arena", new DeleteArenaHandler());
-        server.createContext("/api/reset-arena", new ResetArenaHandler());
-        server.setExecutor(Executors.newCachedThreadPool());
+        int port = Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        webSocketPort = Integer.getInteger(WEBSOCKET_PORT_PROPERTY, port + 1);
+        cluster = ClusterRing.fromSystemProperties(port);
+        recoverArenas(port);
+        openReplays(port);
+        openRatings();
+        HttpEngines.Engine engine = HttpEngines.fromSystemProperties();
+        server = HttpEngines.create(engine, new InetSocketAddress(port), 0);
+        
+        executor = ServerExecutors.fromSystemProperties(engine);
+        rateLimiter = RateLimiter.fromSystemProperties(executor, cluster);
+        
+        server.createContext("/", rateLimiter.admit(new LobbyHandler()));
+        server.createContext("/game", rateLimiter.admit(new GameHandler()));
+        server.createContext("/spectate", rateLimiter.admit(new SpectateHandler()));
+        server.createContext(StaticAssets.PREFIX, rateLimiter.admit(new StaticAssets.Handler()));
+        server.createContext("/api/join", ServerMetrics.instrument("join", rateLimiter.limit(new JoinHandler())));
+        server.createContext("/api/matchmake", ServerMetrics.instrument("matchmake", rateLimiter.limit(new MatchmakeHandler())));
+        server.createContext("/api/move", ServerMetrics.instrument("move", rateLimiter.limit(new MoveHandler())));
+        server.createContext("/api/status", ServerMetrics.instrument("status", rateLimiter.limit(new StatusHandler())));
+        server.createContext("/api/batch", ServerMetrics.instrument("batch", rateLimiter.limit(new BatchHandler())));
+        server.createContext("/api/tournaments", ServerMetrics.instrument("tournaments", rateLimiter.limit(new TournamentHandler())));
+        server.createContext("/api/create-arena", ServerMetrics.instrument("create", rateLimiter.limitCreate(new CreateArenaHandler())));
+        server.createContext("/api/delete-arena", ServerMetrics.instrument("delete", rateLimiter.limit(new DeleteArenaHandler())));
+        server.createContext("/api/reset-arena", ServerMetrics.instrument("reset", rateLimiter.limit(new ResetArenaHandler())));
+        server.createContext("/api/events", rateLimiter.limit(new EventsHandler()));
+        server.createContext("/api/spectate", rateLimiter.limit(new SpectateStreamHandler()));
+        server.createContext("/api/arenas", rateLimiter.limit(new ArenasHandler()));
+        server.createContext("/api/replays", rateLimiter.limit(new ReplaysHandler()));
+        server.createContext("/api/leaderboard", ServerMetrics.instrument("leaderboard", rateLimiter.limit(new LeaderboardHandler())));
+        server.createContext("/api/executor-stats", new ExecutorStatsHandler());
+        server.createContext("/metrics", new MetricsHandler());
+        server.setExecutor(executor);
         server.start();
         
-        String localIP = InetAddress.getLocalHost().getHostAddress();
-        System.out.println("🌐 Simple Multiplayer TicTacToe Server gestartet!");
-        System.out.println("📍 Lokale URL: http://localhost:" + port);
-        System.out.println("🌍 Netzwerk URL: http://" + localIP + ":" + port);
-        System.out.println("💡 Teile die Netzwerk URL mit Freunden zum Spielen!");
-        System.out.println("⏹️  Drücke Ctrl+C zum Beenden");
+        // WebSocket push channel (/ws/arena/{id}); /api/status stays as fallback
+        ArenaWebSocketEndpoint.install();
+        ArenaEventStream.install();
+        StatusLongPoll.install();
+        Matchmaker.install();
+        Tournaments.install();
+        SpectatorHub.install();
+        PlayerSessions.install();
+        ServerMetrics.install();
+        webSocketServer = new Server("0.0.0.0", webSocketPort, "/ws", null, ArenaWebSocketEndpoint.class);
+        try {
+            webSocketServer.start();
+        } catch (DeploymentException | RuntimeException e) {
+            // RuntimeException: Grizzly container missing from the classpath
+            AsyncLog.warn("⚠️ WebSocket Server konnte nicht gestartet werden, Clients nutzen /api/status: " + e.getMessage());
+            webSocketServer = null;
+        }
         
-        // Create default arenas (protected ones that get reset)
-        createArena("Arena-1", "Kampfarena 1");
-        createArena("Arena-2", "Kampfarena 2"); 
-        createArena("Arena-3", "Kampfarena 3");
+        String localIP = InetAddress.getLocalHost().getHostAddress();
+        AsyncLog.info("🌐 Simple Multiplayer TicTacToe Server gestartet!");
+        AsyncLog.info("📍 Lokale URL: http://localhost:" + port);
+        AsyncLog.info("🌍 Netzwerk URL: http://" + localIP + ":" + port);
+        AsyncLog.info("🧵 Executor-Modus: " + executor.getMode() + ", HTTP-Engine: " + engine);
+        if (webSocketServer != null) {
+            AsyncLog.info("🔌 WebSocket URL: ws://" + localIP + ":" + webSocketPort + "/ws/arena/{arena}");
+        }
+        if (cluster.isEnabled()) {
+            AsyncLog.info("🕸️ Cluster-Modus: Knoten " + cluster.getSelf() + " von " + cluster.getNodes());
+        }
+        AsyncLog.info("💡 Teile die Netzwerk URL mit Freunden zum Spielen!");
+        AsyncLog.info("⏹️  Drücke Ctrl+C zum Beenden");
         
-        // Create additional arenas (these will be deleted after games)
-        for (int i = 4; i <= 10; i++) {
-            createArena("Arena-" + i, "Kampfarena " + i);
+        // Arenas 1-3 are protected defaults that get reset, 4-10 are deleted after their game
+        // and only created on a fresh start. In a cluster every node only creates the ones it owns.
+        boolean freshStart = arenas.isEmpty();
+        for (int i = 1; i <= 10; i++) {
+            if (cluster.isLocal("Arena-" + i) && !arenas.containsKey("Arena-" + i) && (i <= 3 || freshStart)) {
+                createArena("Arena-" + i, "Kampfarena " + i);
+            }
         }
     }
     
     public static void stop() {
+        if (webSocketServer != null) {
+            webSocketServer.stop();
+        }
         if (server != null) {
             server.stop(0);
         }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (rateLimiter != null) {
+            rateLimiter.shutdown();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        if (replays != null) {
+            replays.close();
+        }
+        if (ratings != null) {
+            ratings.close();
+        }
     }
     
-    private static void createArena(String id, String name) {
-        arenas.put(id, new GameArena(id, name));
-        arenaPlayers.put(id, ConcurrentHashMap.newKeySet());
+    /**
+     * Stellt die Arenen aus Snapshot und Journal wieder her und schreibt ab dann jede Änderung mit
+     */
+    private static void recoverArenas(int port) throws IOException {
+        journal = ArenaJournal.fromSystemProperties(port);
+        if (journal == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        Map<String, ArenaJournal.RecoveredArena> recovered = journal.recover();
+        for (ArenaJournal.RecoveredArena arena : recovered.values()) {
+            if (cluster.isLocal(arena.id())) {
+                restoreArena(arena.id(), arena.name(), arena.state());
+                for (ArenaJournal.RecoveredSession session : journal.getRecoveredSessions(arena.id())) {
+                    PlayerSessions.restore(arenas.get(arena.id()), session.seat(), session.occupant(), session.version(), session.digest());
+                }
+            } else {
+                AsyncLog.warn("⚠️ Arena " + arena.id() + " gehört laut Cluster nicht mehr zu diesem Knoten, wird nicht geladen");
+            }
+        }
+        // installed after the restore, so recovered arenas are not written again
+        journal.install();
+        AsyncLog.info("💾 " + arenas.size() + " Arenen aus " + journal.getDirectory() + " wiederhergestellt ("
+                + (System.nanoTime() - started) / 1_000_000 + " ms)");
     }
     
-    static class LobbyHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
+    /**
+     * Öffnet das Replay-Archiv; ab dann wird jedes beendete Spiel aufgezeichnet
+     */
+    private static void openReplays(int port) throws IOException {
+        replays = ReplayStore.fromSystemProperties(port);
+        if (replays == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        replays.open();
+        replays.install();
+        AsyncLog.info("📼 " + replays.size() + " Replays aus " + replays.getDirectory() + " indiziert ("
+                + (System.nanoTime() - started) / 1_000_000 + " ms)");
+    }
+    
+    /**
+     * Berechnet die Elo-Wertungen aus dem Replay-Archiv und den Archiven aus -Dratings.sources neu;
+     * ab dann zählt jedes beendete Spiel
+     */
+    private static void openRatings() throws IOException {
+        ratings = EloRatings.fromSystemProperties();
+        ratings.openSources(replays != null ? replays.getDirectory() : null);
+        long started = System.nanoTime();
+        int games = ratings.rebuild(replays);
+        if (games > 0) {
+            AsyncLog.info("📈 " + ratings.size() + " Elo-Wertungen aus " + games + " Replays berechnet ("
+                    + (System.nanoTime() - started) / 1_000_000 + " ms)");
+        }
+        ratings.install();
+        ratings.follow();
+    }
+    
+    private static void restoreArena(String id, String name, ArenaState state) {
+        GameArena arena = new GameArena(id, name);
+        arena.state.set(state);
+        arenas.put(id, arena);
+        arenasInOrder.put(arena.sequence, arena);
+        markLobbyChanged(arena);
+        if (state.isFinished()) {
+            // the cleanup timer did not survive the restart
+            scheduleCleanup(arena, state.version());
+        }
+    }
+    
+    private static ScheduledThreadPoolExecutor createLifecycleScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "arena-lifecycle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // cancelled cleanups (manual reset/delete) must not linger in the queue
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+    
+    static ClusterRing getCluster() {
+        return cluster;
+    }
+    
+    static Collection<GameArena> getArenasInOrder() {
+        return arenasInOrder.values();
+    }
+    
+    static GameArena getArena(String id) {
+        return id == null ? null : arenas.get(id);
+    }
+    
+    static void addArenaListener(ArenaListener listener) {
+        arenaListeners.add(listener);
+    }
+    
+    static void removeArenaListener(ArenaListener listener) {
+        arenaListeners.remove(listener);
+    }
+    
+    private static void fireArenaChanged(GameArena arena, String event) {
+        markLobbyChanged(arena);
+        for (ArenaListener listener : arenaListeners) {
             try {
-                System.out.println("📥 Lobby request: " + exchange.getRequestMethod() + " " + exchange.getRequestURI());
-                String response = getLobbyHTML();
-                byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
-                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
-                exchange.getResponseHeaders().add("Cache-Control", "no-cache");
-                exchange.sendResponseHeaders(200, responseBytes.length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(responseBytes);
-                }
-                System.out.println("✅ Lobby response sent successfully");
+                listener.arenaChanged(arena, event);
             } catch (Exception e) {
-                System.err.println("❌ Error in LobbyHandler: " + e.getMessage());
-                e.printStackTrace();
-                exchange.sendResponseHeaders(500, 0);
+                AsyncLog.error("❌ Error in ArenaListener (" + event + "): " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Invalidiert die gecachte Lobby-Seite (und damit deren ETag) und merkt sich,
+     * in welcher Lobby-Version sich die Arena zuletzt geändert hat
+     */
+    private static void markLobbyChanged(GameArena arena) {
+        // Stamp and counter move together, so a reader that saw version N also sees every stamp <= N
+        synchronized (lobbyVersion) {
+            arena.lobbyStamp = lobbyVersion.incrementAndGet();
+        }
+    }
+    
+    private static long currentLobbyVersion() {
+        synchronized (lobbyVersion) {
+            return lobbyVersion.get();
+        }
+    }
+    
+    private static void addTombstone(GameArena arena) {
+        synchronized (lobbyVersion) {
+            tombstones.add(new Tombstone(arena.id, lobbyVersion.incrementAndGet()));
+            if (++tombstoneCount > MAX_TOMBSTONES) {
+                // Deltas older than the dropped tombstone can no longer see every deletion
+                tombstoneHorizon = tombstones.poll().lobbyStamp();
+                tombstoneCount--;
+            }
+        }
+    }
+    
+    /**
+     * Lobby-Status einer Arena: open, running, finished oder cleaning (wird gerade aufgeräumt)
+     */
+    static String lobbyStatus(GameArena arena, ArenaState state) {
+        if (arenasBeingDeleted.contains(arena.id)) {
+            return "cleaning";
+        }
+        if (state.isFinished()) {
+            return "finished";
+        }
+        return state.players().size() == 2 ? "running" : "open";
+    }
+    
+    private static boolean isNotModified(HttpExchange exchange, String etag) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return true;
+        }
+        return false;
+    }
+    
+    private static void sendHtml(HttpExchange exchange, byte[] body, HtmlTemplate.Encoding encoding, String etag) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+        exchange.getResponseHeaders().add("ETag", etag);
+        if (encoding.headerValue() != null) {
+            exchange.getResponseHeaders().add("Content-Encoding", encoding.headerValue());
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+    
+    static GameArena createArena(String id, String name) {
+        GameArena arena = new GameArena(id, name);
+        arenas.put(id, arena);
+        arenasInOrder.put(arena.sequence, arena);
+        fireArenaChanged(arena, "created");
+        return arena;
+    }
+    
+    /**
+     * Neue eindeutige Arena-ID; im Cluster nur IDs, die diesem Knoten gehören, damit die Arena hier leben kann
+     */
+    static String newArenaId() {
+        String arenaId;
+        do {
+            long idStamp = lastArenaIdStamp.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+            arenaId = "Arena-" + idStamp;
+        } while (!cluster.isLocal(arenaId));
+        return arenaId;
+    }
+    
+    static boolean removeArena(String id) {
+        GameArena arena = arenas.remove(id);
+        if (arena == null) {
+            return false;
+        }
+        arenasInOrder.remove(arena.sequence);
+        arena.cancelCleanup();
+        addTombstone(arena);
+        fireArenaChanged(arena, "deleted");
+        return true;
+    }
+    
+    /**
+     * Plant das automatische Aufräumen einer beendeten Arena:
+     * Standard-Arenas werden nach 10 Sekunden zurückgesetzt, eigene Arenas gelöscht
+     * @param finishedVersion Version des Zustands, mit dem das Spiel endete
+     */
+    private static void scheduleCleanup(GameArena arena, long finishedVersion) {
+        if (!arenasBeingDeleted.add(arena.id)) {
+            return;
+        }
+        markLobbyChanged(arena);
+        arena.cleanupTask = lifecycleScheduler.schedule(() -> cleanupArena(arena, finishedVersion),
+                CLEANUP_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    private static void cleanupArena(GameArena arena, long finishedVersion) {
+        try {
+            // Skip if the arena was reset or deleted by hand in the meantime
+            if (arena.getVersion() != finishedVersion || arenas.get(arena.id) != arena) {
+                return;
+            }
+            boolean isDefaultArena = arena.id.equals("Arena-1") || arena.id.equals("Arena-2") || arena.id.equals("Arena-3");
+            if (isDefaultArena) {
+                arena.reset();
+                AsyncLog.info("🔄 Default arena auto-reset after game end: " + arena.id);
+            } else {
+                removeArena(arena.id);
+                AsyncLog.info("🧹 Custom arena auto-deleted after game end: " + arena.id);
+            }
+        } catch (Exception e) {
+            AsyncLog.error("❌ Error in arena cleanup (" + arena.id + "): " + e.getMessage());
+        } finally {
+            if (arenasBeingDeleted.remove(arena.id)) {
+                markLobbyChanged(arena);
             }
         }
+    }
+    
+    static class LobbyHandler implements HttpHandler {
+        // Rendered arena list of the last lobby version, shared by all encodings
+        private static final AtomicReference<CachedLobby> cachedLobby = new AtomicReference<>();
         
-        private String getLobbyHTML() {
-            StringBuilder arenaList = new StringBuilder();
-            for (GameArena arena : arenas.values()) {
-                int playerCount = arena.getPlayerCount();
-                boolean isBeingDeleted = arenasBeingDeleted.contains(arena.id);
-                boolean isGameFinished = arena.getWinner() != ' ' || arena.isDraw();
-                
-                String statusColor, statusText, buttonClass;
-                
-                if (isBeingDeleted) {
-                    statusColor = "text-orange-600";
-                    statusText = "🧹 Wird bereinigt...";
-                    buttonClass = "bg-gray-400 text-gray-700 font-bold py-3 px-6 rounded-xl cursor-not-allowed";
-                } else if (isGameFinished) {
-                    statusColor = "text-purple-600";
-                    statusText = "🎯 Spiel beendet";
-                    buttonClass = "bg-gray-400 text-gray-700 font-bold py-3 px-6 rounded-xl cursor-not-allowed";
-                } else if (playerCount == 0) {
-                    statusColor = "text-green-600";
-                    statusText = "🟢 Leer";
-                    buttonClass = "bg-gradient-to-r from-blue-500 to-purple-600 hover:from-blue-600 hover:to-purple-700 text-white font-bold py-3 px-6 rounded-xl shadow-lg hover:shadow-xl transform hover:scale-105 transition-all duration-200";
-                } else if (playerCount == 1) {
-                    statusColor = "text-yellow-600";
-                    statusText = "🟡 1 Spieler wartet";
-                    buttonClass = "bg-gradient-to-r from-blue-500 to-purple-600 hover:from-blue-600 hover:to-purple-700 text-white font-bold py-3 px-6 rounded-xl shadow-lg hover:shadow-xl transform hover:scale-105 transition-all duration-200";
-                } else {
-                    statusColor = "text-red-600";
-                    statusText = "🔴 Voll";
-                    buttonClass = "bg-gray-400 text-gray-700 font-bold py-3 px-6 rounded-xl cursor-not-allowed";
-                }
-                
-                arenaList.append(String.format("""
-                    <div class="bg-white rounded-2xl shadow-xl p-8 hover:shadow-2xl transition-all duration-300 transform hover:scale-105 border border-gray-100">
+        private record CachedLobby(long version, String arenaList, Map<HtmlTemplate.Encoding, byte[]> bodies) {
+        }
+        
+        private static final HtmlTemplate ARENA_CARD = HtmlTemplate.compile("""
+                    <div data-arena-id="{{id}}" data-status="{{status}}" class="bg-white rounded-2xl shadow-xl p-8 hover:shadow-2xl transition-all duration-300 transform hover:scale-105 border border-gray-100">
                         <div class="text-center">
                             <div class="text-4xl mb-4">🎮</div>
-                            <h3 class="text-2xl font-bold text-gray-800 mb-3">%s</h3>
-                            <p class="text-lg %s mb-6 font-semibold">%s</p>
+                            <h3 class="text-2xl font-bold text-gray-800 mb-3">{{name}}</h3>
+                            <p class="text-lg {{statusColor}} mb-6 font-semibold">{{statusText}}</p>
                             <div class="bg-gray-50 rounded-lg p-4 mb-6">
                                 <div class="flex justify-between items-center">
                                     <span class="text-gray-600">Spieler:</span>
-                                    <span class="font-bold text-lg">%d/2</span>
+                                    <span class="font-bold text-lg">{{playerCount}}/2</span>
                                 </div>
                                 <div class="w-full bg-gray-200 rounded-full h-2 mt-2">
-                                    <div class="bg-gradient-to-r from-blue-500 to-purple-600 h-2 rounded-full transition-all duration-300" style="width: %d%%"></div>
+                                    <div class="bg-gradient-to-r from-blue-500 to-purple-600 h-2 rounded-full transition-all duration-300" style="width: {{progress}}%"></div>
                                 </div>
                             </div>
-                            <button onclick="joinArena('%s')" %s
-                                    class="%s">
-                                %s
+                            <button onclick="joinArena('{{js:id}}')" {{raw:disabled}}
+                                    class="{{buttonClass}}">
+                                {{buttonText}}
                             </button>
+                            <a href="/spectate?arena={{id}}" class="{{spectateClass}} mt-3 text-purple-700 hover:text-purple-900 font-semibold">
+                                👀 Zuschauen
+                            </a>
                             <div class="mt-4 flex space-x-2">
-                                <button onclick="resetArena('%s', '%s')" 
+                                <button onclick="resetArena('{{js:id}}', '{{js:name}}')" 
                                         class="flex-1 bg-yellow-500 hover:bg-yellow-600 text-white font-bold py-2 px-3 rounded-lg text-sm transition-colors">
                                     🔄 Reset
                                 </button>
-                                <button onclick="deleteArena('%s', '%s')" 
+                                <button onclick="deleteArena('{{js:id}}', '{{js:name}}')" 
                                         class="flex-1 bg-red-500 hover:bg-red-600 text-white font-bold py-2 px-3 rounded-lg text-sm transition-colors">
                                     🗑️ Löschen
                                 </button>
                             </div>
                         </div>
                     </div>
-                                         """, arena.name, statusColor, statusText, playerCount, (playerCount * 50), arena.id, 
-                     (playerCount >= 2 || isBeingDeleted || isGameFinished) ? "disabled" : "", buttonClass, 
-                     isBeingDeleted ? "🧹 Bereinigt..." : isGameFinished ? "🎯 Beendet" : playerCount >= 2 ? "❌ Voll" : "🚀 Jetzt beitreten",
-                     arena.id, arena.name, arena.id, arena.name));
-            }
-            
-            return """
+                    """);
+        
+        private static final HtmlTemplate LOBBY_PAGE = HtmlTemplate.compile("""
                 <!DOCTYPE html>
                 <html lang="de">
                 <head>
                     <meta charset="UTF-8">
                     <meta name="viewport" content="width=device-width, initial-scale=1.0">
                     <title>🎮 TicTacToe Multiplayer Lobby</title>
-                    <script src="https://cdn.tailwindcss.com"></script>
-                    <script src="https://cdn.jsdelivr.net/npm/sweetalert2@11"></script>
-                    <link rel="stylesheet" href="https://cdnjs.cloudflare.com/ajax/libs/font-awesome/6.4.0/css/all.min.css">
+                    <script src="{{asset:vendor/tailwindcss.js}}"></script>
+                    <script src="{{asset:vendor/sweetalert2.all.min.js}}"></script>
+                    <link rel="stylesheet" href="{{asset:vendor/font-awesome/css/all.min.css}}">
                 </head>
                 <body class="bg-gradient-to-br from-purple-600 to-blue-600 min-h-screen">
                     <div class="container mx-auto px-4 py-8">
@@ -183,17 +521,27 @@ public class SimpleMultiplayerServer {
                         </div>
                         
                         <div class="max-w-4xl mx-auto">
-                            <div class="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-3 gap-6">
-                                %s
+                            <div id="arenaFilter" class="flex justify-center flex-wrap gap-2 mb-6">
+                                <button data-filter="" onclick="setArenaFilter('')" class="bg-white text-purple-700 font-semibold py-2 px-4 rounded-lg transition-all">Alle</button>
+                                <button data-filter="open" onclick="setArenaFilter('open')" class="bg-white/20 text-white font-semibold py-2 px-4 rounded-lg transition-all">🟢 Offen</button>
+                                <button data-filter="running" onclick="setArenaFilter('running')" class="bg-white/20 text-white font-semibold py-2 px-4 rounded-lg transition-all">🔴 Laufend</button>
+                                <button data-filter="finished" onclick="setArenaFilter('finished')" class="bg-white/20 text-white font-semibold py-2 px-4 rounded-lg transition-all">🎯 Beendet</button>
+                            </div>
+                            <div id="arenaGrid" data-version="{{lobbyVersion}}" data-cluster="{{cluster}}" class="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-3 gap-6">
+                                {{raw:arenaList}}
                             </div>
                         </div>
                         
                         <div class="text-center mt-12 space-y-6">
                             <div class="flex justify-center flex-wrap gap-4">
-                                <button onclick="location.reload()" 
+                                <button onclick="refreshArenas()" 
                                         class="bg-gradient-to-r from-green-500 to-green-600 hover:from-green-600 hover:to-green-700 text-white font-bold py-3 px-6 rounded-xl shadow-lg hover:shadow-xl transform hover:scale-105 transition-all duration-200">
                                     <i class="fas fa-sync-alt"></i> Aktualisieren
                                 </button>
+                                <button onclick="quickMatch()" 
+                                        class="bg-gradient-to-r from-yellow-500 to-orange-500 hover:from-yellow-600 hover:to-orange-600 text-white font-bold py-3 px-6 rounded-xl shadow-lg hover:shadow-xl transform hover:scale-105 transition-all duration-200">
+                                    <i class="fas fa-bolt"></i> Schnelles Spiel
+                                </button>
                                 <button onclick="showCreateArenaModal()" 
                                         class="bg-gradient-to-r from-purple-500 to-purple-600 hover:from-purple-600 hover:to-purple-700 text-white font-bold py-3 px-6 rounded-xl shadow-lg hover:shadow-xl transform hover:scale-105 transition-all duration-200">
                                     <i class="fas fa-plus"></i> Arena erstellen
@@ -214,535 +562,110 @@ public class SimpleMultiplayerServer {
                         </div>
                     </div>
                     
-                    <script>
-                        console.log('🚀 TicTacToe Lobby JavaScript loaded');
-                        console.log('🌐 Current URL:', window.location.href);
-                        console.log('📊 Local Storage Player Name:', localStorage.getItem('ticTacToePlayerName'));
-                        
-                        let currentPlayerName = localStorage.getItem('ticTacToePlayerName') || '';
-                        console.log('👤 Current player name:', currentPlayerName);
-                        
-                        // Initialize player name on page load
-                        document.addEventListener('DOMContentLoaded', function() {
-                            console.log('📄 DOM Content Loaded');
-                            if (!currentPlayerName) {
-                                console.log('🔐 No stored player name, prompting...');
-                                promptForPlayerName();
-                            } else {
-                                console.log('✅ Player name found, updating display');
-                                updatePlayerNameDisplay();
-                            }
-                        });
-                        
-                        function updatePlayerNameDisplay() {
-                            document.getElementById('playerNameDisplay').textContent = currentPlayerName || 'Spieler';
-                        }
-                        
-                        async function promptForPlayerName() {
-                            try {
-                                console.log('💬 Prompting for player name, current:', currentPlayerName);
-                                const { value: name } = await Swal.fire({
-                                    title: '🎮 Willkommen!',
-                                    text: 'Wie möchtest du genannt werden?',
-                                    input: 'text',
-                                    inputPlaceholder: 'Dein Spielername...',
-                                    inputValue: currentPlayerName,
-                                    showCancelButton: false,
-                                    allowOutsideClick: false,
-                                    inputValidator: (value) => {
-                                        if (!value || value.trim().length < 2) {
-                                            return 'Bitte gib einen Namen mit mindestens 2 Zeichen ein!';
-                                        }
-                                        if (value.trim().length > 20) {
-                                            return 'Name darf maximal 20 Zeichen haben!';
-                                        }
-                                        return null;
-                                    },
-                                    background: '#1a1a2e',
-                                    color: '#fff',
-                                    confirmButtonColor: '#7c3aed'
-                                });
-                                
-                                if (name) {
-                                    currentPlayerName = name.trim();
-                                    localStorage.setItem('ticTacToePlayerName', currentPlayerName);
-                                    updatePlayerNameDisplay();
-                                    console.log('✅ Player name set to:', currentPlayerName);
-                                    
-                                    // Update stats
-                                    let stats = JSON.parse(localStorage.getItem('ticTacToeStats') || '{}');
-                                    if (!stats[currentPlayerName]) {
-                                        stats[currentPlayerName] = { wins: 0, losses: 0, draws: 0, gamesPlayed: 0 };
-                                        localStorage.setItem('ticTacToeStats', JSON.stringify(stats));
-                                        console.log('📊 Created new stats for player:', currentPlayerName);
-                                    }
-                                } else {
-                                    console.warn('⚠️ No name provided in prompt');
-                                }
-                            } catch (error) {
-                                console.error('❌ Error in promptForPlayerName:', error);
-                            }
-                        }
-                        
-                        async function changePlayerName() {
-                            await promptForPlayerName();
-                        }
-                        
-                        async function joinArena(arenaId) {
-                            try {
-                                console.log('🎮 Joining arena:', arenaId);
-                                if (!currentPlayerName) {
-                                    console.log('🔐 No player name, prompting...');
-                                    await promptForPlayerName();
-                                }
-                                
-                                if (currentPlayerName) {
-                                    console.log('✅ Player name confirmed:', currentPlayerName);
-                                    const result = await Swal.fire({
-                                        title: '🚀 Arena beitreten',
-                                        text: `Möchtest du der Arena als "${currentPlayerName}" beitreten?`,
-                                        icon: 'question',
-                                        showCancelButton: true,
-                                        confirmButtonText: '✅ Ja, beitreten!',
-                                        cancelButtonText: '❌ Abbrechen',
-                                        background: '#1a1a2e',
-                                        color: '#fff',
-                                        confirmButtonColor: '#7c3aed',
-                                        cancelButtonColor: '#6b7280'
-                                    });
-                                    
-                                    if (result.isConfirmed) {
-                                        const gameUrl = '/game?arena=' + arenaId + '&player=' + encodeURIComponent(currentPlayerName);
-                                        console.log('🚀 Redirecting to game:', gameUrl);
-                                        window.location.href = gameUrl;
-                                    } else {
-                                        console.log('❌ User cancelled joining arena');
-                                    }
-                                } else {
-                                    console.warn('⚠️ No player name provided after prompt');
-                                }
-                            } catch (error) {
-                                console.error('❌ Error in joinArena:', error);
-                                await Swal.fire({
-                                    title: '❌ Fehler',
-                                    text: 'Fehler beim Beitreten der Arena: ' + error.message,
-                                    icon: 'error',
-                                    background: '#1a1a2e',
-                                    color: '#fff',
-                                    confirmButtonColor: '#ef4444'
-                                });
-                            }
-                        }
-                        
-                        async function showCreateArenaModal() {
-                            const { value: formValues } = await Swal.fire({
-                                title: '🏟️ Neue Arena erstellen',
-                                html: `
-                                    <div class="space-y-4">
-                                        <div>
-                                            <label class="block text-left text-white mb-2 font-semibold">Arena Name:</label>
-                                            <input id="swal-arena-name" class="swal2-input" placeholder="Meine Arena" maxlength="20">
-                                        </div>
-                                        <div>
-                                            <label class="block text-left text-white mb-2 font-semibold">Beschreibung:</label>
-                                            <input id="swal-arena-desc" class="swal2-input" placeholder="Epische Kämpfe hier!" maxlength="50">
-                                        </div>
-                                    </div>
-                                `,
-                                focusConfirm: false,
-                                showCancelButton: true,
-                                confirmButtonText: '🚀 Arena erstellen',
-                                cancelButtonText: '❌ Abbrechen',
-                                background: '#1a1a2e',
-                                color: '#fff',
-                                confirmButtonColor: '#7c3aed',
-                                cancelButtonColor: '#6b7280',
-                                preConfirm: () => {
-                                    const name = document.getElementById('swal-arena-name').value.trim();
-                                    const desc = document.getElementById('swal-arena-desc').value.trim();
-                                    
-                                    if (!name) {
-                                        Swal.showValidationMessage('Bitte Arena Name eingeben!');
-                                        return false;
-                                    }
-                                    if (name.length < 2) {
-                                        Swal.showValidationMessage('Name muss mindestens 2 Zeichen haben!');
-                                        return false;
-                                    }
-                                    
-                                    return { name, desc: desc || name };
-                                }
-                            });
-                            
-                            if (formValues) {
-                                await createArena(formValues.name, formValues.desc);
-                            }
-                        }
-                        
-                        async function createArena(name, description) {
-                            try {
-                                const response = await fetch('/api/create-arena', {
-                                    method: 'POST',
-                                    headers: {'Content-Type': 'application/json'},
-                                    body: JSON.stringify({name: name, description: description})
-                                });
-                                
-                                const data = await response.json();
-                                
-                                if (data.success) {
-                                    await Swal.fire({
-                                        title: '✅ Arena erstellt!',
-                                        text: `Arena "${name}" wurde erfolgreich erstellt!`,
-                                        icon: 'success',
-                                        background: '#1a1a2e',
-                                        color: '#fff',
-                                        confirmButtonColor: '#10b981'
-                                    });
-                                    location.reload();
-                                } else {
-                                    await Swal.fire({
-                                        title: '❌ Fehler',
-                                        text: data.message,
-                                        icon: 'error',
-                                        background: '#1a1a2e',
-                                        color: '#fff',
-                                        confirmButtonColor: '#ef4444'
-                                    });
-                                }
-                            } catch (err) {
-                                await Swal.fire({
-                                    title: '🌐 Netzwerkfehler',
-                                    text: 'Verbindung zum Server fehlgeschlagen!',
-                                    icon: 'error',
-                                    background: '#1a1a2e',
-                                    color: '#fff',
-                                    confirmButtonColor: '#ef4444'
-                                });
-                            }
-                        }
-                        
-                        async function deleteArena(arenaId, arenaName) {
-                            const result = await Swal.fire({
-                                title: '🗑️ Arena löschen',
-                                text: `Arena "${arenaName}" wirklich löschen?`,
-                                icon: 'warning',
-                                showCancelButton: true,
-                                confirmButtonText: '🗑️ Ja, löschen!',
-                                cancelButtonText: '❌ Abbrechen',
-                                background: '#1a1a2e',
-                                color: '#fff',
-                                confirmButtonColor: '#ef4444',
-                                cancelButtonColor: '#6b7280'
-                            });
-                            
-                            if (result.isConfirmed) {
-                                try {
-                                    const response = await fetch('/api/delete-arena', {
-                                        method: 'POST',
-                                        headers: {'Content-Type': 'application/json'},
-                                        body: JSON.stringify({arenaId: arenaId})
-                                    });
-                                    
-                                    const data = await response.json();
-                                    
-                                    if (data.success) {
-                                        await Swal.fire({
-                                            title: '✅ Arena gelöscht!',
-                                            text: `Arena "${arenaName}" wurde erfolgreich gelöscht!`,
-                                            icon: 'success',
-                                            background: '#1a1a2e',
-                                            color: '#fff',
-                                            confirmButtonColor: '#10b981'
-                                        });
-                                        location.reload();
-                                    } else {
-                                        await Swal.fire({
-                                            title: '❌ Fehler',
-                                            text: data.message,
-                                            icon: 'error',
-                                            background: '#1a1a2e',
-                                            color: '#fff',
-                                            confirmButtonColor: '#ef4444'
-                                        });
-                                    }
-                                } catch (err) {
-                                    await Swal.fire({
-                                        title: '🌐 Netzwerkfehler',
-                                        text: 'Verbindung zum Server fehlgeschlagen!',
-                                        icon: 'error',
-                                        background: '#1a1a2e',
-                                        color: '#fff',
-                                        confirmButtonColor: '#ef4444'
-                                    });
-                                }
-                            }
-                        }
-                        
-                        async function resetArena(arenaId, arenaName) {
-                            const result = await Swal.fire({
-                                title: '🔄 Arena zurücksetzen',
-                                text: `Arena "${arenaName}" wirklich zurücksetzen?`,
-                                icon: 'question',
-                                showCancelButton: true,
-                                confirmButtonText: '🔄 Ja, zurücksetzen!',
-                                cancelButtonText: '❌ Abbrechen',
-                                background: '#1a1a2e',
-                                color: '#fff',
-                                confirmButtonColor: '#f59e0b',
-                                cancelButtonColor: '#6b7280'
-                            });
-                            
-                            if (result.isConfirmed) {
-                                try {
-                                    const response = await fetch('/api/reset-arena', {
-                                        method: 'POST',
-                                        headers: {'Content-Type': 'application/json'},
-                                        body: JSON.stringify({arenaId: arenaId})
-                                    });
-                                    
-                                    const data = await response.json();
-                                    
-                                    if (data.success) {
-                                        await Swal.fire({
-                                            title: '✅ Arena zurückgesetzt!',
-                                            text: `Arena "${arenaName}" wurde erfolgreich zurückgesetzt!`,
-                                            icon: 'success',
-                                            background: '#1a1a2e',
-                                            color: '#fff',
-                                            confirmButtonColor: '#10b981'
-                                        });
-                                        location.reload();
-                                    } else {
-                                        await Swal.fire({
-                                            title: '❌ Fehler',
-                                            text: data.message,
-                                            icon: 'error',
-                                            background: '#1a1a2e',
-                                            color: '#fff',
-                                            confirmButtonColor: '#ef4444'
-                                        });
-                                    }
-                                } catch (err) {
-                                    await Swal.fire({
-                                        title: '🌐 Netzwerkfehler',
-                                        text: 'Verbindung zum Server fehlgeschlagen!',
-                                        icon: 'error',
-                                        background: '#1a1a2e',
-                                        color: '#fff',
-                                        confirmButtonColor: '#ef4444'
-                                    });
-                                }
-                            }
-                        }
-                        
-                        async function showPlayerStats() {
-                            const stats = JSON.parse(localStorage.getItem('ticTacToeStats') || '{}');
-                            const playerStats = stats[currentPlayerName] || { wins: 0, losses: 0, draws: 0, gamesPlayed: 0 };
-                            
-                            const winRate = playerStats.gamesPlayed > 0 ? 
-                                Math.round((playerStats.wins / playerStats.gamesPlayed) * 100) : 0;
-                            
-                            await Swal.fire({
-                                title: `📊 Statistiken von ${currentPlayerName}`,
-                                html: `
-                                    <div class="text-left space-y-3">
-                                        <div class="bg-green-100 p-3 rounded-lg">
-                                            <p class="text-green-800 font-semibold">🏆 Siege: ${playerStats.wins}</p>
-                                        </div>
-                                        <div class="bg-red-100 p-3 rounded-lg">
-                                            <p class="text-red-800 font-semibold">❌ Niederlagen: ${playerStats.losses}</p>
-                                        </div>
-                                        <div class="bg-yellow-100 p-3 rounded-lg">
-                                            <p class="text-yellow-800 font-semibold">🤝 Unentschieden: ${playerStats.draws}</p>
-                                        </div>
-                                        <div class="bg-blue-100 p-3 rounded-lg">
-                                            <p class="text-blue-800 font-semibold">🎮 Gesamt Spiele: ${playerStats.gamesPlayed}</p>
-                                        </div>
-                                        <div class="bg-purple-100 p-3 rounded-lg">
-                                            <p class="text-purple-800 font-semibold">📈 Siegesrate: ${winRate}%</p>
-                                        </div>
-                                    </div>
-                                `,
-                                background: '#1a1a2e',
-                                color: '#fff',
-                                confirmButtonColor: '#7c3aed'
-                            });
-                        }
-                        
-                        async function showSettings() {
-                            const { value: result } = await Swal.fire({
-                                title: '⚙️ Einstellungen',
-                                html: `
-                                    <div class="text-left space-y-4">
-                                        <div>
-                                            <label class="block text-white mb-2 font-semibold">🎨 Theme:</label>
-                                            <select id="swal-theme" class="swal2-select">
-                                                <option value="default">Standard (Lila/Blau)</option>
-                                                <option value="dark">Dunkel</option>
-                                                <option value="neon">Neon</option>
-                                            </select>
-                                        </div>
-                                        <div>
-                                            <label class="block text-white mb-2 font-semibold">🔊 Sound:</label>
-                                            <select id="swal-sound" class="swal2-select">
-                                                <option value="on">An</option>
-                                                <option value="off">Aus</option>
-                                            </select>
-                                        </div>
-                                        <div>
-                                            <label class="block text-white mb-2 font-semibold">📱 Animations:</label>
-                                            <select id="swal-animations" class="swal2-select">
-                                                <option value="on">An</option>
-                                                <option value="off">Aus</option>
-                                            </select>
-                                        </div>
-                                    </div>
-                                `,
-                                showCancelButton: true,
-                                confirmButtonText: '💾 Speichern',
-                                cancelButtonText: '❌ Abbrechen',
-                                background: '#1a1a2e',
-                                color: '#fff',
-                                confirmButtonColor: '#7c3aed',
-                                cancelButtonColor: '#6b7280',
-                                focusConfirm: false,
-                                preConfirm: () => {
-                                    return {
-                                        theme: document.getElementById('swal-theme').value,
-                                        sound: document.getElementById('swal-sound').value,
-                                        animations: document.getElementById('swal-animations').value
-                                    };
-                                }
-                            });
-                            
-                            if (result) {
-                                localStorage.setItem('ticTacToeSettings', JSON.stringify(result));
-                                await Swal.fire({
-                                    title: '✅ Einstellungen gespeichert!',
-                                    text: 'Deine Einstellungen wurden erfolgreich gespeichert!',
-                                    icon: 'success',
-                                    background: '#1a1a2e',
-                                    color: '#fff',
-                                    confirmButtonColor: '#10b981'
-                                });
-                            }
-                        }
-                    </script>
+                    <script src="{{asset:js/lobby.js}}"></script>
                 </body>
                 </html>
-                """.replace("%s", arenaList.toString());
-        }
-    }
-    
-    static class GameHandler implements HttpHandler {
+                """);
+        
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             try {
-                System.out.println("📥 Game request: " + exchange.getRequestMethod() + " " + exchange.getRequestURI());
-                String query = exchange.getRequestURI().getQuery();
-                Map<String, String> params = parseQuery(query);
-                
-                String arenaId = params.get("arena");
-                String playerName = params.get("player");
-                
-                if (arenaId == null || playerName == null) {
-                    System.err.println("❌ Missing parameters - arena: " + arenaId + ", player: " + playerName);
-                    exchange.getResponseHeaders().add("Location", "/");
-                    exchange.sendResponseHeaders(302, -1);
-                    return;
-                }
-                
-                GameArena arena = arenas.get(arenaId);
-                if (arena == null) {
-                    System.err.println("❌ Arena not found: " + arenaId);
-                    exchange.getResponseHeaders().add("Location", "/");
-                    exchange.sendResponseHeaders(302, -1);
+                AsyncLog.debug("📥 Lobby request: " + exchange.getRequestMethod() + " " + exchange.getRequestURI());
+                long version = currentLobbyVersion();
+                String etag = "\"lobby-" + version + "-" + LOBBY_PAGE.getHash() + "\"";
+                if (isNotModified(exchange, etag)) {
                     return;
                 }
                 
-                String response = getGameHTML(arena, playerName);
-                byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
-                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
-                exchange.getResponseHeaders().add("Cache-Control", "no-cache");
-                exchange.sendResponseHeaders(200, responseBytes.length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(responseBytes);
-                }
-                System.out.println("✅ Game response sent for arena: " + arenaId + ", player: " + playerName);
+                HtmlTemplate.Encoding encoding = HtmlTemplate.Encoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                sendHtml(exchange, getLobbyBody(version, encoding), encoding, etag);
+                AsyncLog.debug("✅ Lobby response sent successfully");
             } catch (Exception e) {
-                System.err.println("❌ Error in GameHandler: " + e.getMessage());
-                e.printStackTrace();
+                AsyncLog.error("❌ Error in LobbyHandler: " + e.getMessage(), e);
                 exchange.sendResponseHeaders(500, 0);
             }
         }
         
-        private Map<String, String> parseQuery(String query) {
-            Map<String, String> params = new HashMap<>();
-            if (query != null) {
-                for (String param : query.split("&")) {
-                    String[] pair = param.split("=");
-                    if (pair.length == 2) {
-                        try {
-                            params.put(pair[0], URLDecoder.decode(pair[1], StandardCharsets.UTF_8));
-                        } catch (Exception e) {
-                            params.put(pair[0], pair[1]);
-                        }
-                    }
-                }
+        private byte[] getLobbyBody(long version, HtmlTemplate.Encoding encoding) {
+            CachedLobby cached = cachedLobby.get();
+            if (cached == null || cached.version() != version) {
+                cached = new CachedLobby(version, renderArenaList(), new ConcurrentHashMap<>());
+                cachedLobby.set(cached);
+            }
+            String arenaList = cached.arenaList();
+            // In a cluster the local lobby version means nothing to /api/arenas, the page loads the full grid itself
+            Map<String, String> values = Map.of("arenaList", arenaList,
+                    "lobbyVersion", cluster.isEnabled() ? "" : String.valueOf(version),
+                    "cluster", cluster.isEnabled() ? "1" : "0");
+            return cached.bodies().computeIfAbsent(encoding, e -> LOBBY_PAGE.render(values, e));
+        }
+        
+        private String renderArenaList() {
+            StringBuilder arenaList = new StringBuilder();
+            for (GameArena arena : arenasInOrder.values()) {
+                arenaList.append(renderArenaCard(arena, arena.getState()));
             }
-            return params;
+            return arenaList.toString();
         }
         
-        private String getGameHTML(GameArena arena, String playerName) {
-            String html = """
+        static String renderArenaCard(GameArena arena, ArenaState state) {
+            int playerCount = state.players().size();
+            boolean isBeingDeleted = arenasBeingDeleted.contains(arena.id);
+            boolean isGameFinished = state.isFinished();
+            
+            String statusColor, statusText, buttonClass;
+            
+            if (isBeingDeleted) {
+                statusColor = "text-orange-600";
+                statusText = "🧹 Wird bereinigt...";
+                buttonClass = "bg-gray-400 text-gray-700 font-bold py-3 px-6 rounded-xl cursor-not-allowed";
+            } else if (isGameFinished) {
+                statusColor = "text-purple-600";
+                statusText = "🎯 Spiel beendet";
+                buttonClass = "bg-gray-400 text-gray-700 font-bold py-3 px-6 rounded-xl cursor-not-allowed";
+            } else if (playerCount == 0) {
+                statusColor = "text-green-600";
+                statusText = "🟢 Leer";
+                buttonClass = "bg-gradient-to-r from-blue-500 to-purple-600 hover:from-blue-600 hover:to-purple-700 text-white font-bold py-3 px-6 rounded-xl shadow-lg hover:shadow-xl transform hover:scale-105 transition-all duration-200";
+            } else if (playerCount == 1) {
+                statusColor = "text-yellow-600";
+                statusText = "🟡 1 Spieler wartet";
+                buttonClass = "bg-gradient-to-r from-blue-500 to-purple-600 hover:from-blue-600 hover:to-purple-700 text-white font-bold py-3 px-6 rounded-xl shadow-lg hover:shadow-xl transform hover:scale-105 transition-all duration-200";
+            } else {
+                statusColor = "text-red-600";
+                statusText = "🔴 Voll";
+                buttonClass = "bg-gray-400 text-gray-700 font-bold py-3 px-6 rounded-xl cursor-not-allowed";
+            }
+            
+            Map<String, String> values = new HashMap<>();
+            values.put("name", arena.name);
+            values.put("statusColor", statusColor);
+            values.put("statusText", statusText);
+            values.put("playerCount", String.valueOf(playerCount));
+            values.put("progress", String.valueOf(playerCount * 50));
+            values.put("id", arena.id);
+            values.put("disabled", (playerCount >= 2 || isBeingDeleted || isGameFinished) ? "disabled" : "");
+            values.put("buttonClass", buttonClass);
+            values.put("buttonText", isBeingDeleted ? "🧹 Bereinigt..." : isGameFinished ? "🎯 Beendet" : playerCount >= 2 ? "❌ Voll" : "🚀 Jetzt beitreten");
+            values.put("status", lobbyStatus(arena, state));
+            // Spectators do not take a seat, so full and running arenas can still be watched
+            values.put("spectateClass", playerCount > 0 && !isBeingDeleted ? "block" : "hidden");
+            return ARENA_CARD.renderString(values);
+        }
+    }
+    
+    static class GameHandler implements HttpHandler {
+        private static final HtmlTemplate GAME_PAGE = HtmlTemplate.compile("""
                 <!DOCTYPE html>
                 <html lang="de">
                 <head>
                     <meta charset="UTF-8">
                     <meta name="viewport" content="width=device-width, initial-scale=1.0">
-                    <title>🎮 TicTacToe - %s</title>
-                    <script src="https://cdn.tailwindcss.com"></script>
-                    <script src="https://cdn.jsdelivr.net/npm/sweetalert2@11"></script>
-                    <link rel="stylesheet" href="https://cdnjs.cloudflare.com/ajax/libs/font-awesome/6.4.0/css/all.min.css">
-                    <style>
-                        @keyframes pulse-glow {
-                            0%, 100% { box-shadow: 0 0 20px rgba(59, 130, 246, 0.5); }
-                            50% { box-shadow: 0 0 40px rgba(59, 130, 246, 0.8), 0 0 60px rgba(59, 130, 246, 0.6); }
-                        }
-                        @keyframes float {
-                            0%, 100% { transform: translateY(0px); }
-                            50% { transform: translateY(-10px); }
-                        }
-                        @keyframes shake {
-                            0%, 100% { transform: translateX(0); }
-                            25% { transform: translateX(-5px); }
-                            75% { transform: translateX(5px); }
-                        }
-                        @keyframes winning-line {
-                            from { width: 0%; }
-                            to { width: 100%; }
-                        }
-                        .pulse-glow { animation: pulse-glow 2s infinite; }
-                        .float-animation { animation: float 3s ease-in-out infinite; }
-                        .shake-animation { animation: shake 0.5s ease-in-out; }
-                        .winning-cell { animation: pulse-glow 1s ease-in-out 3; }
-                        .cell-hover { transition: all 0.2s ease; }
-                        .cell-hover:hover { transform: scale(1.1) rotate(2deg); }
-                        .gradient-border {
-                            background: linear-gradient(45deg, #3B82F6, #8B5CF6, #EC4899, #F59E0B);
-                            padding: 3px;
-                            border-radius: 1rem;
-                        }
-                        .gradient-border-inner {
-                            background: white;
-                            border-radius: calc(1rem - 3px);
-                        }
-                        .stats-card {
-                            backdrop-filter: blur(10px);
-                            background: rgba(255, 255, 255, 0.95);
-                        }
-                        .game-sound { display: none; }
-                    </style>
+                    <title>🎮 TicTacToe - {{arenaName}}</title>
+                    <script src="{{asset:vendor/tailwindcss.js}}"></script>
+                    <script src="{{asset:vendor/sweetalert2.all.min.js}}"></script>
+                    <link rel="stylesheet" href="{{asset:vendor/font-awesome/css/all.min.css}}">
+                    <link rel="stylesheet" href="{{asset:css/game.css}}">
                 </head>
                 <body class="bg-gradient-to-br from-indigo-900 via-purple-900 to-pink-900 min-h-screen">
                     <!-- Background Pattern -->
@@ -772,9 +695,9 @@ public class SimpleMultiplayerServer {
                                 <div class="gradient-border inline-block">
                                     <div class="gradient-border-inner px-6 py-3">
                                         <p class="text-gray-800 font-bold text-lg">
-                                            <i class="fas fa-gamepad text-purple-600"></i> Arena: <span class="text-purple-600">%s</span> 
+                                            <i class="fas fa-gamepad text-purple-600"></i> Arena: <span class="text-purple-600">{{arenaName}}</span> 
                                             <span class="mx-3">|</span>
-                                            <i class="fas fa-user text-blue-600"></i> Spieler: <span class="text-blue-600">%s</span>
+                                            <i class="fas fa-user text-blue-600"></i> Spieler: <span class="text-blue-600">{{playerName}}</span>
                                         </p>
                                     </div>
                                 </div>
@@ -853,7 +776,7 @@ public class SimpleMultiplayerServer {
                                         <div class="p-4 bg-gradient-to-r from-blue-50 to-blue-100 rounded-xl">
                                             <div class="text-center">
                                                 <div class="text-2xl mb-2">👤</div>
-                                                <div class="font-bold text-blue-800" id="currentPlayerName">%s</div>
+                                                <div class="font-bold text-blue-800" id="currentPlayerName">{{playerName}}</div>
                                                 <div class="text-sm text-blue-600" id="playerSymbol">Warte auf Zuweisung...</div>
                                             </div>
                                         </div>
@@ -880,611 +803,1254 @@ public class SimpleMultiplayerServer {
                     </div>
                     
                     <script>
-                        console.log('🎮 TicTacToe Game JavaScript loaded');
-                        const arenaId = '%s';
-                        const playerName = '%s';
-                        console.log('🏟️ Arena ID:', arenaId);
-                        console.log('👤 Player Name:', playerName);
-                        
-                        let mySymbol = '', myTurn = false, board = Array(9).fill(' '), gameStarted = false;
-                        let gameStartTime = null, gameEndTime = null, timerInterval = null;
-                        let soundEnabled = localStorage.getItem('gameSound') !== 'false';
-                        let winningCombination = null, opponentName = '';
-                        
-                        const status = document.getElementById('status');
-                        const boardDiv = document.getElementById('board');
-                        
-                        // Update sound toggle button
-                        document.getElementById('soundToggle').innerHTML = soundEnabled ? 
-                            '<i class="fas fa-volume-up"></i> Sound: Ein' : 
-                            '<i class="fas fa-volume-mute"></i> Sound: Aus';
-                        
-                        // Update stats display on load
-                        updateStatsDisplay();
-                        
-                        // Sound functions
-                        function playSound(soundId) {
-                            if (soundEnabled) {
-                                try {
-                                    const sound = document.getElementById(soundId);
-                                    sound.currentTime = 0;
-                                    sound.play().catch(e => console.log('Sound play failed:', e));
-                                } catch (e) {
-                                    console.log('Sound error:', e);
-                                }
-                            }
-                        }
-                        
-                        function toggleSound() {
-                            soundEnabled = !soundEnabled;
-                            localStorage.setItem('gameSound', soundEnabled);
-                            document.getElementById('soundToggle').innerHTML = soundEnabled ? 
-                                '<i class="fas fa-volume-up"></i> Sound: Ein' : 
-                                '<i class="fas fa-volume-mute"></i> Sound: Aus';
-                        }
-                        
-                        async function showGameHelp() {
-                            await Swal.fire({
-                                title: '🎮 Spielhilfe',
-                                html: `
-                                    <div class="text-left space-y-4">
-                                        <p><strong>🎯 Ziel:</strong> Bringe drei deiner Symbole in eine Reihe (horizontal, vertikal oder diagonal).</p>
-                                        <p><strong>🎮 Steuerung:</strong> Klicke auf ein leeres Feld um deinen Zug zu machen.</p>
-                                        <p><strong>⚡ Features:</strong></p>
-                                        <ul class="list-disc list-inside space-y-1 ml-4">
-                                            <li>Echtzeit-Multiplayer</li>
-                                            <li>Live-Statistiken</li>
-                                            <li>Sound-Effekte</li>
-                                            <li>Animierte Spielbrett</li>
-                                            <li>Game Timer</li>
-                                        </ul>
-                                    </div>
-                                `,
-                                icon: 'info',
-                                background: '#1a1a2e',
-                                color: '#fff',
-                                confirmButtonColor: '#10b981'
-                            });
-                        }
-                        
-                        function updateStatsDisplay() {
-                            const stats = JSON.parse(localStorage.getItem('ticTacToeStats') || '{}');
-                            const playerStats = stats[playerName] || { wins: 0, losses: 0, draws: 0, gamesPlayed: 0 };
-                            
-                            document.getElementById('winsCount').textContent = playerStats.wins;
-                            document.getElementById('lossesCount').textContent = playerStats.losses;
-                            document.getElementById('drawsCount').textContent = playerStats.draws;
-                            
-                            const winRate = playerStats.gamesPlayed > 0 ? 
-                                Math.round((playerStats.wins / playerStats.gamesPlayed) * 100) : 0;
-                            document.getElementById('winRate').textContent = winRate + '%';
-                        }
-                        
-                        function startGameTimer() {
-                            if (!gameStartTime) {
-                                gameStartTime = Date.now();
-                                timerInterval = setInterval(() => {
-                                    const elapsed = Math.floor((Date.now() - gameStartTime) / 1000);
-                                    const minutes = Math.floor(elapsed / 60);
-                                    const seconds = elapsed % 60;
-                                    document.getElementById('gameTimer').textContent = 
-                                        `${minutes.toString().padStart(2, '0')}:${seconds.toString().padStart(2, '0')}`;
-                                }, 1000);
-                            }
-                        }
-                        
-                        function stopGameTimer() {
-                            if (timerInterval) {
-                                clearInterval(timerInterval);
-                                timerInterval = null;
-                                gameEndTime = Date.now();
-                            }
-                        }
-                        
-                        function joinGame() {
-                            console.log('🔗 Attempting to join game...');
-                            fetch('/api/join', {
-                                method: 'POST',
-                                headers: {'Content-Type': 'application/json'},
-                                body: JSON.stringify({arena: arenaId, player: playerName})
-                            })
-                            .then(response => {
-                                console.log('📥 Join response status:', response.status);
-                                return response.json();
-                            })
-                            .then(data => {
-                                console.log('📊 Join response data:', data);
-                                if (data.success) {
-                                    mySymbol = data.symbol;
-                                    gameStarted = data.gameStarted;
-                                    console.log('✅ Successfully joined as:', mySymbol, 'Game started:', gameStarted);
-                                    
-                                    // Update player symbol display
-                                    document.getElementById('playerSymbol').textContent = `Du spielst als: ${mySymbol}`;
-                                    
-                                    if (gameStarted) {
-                                        status.textContent = '🎮 Spiel läuft! Du bist ' + mySymbol;
-                                        status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-green-100 to-green-200 text-green-800 font-bold text-lg shadow-lg pulse-glow';
-                                        startGameTimer();
-                                    } else {
-                                        status.textContent = '⏳ Warte auf zweiten Spieler...';
-                                        status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-yellow-100 to-yellow-200 text-yellow-800 font-bold text-lg shadow-lg';
-                                    }
-                                    startPolling();
-                                } else {
-                                    console.error('❌ Failed to join game:', data.message);
-                                    status.textContent = '❌ Fehler: ' + data.message;
-                                    status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-red-100 to-red-200 text-red-800 font-bold text-lg shadow-lg shake-animation';
-                                }
-                            })
-                            .catch(error => {
-                                console.error('❌ Error joining game:', error);
-                                status.textContent = '🌐 Verbindungsfehler beim Beitreten!';
-                                status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-red-100 to-red-200 text-red-800 font-bold text-lg shadow-lg shake-animation';
-                            });
-                        }
-                        
-                        function startPolling() {
-                            setInterval(pollGameStatus, 1000); // Reasonable updates (1x per second)
-                            drawBoard();
-                        }
-                        
-                        function pollGameStatus() {
-                            fetch('/api/status?arena=' + arenaId + '&player=' + encodeURIComponent(playerName))
-                                .then(response => {
-                                    if (!response.ok) {
-                                        throw new Error('HTTP ' + response.status);
-                                    }
-                                    return response.json();
-                                })
-                                .then(data => {
-                                    if (data.board) {
-                                        const newBoard = data.board.split('');
-                                        // Check if board changed to add sound and animation
-                                        let boardChanged = false;
-                                        for (let i = 0; i < 9; i++) {
-                                            if (board[i] !== newBoard[i] && newBoard[i] !== ' ') {
-                                                boardChanged = true;
-                                                break;
-                                            }
-                                        }
-                                        if (boardChanged && gameStarted) {
-                                            playSound('moveSound');
-                                        }
-                                        board = newBoard;
-                                        drawBoard();
-                                    }
-                                    
-                                    // Update opponent info
-                                    if (data.players && data.players.length === 2) {
-                                        const opponent = data.players.find(p => p !== playerName);
-                                        if (opponent && opponent !== opponentName) {
-                                            opponentName = opponent;
-                                            const opponentSymbol = mySymbol === 'X' ? 'O' : 'X';
-                                            document.querySelector('#opponentInfo .font-bold').textContent = opponent;
-                                            document.querySelector('#opponentInfo .text-sm').textContent = `Spielt als: ${opponentSymbol}`;
-                                        }
-                                    }
-                                    
-                                    if (data.gameStarted && !gameStarted) {
-                                        gameStarted = true;
-                                        status.textContent = '🚀 Spiel gestartet! Du bist ' + mySymbol;
-                                        status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-green-100 to-green-200 text-green-800 font-bold text-lg shadow-lg pulse-glow';
-                                        startGameTimer();
-                                    }
-                                    
-                                    if (data.currentPlayer) {
-                                        myTurn = (data.currentPlayer === mySymbol);
-                                        if (gameStarted) {
-                                            status.textContent = myTurn ? '⚡ Du bist dran!' : '⏳ Gegner ist dran...';
-                                            status.className = myTurn ? 
-                                                'mb-8 p-6 rounded-2xl bg-gradient-to-r from-blue-100 to-blue-200 text-blue-800 font-bold text-lg shadow-lg animate-pulse' :
-                                                'mb-8 p-6 rounded-2xl bg-gradient-to-r from-gray-100 to-gray-200 text-gray-800 font-bold text-lg shadow-lg';
-                                        }
-                                    }
-                                    
-                                    if (data.winner) {
-                                        stopGameTimer();
-                                        myTurn = false;
-                                        
-                                        // Update stats first
-                                        updatePlayerStats(data.winner);
-                                        updateStatsDisplay();
-                                        
-                                        // Show game result with sound and visual effects
-                                        if (data.winner === 'DRAW') {
-                                            status.textContent = '🤝 Unentschieden! Zurück zur Lobby in 8 Sekunden...';
-                                            status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-gray-100 to-gray-200 text-gray-800 font-bold text-lg shadow-lg';
-                                            
-                                            // Show draw modal
-                                            setTimeout(() => {
-                                                Swal.fire({
-                                                    title: '🤝 Unentschieden!',
-                                                    text: 'Ein spannender Kampf! Niemand gewinnt dieses Mal.',
-                                                    icon: 'info',
-                                                    background: '#1a1a2e',
-                                                    color: '#fff',
-                                                    confirmButtonColor: '#6b7280',
-                                                    timer: 3000,
-                                                    timerProgressBar: true
-                                                });
-                                            }, 500);
-                                        } else if (data.winner === mySymbol) {
-                                            status.textContent = '🎉 Du gewinnst! Zurück zur Lobby in 8 Sekunden...';
-                                            status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-green-100 to-green-200 text-green-800 font-bold text-lg shadow-lg animate-bounce';
-                                            playSound('winSound');
-                                            
-                                            // Show victory modal with confetti effect
-                                            setTimeout(() => {
-                                                Swal.fire({
-                                                    title: '🎉 Glückwunsch!',
-                                                    text: `Du hast gewonnen! 🏆 Fantastisches Spiel!`,
-                                                    icon: 'success',
-                                                    background: '#1a1a2e',
-                                                    color: '#fff',
-                                                    confirmButtonColor: '#10b981',
-                                                    timer: 3000,
-                                                    timerProgressBar: true,
-                                                    showConfirmButton: false
-                                                });
-                                            }, 500);
-                                        } else {
-                                            status.textContent = '😔 Du verlierst! Zurück zur Lobby in 8 Sekunden...';
-                                            status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-red-100 to-red-200 text-red-800 font-bold text-lg shadow-lg shake-animation';
-                                            playSound('loseSound');
-                                            
-                                            // Show defeat modal
-                                            setTimeout(() => {
-                                                Swal.fire({
-                                                    title: '😔 Schade!',
-                                                    text: 'Du hast verloren, aber gib nicht auf! 💪',
-                                                    icon: 'error',
-                                                    background: '#1a1a2e',
-                                                    color: '#fff',
-                                                    confirmButtonColor: '#ef4444',
-                                                    timer: 3000,
-                                                    timerProgressBar: true
-                                                });
-                                            }, 500);
-                                        }
-                                        
-                                        // Highlight winning combination if available
-                                        if (data.winningCombination) {
-                                            winningCombination = data.winningCombination;
-                                            drawBoard();
-                                        }
-                                        
-                                        // Auto return to lobby after 8 seconds (to allow arena cleanup)
-                                        let countdown = 8;
-                                        const countdownInterval = setInterval(() => {
-                                            countdown--;
-                                            if (countdown <= 0) {
-                                                window.location.href = '/';
-                                                clearInterval(countdownInterval);
-                                            } else {
-                                                const currentText = status.textContent;
-                                                const baseText = currentText.split(' Zurück zur Lobby')[0];
-                                                status.textContent = baseText + ` Zurück zur Lobby in ${countdown} Sekunden...`;
-                                            }
-                                        }, 1000);
-                                    }
-                                })
-                                .catch(error => {
-                                    console.error('❌ Error polling game status:', error);
-                                    // Don't update status on every poll error to avoid spam
-                                });
-                        }
-                        
-                        function drawBoard() {
-                            boardDiv.innerHTML = '';
-                            boardDiv.className = 'grid grid-cols-3 gap-4 w-fit mx-auto p-4 bg-white bg-opacity-10 rounded-2xl backdrop-blur-sm border border-white border-opacity-20 shadow-2xl';
-                            
-                            for (let i = 0; i < 9; i++) {
-                                const cell = document.createElement('button');
-                                let cellClass = 'w-28 h-28 text-5xl font-black border-3 rounded-2xl shadow-xl transition-all duration-150 transform ';
-                                
-                                if (board[i] === 'X') {
-                                    cellClass += 'bg-gradient-to-br from-blue-400 via-blue-500 to-blue-700 text-white border-blue-300 shadow-blue-400/50 hover:shadow-blue-400/70';
-                                    cell.innerHTML = '<i class="fas fa-times"></i>';
-                                } else if (board[i] === 'O') {
-                                    cellClass += 'bg-gradient-to-br from-red-400 via-red-500 to-red-700 text-white border-red-300 shadow-red-400/50 hover:shadow-red-400/70';
-                                    cell.innerHTML = '<i class="fas fa-circle-notch"></i>';
-                                } else {
-                                    if (myTurn && gameStarted) {
-                                        cellClass += 'bg-gradient-to-br from-white to-gray-100 text-gray-400 border-gray-200 hover:from-purple-50 hover:to-purple-100 hover:border-purple-300 hover:shadow-purple-300/50 hover:scale-105 cursor-pointer';
-                                        cell.innerHTML = '<i class="fas fa-plus opacity-30"></i>';
-                                    } else {
-                                        cellClass += 'bg-gradient-to-br from-gray-50 to-gray-100 text-gray-300 border-gray-200';
-                                        cell.innerHTML = '<i class="fas fa-plus opacity-10"></i>';
-                                    }
-                                }
-                                
-                                // Add winning cell animation
-                                if (winningCombination && winningCombination.includes(i)) {
-                                    cellClass += ' winning-cell';
-                                }
-                                
-                                // Add pulsing effect for current player's turn
-                                if (board[i] === ' ' && myTurn && gameStarted) {
-                                    cellClass += ' pulse-glow';
-                                }
-                                
-                                cell.className = cellClass;
-                                cell.disabled = board[i] !== ' ' || !myTurn || !gameStarted;
-                                
-                                if (!cell.disabled) {
-                                    cell.style.cursor = 'pointer';
-                                    
-                                    // Immediate click feedback
-                                    cell.addEventListener('mousedown', () => {
-                                        if (board[i] === ' ') {
-                                            cell.style.transform = 'scale(0.95)';
-                                        }
-                                    });
-                                    
-                                    cell.addEventListener('mouseup', () => {
-                                        if (board[i] === ' ') {
-                                            cell.style.transform = 'scale(1)';
-                                        }
-                                    });
-                                    
-                                    cell.onmouseenter = () => {
-                                        if (board[i] === ' ' && myTurn && gameStarted) {
-                                            cell.innerHTML = mySymbol === 'X' ? 
-                                                '<i class="fas fa-times text-blue-400 opacity-60"></i>' : 
-                                                '<i class="fas fa-circle-notch text-red-400 opacity-60"></i>';
-                                            cell.style.transform = 'scale(1.05)';
-                                        }
-                                    };
-                                    cell.onmouseleave = () => {
-                                        if (board[i] === ' ') {
-                                            cell.innerHTML = '<i class="fas fa-plus opacity-20"></i>';
-                                            cell.style.transform = 'scale(1)';
-                                        }
-                                    };
-                                } else {
-                                    cell.style.cursor = board[i] !== ' ' ? 'default' : 'not-allowed';
-                                    cell.style.opacity = board[i] !== ' ' ? '1' : '0.6';
-                                }
-                                
-                                // Multiple event handlers for better responsiveness
-                                cell.addEventListener('click', (e) => {
-                                    e.preventDefault();
-                                    makeMove(i);
-                                });
-                                
-                                // Handle touch devices
-                                cell.addEventListener('touchstart', (e) => {
-                                    e.preventDefault();
-                                    if (board[i] === ' ' && myTurn && gameStarted && !isMovePending) {
-                                        makeMove(i);
-                                    }
-                                });
-                                
-                                boardDiv.appendChild(cell);
-                            }
+                        const arenaId = '{{js:arenaId}}';
+                        const playerName = '{{js:playerName}}';
+                        const wsPort = '{{js:wsPort}}';
+                    </script>
+                    <script src="{{asset:js/game.js}}"></script>
+                </body>
+                </html>
+                """);
+        
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                AsyncLog.debug("📥 Game request: " + exchange.getRequestMethod() + " " + exchange.getRequestURI());
+                String query = exchange.getRequestURI().getQuery();
+                Map<String, String> params = parseQuery(query);
+                
+                String arenaId = params.get("arena");
+                String playerName = params.get("player");
+                
+                if (arenaId == null || playerName == null) {
+                    AsyncLog.warn("❌ Missing parameters - arena: " + arenaId + ", player: " + playerName);
+                    exchange.getResponseHeaders().add("Location", "/");
+                    exchange.sendResponseHeaders(302, -1);
+                    return;
+                }
+                if (ClusterRouter.forwardIfRemote(exchange, cluster, arenaId, null)) {
+                    return;
+                }
+                
+                GameArena arena = arenas.get(arenaId);
+                if (arena == null) {
+                    AsyncLog.warn("❌ Arena not found: " + arenaId);
+                    exchange.getResponseHeaders().add("Location", "/");
+                    exchange.sendResponseHeaders(302, -1);
+                    return;
+                }
+                
+                // The page only depends on the template, the arena and the player name
+                String etag = "\"game-" + GAME_PAGE.getHash() + "-" + Integer.toHexString(Objects.hash(arena.id, arena.name, playerName)) + "\"";
+                if (isNotModified(exchange, etag)) {
+                    return;
+                }
+                
+                HtmlTemplate.Encoding encoding = HtmlTemplate.Encoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                sendHtml(exchange, renderGamePage(arena, playerName, encoding), encoding, etag);
+                AsyncLog.debug("✅ Game response sent for arena: " + arenaId + ", player: " + playerName);
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in GameHandler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, 0);
+            }
+        }
+        
+        private byte[] renderGamePage(GameArena arena, String playerName, HtmlTemplate.Encoding encoding) {
+            Map<String, String> values = new HashMap<>();
+            values.put("arenaName", arena.name);
+            values.put("arenaId", arena.id);
+            values.put("playerName", playerName);
+            values.put("wsPort", String.valueOf(webSocketPort));
+            return GAME_PAGE.render(values, encoding);
+        }
+    }
+    
+    /**
+     * Zuschauer-Seite einer Arena; belegt keinen Spielerplatz und bekommt die Züge über /api/spectate
+     */
+    static class SpectateHandler implements HttpHandler {
+        private static final HtmlTemplate SPECTATE_PAGE = HtmlTemplate.compile("""
+                <!DOCTYPE html>
+                <html lang="de">
+                <head>
+                    <meta charset="UTF-8">
+                    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                    <title>👀 Zuschauen - {{arenaName}}</title>
+                    <script src="{{asset:vendor/tailwindcss.js}}"></script>
+                </head>
+                <body class="bg-gradient-to-br from-purple-600 to-blue-600 min-h-screen">
+                    <div class="container mx-auto px-4 py-8 max-w-xl text-center">
+                        <h1 class="text-4xl font-bold text-white mb-2">👀 {{arenaName}}</h1>
+                        <p class="text-white/80 mb-6"><span id="players">Warte auf Spieler...</span></p>
+                        <div id="status" class="mb-6 p-4 rounded-2xl bg-white/90 text-gray-800 font-bold text-lg shadow-lg">Verbinde...</div>
+                        <div id="board" class="grid grid-cols-3 gap-3 bg-white/20 p-4 rounded-2xl mx-auto" style="max-width: 360px"></div>
+                        <p class="text-white/80 mt-6"><span id="spectators">1</span> Zuschauer</p>
+                        <a href="/" class="inline-block mt-6 bg-white/20 hover:bg-white/30 text-white px-6 py-3 rounded-xl">🏠 Zurück zur Lobby</a>
+                    </div>
+                    <script>
+                        const arenaId = '{{js:arenaId}}';
+                    </script>
+                    <script src="{{asset:js/spectate.js}}"></script>
+                </body>
+                </html>
+                """);
+        
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getQuery());
+                String arenaId = params.get("arena");
+                if (ClusterRouter.forwardIfRemote(exchange, cluster, arenaId, null)) {
+                    return;
+                }
+                GameArena arena = arenaId == null ? null : arenas.get(arenaId);
+                if (arena == null) {
+                    exchange.getResponseHeaders().add("Location", "/");
+                    exchange.sendResponseHeaders(302, -1);
+                    return;
+                }
+                
+                String etag = "\"spectate-" + SPECTATE_PAGE.getHash() + "-" + Integer.toHexString(Objects.hash(arena.id, arena.name)) + "\"";
+                if (isNotModified(exchange, etag)) {
+                    return;
+                }
+                Map<String, String> values = new HashMap<>();
+                values.put("arenaName", arena.name);
+                values.put("arenaId", arena.id);
+                HtmlTemplate.Encoding encoding = HtmlTemplate.Encoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                sendHtml(exchange, SPECTATE_PAGE.render(values, encoding), encoding, etag);
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in SpectateHandler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
+            }
+        }
+    }
+    
+    /**
+     * Zuschauer-Stream (text/event-stream) einer Arena, siehe SpectatorHub
+     */
+    static class SpectateStreamHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                String arenaId = parseQuery(exchange.getRequestURI().getQuery()).get("arena");
+                if (ClusterRouter.forwardIfRemote(exchange, cluster, arenaId, null)) {
+                    return;
+                }
+                GameArena arena = arenaId == null ? null : arenas.get(arenaId);
+                if (arena == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                // Returns immediately, the stream is written by the viewer's own writer thread
+                SpectatorHub.subscribe(exchange, arena);
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in SpectateStreamHandler: " + e.getMessage());
+                exchange.close();
+            }
+        }
+    }
+    
+    static class EventsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getQuery());
+                String arenaId = params.get("arena");
+                if (arenaId == null && params.get("lobby") == null) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                if (ClusterRouter.forwardIfRemote(exchange, cluster, arenaId, null)) {
+                    return;
+                }
+                
+                // Returns immediately, the stream stays open and is written by ArenaEventStream's writer threads
+                ArenaEventStream.subscribe(exchange, arenaId);
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in EventsHandler: " + e.getMessage());
+                exchange.close();
+            }
+        }
+    }
+    
+    /**
+     * JSON-Arenaliste für die Lobby
+     *
+     * GET /api/arenas?limit=50&cursor=<nextCursor>&status=open,running,finished&since=<version>&html=1
+     *   since:  nur Arenen, die sich nach dieser Lobby-Version geändert haben; gelöschte oder nicht mehr
+     *           zum Filter passende Arenen stehen in "removed". Ist since zu alt, kommt "full": true.
+     *   cursor: Fortsetzung der vorherigen Seite, solange "nextCursor" nicht null ist
+     *   html:   liefert zusätzlich die gerenderte Lobby-Karte je Arena
+     *   local:  im Cluster-Modus nur die Arenen dieses Knotens; ohne local=1 werden alle Knoten
+     *           zusammengefasst (siehe sendClusterArenas)
+     */
+    static class ArenasHandler implements HttpHandler {
+        private static final int DEFAULT_LIMIT = 50;
+        private static final int MAX_LIMIT = 200;
+        private static final Duration PEER_TIMEOUT = Duration.ofSeconds(2);
+        private static final ExecutorService peerFetcher = Executors.newVirtualThreadPerTaskExecutor();
+        
+        private record ArenaSummary(String id, String name, String status, int players, long version, String html) {
+        }
+        
+        /**
+         * Eine Seite der Arenaliste eines Knotens; nextCursor ist null auf der letzten Seite
+         */
+        private record ArenaPage(long version, boolean full, List<ArenaSummary> arenas, List<String> removed, String nextCursor) {
+        }
+        
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getQuery());
+                Set<String> statuses = parseStatuses(params.get("status"));
+                boolean withHtml = "1".equals(params.get("html"));
+                if (cluster.isEnabled() && !"1".equals(params.get("local"))) {
+                    sendClusterArenas(exchange, params.get("since"), params.get("status"), statuses, withHtml);
+                    return;
+                }
+                
+                int limit = DEFAULT_LIMIT;
+                long cursor = 0;
+                long since = -1;
+                try {
+                    if (params.containsKey("limit")) {
+                        limit = Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(params.get("limit"))));
+                    }
+                    if (params.containsKey("cursor")) {
+                        cursor = Long.parseLong(params.get("cursor"));
+                    }
+                    if (params.containsKey("since")) {
+                        since = Long.parseLong(params.get("since"));
+                    }
+                } catch (NumberFormatException e) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                
+                ArenaPage page = scanLocal(cursor, limit, since, statuses, withHtml);
+                JsonWriter json = JsonWriter.acquire();
+                try {
+                    json.beginObject();
+                    json.name("version").value(page.version());
+                    writePage(json, page.full(), page.arenas(), page.removed(), page.nextCursor());
+                    exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+                    sendJson(exchange, json);
+                } finally {
+                    json.release();
+                }
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in ArenasHandler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
+            }
+        }
+        
+        private ArenaPage scanLocal(long cursor, int limit, long since, Set<String> statuses, boolean withHtml) {
+            // Read before scanning: every change up to this version is already stamped
+            long version = currentLobbyVersion();
+            boolean full = since < 0 || since < tombstoneHorizon;
+            
+            List<ArenaSummary> page = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            long lastSequence = -1;
+            long nextCursor = -1;
+            for (GameArena arena : arenasInOrder.tailMap(cursor, false).values()) {
+                if (!full && arena.lobbyStamp <= since) {
+                    continue;
+                }
+                ArenaState state = arena.getState();
+                String status = lobbyStatus(arena, state);
+                if (statuses != null && !statuses.contains(status)) {
+                    if (!full) {
+                        removed.add(arena.id);
+                    }
+                    continue;
+                }
+                if (page.size() == limit) {
+                    nextCursor = lastSequence;
+                    break;
+                }
+                page.add(new ArenaSummary(arena.id, arena.name, status, state.players().size(), state.version(),
+                        withHtml ? LobbyHandler.renderArenaCard(arena, state) : null));
+                lastSequence = arena.sequence;
+            }
+            
+            if (!full && cursor == 0) {
+                for (Tombstone tombstone : tombstones) {
+                    if (tombstone.lobbyStamp() > since) {
+                        removed.add(tombstone.arenaId());
+                    }
+                }
+            }
+            return new ArenaPage(version, full, page, removed, nextCursor >= 0 ? String.valueOf(nextCursor) : null);
+        }
+        
+        /**
+         * Cluster-Modus: fasst die Arenen aller Knoten in einer Antwort zusammen
+         * Die Version ist dann ein Text mit einer Lobby-Version je Knoten ("12.40.7" in der Reihenfolge von
+         * cluster.nodes); die Seiten der einzelnen Knoten werden hier vollständig abgeholt, nextCursor ist immer null.
+         */
+        private void sendClusterArenas(HttpExchange exchange, String sinceParam, String statusParam,
+                                       Set<String> statuses, boolean withHtml) throws IOException {
+            List<String> nodes = cluster.getNodes();
+            long[] since = parseClusterVersion(sinceParam, nodes.size());
+            
+            List<ArenaPage> pages = fetchAllNodes(nodes, since, statusParam, statuses, withHtml);
+            boolean full = false;
+            for (ArenaPage page : pages) {
+                full |= page != null && page.full();
+            }
+            if (full) {
+                // One node could not answer as delta, so the client rebuilds its grid: the others must send everything too
+                long[] refetch = new long[nodes.size()];
+                Arrays.fill(refetch, Long.MIN_VALUE);
+                for (int i = 0; i < pages.size(); i++) {
+                    if (pages.get(i) != null && !pages.get(i).full()) {
+                        refetch[i] = -1;
+                    }
+                }
+                List<ArenaPage> refetched = fetchAllNodes(nodes, refetch, statusParam, statuses, withHtml);
+                for (int i = 0; i < pages.size(); i++) {
+                    if (refetch[i] != Long.MIN_VALUE) {
+                        pages.set(i, refetched.get(i));
+                    }
+                }
+            }
+            
+            StringBuilder version = new StringBuilder();
+            List<ArenaSummary> arenaList = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                ArenaPage page = pages.get(i);
+                if (version.length() > 0) {
+                    version.append('.');
+                }
+                // An unreachable node keeps its old version (or none after a rebuild), so nothing of it gets lost
+                version.append(page != null ? page.version() : full ? -1 : since[i]);
+                if (page != null) {
+                    arenaList.addAll(page.arenas());
+                    removed.addAll(page.removed());
+                }
+            }
+            
+            JsonWriter json = JsonWriter.acquire();
+            try {
+                json.beginObject();
+                json.name("version").value(version.toString());
+                writePage(json, full, arenaList, removed, null);
+                exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+                sendJson(exchange, json);
+            } finally {
+                json.release();
+            }
+        }
+        
+        /**
+         * Holt die Arenen aller Knoten parallel; Knoten mit since == Long.MIN_VALUE werden übersprungen,
+         * nicht erreichbare Knoten liefern null
+         */
+        private List<ArenaPage> fetchAllNodes(List<String> nodes, long[] since, String statusParam,
+                                              Set<String> statuses, boolean withHtml) {
+            List<CompletableFuture<ArenaPage>> futures = new ArrayList<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                String node = nodes.get(i);
+                long nodeSince = since[i];
+                if (nodeSince == Long.MIN_VALUE) {
+                    futures.add(CompletableFuture.completedFuture(null));
+                } else if (node.equals(cluster.getSelf())) {
+                    futures.add(CompletableFuture.completedFuture(scanAllLocal(nodeSince, statuses, withHtml)));
+                } else {
+                    futures.add(CompletableFuture.supplyAsync(() -> fetchPeer(node, nodeSince, statusParam, withHtml), peerFetcher));
+                }
+            }
+            List<ArenaPage> pages = new ArrayList<>();
+            for (CompletableFuture<ArenaPage> future : futures) {
+                pages.add(future.join());
+            }
+            return pages;
+        }
+        
+        private ArenaPage scanAllLocal(long since, Set<String> statuses, boolean withHtml) {
+            ArenaPage first = scanLocal(0, MAX_LIMIT, since, statuses, withHtml);
+            List<ArenaSummary> arenaList = new ArrayList<>(first.arenas());
+            String cursor = first.nextCursor();
+            while (cursor != null) {
+                ArenaPage next = scanLocal(Long.parseLong(cursor), MAX_LIMIT, since, statuses, withHtml);
+                arenaList.addAll(next.arenas());
+                cursor = next.nextCursor();
+            }
+            return new ArenaPage(first.version(), first.full(), arenaList, first.removed(), null);
+        }
+        
+        private ArenaPage fetchPeer(String node, long since, String statusParam, boolean withHtml) {
+            StringBuilder query = new StringBuilder("/api/arenas?local=1&limit=").append(MAX_LIMIT);
+            if (since >= 0) {
+                query.append("&since=").append(since);
+            }
+            if (statusParam != null && !statusParam.isEmpty()) {
+                query.append("&status=").append(URLEncoder.encode(statusParam, StandardCharsets.UTF_8));
+            }
+            if (withHtml) {
+                query.append("&html=1");
+            }
+            try {
+                ArenaPage first = readPage(ClusterRouter.fetch(node, query.toString(), PEER_TIMEOUT));
+                List<ArenaSummary> arenaList = new ArrayList<>(first.arenas());
+                String cursor = first.nextCursor();
+                while (cursor != null) {
+                    ArenaPage next = readPage(ClusterRouter.fetch(node, query + "&cursor=" + cursor, PEER_TIMEOUT));
+                    arenaList.addAll(next.arenas());
+                    cursor = next.nextCursor();
+                }
+                return new ArenaPage(first.version(), first.full(), arenaList, first.removed(), null);
+            } catch (IOException | RuntimeException e) {
+                AsyncLog.warn("⚠️ Arenen von Knoten " + node + " nicht abrufbar: " + e);
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        
+        private static ArenaPage readPage(byte[] body) {
+            JsonReader reader = new JsonReader(body);
+            long version = 0;
+            boolean full = false;
+            List<ArenaSummary> arenaList = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            String nextCursor = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "version" -> version = reader.nextLong();
+                    case "full" -> full = reader.nextBoolean();
+                    case "arenas" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            arenaList.add(readSummary(reader));
                         }
-                        
-                        let isMovePending = false;
-                        
-                        function makeMove(index) {
-                            if (board[index] === ' ' && myTurn && gameStarted && !isMovePending) {
-                                console.log('🎯 Making move at position:', index);
-                                isMovePending = true;
-                                
-                                // Immediate visual feedback
-                                const cells = document.querySelectorAll('#board button');
-                                const clickedCell = cells[index];
-                                
-                                // Instant visual response
-                                clickedCell.disabled = true;
-                                clickedCell.style.opacity = '0.7';
-                                clickedCell.innerHTML = mySymbol === 'X' ? 
-                                    '<i class="fas fa-times text-blue-500"></i>' : 
-                                    '<i class="fas fa-circle-notch text-red-500"></i>';
-                                clickedCell.style.transform = 'scale(1.1)';
-                                
-                                // Disable all cells temporarily to prevent double clicks
-                                cells.forEach(cell => cell.style.pointerEvents = 'none');
-                                
-                                status.textContent = '⚡ Zug wird gesendet...';
-                                status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-blue-100 to-blue-200 text-blue-800 font-bold text-lg shadow-lg';
-                                
-                                fetch('/api/move', {
-                                    method: 'POST',
-                                    headers: {'Content-Type': 'application/json'},
-                                    body: JSON.stringify({arena: arenaId, player: playerName, position: index})
-                                })
-                                .then(response => response.json())
-                                .then(data => {
-                                    console.log('📊 Move response:', data);
-                                    if (data.success) {
-                                        // Move successful
-                                        board[index] = mySymbol;
-                                        myTurn = false;
-                                        playSound('moveSound');
-                                        
-                                        clickedCell.style.transform = 'scale(1)';
-                                        status.textContent = '✅ Zug erfolgreich! Warte auf Gegner...';
-                                        status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-green-100 to-green-200 text-green-800 font-bold text-lg shadow-lg';
-                                        
-                                        // Immediately poll for updates after a short delay
-                                        setTimeout(pollGameStatus, 200);
-                                    } else {
-                                        // Move failed - revert
-                                        clickedCell.disabled = false;
-                                        clickedCell.style.opacity = '1';
-                                        clickedCell.innerHTML = '<i class="fas fa-plus opacity-20"></i>';
-                                        clickedCell.style.transform = 'scale(1)';
-                                        
-                                        status.textContent = '❌ Ungültiger Zug - versuche einen anderen!';
-                                        status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-red-100 to-red-200 text-red-800 font-bold text-lg shadow-lg';
-                                    }
-                                    
-                                    // Re-enable all cells
-                                    cells.forEach(cell => cell.style.pointerEvents = 'auto');
-                                    drawBoard();
-                                })
-                                .catch(err => {
-                                    console.error('❌ Move error:', err);
-                                    // Network error - revert
-                                    clickedCell.disabled = false;
-                                    clickedCell.style.opacity = '1';
-                                    clickedCell.innerHTML = '<i class="fas fa-plus opacity-20"></i>';
-                                    clickedCell.style.transform = 'scale(1)';
-                                    
-                                    status.textContent = '🌐 Verbindungsfehler - versuche erneut!';
-                                    status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-red-100 to-red-200 text-red-800 font-bold text-lg shadow-lg';
-                                    
-                                    // Re-enable all cells
-                                    cells.forEach(cell => cell.style.pointerEvents = 'auto');
-                                    drawBoard();
-                                })
-                                .finally(() => {
-                                    isMovePending = false;
-                                });
-                            }
+                        reader.endArray();
+                    }
+                    case "removed" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            removed.add(reader.nextString());
                         }
-                        
-                        function updatePlayerStats(winner) {
-                            let stats = JSON.parse(localStorage.getItem('ticTacToeStats') || '{}');
-                            if (!stats[playerName]) {
-                                stats[playerName] = { wins: 0, losses: 0, draws: 0, gamesPlayed: 0 };
-                            }
-                            
-                            stats[playerName].gamesPlayed++;
-                            
-                            if (winner === 'DRAW') {
-                                stats[playerName].draws++;
-                            } else if (winner === mySymbol) {
-                                stats[playerName].wins++;
-                            } else {
-                                stats[playerName].losses++;
-                            }
-                            
-                            localStorage.setItem('ticTacToeStats', JSON.stringify(stats));
+                        reader.endArray();
+                    }
+                    case "nextCursor" -> {
+                        String cursor = reader.nextScalar();
+                        nextCursor = cursor.isEmpty() ? null : cursor;
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new ArenaPage(version, full, arenaList, removed, nextCursor);
+        }
+        
+        private static ArenaSummary readSummary(JsonReader reader) {
+            String id = "", name = "", status = "", html = null;
+            int players = 0;
+            long version = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = reader.nextString();
+                    case "name" -> name = reader.nextString();
+                    case "status" -> status = reader.nextString();
+                    case "players" -> players = reader.nextInt();
+                    case "version" -> version = reader.nextLong();
+                    case "html" -> html = reader.nextString();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new ArenaSummary(id, name, status, players, version, html);
+        }
+        
+        /**
+         * "12.40.7" -> {12, 40, 7}; fehlt die Version oder passt sie nicht zum Cluster, gilt -1 (alles neu)
+         */
+        private static long[] parseClusterVersion(String value, int nodeCount) {
+            long[] versions = new long[nodeCount];
+            Arrays.fill(versions, -1);
+            if (value == null || value.isEmpty()) {
+                return versions;
+            }
+            String[] parts = value.split("\\.");
+            if (parts.length != nodeCount) {
+                return versions;
+            }
+            try {
+                for (int i = 0; i < nodeCount; i++) {
+                    versions[i] = Long.parseLong(parts[i]);
+                }
+            } catch (NumberFormatException e) {
+                Arrays.fill(versions, -1);
+            }
+            return versions;
+        }
+        
+        private static void writePage(JsonWriter json, boolean full, List<ArenaSummary> arenaList, List<String> removed, String nextCursor) {
+            json.name("full").value(full);
+            json.name("arenas").beginArray();
+            for (ArenaSummary arena : arenaList) {
+                json.beginObject();
+                json.name("id").value(arena.id());
+                json.name("name").value(arena.name());
+                json.name("status").value(arena.status());
+                json.name("players").value(arena.players());
+                json.name("version").value(arena.version());
+                if (arena.html() != null) {
+                    json.name("html").value(arena.html());
+                }
+                json.endObject();
+            }
+            json.endArray();
+            json.name("removed").beginArray();
+            for (String arenaId : removed) {
+                json.value(arenaId);
+            }
+            json.endArray();
+            json.name("nextCursor");
+            if (nextCursor != null) {
+                json.value(nextCursor);
+            } else {
+                json.nullValue();
+            }
+            json.endObject();
+        }
+        
+        private Set<String> parseStatuses(String status) {
+            if (status == null || status.isEmpty()) {
+                return null;
+            }
+            Set<String> statuses = new HashSet<>(Arrays.asList(status.split(",")));
+            // arenas being cleaned up are finished games as far as the filter is concerned
+            if (statuses.contains("finished")) {
+                statuses.add("cleaning");
+            }
+            return statuses;
+        }
+    }
+    
+    /**
+     * Replay-Archiv beendeter Spiele (nur die dieses Knotens)
+     *
+     * GET /api/replays?player=<Name>&from=2026-10-01&to=2026-10-18&before=<nextBefore>&limit=50
+     *   Liste neueste zuerst; from/to als Datum (yyyy-MM-dd, inklusive) oder Epoch-Millisekunden
+     * GET /api/replays/<id>
+     *   das ganze Spiel mit jedem Zug und dem Brett danach
+     * GET /api/replays/<id>?format=bin
+     *   der gespeicherte Datensatz (siehe ReplayStore), z.B. für eigene Player
+     */
+    static class ReplaysHandler implements HttpHandler {
+        private static final int DEFAULT_LIMIT = 50;
+        private static final int MAX_LIMIT = 200;
+        
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                if (replays == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getQuery());
+                String path = exchange.getRequestURI().getPath();
+                String rest = path.length() > "/api/replays".length() ? path.substring("/api/replays/".length()) : "";
+                if (rest.isEmpty()) {
+                    sendList(exchange, params);
+                    return;
+                }
+                
+                long id;
+                try {
+                    id = Long.parseLong(rest);
+                } catch (NumberFormatException e) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                if ("bin".equals(params.get("format"))) {
+                    byte[] record = replays.read(id);
+                    if (record == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    // replays never change once written
+                    exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+                    exchange.getResponseHeaders().add("Cache-Control", "public, max-age=31536000, immutable");
+                    exchange.sendResponseHeaders(200, record.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(record);
+                    }
+                    return;
+                }
+                
+                ReplayStore.Replay replay = replays.get(id);
+                if (replay == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                JsonWriter json = JsonWriter.acquire();
+                try {
+                    writeReplay(json, replay, true);
+                    exchange.getResponseHeaders().add("Cache-Control", "public, max-age=31536000, immutable");
+                    sendJson(exchange, json);
+                } finally {
+                    json.release();
+                }
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in ReplaysHandler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
+            }
+        }
+        
+        private void sendList(HttpExchange exchange, Map<String, String> params) throws IOException {
+            int limit = DEFAULT_LIMIT;
+            long from = 0;
+            long to = Long.MAX_VALUE;
+            long before = Long.MAX_VALUE;
+            try {
+                if (params.containsKey("limit")) {
+                    limit = Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(params.get("limit"))));
+                }
+                if (params.containsKey("from")) {
+                    from = parseTime(params.get("from"), false);
+                }
+                if (params.containsKey("to")) {
+                    to = parseTime(params.get("to"), true);
+                }
+                if (params.containsKey("before")) {
+                    before = Long.parseLong(params.get("before"));
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            
+            long[] ids = replays.find(params.get("player"), from, to, before, limit);
+            JsonWriter json = JsonWriter.acquire();
+            try {
+                json.beginObject();
+                json.name("replays").beginArray();
+                for (long id : ids) {
+                    ReplayStore.Replay replay = replays.get(id);
+                    if (replay != null) {
+                        writeReplay(json, replay, false);
+                    }
+                }
+                json.endArray();
+                json.name("nextBefore");
+                if (ids.length == limit) {
+                    json.value(ids[ids.length - 1]);
+                } else {
+                    json.nullValue();
+                }
+                json.endObject();
+                exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+                sendJson(exchange, json);
+            } finally {
+                json.release();
+            }
+        }
+        
+        /**
+         * Datum (Tagesanfang bzw. -ende in der Server-Zeitzone) oder Epoch-Millisekunden
+         */
+        private long parseTime(String value, boolean endOfDay) {
+            if (value.chars().allMatch(Character::isDigit)) {
+                return Long.parseLong(value);
+            }
+            LocalDate date = LocalDate.parse(value);
+            ZonedDateTime start = (endOfDay ? date.plusDays(1) : date).atStartOfDay(ZoneId.systemDefault());
+            return start.toInstant().toEpochMilli() - (endOfDay ? 1 : 0);
+        }
+        
+        private void writeReplay(JsonWriter json, ReplayStore.Replay replay, boolean withMoves) {
+            json.beginObject();
+            json.name("id").value(replay.id());
+            json.name("source").value(replay.source());
+            json.name("players").beginArray().value(replay.playerX()).value(replay.playerO()).endArray();
+            json.name("startedAt").value(replay.startedAt());
+            json.name("endedAt").value(replay.endedAt());
+            json.name("winner");
+            if (replay.winner() == ' ') {
+                json.value("DRAW");
+            } else {
+                json.value(replay.winner());
+            }
+            json.name("moveCount").value(replay.moveCount());
+            if (withMoves) {
+                char[] board = "         ".toCharArray();
+                json.name("moves").beginArray();
+                for (int i = 0; i < replay.moveCount(); i++) {
+                    int position = replay.moveAt(i);
+                    char symbol = i % 2 == 0 ? 'X' : 'O';
+                    board[position] = symbol;
+                    json.beginObject();
+                    json.name("position").value(position);
+                    json.name("symbol").value(symbol);
+                    json.name("board").value(new String(board));
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            json.endObject();
+        }
+    }
+    
+    /**
+     * Elo-Rangliste (nur die Spiele dieses Knotens, siehe EloRatings)
+     *
+     * GET /api/leaderboard?limit=50&after=<nextAfter>
+     *   Plätze ab dem Anfang oder hinter dem Cursor; die erste Seite wird pro Version gecacht
+     * GET /api/leaderboard?player=<Name>
+     *   Wertung und Rang eines Spielers
+     */
+    static class LeaderboardHandler implements HttpHandler {
+        private static final int DEFAULT_LIMIT = 50;
+        private static final int MAX_LIMIT = 500;
+        // First pages of the last ratings version, by limit
+        private static final AtomicReference<CachedPages> cachedPages = new AtomicReference<>();
+        
+        private record CachedPages(long version, Map<Integer, byte[]> bodies) {
+        }
+        
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                
+                long version = ratings.getVersion();
+                String etag = "\"leaderboard-" + version + "\"";
+                if (isNotModified(exchange, etag)) {
+                    return;
+                }
+                
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getQuery());
+                byte[] body;
+                try {
+                    if (params.containsKey("player")) {
+                        EloRatings.Standing standing = ratings.get(params.get("player"));
+                        if (standing == null) {
+                            exchange.sendResponseHeaders(404, -1);
+                            return;
                         }
-                        
-                        async function resetGame() {
-                            const result = await Swal.fire({
-                                title: '🔄 Spiel neu starten',
-                                text: 'Möchtest du das Spiel wirklich neu starten?',
-                                icon: 'question',
-                                showCancelButton: true,
-                                confirmButtonText: '✅ Ja, neu starten!',
-                                cancelButtonText: '❌ Abbrechen',
-                                background: '#1a1a2e',
-                                color: '#fff',
-                                confirmButtonColor: '#10b981',
-                                cancelButtonColor: '#6b7280'
-                            });
-                            
-                            if (result.isConfirmed) {
-                                // Stop timer and reset all game state
-                                stopGameTimer();
-                                
-                                // Show loading animation
-                                Swal.fire({
-                                    title: '🔄 Wird neu gestartet...',
-                                    text: 'Das Spiel wird neu geladen.',
-                                    icon: 'info',
-                                    background: '#1a1a2e',
-                                    color: '#fff',
-                                    showConfirmButton: false,
-                                    allowOutsideClick: false,
-                                    timer: 1500,
-                                    timerProgressBar: true
-                                }).then(() => {
-                                    location.reload();
-                                });
-                            }
+                        body = renderPlayer(standing);
+                    } else {
+                        int limit = DEFAULT_LIMIT;
+                        if (params.containsKey("limit")) {
+                            limit = Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(params.get("limit"))));
                         }
-                        
-                        // Initialize page with welcome animation
-                        document.addEventListener('DOMContentLoaded', function() {
-                            // Fade in animation for the whole page
-                            document.body.style.opacity = '0';
-                            document.body.style.transition = 'opacity 0.5s ease-in-out';
-                            setTimeout(() => {
-                                document.body.style.opacity = '1';
-                            }, 100);
-                        });
-                        
-                        // Start the game
-                        console.log('🎮 Starting game initialization...');
-                        joinGame();
-                    </script>
-                </body>
-                </html>
-                """;
+                        String after = params.get("after");
+                        body = after != null ? renderPage(after, limit) : getFirstPage(version, limit);
+                    }
+                } catch (IllegalArgumentException e) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                
+                exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+                exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in LeaderboardHandler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
+            }
+        }
+        
+        private byte[] getFirstPage(long version, int limit) {
+            CachedPages cached = cachedPages.get();
+            if (cached == null || cached.version() != version) {
+                cached = new CachedPages(version, new ConcurrentHashMap<>());
+                cachedPages.set(cached);
+            }
+            return cached.bodies().computeIfAbsent(limit, l -> renderPage(null, l));
+        }
+        
+        private byte[] renderPage(String after, int limit) {
+            List<EloRatings.Standing> page = ratings.page(after, limit);
+            JsonWriter json = JsonWriter.acquire();
+            try {
+                json.beginObject();
+                json.name("players").value(ratings.size());
+                json.name("leaderboard").beginArray();
+                for (EloRatings.Standing standing : page) {
+                    writeStanding(json, standing);
+                }
+                json.endArray();
+                json.name("nextAfter");
+                if (page.size() == limit) {
+                    json.value(EloRatings.cursor(page.get(page.size() - 1)));
+                } else {
+                    json.nullValue();
+                }
+                json.endObject();
+                return json.toByteArray();
+            } finally {
+                json.release();
+            }
+        }
+        
+        private byte[] renderPlayer(EloRatings.Standing standing) {
+            JsonWriter json = JsonWriter.acquire();
+            try {
+                writeStanding(json, standing);
+                return json.toByteArray();
+            } finally {
+                json.release();
+            }
+        }
+        
+        private void writeStanding(JsonWriter json, EloRatings.Standing standing) {
+            EloRatings.Rating rating = standing.rating();
+            json.beginObject();
+            json.name("rank").value(standing.rank());
+            json.name("name").value(rating.name());
+            json.name("rating").value(rating.points());
+            json.name("games").value(rating.games());
+            json.name("wins").value(rating.wins());
+            json.name("draws").value(rating.draws());
+            json.name("losses").value(rating.losses());
+            json.endObject();
+        }
+    }
+    
+    /**
+     * Prometheus-Endpunkt: Request-Zähler und Latenzen je Handler, Spiele, Arenen, Spieler, Executor
+     */
+    static class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            StringBuilder out = new StringBuilder(4096);
+            ServerMetrics.writeTo(out);
+            
+            int activePlayers = 0;
+            for (GameArena arena : arenas.values()) {
+                activePlayers += arena.getPlayerCount();
+            }
+            ServerMetrics.gauge(out, "tictactoe_arenas_active", "Arenas that currently exist.", arenas.size());
+            ServerMetrics.gauge(out, "tictactoe_players_active", "Players currently seated in an arena.", activePlayers);
+            ServerMetrics.gauge(out, "tictactoe_sse_streams_open", "Open Server-Sent Events streams.", ArenaEventStream.getOpenStreams());
+            ServerMetrics.counter(out, "tictactoe_sse_streams_dropped_total", "Event streams closed because the client fell behind.", ArenaEventStream.getDroppedStreams());
+            ServerMetrics.gauge(out, "tictactoe_spectators_open", "Open spectator streams.", SpectatorHub.getSpectators());
+            ServerMetrics.counter(out, "tictactoe_spectator_frames_sent_total", "State frames written to spectators.", SpectatorHub.getFramesSent());
+            ServerMetrics.counter(out, "tictactoe_spectator_frames_coalesced_total", "Intermediate states skipped for slow spectators.", SpectatorHub.getFramesCoalesced());
+            ServerMetrics.counter(out, "tictactoe_spectators_evicted_total", "Spectator streams closed because the viewer stopped reading.", SpectatorHub.getViewersEvicted());
+            ServerMetrics.gauge(out, "tictactoe_long_polls_parked", "Parked /api/status long-poll requests.", StatusLongPoll.getParkedRequests());
+            ServerMetrics.gauge(out, "tictactoe_executor_queue_depth", "Tasks waiting in the HTTP executor queue.", executor.getQueueDepth());
+            ServerMetrics.gauge(out, "tictactoe_executor_active_threads", "HTTP handlers currently running.", executor.getActiveCount());
+            ServerMetrics.gauge(out, "tictactoe_player_sessions", "Issued player session tokens.", PlayerSessions.getActiveSessions());
+            ServerMetrics.gauge(out, "tictactoe_matchmaking_waiting", "Players waiting for a matchmaking opponent.", Matchmaker.getWaitingPlayers());
+            ServerMetrics.counter(out, "tictactoe_matchmaking_matches_total", "Matches made by the matchmaker.", Matchmaker.getMatches());
+            ServerMetrics.gauge(out, "tictactoe_tournaments_running", "Tournaments that have not finished yet.", Tournaments.getRunningTournaments());
+            ServerMetrics.gauge(out, "tictactoe_tournament_games_playing", "Tournament games currently being played.", Tournaments.getPlayingGames());
+            ServerMetrics.counter(out, "tictactoe_tournament_games_total", "Finished tournament games, forfeits included.", Tournaments.getGamesPlayed());
+            ServerMetrics.counter(out, "tictactoe_tournament_forfeits_total", "Tournament games lost on time.", Tournaments.getForfeits());
+            ServerMetrics.gauge(out, "tictactoe_tournament_long_polls_parked", "Parked bracket and match long-poll requests.", Tournaments.getParkedRequests());
+            if (journal != null) {
+                ServerMetrics.counter(out, "tictactoe_journal_records_total", "Arena changes written to the journal.", journal.getRecords());
+            }
+            ServerMetrics.gauge(out, "tictactoe_rated_players", "Players with an Elo rating.", ratings.size());
+            if (replays != null) {
+                ServerMetrics.gauge(out, "tictactoe_replays_stored", "Finished games in the replay archive.", replays.size());
+            }
+            rateLimiter.writeTo(out);
+            ServerMetrics.counter(out, "tictactoe_log_dropped_lines_total", "Log lines dropped because the log buffer was full.", AsyncLog.getDropped());
             
-            // Replace placeholders in order:
-            // 1. Title arena name, 2. Display arena name, 3. Display player name, 
-            // 4. Current player name, 5. JS arena ID, 6. JS player name
-            String result = html;
-            result = result.replaceFirst("%s", arena.name);      // Title
-            result = result.replaceFirst("%s", arena.name);      // Display arena
-            result = result.replaceFirst("%s", playerName);      // Display player  
-            result = result.replaceFirst("%s", playerName);      // Current player name
-            result = result.replaceFirst("%s", arena.id);        // JS arena ID
-            result = result.replaceFirst("%s", playerName);      // JS player name
-            return result;
+            byte[] responseBytes = out.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=UTF-8");
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, responseBytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(responseBytes);
+            }
+        }
+    }
+    
+    static class ExecutorStatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            byte[] responseBytes = executor.statsJson().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, responseBytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(responseBytes);
+            }
+        }
+    }
+    
+    /**
+     * Beitritt zu einer Arena oder Wiederaufnahme mit Token; schreibt das Antwort-Objekt von /api/join
+     * @return true, wenn der Spieler einen Platz (und ein Token) hat
+     */
+    static boolean join(JsonWriter response, String arenaId, String playerName, String token) {
+        boolean success = false;
+        response.beginObject();
+        GameArena arena = arenas.get(arenaId);
+        if (arena != null) {
+            PlayerSessions.Session session = PlayerSessions.resolve(token);
+            if (session != null && session.arena() == arena) {
+                // reload of the game page, the stored token still holds the seat
+                AsyncLog.debug("🔁 Player " + session.occupant() + " rejoined arena " + arenaId);
+            } else if (!playerName.isEmpty()) {
+                // check and add happen in one atomic step inside the arena
+                ArenaState joined = arena.join(playerName);
+                // a seat that is already taken is never handed out by name, only with its token
+                session = joined == null ? null : PlayerSessions.issue(arena, joined, joined.players().size() - 1);
+            }
+            
+            if (session != null) {
+                ArenaState current = arena.getState();
+                success = true;
+                response.name("success").value(true);
+                response.name("symbol").value(session.symbol());
+                response.name("token").value(session.token());
+                response.name("gameStarted").value(current.players().size() == 2);
+                AsyncLog.info("✅ Player " + session.occupant() + " joined arena " + arenaId + " as " + session.symbol());
+            } else {
+                response.name("success").value(false);
+                response.name("message").value("Arena ist voll oder Spieler bereits vorhanden");
+                AsyncLog.warn("❌ Failed to add player " + playerName + " to arena " + arenaId + " (full or duplicate)");
+            }
+        } else {
+            response.name("success").value(false);
+            response.name("message").value("Arena nicht gefunden");
+            AsyncLog.warn("❌ Arena not found for join: " + arenaId);
+        }
+        response.endObject();
+        return success;
+    }
+    
+    static class JoinHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                AsyncLog.debug("📥 Join request: " + exchange.getRequestMethod() + " " + exchange.getRequestURI());
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                if (AsyncLog.isDebugEnabled()) {
+                    AsyncLog.debug("Join request body: " + new String(body, StandardCharsets.UTF_8));
+                }
+                String[] fields;
+                try {
+                    fields = JsonReader.readFields(body, "arena", "player", "token");
+                } catch (IllegalArgumentException e) {
+                    AsyncLog.debug("Invalid join request: " + e.getMessage());
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                String arenaId = fields[0];
+                String playerName = fields[1];
+                if (ClusterRouter.forwardIfRemote(exchange, cluster, arenaId, body)) {
+                    return;
+                }
+                
+                JsonWriter response = JsonWriter.acquire();
+                try {
+                    join(response, arenaId, playerName, fields[2]);
+                    sendJson(exchange, response);
+                    AsyncLog.debug("✅ Join response sent for arena: " + arenaId);
+                } finally {
+                    response.release();
+                }
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in JoinHandler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, 0);
+            }
         }
     }
     
-    static class JoinHandler implements HttpHandler {
+    /**
+     * Automatisches Matchmaking statt Arena-Auswahl in der Lobby
+     *
+     * POST /api/matchmake {"player": "...", "skill": 1200, "timeout": 20000}
+     *   antwortet, sobald ein Gegner gefunden ist: {"matched": true, "arena", "symbol", "opponent"};
+     *   beide Spieler sitzen dann schon in der Arena. Nach der Wartezeit: {"matched": false, "reason": "timeout"}
+     * POST /api/matchmake {"player": "...", "action": "cancel"}
+     *   beendet ein laufendes Warten (das wartende Request bekommt reason "cancelled")
+     */
+    static class MatchmakeHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             try {
-                System.out.println("📥 Join request: " + exchange.getRequestMethod() + " " + exchange.getRequestURI());
                 if (!"POST".equals(exchange.getRequestMethod())) {
                     exchange.sendResponseHeaders(405, -1);
                     return;
                 }
                 
-                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-                System.out.println("Join request body: " + body);
-                // Parse JSON manually (simple approach)
-                String arenaId = extractJson(body, "arena");
-                String playerName = extractJson(body, "player");
+                String[] fields;
+                try {
+                    fields = JsonReader.readFields(exchange.getRequestBody().readAllBytes(), "player", "skill", "timeout", "action");
+                } catch (IllegalArgumentException e) {
+                    AsyncLog.debug("Invalid matchmake request: " + e.getMessage());
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                String playerName = fields[0];
+                if (playerName.isEmpty()) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                
+                if ("cancel".equals(fields[3])) {
+                    JsonWriter response = JsonWriter.acquire();
+                    try {
+                        response.beginObject();
+                        response.name("success").value(Matchmaker.cancel(playerName));
+                        response.endObject();
+                        sendJson(exchange, response);
+                    } finally {
+                        response.release();
+                    }
+                    return;
+                }
                 
-                Map<String, Object> response = new HashMap<>();
+                Integer skill = null;
+                if (!fields[1].isEmpty()) {
+                    try {
+                        skill = (int) Double.parseDouble(fields[1]);
+                    } catch (NumberFormatException e) {
+                        exchange.sendResponseHeaders(400, -1);
+                        return;
+                    }
+                }
+                // Returns right away; the exchange is answered when an opponent arrives or the wait ends
+                Matchmaker.enqueue(exchange, playerName, skill, fields[2].isEmpty() ? null : fields[2]);
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in MatchmakeHandler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
+            }
+        }
+    }
+    
+    /**
+     * /api/tournaments
+     *   POST                          legt ein Turnier an und startet es ({"name","format","players":[...]})
+     *   GET                           alle Turniere dieses Knotens
+     *   GET /{id}[?since=&timeout=]   Spielplan mit ETag, mit since als Long-Poll
+     *   GET /{id}/match?key=[&since=] aktuelles Match eines Teilnehmers mit Arena und Token
+     */
+    static class TournamentHandler implements HttpHandler {
+        private static final String PREFIX = "/api/tournaments";
+        
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String path = exchange.getRequestURI().getPath();
+                String rest = path.length() > PREFIX.length() + 1 ? path.substring(PREFIX.length() + 1) : "";
+                String method = exchange.getRequestMethod();
                 
-                GameArena arena = arenas.get(arenaId);
-                if (arena != null) {
-                    Set<String> players = arenaPlayers.get(arenaId);
-                    if (players.size() < 2 && !players.contains(playerName)) {
-                        players.add(playerName);
-                        arena.addPlayer(playerName);
-                        
-                        response.put("success", true);
-                        response.put("symbol", players.size() == 1 ? "X" : "O");
-                        response.put("gameStarted", players.size() == 2);
-                        System.out.println("✅ Player " + playerName + " joined arena " + arenaId + " as " + (players.size() == 1 ? "X" : "O"));
+                if (rest.isEmpty()) {
+                    if ("POST".equals(method)) {
+                        create(exchange);
+                    } else if ("GET".equals(method)) {
+                        list(exchange);
                     } else {
-                        response.put("success", false);
-                        response.put("message", "Arena ist voll oder Spieler bereits vorhanden");
-                        System.err.println("❌ Failed to add player " + playerName + " to arena " + arenaId + " (full or duplicate)");
+                        exchange.sendResponseHeaders(405, -1);
                     }
-                } else {
-                    response.put("success", false);
-                    response.put("message", "Arena nicht gefunden");
-                    System.err.println("❌ Arena not found for join: " + arenaId);
+                    return;
+                }
+                if (!"GET".equals(method)) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
                 }
                 
-                String jsonResponse = mapToJson(response);
-                exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
-                exchange.sendResponseHeaders(200, jsonResponse.getBytes(StandardCharsets.UTF_8).length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(jsonResponse.getBytes(StandardCharsets.UTF_8));
+                int slash = rest.indexOf('/');
+                Tournaments.Tournament tournament = Tournaments.get(slash < 0 ? rest : rest.substring(0, slash));
+                if (tournament == null || (slash >= 0 && !rest.substring(slash + 1).equals("match"))) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getQuery());
+                Tournaments.Participant participant = null;
+                if (slash >= 0) {
+                    participant = Tournaments.participant(tournament, params.get("key"));
+                    if (participant == null) {
+                        exchange.sendResponseHeaders(403, -1);
+                        return;
+                    }
+                }
+                
+                String sinceParam = params.get("since");
+                if (sinceParam != null) {
+                    long sinceVersion;
+                    try {
+                        sinceVersion = Long.parseLong(sinceParam);
+                    } catch (NumberFormatException e) {
+                        exchange.sendResponseHeaders(400, -1);
+                        return;
+                    }
+                    // Returns right away; the exchange is answered on the next change or after the timeout
+                    Tournaments.park(exchange, tournament, participant, sinceVersion, params.get("timeout"));
+                } else if (participant != null) {
+                    Tournaments.sendAssignment(exchange, participant);
+                } else if (!isNotModified(exchange, tournament.etag())) {
+                    Tournaments.sendBracket(exchange, tournament);
                 }
-                System.out.println("✅ Join response sent: " + jsonResponse);
             } catch (Exception e) {
-                System.err.println("❌ Error in JoinHandler: " + e.getMessage());
-                e.printStackTrace();
-                exchange.sendResponseHeaders(500, 0);
+                AsyncLog.error("❌ Error in TournamentHandler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
+            }
+        }
+        
+        private static void create(HttpExchange exchange) throws IOException {
+            String name = "";
+            String format = "single";
+            List<String> players = new ArrayList<>();
+            try {
+                JsonReader reader = new JsonReader(exchange.getRequestBody().readAllBytes());
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "name" -> name = reader.nextScalar();
+                        case "format" -> format = reader.nextScalar();
+                        case "players" -> {
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                players.add(reader.nextScalar());
+                            }
+                            reader.endArray();
+                        }
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } catch (IllegalArgumentException e) {
+                AsyncLog.debug("Invalid tournament request: " + e.getMessage());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            
+            JsonWriter response = JsonWriter.acquire();
+            try {
+                response.beginObject();
+                Tournaments.Format parsedFormat = Tournaments.Format.parse(format);
+                if (name.isEmpty() || parsedFormat == null) {
+                    response.name("success").value(false);
+                    response.name("message").value("Name und Format (single oder roundrobin) sind erforderlich");
+                } else {
+                    try {
+                        Tournaments.Tournament tournament = Tournaments.create(name, parsedFormat, players);
+                        response.name("success").value(true);
+                        response.name("id").value(tournament.id);
+                        response.name("version").value(tournament.version);
+                        // the keys are only handed out here, the bracket shows names only
+                        response.name("keys").beginObject();
+                        for (Tournaments.Participant participant : tournament.participants) {
+                            response.name(participant.name).value(participant.key);
+                        }
+                        response.endObject();
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        response.name("success").value(false);
+                        response.name("message").value(e.getMessage());
+                    }
+                }
+                response.endObject();
+                sendJson(exchange, response);
+            } finally {
+                response.release();
+            }
+        }
+        
+        private static void list(HttpExchange exchange) throws IOException {
+            JsonWriter response = JsonWriter.acquire();
+            try {
+                response.beginObject();
+                response.name("tournaments").beginArray();
+                for (Tournaments.Tournament tournament : Tournaments.getAll()) {
+                    response.beginObject();
+                    response.name("id").value(tournament.id);
+                    response.name("name").value(tournament.name);
+                    response.name("format").value(tournament.format.id);
+                    response.name("status").value(tournament.done ? "finished" : "running");
+                    response.name("players").value(tournament.participants.size());
+                    response.name("matches").value(tournament.matches.size());
+                    response.name("matchesFinished").value(tournament.finishedMatches);
+                    response.name("version").value(tournament.version);
+                    response.endObject();
+                }
+                response.endArray();
+                response.endObject();
+                exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+                sendJson(exchange, response);
+            } finally {
+                response.release();
+            }
+        }
+    }
+    
+    /**
+     * Zug mit Sitzungs-Token; schreibt das Antwort-Objekt von /api/move
+     * @return true, wenn der Zug ausgeführt wurde
+     */
+    static boolean move(JsonWriter response, String arenaId, String token, String positionStr) {
+        boolean success = false;
+        response.beginObject();
+        if (arenaId.isEmpty() || token.isEmpty() || positionStr.isEmpty()) {
+            response.name("success").value(false);
+            response.name("message").value("Missing required fields");
+        } else {
+            GameArena arena = arenas.get(arenaId);
+            PlayerSessions.Session session = PlayerSessions.resolve(token);
+            if (arena != null && (session == null || session.arena() != arena)) {
+                response.name("success").value(false);
+                response.name("message").value("Invalid session");
+            } else if (arena != null) {
+                success = arena.makeMove(parsePosition(positionStr), session);
+                response.name("success").value(success);
+                if (!success) {
+                    response.name("message").value("Invalid move");
+                }
+            } else {
+                response.name("success").value(false);
+                response.name("message").value("Arena not found");
             }
         }
+        response.endObject();
+        return success;
+    }
+    
+    private static int parsePosition(String position) {
+        try {
+            return Integer.parseInt(position);
+        } catch (NumberFormatException e) {
+            // rejected by withMove like any other field outside the board
+            return -1;
+        }
     }
     
     static class MoveHandler implements HttpHandler {
@@ -1497,42 +2063,39 @@ public class SimpleMultiplayerServer {
             }
             
             try {
-                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-                System.out.println("Move request body: " + body); // Debug log
-                
-                String arenaId = extractJson(body, "arena");
-                String playerName = extractJson(body, "player");
-                String positionStr = extractJson(body, "position");
-                
-                Map<String, Object> response = new HashMap<>();
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                if (AsyncLog.isDebugEnabled()) {
+                    AsyncLog.debug("Move request body: " + new String(body, StandardCharsets.UTF_8));
+                }
                 
-                if (arenaId.isEmpty() || playerName.isEmpty() || positionStr.isEmpty()) {
-                    response.put("success", false);
-                    response.put("message", "Missing required fields");
-                } else {
-                    int position = Integer.parseInt(positionStr);
-                    GameArena arena = arenas.get(arenaId);
-                    if (arena != null) {
-                        boolean success = arena.makeMove(position, playerName);
-                        response.put("success", success);
-                        if (!success) {
-                            response.put("message", "Invalid move");
-                        }
-                    } else {
-                        response.put("success", false);
-                        response.put("message", "Arena not found");
-                    }
+                String[] fields;
+                try {
+                    fields = JsonReader.readFields(body, "arena", "token", "position");
+                } catch (IllegalArgumentException e) {
+                    AsyncLog.debug("Invalid move request: " + e.getMessage());
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                String arenaId = fields[0];
+                String token = fields[1];
+                String positionStr = fields[2];
+                if (ClusterRouter.forwardIfRemote(exchange, cluster, arenaId, body)) {
+                    return;
+                }
+                // per player, so players behind one shared address do not throttle each other
+                if (!rateLimiter.allowSession(exchange, token)) {
+                    return;
                 }
                 
-                String jsonResponse = mapToJson(response);
-                exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
-                exchange.sendResponseHeaders(200, jsonResponse.getBytes(StandardCharsets.UTF_8).length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(jsonResponse.getBytes(StandardCharsets.UTF_8));
+                JsonWriter response = JsonWriter.acquire();
+                try {
+                    move(response, arenaId, token, positionStr);
+                    sendJson(exchange, response);
+                } finally {
+                    response.release();
                 }
             } catch (Exception e) {
-                System.err.println("❌ Error in MoveHandler: " + e.getMessage());
-                e.printStackTrace();
+                AsyncLog.error("❌ Error in MoveHandler: " + e.getMessage(), e);
                 exchange.sendResponseHeaders(500, -1);
             }
         }
@@ -1545,225 +2108,476 @@ public class SimpleMultiplayerServer {
                 String query = exchange.getRequestURI().getQuery();
                 Map<String, String> params = parseQuery(query);
                 String arenaId = params.get("arena");
-                
-                Map<String, Object> response = new HashMap<>();
+                if (ClusterRouter.forwardIfRemote(exchange, cluster, arenaId, null)) {
+                    return;
+                }
                 
                 GameArena arena = arenas.get(arenaId);
-                if (arena != null) {
-                    Set<String> players = arenaPlayers.get(arenaId);
-                    response.put("board", new String(arena.getBoard()));
-                    response.put("gameStarted", players.size() == 2);
-                    response.put("currentPlayer", String.valueOf(arena.getCurrentPlayer()));
-                    response.put("winner", arena.getWinner() == ' ' ? null : String.valueOf(arena.getWinner()));
-                    response.put("players", players.toArray(new String[0])); // Add player list
-                    if (arena.isDraw()) {
-                        response.put("winner", "DRAW");
-                    }
-                    
-                    // Auto-cleanup/reset arenas after game ends
-                    boolean isGameEnded = arena.getWinner() != ' ' || arena.isDraw();
-                    boolean isDefaultArena = arenaId.equals("Arena-1") || arenaId.equals("Arena-2") || arenaId.equals("Arena-3");
-                    
-                    if (isGameEnded && !arenasBeingDeleted.contains(arenaId)) {
-                        arenasBeingDeleted.add(arenaId);
-                        
-                        if (isDefaultArena) {
-                            // Reset default arenas (Arena-1, Arena-2, Arena-3) after game ends
-                            new Thread(() -> {
-                                try {
-                                    Thread.sleep(10000); // Wait 10 seconds
-                                    arena.reset();
-                                    Set<String> arenaPlayersList = arenaPlayers.get(arenaId);
-                                    if (arenaPlayersList != null) {
-                                        arenaPlayersList.clear();
-                                    }
-                                    arenasBeingDeleted.remove(arenaId);
-                                    System.out.println("🔄 Default arena auto-reset after game end: " + arenaId);
-                                } catch (InterruptedException e) {
-                                    Thread.currentThread().interrupt();
-                                    arenasBeingDeleted.remove(arenaId);
-                                }
-                            }).start();
-                        } else {
-                            // Delete custom arenas after game ends
-                            new Thread(() -> {
-                                try {
-                                    Thread.sleep(10000); // Wait 10 seconds
-                                    arenas.remove(arenaId);
-                                    arenaPlayers.remove(arenaId);
-                                    arenasBeingDeleted.remove(arenaId);
-                                    System.out.println("🧹 Custom arena auto-deleted after game end: " + arenaId);
-                                } catch (InterruptedException e) {
-                                    Thread.currentThread().interrupt();
-                                    arenasBeingDeleted.remove(arenaId);
-                                }
-                            }).start();
-                        }
+                if (arena == null) {
+                    AsyncLog.warn("❌ Arena not found for status check: " + arenaId);
+                    byte[] empty = "{}".getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+                    exchange.sendResponseHeaders(200, empty.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(empty);
                     }
-                } else {
-                    System.err.println("❌ Arena not found for status check: " + arenaId);
+                    return;
                 }
                 
-                String jsonResponse = mapToJson(response);
-                exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
-                exchange.sendResponseHeaders(200, jsonResponse.getBytes(StandardCharsets.UTF_8).length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(jsonResponse.getBytes(StandardCharsets.UTF_8));
+                // Long-poll mode: ?since=<version> parks until the arena changes or the timeout expires
+                String since = params.get("since");
+                if (since != null) {
+                    long sinceVersion;
+                    try {
+                        sinceVersion = Long.parseLong(since);
+                    } catch (NumberFormatException e) {
+                        exchange.sendResponseHeaders(400, -1);
+                        return;
+                    }
+                    if (arena.getVersion() <= sinceVersion) {
+                        StatusLongPoll.park(exchange, arena, sinceVersion, params.get("timeout"));
+                        return;
+                    }
                 }
+                
+                sendStatus(exchange, arena);
             } catch (Exception e) {
-                System.err.println("❌ Error in StatusHandler: " + e.getMessage());
-                e.printStackTrace();
-                exchange.sendResponseHeaders(500, 0);
+                AsyncLog.error("❌ Error in StatusHandler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
             }
         }
+    }
+    
+    /**
+     * Mehrere Operationen in einem Request, für Bots und Turnier-Skripte
+     *
+     * POST /api/batch [{"op": "join", "arena": "...", "player": "...", "token": "..."},
+     *                  {"op": "move", "arena": "...", "token": "...", "position": 4},
+     *                  {"op": "status", "arena": "..."}, ...]
+     *   antwortet mit {"results": [...], "failed": n}; results[i] gehört zu Operation i und hat dieselbe
+     *   Form wie die Antwort von /api/join, /api/move bzw. /api/status. Die Operationen laufen der Reihe
+     *   nach; eine fehlgeschlagene Operation bricht den Batch nicht ab.
+     *
+     * Höchstens batch.maxOps Operationen pro Request (sonst 413). Züge zählen einzeln gegen das Limit
+     * pro Sitzung. Im Cluster werden Operationen für Arenen anderer Knoten nicht weitergeleitet,
+     * sondern mit success=false und dem zuständigen Knoten ("node") beantwortet.
+     */
+    static class BatchHandler implements HttpHandler {
+        private record Operation(String op, String arena, String player, String token, String position) {
+        }
         
-        private Map<String, String> parseQuery(String query) {
-            Map<String, String> params = new HashMap<>();
-            if (query != null) {
-                for (String param : query.split("&")) {
-                    String[] pair = param.split("=");
-                    if (pair.length == 2) {
-                        try {
-                            params.put(pair[0], URLDecoder.decode(pair[1], StandardCharsets.UTF_8));
-                        } catch (Exception e) {
-                            params.put(pair[0], pair[1]);
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                
+                List<Operation> operations;
+                try {
+                    operations = parse(exchange.getRequestBody().readAllBytes());
+                } catch (IllegalArgumentException e) {
+                    AsyncLog.debug("Invalid batch request: " + e.getMessage());
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                if (operations == null) {
+                    exchange.sendResponseHeaders(413, -1);
+                    return;
+                }
+                
+                JsonWriter response = JsonWriter.acquire();
+                try {
+                    int failed = 0;
+                    response.beginObject();
+                    response.name("results").beginArray();
+                    for (Operation operation : operations) {
+                        if (!execute(response, operation)) {
+                            failed++;
                         }
                     }
+                    response.endArray();
+                    response.name("failed").value(failed);
+                    response.endObject();
+                    sendJson(exchange, response);
+                } finally {
+                    response.release();
+                }
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in BatchHandler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
+            }
+        }
+        
+        /**
+         * Liest alle Operationen vorab in einem Durchlauf
+         * @return die Operationen oder null, wenn es mehr als MAX_BATCH_OPS sind
+         */
+        private static List<Operation> parse(byte[] body) {
+            JsonReader reader = new JsonReader(body);
+            List<Operation> operations = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (operations.size() == MAX_BATCH_OPS) {
+                    return null;
+                }
+                String op = "";
+                String arena = "";
+                String player = "";
+                String token = "";
+                String position = "";
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "op" -> op = reader.nextScalar();
+                        case "arena" -> arena = reader.nextScalar();
+                        case "player" -> player = reader.nextScalar();
+                        case "token" -> token = reader.nextScalar();
+                        case "position" -> position = reader.nextScalar();
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                operations.add(new Operation(op, arena, player, token, position));
+            }
+            reader.endArray();
+            return operations;
+        }
+        
+        private static boolean execute(JsonWriter response, Operation operation) {
+            if (!operation.arena().isEmpty() && !cluster.isLocal(operation.arena())) {
+                response.beginObject();
+                response.name("success").value(false);
+                response.name("message").value("Arena liegt auf einem anderen Knoten");
+                response.name("node").value(cluster.ownerOf(operation.arena()));
+                response.endObject();
+                return false;
+            }
+            return switch (operation.op()) {
+                case "join" -> join(response, operation.arena(), operation.player(), operation.token());
+                case "move" -> rateLimiter.tryAcquireSession(operation.token())
+                        ? move(response, operation.arena(), operation.token(), operation.position())
+                        : failed(response, "Zu viele Anfragen, bitte kurz warten");
+                case "status" -> status(response, arenas.get(operation.arena()));
+                default -> failed(response, "Unknown op: " + operation.op());
+            };
+        }
+        
+        private static boolean status(JsonWriter response, GameArena arena) {
+            if (arena == null) {
+                return failed(response, "Arena not found");
+            }
+            writeArenaState(response, arena, "status");
+            return true;
+        }
+        
+        private static boolean failed(JsonWriter response, String message) {
+            response.beginObject();
+            response.name("success").value(false);
+            response.name("message").value(message);
+            response.endObject();
+            return false;
+        }
+    }
+    
+    /**
+     * Sendet den Arena-Zustand mit der Version als ETag
+     */
+    static void sendStatus(HttpExchange exchange, GameArena arena) throws IOException {
+        ArenaState state = arena.getState();
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            writeArenaState(json, arena.id, state, "status");
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().add("ETag", "\"" + state.version() + "\"");
+            sendJson(exchange, json);
+        } finally {
+            json.release();
+        }
+    }
+    
+    /**
+     * Query-Parameter eines Requests, Werte URL-dekodiert; Parameter ohne Wert fehlen in der Map
+     */
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                String[] pair = param.split("=");
+                if (pair.length == 2) {
+                    try {
+                        params.put(pair[0], URLDecoder.decode(pair[1], StandardCharsets.UTF_8));
+                    } catch (Exception e) {
+                        params.put(pair[0], pair[1]);
+                    }
                 }
             }
-            return params;
         }
+        return params;
     }
     
-    // Simple JSON helpers
-    private static String extractJson(String json, String key) {
-        // Try string value first
-        String stringPattern = "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"";
-        java.util.regex.Pattern p = java.util.regex.Pattern.compile(stringPattern);
-        java.util.regex.Matcher m = p.matcher(json);
-        if (m.find()) {
-            return m.group(1);
-        }
-        
-        // Try number value
-        String numberPattern = "\"" + key + "\"\\s*:\\s*(\\d+)";
-        p = java.util.regex.Pattern.compile(numberPattern);
-        m = p.matcher(json);
-        return m.find() ? m.group(1) : "";
+    static void sendJson(HttpExchange exchange, JsonWriter json) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, json.size());
+        try (OutputStream os = exchange.getResponseBody()) {
+            json.writeTo(os);
+        }
     }
     
-    private static String mapToJson(Map<String, Object> map) {
-        StringBuilder sb = new StringBuilder("{");
-        boolean first = true;
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            if (!first) sb.append(",");
-            sb.append("\"").append(entry.getKey()).append("\":");
-            Object value = entry.getValue();
-            if (value instanceof String) {
-                sb.append("\"").append(value).append("\"");
-            } else if (value instanceof Boolean) {
-                sb.append(value.toString());
-            } else if (value == null) {
-                sb.append("null");
-            } else {
-                sb.append("\"").append(value).append("\"");
+    /**
+     * Vollständiger Arena-Zustand als JSON (gleiche Felder wie /api/status),
+     * wird über den WebSocket-Kanal an alle Spieler der Arena gepusht
+     */
+    static String arenaStateJson(GameArena arena, String event) {
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            writeArenaState(json, arena, event);
+            return json.toString();
+        } finally {
+            json.release();
+        }
+    }
+    
+    static void writeArenaState(JsonWriter json, GameArena arena, String event) {
+        writeArenaState(json, arena.id, arena.getState(), event);
+    }
+    
+    static void writeArenaState(JsonWriter json, String arenaId, ArenaState state, String event) {
+        List<String> players = state.players();
+        char winner = state.winner();
+        json.beginObject();
+        json.name("event").value(event);
+        json.name("arena").value(arenaId);
+        json.name("version").value(state.version());
+        json.name("board").value(state.board());
+        json.name("gameStarted").value(players.size() == 2);
+        json.name("currentPlayer").value(state.currentPlayer());
+        json.name("winner");
+        if (state.isDraw()) {
+            json.value("DRAW");
+        } else if (winner != ' ') {
+            json.value(winner);
+        } else {
+            json.nullValue();
+        }
+        json.name("players").beginArray();
+        for (String player : players) {
+            json.value(player);
+        }
+        json.endArray();
+        json.endObject();
+    }
+    
+    /**
+     * Unveränderlicher Zustand einer Arena; jede Änderung erzeugt einen neuen Snapshot
+     *
+     * moves enthält die Zugfolge mit 4 Bit pro Zug (Feld + 1, erster Zug im untersten Nibble),
+     * damit ein beendetes Spiel ohne Zusatzdaten als Replay gespeichert werden kann.
+     */
+    record ArenaState(long version, List<String> players, String board, char currentPlayer, boolean gameActive, char winner, long moves) {
+        private static final String EMPTY_BOARD = "         ";
+        private static final int[][] WINS = {{0,1,2},{3,4,5},{6,7,8},{0,3,6},{1,4,7},{2,5,8},{0,4,8},{2,4,6}};
+        
+        static ArenaState empty(long version) {
+            return new ArenaState(version, List.of(), EMPTY_BOARD, 'X', false, ' ', 0L);
+        }
+        
+        public int moveCount() {
+            // every nibble is 1-9, so the highest set bit tells the number of moves
+            return (67 - Long.numberOfLeadingZeros(moves)) / 4;
+        }
+        
+        public boolean isDraw() {
+            return winner == ' ' && board.indexOf(' ') < 0;
+        }
+        
+        public boolean isFinished() {
+            return winner != ' ' || isDraw();
+        }
+        
+        ArenaState withPlayer(String playerName) {
+            if (players.size() >= 2 || players.contains(playerName)) {
+                return null;
+            }
+            List<String> joined = new ArrayList<>(players.size() + 1);
+            joined.addAll(players);
+            joined.add(playerName);
+            return new ArenaState(version + 1, List.copyOf(joined), board, currentPlayer, joined.size() == 2, winner, moves);
+        }
+        
+        /**
+         * Beide Spieler auf einmal (Matchmaking); nur in einer leeren, ungespielten Arena
+         */
+        ArenaState withPlayers(String playerX, String playerO) {
+            if (!players.isEmpty() || !EMPTY_BOARD.equals(board) || playerX.equals(playerO)) {
+                return null;
+            }
+            return new ArenaState(version + 1, List.of(playerX, playerO), board, 'X', true, ' ', 0L);
+        }
+        
+        /**
+         * Zug für den Sitz seat (0 = X, 1 = O); occupant ist der Sitz-Eintrag aus der Sitzung
+         * und muss noch derselbe sein, sonst gehört der Sitz inzwischen jemand anderem
+         */
+        ArenaState withMove(int position, int seat, String occupant) {
+            if (!gameActive || position < 0 || position >= 9 || board.charAt(position) != ' ' || players.size() != 2) {
+                return null;
+            }
+            
+            // Determine if it's this player's turn
+            if (currentPlayer != (seat == 0 ? 'X' : 'O') || players.get(seat) != occupant) {
+                return null;
+            }
+            
+            char[] next = board.toCharArray();
+            next[position] = currentPlayer;
+            String nextBoard = new String(next);
+            long nextMoves = moves | (long) (position + 1) << (4 * moveCount());
+            
+            if (checkWin(next, currentPlayer)) {
+                return new ArenaState(version + 1, players, nextBoard, currentPlayer, false, currentPlayer, nextMoves);
+            }
+            if (nextBoard.indexOf(' ') < 0) {
+                return new ArenaState(version + 1, players, nextBoard, currentPlayer, false, ' ', nextMoves);
             }
-            first = false;
+            return new ArenaState(version + 1, players, nextBoard, currentPlayer == 'X' ? 'O' : 'X', true, ' ', nextMoves);
+        }
+        
+        static boolean checkWin(char[] b, char sym) {
+            for (int[] w : WINS) {
+                if (b[w[0]] == sym && b[w[1]] == sym && b[w[2]] == sym) return true;
+            }
+            return false;
         }
-        sb.append("}");
-        return sb.toString();
     }
     
+    /**
+     * Eine Spielarena; der Zustand liegt als unveränderlicher Snapshot in einer AtomicReference.
+     * Leser bekommen mit getState() ohne Lock einen konsistenten Stand, Änderungen laufen per CAS.
+     */
     static class GameArena {
         public final String id;
         public final String name;
-        private final List<String> players = new ArrayList<>();
-        private char[] board = new char[9];
-        private char currentPlayer = 'X';
-        private boolean gameActive = false;
-        private char winner = ' ';
+        // Creation order, doubles as pagination cursor for /api/arenas
+        final long sequence = arenaSequence.incrementAndGet();
+        private final AtomicReference<ArenaState> state = new AtomicReference<>(ArenaState.empty(0));
+        private volatile ScheduledFuture<?> cleanupTask;
+        // Lobby version of the last change that is visible in the lobby
+        volatile long lobbyStamp;
         
         public GameArena(String id, String name) {
             this.id = id;
             this.name = name;
-            Arrays.fill(board, ' ');
+        }
+        
+        /**
+         * Konsistenter Snapshot aller Felder; für mehrere Werte immer diesen statt der Einzel-Getter verwenden
+         */
+        public ArenaState getState() {
+            return state.get();
         }
         
         public int getPlayerCount() {
-            return players.size();
+            return state.get().players().size();
+        }
+        
+        public List<String> getPlayers() {
+            return state.get().players();
         }
         
         public char getCurrentPlayer() {
-            return currentPlayer;
+            return state.get().currentPlayer();
+        }
+        
+        /**
+         * Monoton steigende Zustandsversion, wird bei jedem Join, Zug und Reset erhöht
+         */
+        public long getVersion() {
+            return state.get().version();
         }
         
         public char getWinner() {
-            return winner;
+            return state.get().winner();
         }
         
         public boolean isDraw() {
-            if (winner != ' ') return false;
-            for (char c : board) if (c == ' ') return false;
-            return true;
+            return state.get().isDraw();
         }
         
-        public boolean addPlayer(String playerName) {
-            if (players.size() < 2 && !players.contains(playerName)) {
-                players.add(playerName);
-                if (players.size() == 2) {
-                    gameActive = true;
+        /**
+         * Fügt einen Spieler hinzu; liefert den neuen Zustand oder null, wenn die Arena voll ist
+         * oder der Name schon vergeben ist
+         */
+        public ArenaState join(String playerName) {
+            ArenaState current;
+            ArenaState next;
+            do {
+                current = state.get();
+                next = current.withPlayer(playerName);
+                if (next == null) {
+                    return null;
                 }
-                return true;
-            }
-            return false;
+            } while (!state.compareAndSet(current, next));
+            fireArenaChanged(this, "join");
+            return next;
         }
         
-        public synchronized boolean makeMove(int position, String playerName) {
-            if (!gameActive || board[position] != ' ' || players.size() != 2) {
-                return false;
-            }
-            
-            // Determine if it's this player's turn
-            boolean isFirstPlayer = players.get(0).equals(playerName);
-            boolean isSecondPlayer = players.get(1).equals(playerName);
-            
-            if ((currentPlayer == 'X' && !isFirstPlayer) || 
-                (currentPlayer == 'O' && !isSecondPlayer)) {
-                return false;
-            }
-            
-            board[position] = currentPlayer;
-            
-            if (checkWin(board, currentPlayer)) {
-                gameActive = false;
-                winner = currentPlayer;
-            } else if (isDraw()) {
-                gameActive = false;
-            } else {
-                currentPlayer = currentPlayer == 'X' ? 'O' : 'X';
-            }
-            
-            return true;
+        /**
+         * Setzt zwei Spieler in einem Schritt; null, wenn die Arena nicht mehr leer ist
+         */
+        public ArenaState seat(String playerX, String playerO) {
+            ArenaState current;
+            ArenaState next;
+            do {
+                current = state.get();
+                next = current.withPlayers(playerX, playerO);
+                if (next == null) {
+                    return null;
+                }
+            } while (!state.compareAndSet(current, next));
+            fireArenaChanged(this, "join");
+            return next;
         }
         
-        private boolean checkWin(char[] b, char sym) {
-            int[][] wins = {{0,1,2},{3,4,5},{6,7,8},{0,3,6},{1,4,7},{2,5,8},{0,4,8},{2,4,6}};
-            for (int[] w : wins) {
-                if (b[w[0]] == sym && b[w[1]] == sym && b[w[2]] == sym) return true;
+        public boolean makeMove(int position, PlayerSessions.Session session) {
+            ArenaState current;
+            ArenaState next;
+            do {
+                current = state.get();
+                next = current.withMove(position, session.seat(), session.occupant());
+                if (next == null) {
+                    return false;
+                }
+            } while (!state.compareAndSet(current, next));
+            fireArenaChanged(this, "move");
+            if (next.isFinished()) {
+                // the finishing state's version; a reset or join since then must not be cleaned up
+                scheduleCleanup(this, next.version());
             }
-            return false;
+            return true;
         }
         
         public char[] getBoard() {
-            return board.clone();
+            return state.get().board().toCharArray();
         }
         
         public void reset() {
-            Arrays.fill(board, ' ');
-            currentPlayer = 'X';
-            gameActive = false;
-            winner = ' ';
-            players.clear();
+            ArenaState current;
+            do {
+                current = state.get();
+            } while (!state.compareAndSet(current, ArenaState.empty(current.version() + 1)));
+            cancelCleanup();
+            fireArenaChanged(this, "reset");
+        }
+        
+        private void cancelCleanup() {
+            ScheduledFuture<?> pending = cleanupTask;
+            if (pending != null) {
+                cleanupTask = null;
+                pending.cancel(false);
+            }
+            arenasBeingDeleted.remove(id);
         }
     }
     
@@ -1776,32 +2590,41 @@ public class SimpleMultiplayerServer {
             }
             
             try {
-                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-                String name = extractJson(body, "name");
-                String description = extractJson(body, "description");
-                
-                Map<String, Object> response = new HashMap<>();
-                
-                if (name.isEmpty()) {
-                    response.put("success", false);
-                    response.put("message", "Arena Name ist erforderlich");
-                } else {
-                    // Generate unique ID
-                    String arenaId = "Arena-" + System.currentTimeMillis();
-                    createArena(arenaId, name + " - " + description);
-                    response.put("success", true);
-                    response.put("arenaId", arenaId);
-                    System.out.println("✅ Neue Arena erstellt: " + arenaId + " (" + name + ")");
+                String[] fields;
+                try {
+                    fields = JsonReader.readFields(exchange.getRequestBody().readAllBytes(), "name", "description");
+                } catch (IllegalArgumentException e) {
+                    AsyncLog.debug("Invalid create arena request: " + e.getMessage());
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
                 }
+                String name = fields[0];
+                String description = fields[1];
                 
-                String jsonResponse = mapToJson(response);
-                exchange.getResponseHeaders().add("Content-Type", "application/json");
-                exchange.sendResponseHeaders(200, jsonResponse.getBytes().length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(jsonResponse.getBytes());
+                JsonWriter response = JsonWriter.acquire();
+                try {
+                    response.beginObject();
+                    if (name.isEmpty()) {
+                        response.name("success").value(false);
+                        response.name("message").value("Arena Name ist erforderlich");
+                    } else if (arenas.size() >= MAX_ARENAS) {
+                        response.name("success").value(false);
+                        response.name("message").value("Zu viele Arenen, bitte eine bestehende nutzen");
+                        AsyncLog.warn("⚠️ Arena-Limit erreicht (" + MAX_ARENAS + "), neue Arena abgelehnt");
+                    } else {
+                        String arenaId = newArenaId();
+                        createArena(arenaId, name + " - " + description);
+                        response.name("success").value(true);
+                        response.name("arenaId").value(arenaId);
+                        AsyncLog.info("✅ Neue Arena erstellt: " + arenaId + " (" + name + ")");
+                    }
+                    response.endObject();
+                    sendJson(exchange, response);
+                } finally {
+                    response.release();
                 }
             } catch (Exception e) {
-                System.err.println("Error in CreateArenaHandler: " + e.getMessage());
+                AsyncLog.error("Error in CreateArenaHandler: " + e.getMessage());
                 exchange.sendResponseHeaders(500, -1);
             }
         }
@@ -1816,32 +2639,39 @@ public class SimpleMultiplayerServer {
             }
             
             try {
-                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-                String arenaId = extractJson(body, "arenaId");
-                
-                Map<String, Object> response = new HashMap<>();
-                
-                if (arenaId.equals("Arena-1") || arenaId.equals("Arena-2") || arenaId.equals("Arena-3")) {
-                    response.put("success", false);
-                    response.put("message", "Standard-Arenas können nicht gelöscht werden");
-                } else if (arenas.containsKey(arenaId)) {
-                    arenas.remove(arenaId);
-                    arenaPlayers.remove(arenaId);
-                    response.put("success", true);
-                    System.out.println("🗑️ Arena gelöscht: " + arenaId);
-                } else {
-                    response.put("success", false);
-                    response.put("message", "Arena nicht gefunden");
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                String arenaId;
+                try {
+                    arenaId = JsonReader.readFields(body, "arenaId")[0];
+                } catch (IllegalArgumentException e) {
+                    AsyncLog.debug("Invalid delete arena request: " + e.getMessage());
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                if (ClusterRouter.forwardIfRemote(exchange, cluster, arenaId, body)) {
+                    return;
                 }
                 
-                String jsonResponse = mapToJson(response);
-                exchange.getResponseHeaders().add("Content-Type", "application/json");
-                exchange.sendResponseHeaders(200, jsonResponse.getBytes().length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(jsonResponse.getBytes());
+                JsonWriter response = JsonWriter.acquire();
+                try {
+                    response.beginObject();
+                    if (arenaId.equals("Arena-1") || arenaId.equals("Arena-2") || arenaId.equals("Arena-3")) {
+                        response.name("success").value(false);
+                        response.name("message").value("Standard-Arenas können nicht gelöscht werden");
+                    } else if (removeArena(arenaId)) {
+                        response.name("success").value(true);
+                        AsyncLog.info("🗑️ Arena gelöscht: " + arenaId);
+                    } else {
+                        response.name("success").value(false);
+                        response.name("message").value("Arena nicht gefunden");
+                    }
+                    response.endObject();
+                    sendJson(exchange, response);
+                } finally {
+                    response.release();
                 }
             } catch (Exception e) {
-                System.err.println("Error in DeleteArenaHandler: " + e.getMessage());
+                AsyncLog.error("Error in DeleteArenaHandler: " + e.getMessage());
                 exchange.sendResponseHeaders(500, -1);
             }
         }
@@ -1856,34 +2686,38 @@ public class SimpleMultiplayerServer {
             }
             
             try {
-                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-                String arenaId = extractJson(body, "arenaId");
-                
-                Map<String, Object> response = new HashMap<>();
-                
-                GameArena arena = arenas.get(arenaId);
-                if (arena != null) {
-                    arena.reset();
-                    // Clear players from arena
-                    Set<String> players = arenaPlayers.get(arenaId);
-                    if (players != null) {
-                        players.clear();
-                    }
-                    response.put("success", true);
-                    System.out.println("🔄 Arena zurückgesetzt: " + arenaId);
-                } else {
-                    response.put("success", false);
-                    response.put("message", "Arena nicht gefunden");
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                String arenaId;
+                try {
+                    arenaId = JsonReader.readFields(body, "arenaId")[0];
+                } catch (IllegalArgumentException e) {
+                    AsyncLog.debug("Invalid reset arena request: " + e.getMessage());
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                if (ClusterRouter.forwardIfRemote(exchange, cluster, arenaId, body)) {
+                    return;
                 }
                 
-                String jsonResponse = mapToJson(response);
-                exchange.getResponseHeaders().add("Content-Type", "application/json");
-                exchange.sendResponseHeaders(200, jsonResponse.getBytes().length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(jsonResponse.getBytes());
+                JsonWriter response = JsonWriter.acquire();
+                try {
+                    response.beginObject();
+                    GameArena arena = arenas.get(arenaId);
+                    if (arena != null) {
+                        arena.reset();
+                        response.name("success").value(true);
+                        AsyncLog.info("🔄 Arena zurückgesetzt: " + arenaId);
+                    } else {
+                        response.name("success").value(false);
+                        response.name("message").value("Arena nicht gefunden");
+                    }
+                    response.endObject();
+                    sendJson(exchange, response);
+                } finally {
+                    response.release();
                 }
             } catch (Exception e) {
-                System.err.println("Error in ResetArenaHandler: " + e.getMessage());
+                AsyncLog.error("Error in ResetArenaHandler: " + e.getMessage());
                 exchange.sendResponseHeaders(500, -1);
             }
         }
@@ -1892,11 +2726,12 @@ public class SimpleMultiplayerServer {
     public static void main(String[] args) {
         try {
             start();
+            AsyncLog.flush();
             System.out.println("Drücke Enter zum Beenden...");
             System.in.read();
             stop();
         } catch (Exception e) {
-            e.printStackTrace();
+            AsyncLog.error("❌ Server konnte nicht gestartet werden", e);
         }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,318 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Zuschauer-Streams (Server-Sent Events) für /api/spectate?arena=<id>
+ *
+ * Zuschauer sind keine Spieler: sie belegen keinen der zwei Plätze einer Arena und sehen nur zu.
+ * Bei einer Arena-Änderung wird der Zustand genau einmal als fertiger SSE-Frame serialisiert und
+ * als "neuester Frame" der Arena abgelegt; danach bekommt jeder Zuschauer nur ein Signal.
+ *
+ * Jeder Zuschauer schreibt auf einem eigenen Writer-Thread und immer nur den neuesten Frame.
+ * Ein langsamer Zuschauer blockiert damit weder die anderen noch den Spielzug, und statt einer
+ * wachsenden Queue überspringt er Zwischenstände (der Zustand ist immer vollständig, es fehlt nichts).
+ * Die Writer sind Plattform-Threads, siehe ArenaEventStream. Hängt ein Writer länger als zwei
+ * Heartbeats an einem Zuschauer, der nicht mehr liest, wirft der Heartbeat ihn hinaus und unterbricht
+ * den Writer (die JDK-Engine hat kein Schreib-Timeout).
+ */
+public class SpectatorHub {
+    private static final long HEARTBEAT_SECONDS = 15;
+    // A single write taking longer than this means the viewer stopped reading
+    private static final long STALL_NANOS = TimeUnit.SECONDS.toNanos(2 * HEARTBEAT_SECONDS);
+
+    private static final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    // Platform threads: a virtual thread stuck on a full socket would pin its carrier (synchronized JDK response stream)
+    private static final ExecutorService writers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "spectator-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "spectator-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final LongAdder framesSent = new LongAdder();
+    private static final LongAdder framesCoalesced = new LongAdder();
+    private static final LongAdder viewersEvicted = new LongAdder();
+
+    /**
+     * Ein fertig serialisierter Zustand; last beendet den Stream (Arena gelöscht)
+     */
+    private record Frame(long version, byte[] bytes, boolean last) {
+    }
+
+    /**
+     * Zuschauer einer Arena und der neueste Frame für sie
+     */
+    private static final class Channel {
+        final Set<Viewer> viewers = ConcurrentHashMap.newKeySet();
+        final AtomicReference<Frame> latest = new AtomicReference<>();
+        // Viewer count event of the last heartbeat, shared by all viewers of the arena
+        volatile byte[] viewersEvent;
+
+        /**
+         * Übernimmt den Frame nur, wenn er neuer ist; ein verspäteter Listener überschreibt nichts
+         */
+        boolean offer(Frame frame) {
+            while (true) {
+                Frame current = latest.get();
+                if (current != null && (current.last() || current.version() >= frame.version())) {
+                    return false;
+                }
+                if (latest.compareAndSet(current, frame)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ein Zuschauer; es schreibt immer höchstens ein Thread gleichzeitig auf seinen Stream
+     */
+    private static final class Viewer {
+        final HttpExchange exchange;
+        final OutputStream out;
+        final Channel channel;
+        final AtomicBoolean scheduled = new AtomicBoolean(false);
+        final AtomicBoolean closed = new AtomicBoolean(false);
+        volatile boolean pingDue;
+        // set by evict() or a failed write: the exchange is torn down instead of finishing the response
+        volatile boolean aborted;
+        // System.nanoTime() when the current write started, 0 while idle (checked by the heartbeat)
+        volatile long writingSince;
+        // only touched by the thread that holds scheduled
+        long sentVersion = -1;
+        // the thread currently draining this viewer, so evict() can interrupt a write that never returns
+        private final ReentrantLock writerLock = new ReentrantLock();
+        private Thread writer;
+
+        Viewer(HttpExchange exchange, Channel channel) {
+            this.exchange = exchange;
+            this.out = exchange.getResponseBody();
+            this.channel = channel;
+        }
+
+        void signal() {
+            if (scheduled.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            setWriter(Thread.currentThread());
+            try {
+                do {
+                    if (closed.get()) {
+                        // stays scheduled, so nothing is ever written to this viewer again
+                        closeExchange();
+                        return;
+                    }
+                    writingSince = System.nanoTime();
+                    Frame frame = channel.latest.get();
+                    if (frame != null && frame.version() > sentVersion) {
+                        if (sentVersion >= 0 && frame.version() > sentVersion + 1 && !frame.last()) {
+                            framesCoalesced.add(frame.version() - sentVersion - 1);
+                        }
+                        out.write(frame.bytes());
+                        sentVersion = frame.version();
+                        framesSent.increment();
+                        if (frame.last()) {
+                            out.flush();
+                            close();
+                            return;
+                        }
+                    } else if (pingDue) {
+                        byte[] viewersEvent = channel.viewersEvent;
+                        out.write(viewersEvent != null ? viewersEvent : ": ping\n\n".getBytes(StandardCharsets.UTF_8));
+                    }
+                    pingDue = false;
+                    out.flush();
+                    writingSince = 0;
+                    scheduled.set(false);
+                    // a frame published while we were writing must not be lost, and an eviction must close the exchange
+                } while ((closed.get() || hasWork()) && scheduled.compareAndSet(false, true));
+            } catch (IOException e) {
+                aborted = true;
+                close();
+            } finally {
+                writingSince = 0;
+                setWriter(null);
+            }
+        }
+
+        private boolean hasWork() {
+            Frame frame = channel.latest.get();
+            return !closed.get() && (pingDue || (frame != null && frame.version() > sentVersion));
+        }
+
+        private void close() {
+            closed.set(true);
+            channel.viewers.remove(this);
+            closeExchange();
+        }
+
+        /**
+         * Wirft einen Zuschauer hinaus, dessen Writer an einem vollen Socket hängt
+         */
+        void evict() {
+            aborted = true;
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            channel.viewers.remove(this);
+            viewersEvicted.increment();
+            AsyncLog.warn("⚠️ Zuschauer " + exchange.getRemoteAddress() + " liest nicht mehr, Stream wird geschlossen");
+            writerLock.lock();
+            try {
+                if (writer != null) {
+                    // a blocked channel write fails with ClosedByInterruptException and closes the socket
+                    writer.interrupt();
+                }
+            } finally {
+                writerLock.unlock();
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void closeExchange() {
+            if (aborted) {
+                // the final chunk would block on a viewer that stopped reading; interrupted, the write closes the channel instead
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        }
+
+        private void setWriter(Thread thread) {
+            writerLock.lock();
+            try {
+                writer = thread;
+                if (thread == null) {
+                    // an interrupt from evict() must not hit the next viewer this pool thread writes to
+                    Thread.interrupted();
+                }
+            } finally {
+                writerLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Registriert den Hub als Listener für Arena-Änderungen und startet den Heartbeat
+     */
+    static void install() {
+        SimpleMultiplayerServer.addArenaListener(SpectatorHub::publish);
+        heartbeat.scheduleAtFixedRate(SpectatorHub::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Öffnet einen Zuschauer-Stream; blockiert nicht, der Exchange bleibt bis zum Verbindungsabbruch offen
+     */
+    static void subscribe(HttpExchange exchange, SimpleMultiplayerServer.GameArena arena) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream; charset=UTF-8");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().add("X-Accel-Buffering", "no");
+        exchange.sendResponseHeaders(200, 0);
+
+        Channel channel = channels.computeIfAbsent(arena.id, id -> new Channel());
+        Viewer viewer = new Viewer(exchange, channel);
+        channel.viewers.add(viewer);
+        // Nobody serializes for arenas without viewers, so the first viewer brings the channel up to date
+        channel.offer(frame(arena, "snapshot"));
+        if (SimpleMultiplayerServer.getArena(arena.id) != arena) {
+            // deleted between the handler's lookup and the registration
+            channel.offer(new Frame(Long.MAX_VALUE, event("deleted", "{\"arena\":\"" + arena.id + "\"}"), true));
+        }
+        viewer.signal();
+    }
+
+    public static int getSpectators() {
+        int count = 0;
+        for (Channel channel : channels.values()) {
+            count += channel.viewers.size();
+        }
+        return count;
+    }
+
+    public static long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    public static long getFramesCoalesced() {
+        return framesCoalesced.sum();
+    }
+
+    public static long getViewersEvicted() {
+        return viewersEvicted.sum();
+    }
+
+    private static void publish(SimpleMultiplayerServer.GameArena arena, String event) {
+        boolean deleted = "deleted".equals(event);
+        Channel channel = deleted ? channels.remove(arena.id) : channels.get(arena.id);
+        if (channel == null || channel.viewers.isEmpty()) {
+            return;
+        }
+        // serialized once here, every viewer writes the same bytes
+        Frame frame = deleted
+                ? new Frame(Long.MAX_VALUE, event("deleted", "{\"arena\":\"" + arena.id + "\"}"), true)
+                : frame(arena, event);
+        if (channel.offer(frame)) {
+            for (Viewer viewer : channel.viewers) {
+                viewer.signal();
+            }
+        }
+    }
+
+    private static Frame frame(SimpleMultiplayerServer.GameArena arena, String event) {
+        SimpleMultiplayerServer.ArenaState state = arena.getState();
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            SimpleMultiplayerServer.writeArenaState(json, arena.id, state, event);
+            return new Frame(state.version(), event("state", json.toString()), false);
+        } finally {
+            json.release();
+        }
+    }
+
+    private static void heartbeat() {
+        // Channels stay until their arena is deleted, so a new viewer never lands in a dropped channel
+        for (Channel channel : channels.values()) {
+            if (channel.viewers.isEmpty()) {
+                continue;
+            }
+            channel.viewersEvent = event("viewers", "{\"spectators\":" + channel.viewers.size() + "}");
+            long now = System.nanoTime();
+            for (Viewer viewer : channel.viewers) {
+                long since = viewer.writingSince;
+                if (since != 0 && now - since > STALL_NANOS) {
+                    viewer.evict();
+                    continue;
+                }
+                viewer.pingDue = true;
+                viewer.signal();
+            }
+        }
+    }
+
+    private static byte[] event(String name, String json) {
+        return ("event: " + name + "\ndata: " + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,345 @@
+package systems.mythical.myjavaproject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Statische Dateien (CSS, JavaScript, Fonts) der HTML-Seiten unter /static/
+ *
+ * Die eigenen Skripte und Styles liegen als Ressourcen unter static/ im Classpath, die
+ * Drittanbieter-Dateien (Tailwind, SweetAlert2, Font Awesome) unter static/vendor/. Beim Start wird
+ * jede Datei einmal gelesen, bekommt einen Fingerprint aus ihrem Inhalt und landet (samt gzip-Variante)
+ * in einem temporären Verzeichnis. Ausgeliefert wird mit FileChannel.transferTo; auf der NIO-Engine
+ * geht das direkt in den Socket (sendfile), ohne den Inhalt in den Java-Heap zu kopieren.
+ *
+ * Templates verweisen mit {{asset:js/lobby.js}} auf eine Datei und bekommen die URL mit Fingerprint
+ * (/static/js/lobby.1a2b3c4d5e.js), die Browser ein Jahr lang cachen dürfen. Fehlt eine
+ * Drittanbieter-Datei, zeigt die URL wie früher auf das CDN.
+ *
+ * Drittanbieter-Dateien für Installationen ohne Internet einmalig herunterladen:
+ *   java -cp target/classes systems.mythical.myjavaproject.StaticAssets download [verzeichnis]
+ *   (Standard: src/main/resources/static)
+ * Der Build (mvn package, build.bat) prüft mit "StaticAssets check [verzeichnis]", dass alle da sind,
+ * und bricht sonst ab; ein JAR ohne sie zeigt offline ungestylte Seiten.
+ *
+ * Optionen: -Dstatic.dir=static  (wird vor dem Classpath durchsucht, z.B. für Dateien neben dem JAR)
+ */
+public class StaticAssets {
+    public static final String DIR_PROPERTY = "static.dir";
+    public static final String PREFIX = "/static/";
+    private static final String FONT_AWESOME = "https://cdnjs.cloudflare.com/ajax/libs/font-awesome/6.4.0/";
+    private static final List<String> FONT_AWESOME_FONTS = List.of(
+            "fa-brands-400", "fa-regular-400", "fa-solid-900", "fa-v4compatibility");
+
+    private static final List<String> OWN_ASSETS = List.of(
+            "css/game.css", "css/webserver.css", "js/game.js", "js/lobby.js", "js/spectate.js", "js/webserver.js");
+
+    /**
+     * Datei eines Drittanbieters; sourceUrl ist zugleich die Fallback-URL, solange sie lokal fehlt
+     */
+    private record Vendored(String path, String sourceUrl, List<String> requires) {
+    }
+
+    private static final List<Vendored> VENDORED = vendored();
+
+    /**
+     * Eine ausgelieferte Datei; gzip ist null, wenn sich Komprimieren nicht lohnt
+     */
+    private record Asset(String path, String fingerprint, String contentType, FileChannel identity, FileChannel gzip) {
+    }
+
+    // request path below /static/ (with and without fingerprint) -> asset
+    private static final Map<String, Asset> byPath = new ConcurrentHashMap<>();
+    private static final Map<String, String> urls = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Statische Dateien konnten nicht geladen werden", e);
+        }
+    }
+
+    private StaticAssets() {
+    }
+
+    private static List<Vendored> vendored() {
+        List<Vendored> list = new ArrayList<>();
+        List<String> fonts = new ArrayList<>();
+        for (String font : FONT_AWESOME_FONTS) {
+            for (String extension : List.of(".woff2", ".ttf")) {
+                String path = "vendor/font-awesome/webfonts/" + font + extension;
+                fonts.add(path);
+                list.add(new Vendored(path, FONT_AWESOME + "webfonts/" + font + extension, List.of()));
+            }
+        }
+        // the stylesheet loads its fonts relative to itself, so it only counts as local together with them
+        list.add(new Vendored("vendor/font-awesome/css/all.min.css", FONT_AWESOME + "css/all.min.css", fonts));
+        list.add(new Vendored("vendor/tailwindcss.js", "https://cdn.tailwindcss.com", List.of()));
+        list.add(new Vendored("vendor/sweetalert2.all.min.js", "https://cdn.jsdelivr.net/npm/sweetalert2@11", List.of()));
+        return list;
+    }
+
+    /**
+     * URL für eine Datei unterhalb von static/, mit Fingerprint im Namen
+     */
+    public static String url(String path) {
+        String url = urls.get(path);
+        if (url == null) {
+            throw new IllegalArgumentException("Unbekannte statische Datei: " + path);
+        }
+        return url;
+    }
+
+    private static void load() throws IOException {
+        Path cache = Files.createTempDirectory("tictactoe-static-");
+        cache.toFile().deleteOnExit();
+        Path dir = Path.of(System.getProperty(DIR_PROPERTY, "static"));
+
+        for (String path : OWN_ASSETS) {
+            byte[] content = read(dir, path);
+            if (content == null) {
+                throw new IOException("Ressource static/" + path + " fehlt im Classpath");
+            }
+            register(cache, path, content);
+        }
+        List<String> missing = new ArrayList<>();
+        for (Vendored vendored : VENDORED) {
+            byte[] content = read(dir, vendored.path());
+            if (content == null) {
+                missing.add(vendored.path());
+            } else {
+                register(cache, vendored.path(), content);
+            }
+        }
+        for (Vendored vendored : VENDORED) {
+            if (!byPath.containsKey(vendored.path()) || !byPath.keySet().containsAll(vendored.requires())) {
+                urls.put(vendored.path(), vendored.sourceUrl());
+            }
+        }
+        if (!missing.isEmpty()) {
+            AsyncLog.warn("⚠️ " + missing.size() + " Drittanbieter-Dateien fehlen, die Seiten laden sie vom CDN"
+                    + " (offline bereitstellen mit: StaticAssets download)");
+        }
+    }
+
+    /**
+     * Sucht eine Datei zuerst in -Dstatic.dir, dann im Classpath
+     * @return der Inhalt oder null, wenn es die Datei nirgends gibt
+     */
+    private static byte[] read(Path dir, String path) throws IOException {
+        Path file = dir.resolve(path);
+        if (Files.isRegularFile(file)) {
+            return Files.readAllBytes(file);
+        }
+        try (InputStream in = StaticAssets.class.getResourceAsStream("/static/" + path)) {
+            return in != null ? in.readAllBytes() : null;
+        }
+    }
+
+    private static void register(Path cache, String path, byte[] content) throws IOException {
+        String fingerprint = fingerprint(content);
+        String contentType = contentType(path);
+        FileChannel identity = store(cache.resolve(fingerprint), content);
+        FileChannel gzip = null;
+        if (contentType.startsWith("text/") || contentType.startsWith("application/javascript") || path.endsWith(".ttf")) {
+            byte[] compressed = gzip(content);
+            // small or already compressed files are not worth a second variant
+            if (compressed.length < content.length * 9L / 10) {
+                gzip = store(cache.resolve(fingerprint + ".gz"), compressed);
+            }
+        }
+        Asset asset = new Asset(path, fingerprint, contentType, identity, gzip);
+        int dot = path.lastIndexOf('.');
+        String fingerprinted = path.substring(0, dot) + "." + fingerprint + path.substring(dot);
+        byPath.put(path, asset);
+        byPath.put(fingerprinted, asset);
+        urls.put(path, PREFIX + fingerprinted);
+    }
+
+    private static FileChannel store(Path file, byte[] content) throws IOException {
+        Files.write(file, content);
+        file.toFile().deleteOnExit();
+        // kept open for the lifetime of the server; transferTo with a position is safe from many threads
+        return FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    private static String fingerprint(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 5);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 3 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String contentType(String path) {
+        String extension = path.substring(path.lastIndexOf('.') + 1);
+        return switch (extension) {
+            case "css" -> "text/css; charset=UTF-8";
+            case "js" -> "application/javascript; charset=UTF-8";
+            case "woff2" -> "font/woff2";
+            case "ttf" -> "font/ttf";
+            case "svg" -> "image/svg+xml";
+            case "png" -> "image/png";
+            default -> "application/octet-stream";
+        };
+    }
+
+    /**
+     * Liefert die Dateien unter /static/ aus; mit Fingerprint im Namen als immutable
+     */
+    static class Handler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String method = exchange.getRequestMethod();
+                boolean head = "HEAD".equals(method);
+                if (!head && !"GET".equals(method)) {
+                    exchange.getResponseHeaders().add("Allow", "GET, HEAD");
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                String requested = exchange.getRequestURI().getPath().substring(PREFIX.length());
+                Asset asset = byPath.get(requested);
+                if (asset == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+
+                boolean gzip = asset.gzip() != null
+                        && HtmlTemplate.Encoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"))
+                        == HtmlTemplate.Encoding.GZIP;
+                String etag = "\"" + asset.fingerprint() + (gzip ? "-gzip" : "") + "\"";
+                Headers headers = exchange.getResponseHeaders();
+                headers.add("Content-Type", asset.contentType());
+                // without a fingerprint the name stays the same across versions (e.g. fonts loaded by a stylesheet)
+                headers.add("Cache-Control", requested.equals(asset.path())
+                        ? "public, max-age=3600" : "public, max-age=31536000, immutable");
+                headers.add("ETag", etag);
+                if (asset.gzip() != null) {
+                    headers.add("Vary", "Accept-Encoding");
+                }
+                String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                if (ifNoneMatch != null && ifNoneMatch.contains(asset.fingerprint())) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+                if (gzip) {
+                    headers.add("Content-Encoding", "gzip");
+                }
+                FileChannel file = gzip ? asset.gzip() : asset.identity();
+                long length = file.size();
+                if (head) {
+                    headers.add("Content-Length", Long.toString(length));
+                    exchange.sendResponseHeaders(200, -1);
+                    return;
+                }
+                exchange.sendResponseHeaders(200, length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    transfer(exchange, os, file, length);
+                }
+            } catch (Exception e) {
+                AsyncLog.error("❌ Error in StaticAssets.Handler: " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private static void transfer(HttpExchange exchange, OutputStream os, FileChannel file, long length) throws IOException {
+            if (NioHttpServer.transferFile(exchange, file, 0, length)) {
+                return;
+            }
+            // the JDK server does not expose its socket, so transferTo copies through the response stream
+            WritableByteChannel target = Channels.newChannel(os);
+            long position = 0;
+            while (position < length) {
+                long written = file.transferTo(position, length - position, target);
+                if (written <= 0) {
+                    throw new IOException("Datei ist kürzer als angekündigt");
+                }
+                position += written;
+            }
+        }
+    }
+
+    /**
+     * Lädt die Drittanbieter-Dateien von ihren CDNs in ein Verzeichnis
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !(args[0].equals("download") || args[0].equals("check"))) {
+            System.out.println("Aufruf: StaticAssets download|check [verzeichnis]");
+            return;
+        }
+        Path dir = Path.of(args.length > 1 ? args[1] : "src/main/resources/static");
+        if (args[0].equals("check")) {
+            List<String> missing = new ArrayList<>();
+            for (Vendored vendored : VENDORED) {
+                if (!Files.isRegularFile(dir.resolve(vendored.path()))) {
+                    missing.add(vendored.path());
+                }
+            }
+            if (missing.isEmpty()) {
+                System.out.println("✅ " + VENDORED.size() + " Drittanbieter-Dateien in " + dir);
+                return;
+            }
+            for (String path : missing) {
+                System.out.println("❌ Fehlt: " + dir.resolve(path));
+            }
+            System.out.println("Herunterladen mit: java -cp target/classes systems.mythical.myjavaproject.StaticAssets download " + dir);
+            System.exit(1);
+        }
+        HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
+        for (Vendored vendored : VENDORED) {
+            Path target = dir.resolve(vendored.path());
+            HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(vendored.sourceUrl())).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                System.out.println("❌ " + vendored.sourceUrl() + " -> HTTP " + response.statusCode());
+                continue;
+            }
+            Files.createDirectories(target.getParent());
+            Files.write(target, response.body());
+            System.out.println("✅ " + target + " (" + response.body().length / 1024 + " KB)");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Long-Poll Modus für /api/status?since=<version>
+ * Geparkte Requests belegen keinen Thread: der Exchange wird hier gemerkt und erst
+ * bei der nächsten Arena-Änderung (oder nach dem Timeout mit 304) beantwortet.
+ */
+public class StatusLongPoll {
+    private static final long DEFAULT_TIMEOUT_MS = 25000;
+    private static final long MAX_TIMEOUT_MS = 30000;
+
+    private static final Map<String, Set<Waiter>> waiters = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "long-poll-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Ein geparkter Status-Request; wird genau einmal beantwortet
+     */
+    private static final class Waiter {
+        final HttpExchange exchange;
+        final String arenaId;
+        final AtomicBoolean done = new AtomicBoolean(false);
+        volatile ScheduledFuture<?> timeout;
+
+        Waiter(HttpExchange exchange, String arenaId) {
+            this.exchange = exchange;
+            this.arenaId = arenaId;
+        }
+
+        void complete(SimpleMultiplayerServer.GameArena arena) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            unregister();
+            try {
+                if (arena == null) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                } else {
+                    SimpleMultiplayerServer.sendStatus(exchange, arena);
+                }
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }
+
+        private void unregister() {
+            ScheduledFuture<?> pending = timeout;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            Set<Waiter> arenaWaiters = waiters.get(arenaId);
+            if (arenaWaiters != null) {
+                arenaWaiters.remove(this);
+            }
+        }
+    }
+
+    /**
+     * Registriert den Long-Poll als Listener für Arena-Änderungen
+     */
+    static void install() {
+        SimpleMultiplayerServer.addArenaListener((arena, event) -> {
+            Set<Waiter> arenaWaiters = waiters.get(arena.id);
+            if (arenaWaiters != null && !arenaWaiters.isEmpty()) {
+                timer.execute(() -> wake(arena));
+            }
+        });
+    }
+
+    /**
+     * Parkt einen Request, bis die Arena-Version größer als sinceVersion ist
+     */
+    static void park(HttpExchange exchange, SimpleMultiplayerServer.GameArena arena, long sinceVersion, String timeoutParam) {
+        long timeoutMs = DEFAULT_TIMEOUT_MS;
+        if (timeoutParam != null) {
+            try {
+                timeoutMs = Math.max(0, Math.min(MAX_TIMEOUT_MS, Long.parseLong(timeoutParam)));
+            } catch (NumberFormatException e) {
+                // keep default timeout
+            }
+        }
+
+        Waiter waiter = new Waiter(exchange, arena.id);
+        waiters.computeIfAbsent(arena.id, id -> ConcurrentHashMap.newKeySet()).add(waiter);
+        waiter.timeout = timer.schedule(() -> waiter.complete(null), timeoutMs, TimeUnit.MILLISECONDS);
+
+        // The arena may have changed between the version check and the registration
+        if (arena.getVersion() > sinceVersion) {
+            waiter.complete(arena);
+        }
+    }
+
+    public static int getParkedRequests() {
+        int count = 0;
+        for (Set<Waiter> arenaWaiters : waiters.values()) {
+            count += arenaWaiters.size();
+        }
+        return count;
+    }
+
+    private static void wake(SimpleMultiplayerServer.GameArena arena) {
+        Set<Waiter> arenaWaiters = waiters.get(arena.id);
+        if (arenaWaiters == null) {
+            return;
+        }
+        for (Waiter waiter : arenaWaiters) {
+            waiter.complete(arena);
+        }
+    }
+}
@@ -422,19 +422,17 @@ public class TicTacToeClient {
     }
     
     /**
-     * Loggt eine Nachricht mit Zeitstempel
+     * Loggt eine Nachricht (Zeitstempel setzt AsyncLog)
      */
     private void log(String message) {
-        String timestamp = LocalDateTime.now().format(timeFormatter);
-        System.out.println("[" + timestamp + "] " + message);
+        AsyncLog.info(message);
     }
     
     /**
-     * Loggt einen Fehler mit Zeitstempel
+     * Loggt einen Fehler (Zeitstempel setzt AsyncLog)
      */
     private void logError(String message) {
-        String timestamp = LocalDateTime.now().format(timeFormatter);
-        System.err.println("[" + timestamp + "] ❌ " + message);
+        AsyncLog.error("❌ " + message);
     }
     
     /**
@@ -484,7 +482,7 @@ public class TicTacToeClient {
             try {
                 port = Integer.parseInt(args[1]);
             } catch (NumberFormatException e) {
-                System.err.println("❌ Ungültiger Port. Verwende Standard-Port " + DEFAULT_PORT);
+                AsyncLog.warn("❌ Ungültiger Port. Verwende Standard-Port " + DEFAULT_PORT);
             }
         }
         
@@ -11,6 +11,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -46,6 +47,11 @@ public class TicTacToeServer {
     private String player1Name;
     private String player2Name;
     private LocalDateTime gameStartTime;
+    // Moves of the running game, 4 bits each (position 1-9, first move lowest), see ReplayStore
+    private long moves;
+    private int moveCount;
+    private ReplayStore replays;
+    private final EloRatings ratings = EloRatings.fromSystemProperties();
     private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
     
     public TicTacToeServer() {
@@ -68,6 +74,7 @@ public class TicTacToeServer {
             serverSocket = new ServerSocket(port);
             serverSocket.setSoTimeout(0); // No timeout for accept
             serverRunning.set(true);
+            openReplays(port);
             
             log("🎮 TicTacToe Server gestartet auf Port " + port);
             log("📍 Server IP: " + getServerIP());
@@ -223,6 +230,7 @@ public class TicTacToeServer {
                     try {
                         int position = Integer.parseInt(move.substring(5));
                         if (game.makeMove(position)) {
+                            moves |= (long) position << (4 * moveCount++);
                             // Erfolgreicher Zug - beide Spieler benachrichtigen
                             String moveMsg = "MOVE_MADE:" + position + ":" + game.getCurrentPlayer() + ":" + currentPlayerName;
                             player1Out.println(moveMsg);
@@ -340,6 +348,43 @@ public class TicTacToeServer {
         long duration = java.time.Duration.between(gameStartTime, endTime).getSeconds();
         
         log("🏁 Spiel beendet: " + winnerName + " gewinnt! (Dauer: " + duration + " Sekunden)");
+        
+        // Aborted games (disconnect, timeout, QUIT) are not worth a replay and do not count for the rating
+        if (replays != null && game.isGameEnded()) {
+            ZoneId zone = ZoneId.systemDefault();
+            replays.record("tcp:" + serverSocket.getLocalPort(), player1Name, player2Name,
+                    gameStartTime.atZone(zone).toInstant().toEpochMilli(), endTime.atZone(zone).toInstant().toEpochMilli(),
+                    game.getWinner(), moves);
+        }
+        if (game.isGameEnded()) {
+            ratings.record(player1Name, player2Name, game.getWinner());
+            log("📈 Elo: " + describeRating(player1Name) + ", " + describeRating(player2Name));
+        }
+    }
+    
+    private String describeRating(String playerName) {
+        EloRatings.Standing standing = ratings.get(playerName);
+        return standing == null ? playerName : playerName + " " + standing.rating().points() + " (Rang " + standing.rank() + ")";
+    }
+    
+    /**
+     * Öffnet das Replay-Archiv (gleiches Format wie beim SimpleMultiplayerServer, siehe ReplayStore)
+     * und berechnet daraus die Elo-Wertungen neu
+     */
+    private void openReplays(int port) {
+        replays = ReplayStore.fromSystemProperties(port);
+        if (replays == null) {
+            return;
+        }
+        try {
+            replays.open();
+            log("📼 " + replays.size() + " Replays in " + replays.getDirectory());
+            ratings.rebuild(replays);
+            log("📈 " + ratings.size() + " Elo-Wertungen aus den Replays berechnet");
+        } catch (IOException e) {
+            logError("Replay-Archiv nicht verfügbar: " + e.getMessage());
+            replays = null;
+        }
     }
     
     /**
@@ -354,19 +399,17 @@ public class TicTacToeServer {
     }
     
     /**
-     * Loggt eine Nachricht mit Zeitstempel
+     * Loggt eine Nachricht (Zeitstempel setzt AsyncLog)
      */
     private void log(String message) {
-        String timestamp = LocalDateTime.now().format(timeFormatter);
-        System.out.println("[" + timestamp + "] " + message);
+        AsyncLog.info(message);
     }
     
     /**
-     * Loggt einen Fehler mit Zeitstempel
+     * Loggt einen Fehler (Zeitstempel setzt AsyncLog)
      */
     private void logError(String message) {
-        String timestamp = LocalDateTime.now().format(timeFormatter);
-        System.err.println("[" + timestamp + "] ❌ " + message);
+        AsyncLog.error("❌ " + message);
     }
     
     /**
@@ -398,6 +441,7 @@ public class TicTacToeServer {
             if (player1Socket != null) player1Socket.close();
             if (player2Socket != null) player2Socket.close();
             if (serverSocket != null) serverSocket.close();
+            if (replays != null) replays.close();
             
             log("🧹 Server-Ressourcen bereinigt");
         } catch (Exception e) {
@@ -414,7 +458,7 @@ public class TicTacToeServer {
             try {
                 port = Integer.parseInt(args[0]);
             } catch (NumberFormatException e) {
-                System.err.println("❌ Ungültiger Port. Verwende Standard-Port " + DEFAULT_PORT);
+                AsyncLog.warn("❌ Ungültiger Port. Verwende Standard-Port " + DEFAULT_PORT);
             }
         }
         
@@ -0,0 +1,894 @@
+package systems.mythical.myjavaproject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Turniere für /api/tournaments: K.-o.-System (single) und Jeder-gegen-jeden (roundrobin)
+ *
+ * Ein Turnier setzt die Spieler seiner Matches selbst in Arenen (seat() wie beim Matchmaking) und
+ * hängt als ArenaListener an den Arenen: sobald ein Spiel endet, wird das Ergebnis eingetragen und
+ * jedes Match gestartet, dessen beide Spieler jetzt frei sind, ohne Polling und ohne auf das Ende
+ * einer ganzen Runde zu warten. Beendete Arenen eines Turniers werden für die nächsten Matches
+ * zurückgesetzt und wiederverwendet, statt jedes Mal eine neue anzulegen.
+ *
+ * Jede Änderung erhöht die Turnier-Version. Der Spielplan wird pro Version höchstens einmal als JSON
+ * gerendert und mit der Version als ETag ausgeliefert; mit since=<version> wartet ein Request wie beim
+ * Status-Long-Poll ohne Thread auf die nächste Version. Teilnehmer holen ihr aktuelles Match (Arena und
+ * Token) mit ihrem Schlüssel über /api/tournaments/{id}/match?key=..., ebenfalls mit since als Long-Poll.
+ *
+ * K.-o.: Setzliste in Anmeldereihenfolge, Freilose gehen an die besten Setzplätze. Ein Remis wird mit
+ * getauschten Farben wiederholt, nach tournament.maxRematches Wiederholungen kommt der besser Gesetzte
+ * weiter. Jeder-gegen-jeden: Rundenplan nach der Kreismethode, Sieg 1 Punkt, Remis ½ Punkt.
+ * Wer innerhalb von tournament.matchTimeoutMs ein Spiel nicht beendet, verliert es, wenn er am Zug ist.
+ *
+ * Ein Turnier lebt (mit seinen Arenen) auf dem Knoten, der es angelegt hat.
+ *
+ * Konfiguration (System Properties):
+ *   -Dtournament.matchTimeoutMs=120000  (Zeit pro Spiel)
+ *   -Dtournament.maxRematches=2         (Wiederholungen nach einem Remis im K.-o.-System)
+ *   -Dtournament.maxPlayers=1024        (Teilnehmer pro Turnier, Jeder-gegen-jeden höchstens 256)
+ *   -Dtournament.maxRunning=100         (gleichzeitig laufende Turniere)
+ */
+public class Tournaments {
+    private static final long MATCH_TIMEOUT_MS = Long.getLong("tournament.matchTimeoutMs", 120000);
+    private static final int MAX_REMATCHES = Math.max(0, Integer.getInteger("tournament.maxRematches", 2));
+    private static final int MAX_PLAYERS = Integer.getInteger("tournament.maxPlayers", 1024);
+    private static final int MAX_ROUND_ROBIN_PLAYERS = 256;
+    private static final int MAX_RUNNING = Integer.getInteger("tournament.maxRunning", 100);
+    // Finished tournaments stay readable until this many newer ones have finished
+    private static final int MAX_FINISHED = 100;
+    private static final long DEFAULT_TIMEOUT_MS = 25000;
+    private static final long MAX_TIMEOUT_MS = 30000;
+    private static final int KEY_BYTES = 16;
+
+    private static final Map<String, Tournament> tournaments = new ConcurrentHashMap<>();
+    private static final Queue<Tournament> finished = new ConcurrentLinkedQueue<>();
+    // Matches by the arena their current game is played in
+    private static final Map<String, Match> playing = new ConcurrentHashMap<>();
+    private static final Map<String, Participant> participantsByKey = new ConcurrentHashMap<>();
+    private static final AtomicLong tournamentIds = new AtomicLong();
+    private static final AtomicInteger running = new AtomicInteger();
+    private static final LongAdder gamesPlayed = new LongAdder();
+    private static final LongAdder forfeits = new LongAdder();
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tournament-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    enum Format {
+        SINGLE("single"), ROUND_ROBIN("roundrobin");
+
+        final String id;
+
+        Format(String id) {
+            this.id = id;
+        }
+
+        static Format parse(String id) {
+            for (Format format : values()) {
+                if (format.id.equals(id)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private enum MatchStatus {
+        PENDING("pending"), PLAYING("playing"), FINISHED("finished");
+
+        final String id;
+
+        MatchStatus(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Ein Teilnehmer; alle Felder außer version werden nur unter dem Lock des Turniers geändert
+     */
+    static final class Participant {
+        final Tournament tournament;
+        final String name;
+        final int seed;
+        final String key;
+        // Round robin: own matches in round order
+        final List<Match> schedule = new ArrayList<>();
+        int nextMatch;
+        // Match the participant plays or waits for, null when eliminated or done
+        Match current;
+        int wins;
+        int draws;
+        int losses;
+        boolean eliminated;
+        // Bumped whenever the participant's assignment changes, drives the /match long-poll
+        volatile long version;
+
+        Participant(Tournament tournament, String name, int seed, String key) {
+            this.tournament = tournament;
+            this.name = name;
+            this.seed = seed;
+            this.key = key;
+        }
+
+        double points() {
+            return wins + draws / 2.0;
+        }
+    }
+
+    /**
+     * Ein Match zwischen a und b; im K.-o.-System stehen die Spieler späterer Runden erst nach
+     * den Vorrunden fest. Im K.-o.-System kann ein Match nach einem Remis mehrere Spiele haben.
+     */
+    static final class Match {
+        final Tournament tournament;
+        final int number;
+        final int round;
+        Participant a;
+        Participant b;
+        // Single elimination: the winner moves into slot nextSlot of next
+        Match next;
+        int nextSlot;
+        MatchStatus status = MatchStatus.PENDING;
+        Participant winner;
+        int games;
+        int drawnGames;
+        SimpleMultiplayerServer.GameArena arena;
+        Participant playerX;
+        PlayerSessions.Session sessionX;
+        PlayerSessions.Session sessionO;
+        ScheduledFuture<?> deadline;
+
+        Match(Tournament tournament, int number, int round) {
+            this.tournament = tournament;
+            this.number = number;
+            this.round = round;
+        }
+
+        Participant opponent(Participant participant) {
+            return participant == a ? b : a;
+        }
+
+        PlayerSessions.Session session(Participant participant) {
+            return participant == playerX ? sessionX : sessionO;
+        }
+    }
+
+    /**
+     * Spielplan als fertiges JSON für genau eine Version
+     */
+    private record Rendered(long version, byte[] body) {
+    }
+
+    static final class Tournament {
+        final String id;
+        final String name;
+        final Format format;
+        final List<Participant> participants = new ArrayList<>();
+        final List<Match> matches = new ArrayList<>();
+        // ReentrantLock instead of synchronized: results arrive on virtual handler threads
+        private final ReentrantLock lock = new ReentrantLock();
+        // Arenas of finished games, reused for the next games (only under the lock)
+        private final Deque<SimpleMultiplayerServer.GameArena> idleArenas = new ArrayDeque<>();
+        private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean wakePending = new AtomicBoolean(false);
+        private volatile Rendered rendered;
+        volatile long version;
+        volatile boolean done;
+        volatile int finishedMatches;
+        Participant champion;
+
+        Tournament(String id, String name, Format format) {
+            this.id = id;
+            this.name = name;
+            this.format = format;
+        }
+
+        String etag() {
+            return "\"" + id + "-" + version + "\"";
+        }
+
+        private void start() {
+            if (format == Format.SINGLE) {
+                buildBracket();
+                for (Match match : matches) {
+                    if (match.round == 0 && (match.a == null || match.b == null)) {
+                        // bye: the seeded player moves on without a game
+                        finish(match, match.a != null ? match.a : match.b);
+                    }
+                }
+                for (Match match : matches) {
+                    if (match.status == MatchStatus.PENDING && match.a != null && match.b != null) {
+                        startGame(match);
+                    }
+                }
+            } else {
+                buildSchedule();
+                for (Participant participant : participants) {
+                    participant.current = participant.schedule.isEmpty() ? null : participant.schedule.get(0);
+                }
+                for (Match match : matches) {
+                    if (match.a.current == match && match.b.current == match) {
+                        startGame(match);
+                    }
+                }
+            }
+            touch(null);
+        }
+
+        /**
+         * K.-o.-Baum mit der Standard-Setzliste (1 gegen n, 2 gegen n-1, ...), Größe auf die nächste Zweierpotenz aufgerundet
+         */
+        private void buildBracket() {
+            int size = Integer.highestOneBit(participants.size() - 1) << 1;
+            int[] order = {1};
+            while (order.length < size) {
+                int[] next = new int[order.length * 2];
+                for (int i = 0; i < order.length; i++) {
+                    next[2 * i] = order[i];
+                    next[2 * i + 1] = order.length * 2 + 1 - order[i];
+                }
+                order = next;
+            }
+
+            List<Match> previousRound = new ArrayList<>();
+            for (int i = 0; i < size / 2; i++) {
+                Match match = new Match(this, matches.size() + 1, 0);
+                match.a = seed(order[2 * i]);
+                match.b = seed(order[2 * i + 1]);
+                for (Participant participant : new Participant[] {match.a, match.b}) {
+                    if (participant != null) {
+                        participant.current = match;
+                    }
+                }
+                matches.add(match);
+                previousRound.add(match);
+            }
+            for (int round = 1; previousRound.size() > 1; round++) {
+                List<Match> currentRound = new ArrayList<>();
+                for (int i = 0; i < previousRound.size(); i += 2) {
+                    Match match = new Match(this, matches.size() + 1, round);
+                    previousRound.get(i).next = match;
+                    previousRound.get(i + 1).next = match;
+                    previousRound.get(i + 1).nextSlot = 1;
+                    matches.add(match);
+                    currentRound.add(match);
+                }
+                previousRound = currentRound;
+            }
+        }
+
+        private Participant seed(int seed) {
+            return seed <= participants.size() ? participants.get(seed - 1) : null;
+        }
+
+        /**
+         * Rundenplan nach der Kreismethode: der erste Spieler bleibt stehen, alle anderen rotieren
+         */
+        private void buildSchedule() {
+            List<Participant> circle = new ArrayList<>(participants);
+            if (circle.size() % 2 == 1) {
+                circle.add(null);
+            }
+            int n = circle.size();
+            for (int round = 0; round < n - 1; round++) {
+                for (int i = 0; i < n / 2; i++) {
+                    Participant a = circle.get(i);
+                    Participant b = circle.get(n - 1 - i);
+                    if (a == null || b == null) {
+                        continue;
+                    }
+                    Match match = new Match(this, matches.size() + 1, round);
+                    match.a = a;
+                    match.b = b;
+                    a.schedule.add(match);
+                    b.schedule.add(match);
+                    matches.add(match);
+                }
+                circle.add(1, circle.remove(n - 1));
+            }
+        }
+
+        /**
+         * Startet das nächste Spiel eines Matches in einer wiederverwendeten oder neuen Arena
+         */
+        private void startGame(Match match) {
+            match.games++;
+            // colours swap every game, in round robin additionally every round
+            boolean aIsX = (match.games - 1 + (format == Format.ROUND_ROBIN ? match.round : 0)) % 2 == 0;
+            Participant x = aIsX ? match.a : match.b;
+            Participant o = aIsX ? match.b : match.a;
+
+            SimpleMultiplayerServer.GameArena arena = null;
+            SimpleMultiplayerServer.ArenaState seated = null;
+            Iterator<SimpleMultiplayerServer.GameArena> idle = idleArenas.iterator();
+            while (seated == null && idle.hasNext()) {
+                SimpleMultiplayerServer.GameArena candidate = idle.next();
+                if (SimpleMultiplayerServer.getArena(candidate.id) != candidate) {
+                    idle.remove();
+                    continue;
+                }
+                // the result may be recorded before the finishing move scheduled the cleanup; reset() must come after it
+                SimpleMultiplayerServer.ArenaState state = candidate.getState();
+                if (!"cleaning".equals(SimpleMultiplayerServer.lobbyStatus(candidate, state))) {
+                    continue;
+                }
+                idle.remove();
+                candidate.reset();
+                seated = candidate.seat(x.name, o.name);
+                arena = candidate;
+            }
+            if (seated == null) {
+                do {
+                    // a new arena is briefly listed as idle, so the matchmaker may grab it first
+                    arena = SimpleMultiplayerServer.createArena(SimpleMultiplayerServer.newArenaId(), "🏆 " + name);
+                } while ((seated = arena.seat(x.name, o.name)) == null);
+            }
+
+            match.status = MatchStatus.PLAYING;
+            match.arena = arena;
+            match.playerX = x;
+            // both seat entries are new, so nobody can hold a token for them yet; a seat is never claimed by name
+            match.sessionX = PlayerSessions.issue(arena, seated, 0);
+            match.sessionO = PlayerSessions.issue(arena, seated, 1);
+            playing.put(arena.id, match);
+            int game = match.games;
+            match.deadline = timer.schedule(() -> timedOut(match, game), MATCH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            touch(x);
+            touch(o);
+        }
+
+        private void gameOver(Match match, SimpleMultiplayerServer.GameArena arena, SimpleMultiplayerServer.ArenaState state) {
+            lock.lock();
+            try {
+                if (match.status != MatchStatus.PLAYING || match.arena != arena || !playing.remove(arena.id, match)) {
+                    return;
+                }
+                match.deadline.cancel(false);
+                idleArenas.add(arena);
+                gamesPlayed.increment();
+                if (state.winner() == ' ') {
+                    recordDraw(match);
+                } else {
+                    Participant winner = state.winner() == 'X' ? match.playerX : match.opponent(match.playerX);
+                    winner.wins++;
+                    match.opponent(winner).losses++;
+                    finish(match, winner);
+                }
+            } finally {
+                lock.unlock();
+            }
+            publish();
+        }
+
+        private void recordDraw(Match match) {
+            match.drawnGames++;
+            match.a.draws++;
+            match.b.draws++;
+            if (format == Format.ROUND_ROBIN) {
+                finish(match, null);
+            } else if (match.drawnGames <= MAX_REMATCHES) {
+                startGame(match);
+            } else {
+                finish(match, match.a.seed < match.b.seed ? match.a : match.b);
+            }
+        }
+
+        /**
+         * Wer am Zug ist, verliert; die Arena des abgebrochenen Spiels wird gelöscht statt wiederverwendet
+         */
+        private void timedOut(Match match, int game) {
+            SimpleMultiplayerServer.GameArena arena;
+            lock.lock();
+            try {
+                arena = match.arena;
+                SimpleMultiplayerServer.ArenaState state = arena.getState();
+                // a finished state means the result is already on its way through the listener
+                if (match.status != MatchStatus.PLAYING || match.games != game || state.isFinished()
+                        || !playing.remove(arena.id, match)) {
+                    return;
+                }
+                Participant loser = state.currentPlayer() == 'X' ? match.playerX : match.opponent(match.playerX);
+                Participant winner = match.opponent(loser);
+                winner.wins++;
+                loser.losses++;
+                gamesPlayed.increment();
+                forfeits.increment();
+                AsyncLog.info("⏱️ Tournament " + id + ": " + loser.name + " forfeits against " + winner.name);
+                finish(match, winner);
+            } finally {
+                lock.unlock();
+            }
+            SimpleMultiplayerServer.removeArena(arena.id);
+            publish();
+        }
+
+        /**
+         * Die Arena wurde von außen zurückgesetzt oder gelöscht: das Spiel beginnt in einer anderen Arena neu
+         */
+        private void interrupted(Match match, SimpleMultiplayerServer.GameArena arena) {
+            lock.lock();
+            try {
+                if (match.status != MatchStatus.PLAYING || match.arena != arena || !playing.remove(arena.id, match)) {
+                    return;
+                }
+                match.deadline.cancel(false);
+                match.games--;
+                startGame(match);
+            } finally {
+                lock.unlock();
+            }
+            publish();
+        }
+
+        /**
+         * Trägt das Ergebnis ein und startet jedes Match, das dadurch spielbereit wird
+         * @param winner null bei Remis (nur Jeder-gegen-jeden)
+         */
+        private void finish(Match match, Participant winner) {
+            match.status = MatchStatus.FINISHED;
+            match.winner = winner;
+            finishedMatches++;
+            touch(match.a);
+            touch(match.b);
+
+            if (format == Format.SINGLE) {
+                Participant loser = match.opponent(winner);
+                if (loser != null) {
+                    loser.eliminated = true;
+                    loser.current = null;
+                }
+                if (match.next == null) {
+                    winner.current = null;
+                    complete(winner);
+                    return;
+                }
+                Match next = match.next;
+                if (match.nextSlot == 0) {
+                    next.a = winner;
+                } else {
+                    next.b = winner;
+                }
+                winner.current = next;
+                if (next.a != null && next.b != null) {
+                    startGame(next);
+                }
+            } else {
+                advance(match.a);
+                advance(match.b);
+                if (finishedMatches == matches.size()) {
+                    complete(standings().get(0));
+                }
+            }
+        }
+
+        private void advance(Participant participant) {
+            participant.nextMatch++;
+            if (participant.nextMatch >= participant.schedule.size()) {
+                participant.current = null;
+                return;
+            }
+            Match next = participant.schedule.get(participant.nextMatch);
+            participant.current = next;
+            if (next.status == MatchStatus.PENDING && next.opponent(participant).current == next) {
+                startGame(next);
+            }
+        }
+
+        private void complete(Participant winner) {
+            champion = winner;
+            done = true;
+            for (Participant participant : participants) {
+                touch(participant);
+            }
+            running.decrementAndGet();
+            finished.offer(this);
+            AsyncLog.info("🏆 Tournament " + id + " (" + name + ") won by " + winner.name);
+            while (finished.size() > MAX_FINISHED) {
+                Tournament oldest = finished.poll();
+                tournaments.remove(oldest.id);
+                for (Participant participant : oldest.participants) {
+                    participantsByKey.remove(participant.key);
+                }
+            }
+        }
+
+        /**
+         * Tabelle: Punkte, dann Siege, dann Setzplatz
+         */
+        private List<Participant> standings() {
+            List<Participant> table = new ArrayList<>(participants);
+            if (format == Format.ROUND_ROBIN) {
+                table.sort(Comparator.comparingDouble(Participant::points).reversed()
+                        .thenComparing(Comparator.comparingInt((Participant p) -> p.wins).reversed())
+                        .thenComparingInt(p -> p.seed));
+            }
+            return table;
+        }
+
+        private void touch(Participant participant) {
+            if (participant != null) {
+                participant.version++;
+            }
+            version++;
+        }
+
+        /**
+         * Weckt geparkte Requests; mehrere Änderungen kurz hintereinander ergeben einen Durchlauf
+         */
+        private void publish() {
+            if (!waiters.isEmpty() && wakePending.compareAndSet(false, true)) {
+                timer.execute(() -> {
+                    wakePending.set(false);
+                    for (Waiter waiter : waiters) {
+                        if (waiter.changed()) {
+                            waiter.complete(true);
+                        }
+                    }
+                });
+            }
+        }
+
+        /**
+         * Spielplan der aktuellen Version; gerendert wird nur, wenn sich seit dem letzten Mal etwas geändert hat
+         */
+        private Rendered render() {
+            Rendered current = rendered;
+            if (current != null && current.version() == version) {
+                return current;
+            }
+            lock.lock();
+            try {
+                current = rendered;
+                if (current != null && current.version() == version) {
+                    return current;
+                }
+                JsonWriter json = new JsonWriter(256 + matches.size() * 96);
+                writeBracket(json);
+                current = new Rendered(version, json.toByteArray());
+                rendered = current;
+                return current;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void writeBracket(JsonWriter json) {
+            json.beginObject();
+            json.name("success").value(true);
+            json.name("id").value(id);
+            json.name("name").value(name);
+            json.name("format").value(format.id);
+            json.name("status").value(done ? "finished" : "running");
+            json.name("version").value(version);
+            json.name("champion");
+            if (champion != null) {
+                json.value(champion.name);
+            } else {
+                json.nullValue();
+            }
+            json.name("standings").beginArray();
+            for (Participant participant : standings()) {
+                json.beginObject();
+                json.name("name").value(participant.name);
+                json.name("seed").value(participant.seed);
+                json.name("points").value(participant.points());
+                json.name("wins").value(participant.wins);
+                json.name("draws").value(participant.draws);
+                json.name("losses").value(participant.losses);
+                json.name("eliminated").value(participant.eliminated);
+                json.endObject();
+            }
+            json.endArray();
+            json.name("matches").beginArray();
+            for (Match match : matches) {
+                json.beginObject();
+                json.name("id").value(match.number);
+                json.name("round").value(match.round + 1);
+                json.name("a");
+                writeName(json, match.a);
+                json.name("b");
+                writeName(json, match.b);
+                json.name("status").value(match.status.id);
+                json.name("winner");
+                writeName(json, match.winner);
+                json.name("games").value(match.games);
+                json.name("arena");
+                if (match.arena != null) {
+                    json.value(match.arena.id);
+                } else {
+                    json.nullValue();
+                }
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+
+        private void writeAssignment(JsonWriter json, Participant participant) {
+            lock.lock();
+            try {
+                Match match = participant.current;
+                json.beginObject();
+                json.name("success").value(true);
+                json.name("tournament").value(id);
+                json.name("player").value(participant.name);
+                json.name("version").value(participant.version);
+                if (done) {
+                    json.name("status").value("finished");
+                    json.name("champion").value(champion == participant);
+                } else if (participant.eliminated) {
+                    json.name("status").value("eliminated");
+                } else if (match == null) {
+                    json.name("status").value("done");
+                } else {
+                    boolean started = match.status == MatchStatus.PLAYING;
+                    json.name("status").value(started ? "playing" : "waiting");
+                    json.name("match").value(match.number);
+                    json.name("round").value(match.round + 1);
+                    json.name("opponent");
+                    writeName(json, match.opponent(participant));
+                    if (started) {
+                        PlayerSessions.Session session = match.session(participant);
+                        json.name("game").value(match.games);
+                        json.name("arena").value(match.arena.id);
+                        json.name("symbol").value(participant == match.playerX ? 'X' : 'O');
+                        json.name("token");
+                        if (session != null) {
+                            json.value(session.token());
+                        } else {
+                            json.nullValue();
+                        }
+                    }
+                }
+                json.name("points").value(participant.points());
+                json.endObject();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static void writeName(JsonWriter json, Participant participant) {
+            if (participant != null) {
+                json.value(participant.name);
+            } else {
+                json.nullValue();
+            }
+        }
+    }
+
+    /**
+     * Ein geparkter Spielplan- oder Teilnehmer-Request; wird genau einmal beantwortet
+     */
+    private static final class Waiter {
+        final HttpExchange exchange;
+        final Tournament tournament;
+        // null: waits for the bracket
+        final Participant participant;
+        final long sinceVersion;
+        final AtomicBoolean done = new AtomicBoolean(false);
+        volatile ScheduledFuture<?> timeout;
+
+        Waiter(HttpExchange exchange, Tournament tournament, Participant participant, long sinceVersion) {
+            this.exchange = exchange;
+            this.tournament = tournament;
+            this.participant = participant;
+            this.sinceVersion = sinceVersion;
+        }
+
+        boolean changed() {
+            return (participant != null ? participant.version : tournament.version) > sinceVersion;
+        }
+
+        void complete(boolean changed) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            tournament.waiters.remove(this);
+            ScheduledFuture<?> pending = timeout;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            try {
+                if (!changed) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                } else if (participant != null) {
+                    sendAssignment(exchange, participant);
+                } else {
+                    sendBracket(exchange, tournament);
+                }
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Trägt Spielergebnisse ein, sobald eine Turnier-Arena ein Spiel beendet
+     */
+    static void install() {
+        SimpleMultiplayerServer.addArenaListener((arena, event) -> {
+            Match match = playing.get(arena.id);
+            if (match == null) {
+                return;
+            }
+            if ("move".equals(event)) {
+                SimpleMultiplayerServer.ArenaState state = arena.getState();
+                if (state.isFinished()) {
+                    match.tournament.gameOver(match, arena, state);
+                }
+            } else if ("reset".equals(event) || "deleted".equals(event)) {
+                match.tournament.interrupted(match, arena);
+            }
+        });
+    }
+
+    /**
+     * Legt ein Turnier an und startet sofort alle Matches der ersten Runde
+     * @throws IllegalArgumentException bei ungültiger Teilnehmerliste
+     * @throws IllegalStateException wenn schon tournament.maxRunning Turniere laufen
+     */
+    static Tournament create(String name, Format format, List<String> players) {
+        int maxPlayers = format == Format.ROUND_ROBIN ? Math.min(MAX_PLAYERS, MAX_ROUND_ROBIN_PLAYERS) : MAX_PLAYERS;
+        if (players.size() < 2 || players.size() > maxPlayers) {
+            throw new IllegalArgumentException("Zwischen 2 und " + maxPlayers + " Teilnehmer erforderlich");
+        }
+        Set<String> names = new HashSet<>();
+        for (String player : players) {
+            if (player.isEmpty() || !names.add(player)) {
+                throw new IllegalArgumentException("Teilnehmernamen müssen eindeutig und nicht leer sein");
+            }
+        }
+        if (running.incrementAndGet() > MAX_RUNNING) {
+            running.decrementAndGet();
+            throw new IllegalStateException("Zu viele laufende Turniere");
+        }
+
+        Tournament tournament = new Tournament("T-" + tournamentIds.incrementAndGet(), name, format);
+        for (String player : players) {
+            tournament.participants.add(new Participant(tournament, player, tournament.participants.size() + 1, newKey()));
+        }
+        for (Participant participant : tournament.participants) {
+            participantsByKey.put(participant.key, participant);
+        }
+        tournaments.put(tournament.id, tournament);
+        tournament.lock.lock();
+        try {
+            tournament.start();
+        } finally {
+            tournament.lock.unlock();
+        }
+        AsyncLog.info("🏁 Tournament " + tournament.id + " (" + name + ", " + format.id + ") started with "
+                + players.size() + " players");
+        return tournament;
+    }
+
+    static Tournament get(String id) {
+        return id == null ? null : tournaments.get(id);
+    }
+
+    static Collection<Tournament> getAll() {
+        return tournaments.values();
+    }
+
+    /**
+     * Teilnehmer zu einem Schlüssel, nur wenn er zu diesem Turnier gehört
+     */
+    static Participant participant(Tournament tournament, String key) {
+        Participant participant = key == null ? null : participantsByKey.get(key);
+        return participant != null && participant.tournament == tournament ? participant : null;
+    }
+
+    /**
+     * Spielplan mit der Version als ETag
+     */
+    static void sendBracket(HttpExchange exchange, Tournament tournament) throws IOException {
+        Rendered rendered = tournament.render();
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().add("ETag", "\"" + tournament.id + "-" + rendered.version() + "\"");
+        exchange.sendResponseHeaders(200, rendered.body().length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(rendered.body());
+        }
+    }
+
+    /**
+     * Aktuelles Match eines Teilnehmers mit Arena und Token, sobald es läuft
+     */
+    static void sendAssignment(HttpExchange exchange, Participant participant) throws IOException {
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            participant.tournament.writeAssignment(json, participant);
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            SimpleMultiplayerServer.sendJson(exchange, json);
+        } finally {
+            json.release();
+        }
+    }
+
+    /**
+     * Parkt einen Request, bis der Spielplan (participant == null) oder die Zuteilung des
+     * Teilnehmers eine größere Version als sinceVersion hat
+     */
+    static void park(HttpExchange exchange, Tournament tournament, Participant participant, long sinceVersion, String timeoutParam) {
+        long timeoutMs = DEFAULT_TIMEOUT_MS;
+        if (timeoutParam != null) {
+            try {
+                timeoutMs = Math.max(0, Math.min(MAX_TIMEOUT_MS, Long.parseLong(timeoutParam)));
+            } catch (NumberFormatException e) {
+                // keep default timeout
+            }
+        }
+
+        Waiter waiter = new Waiter(exchange, tournament, participant, sinceVersion);
+        tournament.waiters.add(waiter);
+        waiter.timeout = timer.schedule(() -> waiter.complete(false), timeoutMs, TimeUnit.MILLISECONDS);
+
+        // The tournament may have changed between the version check and the registration
+        if (waiter.changed()) {
+            waiter.complete(true);
+        }
+    }
+
+    public static int getRunningTournaments() {
+        return running.get();
+    }
+
+    public static int getPlayingGames() {
+        return playing.size();
+    }
+
+    public static long getGamesPlayed() {
+        return gamesPlayed.sum();
+    }
+
+    public static long getForfeits() {
+        return forfeits.sum();
+    }
+
+    public static int getParkedRequests() {
+        int count = 0;
+        for (Tournament tournament : tournaments.values()) {
+            count += tournament.waiters.size();
+        }
+        return count;
+    }
+
+    private static String newKey() {
+        byte[] bytes = new byte[KEY_BYTES];
+        random.nextBytes(bytes);
+        return encoder.encodeToString(bytes);
+    }
+}
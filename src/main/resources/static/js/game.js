@@ -0,0 +1,598 @@
+console.log('🎮 TicTacToe Game JavaScript loaded');
+console.log('🏟️ Arena ID:', arenaId);
+console.log('👤 Player Name:', playerName);
+
+let mySymbol = '', myTurn = false, board = Array(9).fill(' '), gameStarted = false;
+let gameStartTime = null, gameEndTime = null, timerInterval = null;
+let soundEnabled = localStorage.getItem('gameSound') !== 'false';
+let winningCombination = null, opponentName = '';
+
+const status = document.getElementById('status');
+const boardDiv = document.getElementById('board');
+
+// Update sound toggle button
+document.getElementById('soundToggle').innerHTML = soundEnabled ?
+    '<i class="fas fa-volume-up"></i> Sound: Ein' :
+    '<i class="fas fa-volume-mute"></i> Sound: Aus';
+
+// Update stats display on load
+updateStatsDisplay();
+
+// Sound functions
+function playSound(soundId) {
+    if (soundEnabled) {
+        try {
+            const sound = document.getElementById(soundId);
+            sound.currentTime = 0;
+            sound.play().catch(e => console.log('Sound play failed:', e));
+        } catch (e) {
+            console.log('Sound error:', e);
+        }
+    }
+}
+
+function toggleSound() {
+    soundEnabled = !soundEnabled;
+    localStorage.setItem('gameSound', soundEnabled);
+    document.getElementById('soundToggle').innerHTML = soundEnabled ?
+        '<i class="fas fa-volume-up"></i> Sound: Ein' :
+        '<i class="fas fa-volume-mute"></i> Sound: Aus';
+}
+
+async function showGameHelp() {
+    await Swal.fire({
+        title: '🎮 Spielhilfe',
+        html: `
+            <div class="text-left space-y-4">
+                <p><strong>🎯 Ziel:</strong> Bringe drei deiner Symbole in eine Reihe (horizontal, vertikal oder diagonal).</p>
+                <p><strong>🎮 Steuerung:</strong> Klicke auf ein leeres Feld um deinen Zug zu machen.</p>
+                <p><strong>⚡ Features:</strong></p>
+                <ul class="list-disc list-inside space-y-1 ml-4">
+                    <li>Echtzeit-Multiplayer</li>
+                    <li>Live-Statistiken</li>
+                    <li>Sound-Effekte</li>
+                    <li>Animierte Spielbrett</li>
+                    <li>Game Timer</li>
+                </ul>
+            </div>
+        `,
+        icon: 'info',
+        background: '#1a1a2e',
+        color: '#fff',
+        confirmButtonColor: '#10b981'
+    });
+}
+
+function updateStatsDisplay() {
+    const stats = JSON.parse(localStorage.getItem('ticTacToeStats') || '{}');
+    const playerStats = stats[playerName] || { wins: 0, losses: 0, draws: 0, gamesPlayed: 0 };
+
+    document.getElementById('winsCount').textContent = playerStats.wins;
+    document.getElementById('lossesCount').textContent = playerStats.losses;
+    document.getElementById('drawsCount').textContent = playerStats.draws;
+
+    const winRate = playerStats.gamesPlayed > 0 ?
+        Math.round((playerStats.wins / playerStats.gamesPlayed) * 100) : 0;
+    document.getElementById('winRate').textContent = winRate + '%';
+}
+
+function startGameTimer() {
+    if (!gameStartTime) {
+        gameStartTime = Date.now();
+        timerInterval = setInterval(() => {
+            const elapsed = Math.floor((Date.now() - gameStartTime) / 1000);
+            const minutes = Math.floor(elapsed / 60);
+            const seconds = elapsed % 60;
+            document.getElementById('gameTimer').textContent =
+                `${minutes.toString().padStart(2, '0')}:${seconds.toString().padStart(2, '0')}`;
+        }, 1000);
+    }
+}
+
+function stopGameTimer() {
+    if (timerInterval) {
+        clearInterval(timerInterval);
+        timerInterval = null;
+        gameEndTime = Date.now();
+    }
+}
+
+// Session token from /api/join; moves are only accepted with it, the name alone is not enough
+const tokenKey = 'arenaToken:' + arenaId;
+let sessionToken = null;
+
+function joinGame() {
+    console.log('🔗 Attempting to join game...');
+    fetch('/api/join', {
+        method: 'POST',
+        headers: {'Content-Type': 'application/json'},
+        body: JSON.stringify({arena: arenaId, player: playerName, token: localStorage.getItem(tokenKey)})
+    })
+    .then(response => {
+        console.log('📥 Join response status:', response.status);
+        return response.json();
+    })
+    .then(data => {
+        console.log('📊 Join response data:', data);
+        if (data.success) {
+            mySymbol = data.symbol;
+            sessionToken = data.token;
+            localStorage.setItem(tokenKey, sessionToken);
+            gameStarted = data.gameStarted;
+            console.log('✅ Successfully joined as:', mySymbol, 'Game started:', gameStarted);
+
+            // Update player symbol display
+            document.getElementById('playerSymbol').textContent = `Du spielst als: ${mySymbol}`;
+
+            if (gameStarted) {
+                status.textContent = '🎮 Spiel läuft! Du bist ' + mySymbol;
+                status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-green-100 to-green-200 text-green-800 font-bold text-lg shadow-lg pulse-glow';
+                startGameTimer();
+            } else {
+                status.textContent = '⏳ Warte auf zweiten Spieler...';
+                status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-yellow-100 to-yellow-200 text-yellow-800 font-bold text-lg shadow-lg';
+            }
+            startPolling();
+        } else {
+            console.error('❌ Failed to join game:', data.message);
+            status.textContent = '❌ Fehler: ' + data.message;
+            status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-red-100 to-red-200 text-red-800 font-bold text-lg shadow-lg shake-animation';
+        }
+    })
+    .catch(error => {
+        console.error('❌ Error joining game:', error);
+        status.textContent = '🌐 Verbindungsfehler beim Beitreten!';
+        status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-red-100 to-red-200 text-red-800 font-bold text-lg shadow-lg shake-animation';
+    });
+}
+
+let statusSocket = null, statusEvents = null, longPolling = false, statusVersion = -1;
+
+function startPolling() {
+    connectStatusSocket();
+    drawBoard();
+}
+
+// Server pushes every state change over WebSocket, then Server-Sent Events; polling is only the last fallback
+function connectStatusSocket() {
+    if (!('WebSocket' in window)) {
+        connectEventStream();
+        return;
+    }
+    const wsProtocol = location.protocol === 'https:' ? 'wss://' : 'ws://';
+    try {
+        statusSocket = new WebSocket(wsProtocol + location.hostname + ':' + wsPort + '/ws/arena/' + encodeURIComponent(arenaId));
+    } catch (e) {
+        console.warn('⚠️ WebSocket not available, falling back to event stream:', e);
+        connectEventStream();
+        return;
+    }
+    statusSocket.onopen = () => console.log('🔌 WebSocket connected');
+    statusSocket.onmessage = (event) => handleStatus(JSON.parse(event.data));
+    statusSocket.onclose = () => {
+        console.warn('⚠️ WebSocket closed, falling back to event stream');
+        statusSocket = null;
+        connectEventStream();
+    };
+}
+
+function connectEventStream() {
+    if (!('EventSource' in window) || statusEvents) {
+        if (!statusEvents) startStatusPolling();
+        return;
+    }
+    statusEvents = new EventSource('/api/events?arena=' + encodeURIComponent(arenaId));
+    statusEvents.addEventListener('state', (event) => handleStatus(JSON.parse(event.data)));
+    statusEvents.onerror = () => {
+        // EventSource reconnects by itself unless the server refused the stream
+        if (statusEvents.readyState === EventSource.CLOSED) {
+            console.warn('⚠️ Event stream closed, falling back to polling');
+            statusEvents = null;
+            startStatusPolling();
+        }
+    };
+}
+
+function startStatusPolling() {
+    if (!longPolling) {
+        longPolling = true;
+        pollGameStatus();
+    }
+}
+
+// Long-poll: the server answers as soon as the arena version moves past statusVersion (304 on timeout)
+function pollGameStatus() {
+    fetch('/api/status?arena=' + arenaId + '&since=' + statusVersion)
+        .then(response => {
+            if (response.status === 304) {
+                return null;
+            }
+            if (!response.ok) {
+                throw new Error('HTTP ' + response.status);
+            }
+            return response.json();
+        })
+        .then(data => {
+            if (data) {
+                handleStatus(data);
+            }
+            pollGameStatus();
+        })
+        .catch(error => {
+            console.error('❌ Error polling game status:', error);
+            // Back off instead of hammering the server on errors
+            setTimeout(pollGameStatus, 2000);
+        });
+}
+
+function handleStatus(data) {
+    if (data.version !== undefined) {
+        statusVersion = data.version;
+    }
+    if (data.board) {
+        const newBoard = data.board.split('');
+        // Check if board changed to add sound and animation
+        let boardChanged = false;
+        for (let i = 0; i < 9; i++) {
+            if (board[i] !== newBoard[i] && newBoard[i] !== ' ') {
+                boardChanged = true;
+                break;
+            }
+        }
+        if (boardChanged && gameStarted) {
+            playSound('moveSound');
+        }
+        board = newBoard;
+        drawBoard();
+    }
+
+    // Update opponent info
+    if (data.players && data.players.length === 2) {
+        const opponent = data.players.find(p => p !== playerName);
+        if (opponent && opponent !== opponentName) {
+            opponentName = opponent;
+            const opponentSymbol = mySymbol === 'X' ? 'O' : 'X';
+            document.querySelector('#opponentInfo .font-bold').textContent = opponent;
+            document.querySelector('#opponentInfo .text-sm').textContent = `Spielt als: ${opponentSymbol}`;
+        }
+    }
+
+    if (data.gameStarted && !gameStarted) {
+        gameStarted = true;
+        status.textContent = '🚀 Spiel gestartet! Du bist ' + mySymbol;
+        status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-green-100 to-green-200 text-green-800 font-bold text-lg shadow-lg pulse-glow';
+        startGameTimer();
+    }
+
+    if (data.currentPlayer) {
+        myTurn = (data.currentPlayer === mySymbol);
+        if (gameStarted) {
+            status.textContent = myTurn ? '⚡ Du bist dran!' : '⏳ Gegner ist dran...';
+            status.className = myTurn ?
+                'mb-8 p-6 rounded-2xl bg-gradient-to-r from-blue-100 to-blue-200 text-blue-800 font-bold text-lg shadow-lg animate-pulse' :
+                'mb-8 p-6 rounded-2xl bg-gradient-to-r from-gray-100 to-gray-200 text-gray-800 font-bold text-lg shadow-lg';
+        }
+    }
+
+    if (data.winner) {
+        stopGameTimer();
+        myTurn = false;
+
+        // Update stats first
+        updatePlayerStats(data.winner);
+        updateStatsDisplay();
+
+        // Show game result with sound and visual effects
+        if (data.winner === 'DRAW') {
+            status.textContent = '🤝 Unentschieden! Zurück zur Lobby in 8 Sekunden...';
+            status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-gray-100 to-gray-200 text-gray-800 font-bold text-lg shadow-lg';
+
+            // Show draw modal
+            setTimeout(() => {
+                Swal.fire({
+                    title: '🤝 Unentschieden!',
+                    text: 'Ein spannender Kampf! Niemand gewinnt dieses Mal.',
+                    icon: 'info',
+                    background: '#1a1a2e',
+                    color: '#fff',
+                    confirmButtonColor: '#6b7280',
+                    timer: 3000,
+                    timerProgressBar: true
+                });
+            }, 500);
+        } else if (data.winner === mySymbol) {
+            status.textContent = '🎉 Du gewinnst! Zurück zur Lobby in 8 Sekunden...';
+            status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-green-100 to-green-200 text-green-800 font-bold text-lg shadow-lg animate-bounce';
+            playSound('winSound');
+
+            // Show victory modal with confetti effect
+            setTimeout(() => {
+                Swal.fire({
+                    title: '🎉 Glückwunsch!',
+                    text: `Du hast gewonnen! 🏆 Fantastisches Spiel!`,
+                    icon: 'success',
+                    background: '#1a1a2e',
+                    color: '#fff',
+                    confirmButtonColor: '#10b981',
+                    timer: 3000,
+                    timerProgressBar: true,
+                    showConfirmButton: false
+                });
+            }, 500);
+        } else {
+            status.textContent = '😔 Du verlierst! Zurück zur Lobby in 8 Sekunden...';
+            status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-red-100 to-red-200 text-red-800 font-bold text-lg shadow-lg shake-animation';
+            playSound('loseSound');
+
+            // Show defeat modal
+            setTimeout(() => {
+                Swal.fire({
+                    title: '😔 Schade!',
+                    text: 'Du hast verloren, aber gib nicht auf! 💪',
+                    icon: 'error',
+                    background: '#1a1a2e',
+                    color: '#fff',
+                    confirmButtonColor: '#ef4444',
+                    timer: 3000,
+                    timerProgressBar: true
+                });
+            }, 500);
+        }
+
+        // Highlight winning combination if available
+        if (data.winningCombination) {
+            winningCombination = data.winningCombination;
+            drawBoard();
+        }
+
+        // Auto return to lobby after 8 seconds (to allow arena cleanup)
+        let countdown = 8;
+        const countdownInterval = setInterval(() => {
+            countdown--;
+            if (countdown <= 0) {
+                window.location.href = '/';
+                clearInterval(countdownInterval);
+            } else {
+                const currentText = status.textContent;
+                const baseText = currentText.split(' Zurück zur Lobby')[0];
+                status.textContent = baseText + ` Zurück zur Lobby in ${countdown} Sekunden...`;
+            }
+        }, 1000);
+    }
+}
+
+function drawBoard() {
+    boardDiv.innerHTML = '';
+    boardDiv.className = 'grid grid-cols-3 gap-4 w-fit mx-auto p-4 bg-white bg-opacity-10 rounded-2xl backdrop-blur-sm border border-white border-opacity-20 shadow-2xl';
+
+    for (let i = 0; i < 9; i++) {
+        const cell = document.createElement('button');
+        let cellClass = 'w-28 h-28 text-5xl font-black border-3 rounded-2xl shadow-xl transition-all duration-150 transform ';
+
+        if (board[i] === 'X') {
+            cellClass += 'bg-gradient-to-br from-blue-400 via-blue-500 to-blue-700 text-white border-blue-300 shadow-blue-400/50 hover:shadow-blue-400/70';
+            cell.innerHTML = '<i class="fas fa-times"></i>';
+        } else if (board[i] === 'O') {
+            cellClass += 'bg-gradient-to-br from-red-400 via-red-500 to-red-700 text-white border-red-300 shadow-red-400/50 hover:shadow-red-400/70';
+            cell.innerHTML = '<i class="fas fa-circle-notch"></i>';
+        } else {
+            if (myTurn && gameStarted) {
+                cellClass += 'bg-gradient-to-br from-white to-gray-100 text-gray-400 border-gray-200 hover:from-purple-50 hover:to-purple-100 hover:border-purple-300 hover:shadow-purple-300/50 hover:scale-105 cursor-pointer';
+                cell.innerHTML = '<i class="fas fa-plus opacity-30"></i>';
+            } else {
+                cellClass += 'bg-gradient-to-br from-gray-50 to-gray-100 text-gray-300 border-gray-200';
+                cell.innerHTML = '<i class="fas fa-plus opacity-10"></i>';
+            }
+        }
+
+        // Add winning cell animation
+        if (winningCombination && winningCombination.includes(i)) {
+            cellClass += ' winning-cell';
+        }
+
+        // Add pulsing effect for current player's turn
+        if (board[i] === ' ' && myTurn && gameStarted) {
+            cellClass += ' pulse-glow';
+        }
+
+        cell.className = cellClass;
+        cell.disabled = board[i] !== ' ' || !myTurn || !gameStarted;
+
+        if (!cell.disabled) {
+            cell.style.cursor = 'pointer';
+
+            // Immediate click feedback
+            cell.addEventListener('mousedown', () => {
+                if (board[i] === ' ') {
+                    cell.style.transform = 'scale(0.95)';
+                }
+            });
+
+            cell.addEventListener('mouseup', () => {
+                if (board[i] === ' ') {
+                    cell.style.transform = 'scale(1)';
+                }
+            });
+
+            cell.onmouseenter = () => {
+                if (board[i] === ' ' && myTurn && gameStarted) {
+                    cell.innerHTML = mySymbol === 'X' ?
+                        '<i class="fas fa-times text-blue-400 opacity-60"></i>' :
+                        '<i class="fas fa-circle-notch text-red-400 opacity-60"></i>';
+                    cell.style.transform = 'scale(1.05)';
+                }
+            };
+            cell.onmouseleave = () => {
+                if (board[i] === ' ') {
+                    cell.innerHTML = '<i class="fas fa-plus opacity-20"></i>';
+                    cell.style.transform = 'scale(1)';
+                }
+            };
+        } else {
+            cell.style.cursor = board[i] !== ' ' ? 'default' : 'not-allowed';
+            cell.style.opacity = board[i] !== ' ' ? '1' : '0.6';
+        }
+
+        // Multiple event handlers for better responsiveness
+        cell.addEventListener('click', (e) => {
+            e.preventDefault();
+            makeMove(i);
+        });
+
+        // Handle touch devices
+        cell.addEventListener('touchstart', (e) => {
+            e.preventDefault();
+            if (board[i] === ' ' && myTurn && gameStarted && !isMovePending) {
+                makeMove(i);
+            }
+        });
+
+        boardDiv.appendChild(cell);
+    }
+}
+
+let isMovePending = false;
+
+function makeMove(index) {
+    if (board[index] === ' ' && myTurn && gameStarted && !isMovePending) {
+        console.log('🎯 Making move at position:', index);
+        isMovePending = true;
+
+        // Immediate visual feedback
+        const cells = document.querySelectorAll('#board button');
+        const clickedCell = cells[index];
+
+        // Instant visual response
+        clickedCell.disabled = true;
+        clickedCell.style.opacity = '0.7';
+        clickedCell.innerHTML = mySymbol === 'X' ?
+            '<i class="fas fa-times text-blue-500"></i>' :
+            '<i class="fas fa-circle-notch text-red-500"></i>';
+        clickedCell.style.transform = 'scale(1.1)';
+
+        // Disable all cells temporarily to prevent double clicks
+        cells.forEach(cell => cell.style.pointerEvents = 'none');
+
+        status.textContent = '⚡ Zug wird gesendet...';
+        status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-blue-100 to-blue-200 text-blue-800 font-bold text-lg shadow-lg';
+
+        fetch('/api/move', {
+            method: 'POST',
+            headers: {'Content-Type': 'application/json'},
+            body: JSON.stringify({arena: arenaId, token: sessionToken, position: index})
+        })
+        .then(response => response.json())
+        .then(data => {
+            console.log('📊 Move response:', data);
+            if (data.success) {
+                // Move successful
+                board[index] = mySymbol;
+                myTurn = false;
+                playSound('moveSound');
+
+                clickedCell.style.transform = 'scale(1)';
+                status.textContent = '✅ Zug erfolgreich! Warte auf Gegner...';
+                status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-green-100 to-green-200 text-green-800 font-bold text-lg shadow-lg';
+            } else {
+                // Move failed - revert
+                clickedCell.disabled = false;
+                clickedCell.style.opacity = '1';
+                clickedCell.innerHTML = '<i class="fas fa-plus opacity-20"></i>';
+                clickedCell.style.transform = 'scale(1)';
+
+                status.textContent = '❌ Ungültiger Zug - versuche einen anderen!';
+                status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-red-100 to-red-200 text-red-800 font-bold text-lg shadow-lg';
+            }
+
+            // Re-enable all cells
+            cells.forEach(cell => cell.style.pointerEvents = 'auto');
+            drawBoard();
+        })
+        .catch(err => {
+            console.error('❌ Move error:', err);
+            // Network error - revert
+            clickedCell.disabled = false;
+            clickedCell.style.opacity = '1';
+            clickedCell.innerHTML = '<i class="fas fa-plus opacity-20"></i>';
+            clickedCell.style.transform = 'scale(1)';
+
+            status.textContent = '🌐 Verbindungsfehler - versuche erneut!';
+            status.className = 'mb-8 p-6 rounded-2xl bg-gradient-to-r from-red-100 to-red-200 text-red-800 font-bold text-lg shadow-lg';
+
+            // Re-enable all cells
+            cells.forEach(cell => cell.style.pointerEvents = 'auto');
+            drawBoard();
+        })
+        .finally(() => {
+            isMovePending = false;
+        });
+    }
+}
+
+function updatePlayerStats(winner) {
+    let stats = JSON.parse(localStorage.getItem('ticTacToeStats') || '{}');
+    if (!stats[playerName]) {
+        stats[playerName] = { wins: 0, losses: 0, draws: 0, gamesPlayed: 0 };
+    }
+
+    stats[playerName].gamesPlayed++;
+
+    if (winner === 'DRAW') {
+        stats[playerName].draws++;
+    } else if (winner === mySymbol) {
+        stats[playerName].wins++;
+    } else {
+        stats[playerName].losses++;
+    }
+
+    localStorage.setItem('ticTacToeStats', JSON.stringify(stats));
+}
+
+async function resetGame() {
+    const result = await Swal.fire({
+        title: '🔄 Spiel neu starten',
+        text: 'Möchtest du das Spiel wirklich neu starten?',
+        icon: 'question',
+        showCancelButton: true,
+        confirmButtonText: '✅ Ja, neu starten!',
+        cancelButtonText: '❌ Abbrechen',
+        background: '#1a1a2e',
+        color: '#fff',
+        confirmButtonColor: '#10b981',
+        cancelButtonColor: '#6b7280'
+    });
+
+    if (result.isConfirmed) {
+        // Stop timer and reset all game state
+        stopGameTimer();
+
+        // Show loading animation
+        Swal.fire({
+            title: '🔄 Wird neu gestartet...',
+            text: 'Das Spiel wird neu geladen.',
+            icon: 'info',
+            background: '#1a1a2e',
+            color: '#fff',
+            showConfirmButton: false,
+            allowOutsideClick: false,
+            timer: 1500,
+            timerProgressBar: true
+        }).then(() => {
+            location.reload();
+        });
+    }
+}
+
+// Initialize page with welcome animation
+document.addEventListener('DOMContentLoaded', function() {
+    // Fade in animation for the whole page
+    document.body.style.opacity = '0';
+    document.body.style.transition = 'opacity 0.5s ease-in-out';
+    setTimeout(() => {
+        document.body.style.opacity = '1';
+    }, 100);
+});
+
+// Start the game
+console.log('🎮 Starting game initialization...');
+joinGame();
@@ -0,0 +1,590 @@
+console.log('🚀 TicTacToe Lobby JavaScript loaded');
+console.log('🌐 Current URL:', window.location.href);
+console.log('📊 Local Storage Player Name:', localStorage.getItem('ticTacToePlayerName'));
+
+let currentPlayerName = localStorage.getItem('ticTacToePlayerName') || '';
+console.log('👤 Current player name:', currentPlayerName);
+
+// Initialize player name on page load
+document.addEventListener('DOMContentLoaded', function() {
+    console.log('📄 DOM Content Loaded');
+    if (!currentPlayerName) {
+        console.log('🔐 No stored player name, prompting...');
+        promptForPlayerName();
+    } else {
+        console.log('✅ Player name found, updating display');
+        updatePlayerNameDisplay();
+    }
+});
+
+// Lobby-wide event stream: re-render the arena grid whenever an arena changes
+let arenaRefreshTimer = null;
+if ('EventSource' in window) {
+    const lobbyEvents = new EventSource('/api/events?lobby=1');
+    lobbyEvents.addEventListener('lobby', scheduleArenaRefresh);
+}
+
+function scheduleArenaRefresh() {
+    if (!arenaRefreshTimer) {
+        arenaRefreshTimer = setTimeout(() => {
+            arenaRefreshTimer = null;
+            refreshArenas();
+        }, 250);
+    }
+}
+
+// Incremental arena feed: only arenas changed since lobbyVersion are fetched.
+// Opaque to the client: a number, or one version per node in cluster mode
+let lobbyVersion = document.getElementById('arenaGrid').dataset.version;
+let arenaFilter = '';
+let arenaRefreshRunning = false;
+let arenaRefreshQueued = null;
+
+// Cluster: the page only lists this node's arenas and the event stream only
+// sees local changes, so load the full grid once and poll the other nodes
+if (document.getElementById('arenaGrid').dataset.cluster === '1') {
+    refreshArenas(true);
+    setInterval(() => refreshArenas(), 5000);
+}
+
+function setArenaFilter(filter) {
+    arenaFilter = filter;
+    document.querySelectorAll('#arenaFilter button').forEach(button => {
+        const active = button.dataset.filter === filter;
+        button.classList.toggle('bg-white', active);
+        button.classList.toggle('text-purple-700', active);
+        button.classList.toggle('bg-white/20', !active);
+        button.classList.toggle('text-white', !active);
+    });
+    refreshArenas(true);
+}
+
+async function refreshArenas(full) {
+    if (arenaRefreshRunning) {
+        arenaRefreshQueued = arenaRefreshQueued || !!full;
+        return;
+    }
+    arenaRefreshRunning = true;
+    try {
+        const grid = document.getElementById('arenaGrid');
+        let replace = !!full;
+        let cursor = null;
+        let version = null;
+        do {
+            const params = new URLSearchParams({ html: '1', limit: '100' });
+            if (!replace) params.set('since', lobbyVersion);
+            if (arenaFilter) params.set('status', arenaFilter);
+            if (cursor) params.set('cursor', cursor);
+            const response = await fetch('/api/arenas?' + params, { cache: 'no-store' });
+            const data = await response.json();
+            if (version === null) {
+                version = data.version;
+                // Server could not answer as delta (too old), rebuild the grid
+                replace = replace || data.full;
+                if (replace) grid.innerHTML = '';
+            }
+            data.removed.forEach(id => findArenaCard(grid, id)?.remove());
+            data.arenas.forEach(arena => upsertArenaCard(grid, arena));
+            cursor = data.nextCursor;
+        } while (cursor);
+        lobbyVersion = version;
+    } catch (error) {
+        console.error('❌ Error refreshing arenas:', error);
+    } finally {
+        arenaRefreshRunning = false;
+        if (arenaRefreshQueued !== null) {
+            const queuedFull = arenaRefreshQueued;
+            arenaRefreshQueued = null;
+            refreshArenas(queuedFull);
+        }
+    }
+}
+
+function findArenaCard(grid, id) {
+    return grid.querySelector('[data-arena-id="' + CSS.escape(id) + '"]');
+}
+
+function upsertArenaCard(grid, arena) {
+    const template = document.createElement('template');
+    template.innerHTML = arena.html.trim();
+    const card = template.content.firstElementChild;
+    const existing = findArenaCard(grid, arena.id);
+    if (existing) {
+        existing.replaceWith(card);
+    } else {
+        grid.appendChild(card);
+    }
+}
+
+function updatePlayerNameDisplay() {
+    document.getElementById('playerNameDisplay').textContent = currentPlayerName || 'Spieler';
+}
+
+async function promptForPlayerName() {
+    try {
+        console.log('💬 Prompting for player name, current:', currentPlayerName);
+        const { value: name } = await Swal.fire({
+            title: '🎮 Willkommen!',
+            text: 'Wie möchtest du genannt werden?',
+            input: 'text',
+            inputPlaceholder: 'Dein Spielername...',
+            inputValue: currentPlayerName,
+            showCancelButton: false,
+            allowOutsideClick: false,
+            inputValidator: (value) => {
+                if (!value || value.trim().length < 2) {
+                    return 'Bitte gib einen Namen mit mindestens 2 Zeichen ein!';
+                }
+                if (value.trim().length > 20) {
+                    return 'Name darf maximal 20 Zeichen haben!';
+                }
+                return null;
+            },
+            background: '#1a1a2e',
+            color: '#fff',
+            confirmButtonColor: '#7c3aed'
+        });
+
+        if (name) {
+            currentPlayerName = name.trim();
+            localStorage.setItem('ticTacToePlayerName', currentPlayerName);
+            updatePlayerNameDisplay();
+            console.log('✅ Player name set to:', currentPlayerName);
+
+            // Update stats
+            let stats = JSON.parse(localStorage.getItem('ticTacToeStats') || '{}');
+            if (!stats[currentPlayerName]) {
+                stats[currentPlayerName] = { wins: 0, losses: 0, draws: 0, gamesPlayed: 0 };
+                localStorage.setItem('ticTacToeStats', JSON.stringify(stats));
+                console.log('📊 Created new stats for player:', currentPlayerName);
+            }
+        } else {
+            console.warn('⚠️ No name provided in prompt');
+        }
+    } catch (error) {
+        console.error('❌ Error in promptForPlayerName:', error);
+    }
+}
+
+async function changePlayerName() {
+    await promptForPlayerName();
+}
+
+async function joinArena(arenaId) {
+    try {
+        console.log('🎮 Joining arena:', arenaId);
+        if (!currentPlayerName) {
+            console.log('🔐 No player name, prompting...');
+            await promptForPlayerName();
+        }
+
+        if (currentPlayerName) {
+            console.log('✅ Player name confirmed:', currentPlayerName);
+            const result = await Swal.fire({
+                title: '🚀 Arena beitreten',
+                text: `Möchtest du der Arena als "${currentPlayerName}" beitreten?`,
+                icon: 'question',
+                showCancelButton: true,
+                confirmButtonText: '✅ Ja, beitreten!',
+                cancelButtonText: '❌ Abbrechen',
+                background: '#1a1a2e',
+                color: '#fff',
+                confirmButtonColor: '#7c3aed',
+                cancelButtonColor: '#6b7280'
+            });
+
+            if (result.isConfirmed) {
+                const gameUrl = '/game?arena=' + arenaId + '&player=' + encodeURIComponent(currentPlayerName);
+                console.log('🚀 Redirecting to game:', gameUrl);
+                window.location.href = gameUrl;
+            } else {
+                console.log('❌ User cancelled joining arena');
+            }
+        } else {
+            console.warn('⚠️ No player name provided after prompt');
+        }
+    } catch (error) {
+        console.error('❌ Error in joinArena:', error);
+        await Swal.fire({
+            title: '❌ Fehler',
+            text: 'Fehler beim Beitreten der Arena: ' + error.message,
+            icon: 'error',
+            background: '#1a1a2e',
+            color: '#fff',
+            confirmButtonColor: '#ef4444'
+        });
+    }
+}
+
+async function quickMatch() {
+    try {
+        if (!currentPlayerName) {
+            await promptForPlayerName();
+        }
+        if (!currentPlayerName) {
+            return;
+        }
+        const player = currentPlayerName;
+        let searching = true;
+        Swal.fire({
+            title: '⚡ Suche Gegner...',
+            text: 'Du wirst automatisch mit dem nächsten freien Spieler gepaart.',
+            showConfirmButton: false,
+            showCancelButton: true,
+            cancelButtonText: '❌ Abbrechen',
+            allowOutsideClick: false,
+            background: '#1a1a2e',
+            color: '#fff',
+            cancelButtonColor: '#6b7280',
+            didOpen: () => Swal.showLoading()
+        }).then(result => {
+            if (searching && result.dismiss) {
+                searching = false;
+                fetch('/api/matchmake', {
+                    method: 'POST',
+                    headers: {'Content-Type': 'application/json'},
+                    body: JSON.stringify({player: player, action: 'cancel'})
+                });
+            }
+        });
+
+        const response = await fetch('/api/matchmake', {
+            method: 'POST',
+            headers: {'Content-Type': 'application/json'},
+            body: JSON.stringify({player: player})
+        });
+        const data = await response.json();
+        if (!searching) {
+            return;
+        }
+        searching = false;
+        if (data.matched) {
+            console.log('🤝 Matched against', data.opponent, 'in', data.arena);
+            localStorage.setItem('arenaToken:' + data.arena, data.token);
+            window.location.href = '/game?arena=' + encodeURIComponent(data.arena) + '&player=' + encodeURIComponent(player);
+            return;
+        }
+        Swal.close();
+        if (data.reason === 'timeout') {
+            const retry = await Swal.fire({
+                title: '⏳ Kein Gegner gefunden',
+                text: 'Gerade sucht niemand ein Spiel. Nochmal versuchen?',
+                icon: 'info',
+                showCancelButton: true,
+                confirmButtonText: '🔁 Weiter suchen',
+                cancelButtonText: '❌ Abbrechen',
+                background: '#1a1a2e',
+                color: '#fff',
+                confirmButtonColor: '#7c3aed',
+                cancelButtonColor: '#6b7280'
+            });
+            if (retry.isConfirmed) {
+                quickMatch();
+            }
+        }
+    } catch (error) {
+        console.error('❌ Error in quickMatch:', error);
+        await Swal.fire({
+            title: '❌ Fehler',
+            text: 'Matchmaking fehlgeschlagen: ' + error.message,
+            icon: 'error',
+            background: '#1a1a2e',
+            color: '#fff',
+            confirmButtonColor: '#ef4444'
+        });
+    }
+}
+
+async function showCreateArenaModal() {
+    const { value: formValues } = await Swal.fire({
+        title: '🏟️ Neue Arena erstellen',
+        html: `
+            <div class="space-y-4">
+                <div>
+                    <label class="block text-left text-white mb-2 font-semibold">Arena Name:</label>
+                    <input id="swal-arena-name" class="swal2-input" placeholder="Meine Arena" maxlength="20">
+                </div>
+                <div>
+                    <label class="block text-left text-white mb-2 font-semibold">Beschreibung:</label>
+                    <input id="swal-arena-desc" class="swal2-input" placeholder="Epische Kämpfe hier!" maxlength="50">
+                </div>
+            </div>
+        `,
+        focusConfirm: false,
+        showCancelButton: true,
+        confirmButtonText: '🚀 Arena erstellen',
+        cancelButtonText: '❌ Abbrechen',
+        background: '#1a1a2e',
+        color: '#fff',
+        confirmButtonColor: '#7c3aed',
+        cancelButtonColor: '#6b7280',
+        preConfirm: () => {
+            const name = document.getElementById('swal-arena-name').value.trim();
+            const desc = document.getElementById('swal-arena-desc').value.trim();
+
+            if (!name) {
+                Swal.showValidationMessage('Bitte Arena Name eingeben!');
+                return false;
+            }
+            if (name.length < 2) {
+                Swal.showValidationMessage('Name muss mindestens 2 Zeichen haben!');
+                return false;
+            }
+
+            return { name, desc: desc || name };
+        }
+    });
+
+    if (formValues) {
+        await createArena(formValues.name, formValues.desc);
+    }
+}
+
+async function createArena(name, description) {
+    try {
+        const response = await fetch('/api/create-arena', {
+            method: 'POST',
+            headers: {'Content-Type': 'application/json'},
+            body: JSON.stringify({name: name, description: description})
+        });
+
+        const data = await response.json();
+
+        if (data.success) {
+            await Swal.fire({
+                title: '✅ Arena erstellt!',
+                text: `Arena "${name}" wurde erfolgreich erstellt!`,
+                icon: 'success',
+                background: '#1a1a2e',
+                color: '#fff',
+                confirmButtonColor: '#10b981'
+            });
+            refreshArenas();
+        } else {
+            await Swal.fire({
+                title: '❌ Fehler',
+                text: data.message,
+                icon: 'error',
+                background: '#1a1a2e',
+                color: '#fff',
+                confirmButtonColor: '#ef4444'
+            });
+        }
+    } catch (err) {
+        await Swal.fire({
+            title: '🌐 Netzwerkfehler',
+            text: 'Verbindung zum Server fehlgeschlagen!',
+            icon: 'error',
+            background: '#1a1a2e',
+            color: '#fff',
+            confirmButtonColor: '#ef4444'
+        });
+    }
+}
+
+async function deleteArena(arenaId, arenaName) {
+    const result = await Swal.fire({
+        title: '🗑️ Arena löschen',
+        text: `Arena "${arenaName}" wirklich löschen?`,
+        icon: 'warning',
+        showCancelButton: true,
+        confirmButtonText: '🗑️ Ja, löschen!',
+        cancelButtonText: '❌ Abbrechen',
+        background: '#1a1a2e',
+        color: '#fff',
+        confirmButtonColor: '#ef4444',
+        cancelButtonColor: '#6b7280'
+    });
+
+    if (result.isConfirmed) {
+        try {
+            const response = await fetch('/api/delete-arena', {
+                method: 'POST',
+                headers: {'Content-Type': 'application/json'},
+                body: JSON.stringify({arenaId: arenaId})
+            });
+
+            const data = await response.json();
+
+            if (data.success) {
+                await Swal.fire({
+                    title: '✅ Arena gelöscht!',
+                    text: `Arena "${arenaName}" wurde erfolgreich gelöscht!`,
+                    icon: 'success',
+                    background: '#1a1a2e',
+                    color: '#fff',
+                    confirmButtonColor: '#10b981'
+                });
+                refreshArenas();
+            } else {
+                await Swal.fire({
+                    title: '❌ Fehler',
+                    text: data.message,
+                    icon: 'error',
+                    background: '#1a1a2e',
+                    color: '#fff',
+                    confirmButtonColor: '#ef4444'
+                });
+            }
+        } catch (err) {
+            await Swal.fire({
+                title: '🌐 Netzwerkfehler',
+                text: 'Verbindung zum Server fehlgeschlagen!',
+                icon: 'error',
+                background: '#1a1a2e',
+                color: '#fff',
+                confirmButtonColor: '#ef4444'
+            });
+        }
+    }
+}
+
+async function resetArena(arenaId, arenaName) {
+    const result = await Swal.fire({
+        title: '🔄 Arena zurücksetzen',
+        text: `Arena "${arenaName}" wirklich zurücksetzen?`,
+        icon: 'question',
+        showCancelButton: true,
+        confirmButtonText: '🔄 Ja, zurücksetzen!',
+        cancelButtonText: '❌ Abbrechen',
+        background: '#1a1a2e',
+        color: '#fff',
+        confirmButtonColor: '#f59e0b',
+        cancelButtonColor: '#6b7280'
+    });
+
+    if (result.isConfirmed) {
+        try {
+            const response = await fetch('/api/reset-arena', {
+                method: 'POST',
+                headers: {'Content-Type': 'application/json'},
+                body: JSON.stringify({arenaId: arenaId})
+            });
+
+            const data = await response.json();
+
+            if (data.success) {
+                await Swal.fire({
+                    title: '✅ Arena zurückgesetzt!',
+                    text: `Arena "${arenaName}" wurde erfolgreich zurückgesetzt!`,
+                    icon: 'success',
+                    background: '#1a1a2e',
+                    color: '#fff',
+                    confirmButtonColor: '#10b981'
+                });
+                refreshArenas();
+            } else {
+                await Swal.fire({
+                    title: '❌ Fehler',
+                    text: data.message,
+                    icon: 'error',
+                    background: '#1a1a2e',
+                    color: '#fff',
+                    confirmButtonColor: '#ef4444'
+                });
+            }
+        } catch (err) {
+            await Swal.fire({
+                title: '🌐 Netzwerkfehler',
+                text: 'Verbindung zum Server fehlgeschlagen!',
+                icon: 'error',
+                background: '#1a1a2e',
+                color: '#fff',
+                confirmButtonColor: '#ef4444'
+            });
+        }
+    }
+}
+
+async function showPlayerStats() {
+    const stats = JSON.parse(localStorage.getItem('ticTacToeStats') || '{}');
+    const playerStats = stats[currentPlayerName] || { wins: 0, losses: 0, draws: 0, gamesPlayed: 0 };
+
+    const winRate = playerStats.gamesPlayed > 0 ?
+        Math.round((playerStats.wins / playerStats.gamesPlayed) * 100) : 0;
+
+    await Swal.fire({
+        title: `📊 Statistiken von ${currentPlayerName}`,
+        html: `
+            <div class="text-left space-y-3">
+                <div class="bg-green-100 p-3 rounded-lg">
+                    <p class="text-green-800 font-semibold">🏆 Siege: ${playerStats.wins}</p>
+                </div>
+                <div class="bg-red-100 p-3 rounded-lg">
+                    <p class="text-red-800 font-semibold">❌ Niederlagen: ${playerStats.losses}</p>
+                </div>
+                <div class="bg-yellow-100 p-3 rounded-lg">
+                    <p class="text-yellow-800 font-semibold">🤝 Unentschieden: ${playerStats.draws}</p>
+                </div>
+                <div class="bg-blue-100 p-3 rounded-lg">
+                    <p class="text-blue-800 font-semibold">🎮 Gesamt Spiele: ${playerStats.gamesPlayed}</p>
+                </div>
+                <div class="bg-purple-100 p-3 rounded-lg">
+                    <p class="text-purple-800 font-semibold">📈 Siegesrate: ${winRate}%</p>
+                </div>
+            </div>
+        `,
+        background: '#1a1a2e',
+        color: '#fff',
+        confirmButtonColor: '#7c3aed'
+    });
+}
+
+async function showSettings() {
+    const { value: result } = await Swal.fire({
+        title: '⚙️ Einstellungen',
+        html: `
+            <div class="text-left space-y-4">
+                <div>
+                    <label class="block text-white mb-2 font-semibold">🎨 Theme:</label>
+                    <select id="swal-theme" class="swal2-select">
+                        <option value="default">Standard (Lila/Blau)</option>
+                        <option value="dark">Dunkel</option>
+                        <option value="neon">Neon</option>
+                    </select>
+                </div>
+                <div>
+                    <label class="block text-white mb-2 font-semibold">🔊 Sound:</label>
+                    <select id="swal-sound" class="swal2-select">
+                        <option value="on">An</option>
+                        <option value="off">Aus</option>
+                    </select>
+                </div>
+                <div>
+                    <label class="block text-white mb-2 font-semibold">📱 Animations:</label>
+                    <select id="swal-animations" class="swal2-select">
+                        <option value="on">An</option>
+                        <option value="off">Aus</option>
+                    </select>
+                </div>
+            </div>
+        `,
+        showCancelButton: true,
+        confirmButtonText: '💾 Speichern',
+        cancelButtonText: '❌ Abbrechen',
+        background: '#1a1a2e',
+        color: '#fff',
+        confirmButtonColor: '#7c3aed',
+        cancelButtonColor: '#6b7280',
+        focusConfirm: false,
+        preConfirm: () => {
+            return {
+                theme: document.getElementById('swal-theme').value,
+                sound: document.getElementById('swal-sound').value,
+                animations: document.getElementById('swal-animations').value
+            };
+        }
+    });
+
+    if (result) {
+        localStorage.setItem('ticTacToeSettings', JSON.stringify(result));
+        await Swal.fire({
+            title: '✅ Einstellungen gespeichert!',
+            text: 'Deine Einstellungen wurden erfolgreich gespeichert!',
+            icon: 'success',
+            background: '#1a1a2e',
+            color: '#fff',
+            confirmButtonColor: '#10b981'
+        });
+    }
+}
@@ -0,0 +1,36 @@
+const boardElement = document.getElementById('board');
+const status = document.getElementById('status');
+
+function render(data) {
+    boardElement.innerHTML = '';
+    for (const cell of data.board.split('')) {
+        const div = document.createElement('div');
+        div.className = 'h-24 flex items-center justify-center rounded-xl bg-white text-5xl font-bold '
+            + (cell === 'X' ? 'text-blue-600' : 'text-red-500');
+        div.textContent = cell.trim();
+        boardElement.appendChild(div);
+    }
+    document.getElementById('players').textContent = data.players.length === 2
+        ? data.players[0] + ' (X) vs ' + data.players[1] + ' (O)'
+        : data.players.length === 1 ? data.players[0] + ' wartet auf einen Gegner' : 'Warte auf Spieler...';
+    if (data.winner === 'DRAW') {
+        status.textContent = '🤝 Unentschieden!';
+    } else if (data.winner) {
+        status.textContent = '🏆 ' + data.players[data.winner === 'X' ? 0 : 1] + ' gewinnt!';
+    } else if (data.gameStarted) {
+        status.textContent = '🎲 ' + data.players[data.currentPlayer === 'X' ? 0 : 1] + ' ist am Zug';
+    } else {
+        status.textContent = '⏳ Spiel noch nicht gestartet';
+    }
+}
+
+// The server only sends the newest state, a slow connection skips intermediate moves
+const events = new EventSource('/api/spectate?arena=' + encodeURIComponent(arenaId));
+events.addEventListener('state', (event) => render(JSON.parse(event.data)));
+events.addEventListener('viewers', (event) => {
+    document.getElementById('spectators').textContent = JSON.parse(event.data).spectators;
+});
+events.addEventListener('deleted', () => {
+    events.close();
+    status.textContent = '🧹 Die Arena wurde geschlossen';
+});
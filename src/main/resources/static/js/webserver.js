@@ -0,0 +1,99 @@
+let board = Array(9).fill('');
+let currentPlayer = 'X';
+let gameActive = false;
+let playerName = '';
+
+function startGame() {
+    playerName = document.getElementById('playerName').value.trim();
+    if (!playerName) {
+        alert('Bitte gib deinen Namen ein!');
+        return;
+    }
+
+    document.getElementById('serverUrl').textContent = window.location.href;
+    document.getElementById('gameInfo').style.display = 'block';
+    document.getElementById('joinForm').style.display = 'none';
+    document.getElementById('gameBoard').style.display = 'block';
+
+    initGame();
+}
+
+function initGame() {
+    const status = document.getElementById('status');
+    status.textContent = 'Spiel bereit! Du bist ' + currentPlayer;
+    status.className = 'status playing';
+    gameActive = true;
+    drawBoard();
+}
+
+function drawBoard() {
+    const boardDiv = document.getElementById('board');
+    boardDiv.innerHTML = '';
+
+    for (let i = 0; i < 9; i++) {
+        const cell = document.createElement('button');
+        cell.className = 'cell';
+        cell.textContent = board[i];
+        cell.disabled = board[i] !== '' || !gameActive;
+        cell.onclick = () => makeMove(i);
+        boardDiv.appendChild(cell);
+    }
+}
+
+function makeMove(index) {
+    if (board[index] === '' && gameActive) {
+        board[index] = currentPlayer;
+        drawBoard();
+
+        if (checkWin(board, currentPlayer)) {
+            document.getElementById('status').textContent = '🎉 ' + playerName + ' gewinnt!';
+            document.getElementById('status').className = 'status win';
+            gameActive = false;
+        } else if (isDraw(board)) {
+            document.getElementById('status').textContent = '🤝 Unentschieden!';
+            document.getElementById('status').className = 'status draw';
+            gameActive = false;
+        } else {
+            currentPlayer = currentPlayer === 'X' ? 'O' : 'X';
+            document.getElementById('status').textContent = 'Spieler ' + currentPlayer + ' ist dran';
+        }
+    }
+}
+
+function checkWin(board, player) {
+    const winConditions = [
+        [0, 1, 2], [3, 4, 5], [6, 7, 8], // Reihen
+        [0, 3, 6], [1, 4, 7], [2, 5, 8], // Spalten
+        [0, 4, 8], [2, 4, 6] // Diagonalen
+    ];
+
+    return winConditions.some(condition => {
+        return condition.every(index => {
+            return board[index] === player;
+        });
+    });
+}
+
+function isDraw(board) {
+    return board.every(cell => cell !== '');
+}
+
+function resetGame() {
+    board = Array(9).fill('');
+    currentPlayer = 'X';
+    gameActive = true;
+    document.getElementById('status').textContent = 'Neues Spiel! Du bist ' + currentPlayer;
+    document.getElementById('status').className = 'status playing';
+    drawBoard();
+}
+
+// Reset Button hinzufügen
+document.addEventListener('DOMContentLoaded', function() {
+    const container = document.querySelector('.container');
+    const resetBtn = document.createElement('button');
+    resetBtn.textContent = '🔄 Neues Spiel';
+    resetBtn.className = 'btn';
+    resetBtn.style.marginTop = '20px';
+    resetBtn.onclick = resetGame;
+    container.appendChild(resetBtn);
+});